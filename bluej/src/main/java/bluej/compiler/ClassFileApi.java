@@ -0,0 +1,449 @@
+/*
+ This file is part of the BlueJ program. 
+ Copyright (C) 2026  Michael Kolling and John Rosenberg
+ 
+ This program is free software; you can redistribute it and/or 
+ modify it under the terms of the GNU General Public License 
+ as published by the Free Software Foundation; either version 2 
+ of the License, or (at your option) any later version. 
+ 
+ This program is distributed in the hope that it will be useful, 
+ but WITHOUT ANY WARRANTY; without even the implied warranty of 
+ MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the 
+ GNU General Public License for more details. 
+ 
+ You should have received a copy of the GNU General Public License 
+ along with this program; if not, write to the Free Software 
+ Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA. 
+ 
+ This file is subject to the Classpath exception as provided in the  
+ LICENSE.txt file that accompanied this code.
+ */
+package bluej.compiler;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * A summary of a class file: hashes of the API which it offers to other classes, and the
+ * names which it uses from other classes. This is read from the class file, so it is exactly
+ * the API that the compiler saw (or produced).
+ *
+ * <p>The API is hashed per member name: all the members (fields and methods, including
+ * constructors) with the same name have one hash between them, since adding an overload can
+ * change which method a call refers to. Private and synthetic members are not part of the API.
+ * The rest of the class (its modifiers, supertypes, type parameters, member classes, and the
+ * values of its constants) has a hash of its own. Constant values are part of the class hash
+ * since the compiler copies them into the classes which use them, which then have no
+ * reference to the constant at all.
+ */
+class ClassFileApi
+{
+    private static final int ACC_PRIVATE = 0x0002;
+    private static final int ACC_SYNTHETIC = 0x1000;
+    /** The modifiers of a class which matter to other classes */
+    private static final int CLASS_FLAGS = 0x0001 | 0x0010 | 0x0200 | 0x0400 | 0x2000 | 0x4000;
+    /** The modifiers of a member class, as given in the InnerClasses attribute */
+    private static final int MEMBER_CLASS_FLAGS = CLASS_FLAGS | 0x0002 | 0x0004 | 0x0008;
+    /** The modifiers of a field which matter to other classes: access, static, final, enum */
+    private static final int FIELD_FLAGS = 0x0001 | 0x0004 | 0x0008 | 0x0010 | 0x4000;
+    /** The modifiers of a method which matter to other classes: access, static, final, varargs, abstract */
+    private static final int METHOD_FLAGS = 0x0001 | 0x0004 | 0x0008 | 0x0010 | 0x0080 | 0x0400;
+
+    /** Class names which appear in descriptors and signatures */
+    private static final Pattern DESCRIPTOR_CLASS = Pattern.compile("L([^;<\\[]+)[;<]");
+
+    private final String name;
+    private final String sourceFile;
+    private final List<String> supertypes;
+    private final long classHash;
+    private final long constantsHash;
+    private final Map<String, Long> memberHashes;
+    private final long fullHash;
+    private final Set<String> usedNames;
+    private final Set<String> referencedClasses;
+
+    private ClassFileApi(String name, String sourceFile, List<String> supertypes, String classDescription,
+            String constantsDescription, Map<String, List<String>> memberDescriptions,
+            Set<String> usedNames, Set<String> referencedClasses)
+    {
+        this.name = name;
+        this.sourceFile = sourceFile;
+        this.supertypes = supertypes;
+        this.classHash = hash(classDescription + "\n" + constantsDescription);
+        this.constantsHash = hash(constantsDescription);
+        this.usedNames = usedNames;
+        this.referencedClasses = referencedClasses;
+
+        Map<String, Long> hashes = new TreeMap<>();
+        for (Map.Entry<String, List<String>> member : memberDescriptions.entrySet())
+        {
+            // Sort, so that reordering the members doesn't change the hash:
+            Collections.sort(member.getValue());
+            hashes.put(member.getKey(), hash(String.join("\n", member.getValue())));
+        }
+        this.memberHashes = Collections.unmodifiableMap(hashes);
+        this.fullHash = hash(classHash + " " + memberHashes);
+    }
+
+    /**
+     * Read a class file.
+     *
+     * @throws IOException  if the file can't be read, or is not a valid class file
+     */
+    public static ClassFileApi read(File file) throws IOException
+    {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file))))
+        {
+            if (in.readInt() != 0xCAFEBABE)
+            {
+                throw new IOException("Not a class file: " + file);
+            }
+            in.readUnsignedShort(); // minor version
+            in.readUnsignedShort(); // major version
+
+            // The constant pool. Each entry is either a string (for Utf8 entries), a constant
+            // value, or up to two indexes of other entries:
+            int poolSize = in.readUnsignedShort();
+            int[] tags = new int[poolSize];
+            String[] utf8 = new String[poolSize];
+            String[] values = new String[poolSize];
+            int[] first = new int[poolSize];
+            int[] second = new int[poolSize];
+            for (int i = 1; i < poolSize; i++)
+            {
+                tags[i] = in.readUnsignedByte();
+                switch (tags[i])
+                {
+                    case 1 -> utf8[i] = in.readUTF();
+                    case 3 -> values[i] = "I" + in.readInt();
+                    case 4 -> values[i] = "F" + in.readInt();
+                    case 5 -> values[i++] = "J" + in.readLong();
+                    case 6 -> values[i++] = "D" + in.readLong();
+                    case 7, 8, 16, 19, 20 -> first[i] = in.readUnsignedShort();
+                    case 9, 10, 11, 12, 17, 18 ->
+                    {
+                        first[i] = in.readUnsignedShort();
+                        second[i] = in.readUnsignedShort();
+                    }
+                    case 15 ->
+                    {
+                        first[i] = in.readUnsignedByte();
+                        second[i] = in.readUnsignedShort();
+                    }
+                    default -> throw new IOException("Unknown constant pool entry " + tags[i] + " in " + file);
+                }
+            }
+
+            Set<String> usedNames = new HashSet<>();
+            Set<String> referencedClasses = new HashSet<>();
+            for (int i = 1; i < poolSize; i++)
+            {
+                if (tags[i] == 12)
+                {
+                    // NameAndType: the name of a field or method used by this class
+                    usedNames.add(utf8[first[i]]);
+                }
+                else if (tags[i] == 7)
+                {
+                    String className = utf8[first[i]];
+                    if (!className.startsWith("["))
+                    {
+                        referencedClasses.add(className);
+                    }
+                }
+                else if (tags[i] == 1)
+                {
+                    Matcher m = DESCRIPTOR_CLASS.matcher(utf8[i]);
+                    while (m.find())
+                    {
+                        referencedClasses.add(m.group(1));
+                    }
+                }
+            }
+
+            int access = in.readUnsignedShort();
+            String name = utf8[first[in.readUnsignedShort()]];
+            int superIndex = in.readUnsignedShort();
+            List<String> supertypes = new ArrayList<>();
+            if (superIndex != 0)
+            {
+                supertypes.add(utf8[first[superIndex]]);
+            }
+            int interfaceCount = in.readUnsignedShort();
+            for (int i = 0; i < interfaceCount; i++)
+            {
+                supertypes.add(utf8[first[in.readUnsignedShort()]]);
+            }
+            referencedClasses.remove(name);
+
+            Map<String, List<String>> members = new HashMap<>();
+            Set<String> constants = new TreeSet<>();
+            int fieldCount = in.readUnsignedShort();
+            for (int i = 0; i < fieldCount; i++)
+            {
+                int flags = in.readUnsignedShort();
+                String fieldName = utf8[in.readUnsignedShort()];
+                String descriptor = utf8[in.readUnsignedShort()];
+                String signature = null;
+                String constant = null;
+                int attributeCount = in.readUnsignedShort();
+                for (int a = 0; a < attributeCount; a++)
+                {
+                    String attribute = utf8[in.readUnsignedShort()];
+                    int length = in.readInt();
+                    switch (attribute)
+                    {
+                        case "Signature" -> signature = utf8[in.readUnsignedShort()];
+                        case "ConstantValue" ->
+                        {
+                            int index = in.readUnsignedShort();
+                            constant = tags[index] == 8 ? "S" + utf8[first[index]] : values[index];
+                        }
+                        default -> in.skipNBytes(length);
+                    }
+                }
+                usedNames.add(fieldName);
+                if ((flags & (ACC_PRIVATE | ACC_SYNTHETIC)) == 0)
+                {
+                    members.computeIfAbsent(fieldName, k -> new ArrayList<>())
+                            .add("field " + (flags & FIELD_FLAGS) + " " + descriptor + " " + signature + " " + constant);
+                    if (constant != null)
+                    {
+                        constants.add(fieldName + "=" + constant);
+                    }
+                }
+            }
+
+            int methodCount = in.readUnsignedShort();
+            for (int i = 0; i < methodCount; i++)
+            {
+                int flags = in.readUnsignedShort();
+                String methodName = utf8[in.readUnsignedShort()];
+                String descriptor = utf8[in.readUnsignedShort()];
+                String signature = null;
+                Set<String> exceptions = new TreeSet<>();
+                boolean hasDefault = false;
+                int attributeCount = in.readUnsignedShort();
+                for (int a = 0; a < attributeCount; a++)
+                {
+                    String attribute = utf8[in.readUnsignedShort()];
+                    int length = in.readInt();
+                    switch (attribute)
+                    {
+                        case "Signature" -> signature = utf8[in.readUnsignedShort()];
+                        case "Exceptions" ->
+                        {
+                            int count = in.readUnsignedShort();
+                            for (int e = 0; e < count; e++)
+                            {
+                                exceptions.add(utf8[first[in.readUnsignedShort()]]);
+                            }
+                        }
+                        case "AnnotationDefault" ->
+                        {
+                            hasDefault = true;
+                            in.skipNBytes(length);
+                        }
+                        default -> in.skipNBytes(length);
+                    }
+                }
+                usedNames.add(methodName);
+                if ((flags & (ACC_PRIVATE | ACC_SYNTHETIC)) == 0 && !methodName.equals("<clinit>"))
+                {
+                    members.computeIfAbsent(methodName, k -> new ArrayList<>())
+                            .add("method " + (flags & METHOD_FLAGS) + " " + descriptor + " " + signature
+                                    + " throws " + exceptions + (hasDefault ? " default" : ""));
+                }
+            }
+
+            String sourceFile = null;
+            String signature = null;
+            Set<String> memberClasses = new TreeSet<>();
+            Set<String> permitted = new TreeSet<>();
+            List<String> recordComponents = new ArrayList<>();
+            int attributeCount = in.readUnsignedShort();
+            for (int a = 0; a < attributeCount; a++)
+            {
+                String attribute = utf8[in.readUnsignedShort()];
+                int length = in.readInt();
+                switch (attribute)
+                {
+                    case "SourceFile" -> sourceFile = utf8[in.readUnsignedShort()];
+                    case "Signature" -> signature = utf8[in.readUnsignedShort()];
+                    case "InnerClasses" ->
+                    {
+                        int count = in.readUnsignedShort();
+                        for (int c = 0; c < count; c++)
+                        {
+                            int inner = in.readUnsignedShort();
+                            int outer = in.readUnsignedShort();
+                            in.readUnsignedShort(); // simple name
+                            int flags = in.readUnsignedShort();
+                            String innerName = utf8[first[inner]];
+                            // This class's own modifiers (if it is a member class), and its
+                            // member classes, but not its local and anonymous classes:
+                            if (innerName.equals(name) || (outer != 0 && utf8[first[outer]].equals(name)))
+                            {
+                                memberClasses.add(innerName + " " + (flags & MEMBER_CLASS_FLAGS));
+                            }
+                        }
+                    }
+                    case "PermittedSubclasses" ->
+                    {
+                        int count = in.readUnsignedShort();
+                        for (int c = 0; c < count; c++)
+                        {
+                            permitted.add(utf8[first[in.readUnsignedShort()]]);
+                        }
+                    }
+                    case "Record" ->
+                    {
+                        int count = in.readUnsignedShort();
+                        for (int c = 0; c < count; c++)
+                        {
+                            recordComponents.add(utf8[in.readUnsignedShort()] + " " + utf8[in.readUnsignedShort()]);
+                            int componentAttributes = in.readUnsignedShort();
+                            for (int ca = 0; ca < componentAttributes; ca++)
+                            {
+                                in.readUnsignedShort();
+                                in.skipNBytes(in.readInt());
+                            }
+                        }
+                    }
+                    default -> in.skipNBytes(length);
+                }
+            }
+
+            String classDescription = "class " + (access & CLASS_FLAGS) + " " + name + " " + supertypes + " "
+                    + signature + " " + memberClasses + " permits " + permitted + " record " + recordComponents;
+            return new ClassFileApi(name, sourceFile, Collections.unmodifiableList(supertypes), classDescription,
+                    constants.toString(), members, Collections.unmodifiableSet(usedNames),
+                    Collections.unmodifiableSet(referencedClasses));
+        }
+        catch (ArrayIndexOutOfBoundsException | NullPointerException e)
+        {
+            throw new IOException("Invalid class file: " + file, e);
+        }
+    }
+
+    /**
+     * Get the internal name of the class (for example, "a/b/C$D").
+     */
+    public String getName()
+    {
+        return name;
+    }
+
+    /**
+     * Get the name (without a directory) of the source file the class was compiled from,
+     * or null if the class file does not record it.
+     */
+    public String getSourceFile()
+    {
+        return sourceFile;
+    }
+
+    /**
+     * Get the internal names of the superclass (if any) and the interfaces of the class.
+     */
+    public List<String> getSupertypes()
+    {
+        return supertypes;
+    }
+
+    /**
+     * Get the hash of the values of the class's constants (static final fields with a
+     * constant value).
+     */
+    public long getConstantsHash()
+    {
+        return constantsHash;
+    }
+
+    /**
+     * Get a hash of the whole API of the class.
+     */
+    public long getFullHash()
+    {
+        return fullHash;
+    }
+
+    /**
+     * Get a hash of the parts of the API which may affect a class which uses the given
+     * names: the class hash, and the hashes of the members with those names.
+     *
+     * @param names  The names, in the same order each time
+     */
+    public long getHashFor(Collection<String> names)
+    {
+        StringBuilder description = new StringBuilder().append(classHash);
+        for (String memberName : names)
+        {
+            Long memberHash = memberHashes.get(memberName);
+            if (memberHash != null)
+            {
+                description.append(' ').append(memberName).append('=').append(memberHash);
+            }
+        }
+        return hash(description.toString());
+    }
+
+    /**
+     * Get the names of the fields and methods which the class uses or declares. A member
+     * of another class with one of these names may affect the compilation of the class.
+     */
+    public Set<String> getUsedNames()
+    {
+        return usedNames;
+    }
+
+    /**
+     * Get the internal names of the classes which the class refers to. This may include
+     * some names which are not actually classes.
+     */
+    public Set<String> getReferencedClasses()
+    {
+        return referencedClasses;
+    }
+
+    /**
+     * Get a (64-bit) hash of a description of some API.
+     */
+    static long hash(String description)
+    {
+        try
+        {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(description.getBytes(StandardCharsets.UTF_8));
+            long hash = 0;
+            for (int i = 0; i < 8; i++)
+            {
+                hash = (hash << 8) | (digest[i] & 0xff);
+            }
+            return hash;
+        }
+        catch (NoSuchAlgorithmException e)
+        {
+            // SHA-256 is always available:
+            throw new IllegalStateException(e);
+        }
+    }
+}
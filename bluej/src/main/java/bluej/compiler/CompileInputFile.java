@@ -31,6 +31,7 @@ public class CompileInputFile implements Serializable
 {
     private final File actualJavaFileForCompiler;
     private final File sourceFileToRecord;
+    private final String unsavedJavaSource;
 
     /**
      *
@@ -38,9 +39,22 @@ public class CompileInputFile implements Serializable
      * @param sourceFileToRecord The Stride file for Stride (or Java for Java; in this case, both parameters will be identical).
      */
     public CompileInputFile(File actualJavaFileForCompiler, File sourceFileToRecord)
+    {
+        this(actualJavaFileForCompiler, sourceFileToRecord, null);
+    }
+
+    /**
+     *
+     * @param actualJavaFileForCompiler The .java file that the compiler will see, even if the original was Stride
+     * @param sourceFileToRecord The Stride file for Stride (or Java for Java; in this case, both parameters will be identical).
+     * @param unsavedJavaSource The (unsaved) Java source to compile in place of the file's contents, or null
+     *                          to compile the file as saved.  Only used by compilations which do not keep classes.
+     */
+    public CompileInputFile(File actualJavaFileForCompiler, File sourceFileToRecord, String unsavedJavaSource)
     {
         this.actualJavaFileForCompiler = actualJavaFileForCompiler;
         this.sourceFileToRecord = sourceFileToRecord;
+        this.unsavedJavaSource = unsavedJavaSource;
     }
 
     /**
@@ -59,6 +73,15 @@ public class CompileInputFile implements Serializable
         return sourceFileToRecord;
     }
 
+    /**
+     * The Java source to compile in place of the contents of the .java file, if the source
+     * has been edited but not saved; null if the file is to be compiled as saved.
+     */
+    public String getUnsavedJavaSource()
+    {
+        return unsavedJavaSource;
+    }
+
     public boolean isValid()
     {
         return (actualJavaFileForCompiler !=null && sourceFileToRecord != null);
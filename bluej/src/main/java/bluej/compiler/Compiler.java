@@ -25,6 +25,8 @@ package bluej.compiler;
 import java.io.File;
 import java.nio.charset.Charset;
 import java.util.List;
+import java.util.Map;
+import java.util.function.BooleanSupplier;
 
 /**
  * Compiler class - an abstract interface to a source-to-bytecode compiler. This
@@ -39,11 +41,15 @@ abstract class Compiler
     public static final String COMPILER_OPTIONS = "bluej.compiler.options";
 
     private File destDir;
+    /** Where class files are written, if not to the destination directory - may be null */
+    private File classOutputDir;
     private List<File> classPath;
     /** "boot" class path - may be null if not specified */
     private File[] bootClassPath;
     private boolean debug;
     private boolean deprecation;
+    /** Checked during compilation, to see if it should be abandoned - may be null */
+    private BooleanSupplier cancelCheck;
 
     /**
      * Set the destination directory - the base directory for where the compiled class files
@@ -57,6 +63,18 @@ abstract class Compiler
         this.destDir = destDir;
     }
 
+    /**
+     * Set the directory which the class files are written to, if it is not the
+     * destination directory (which is still the source path, and should be on the
+     * class path).
+     * 
+     * @param classOutputDir  The directory, or null to write to the destination directory.
+     */
+    public void setClassOutputDir(File classOutputDir)
+    {
+        this.classOutputDir = classOutputDir;
+    }
+
     public void setClasspath(List<File> classPath)
     {
         this.classPath = classPath;
@@ -72,6 +90,18 @@ abstract class Compiler
         this.bootClassPath = bootClassPath;
     }
 
+    /**
+     * Specify a check for whether compilation should be abandoned. The compiler checks
+     * it during compilation, and if it returns true, stops compiling (without reporting
+     * any further diagnostics), and the compilation is unsuccessful.
+     * 
+     * @param cancelCheck  The check, or null if compilation cannot be abandoned.
+     */
+    public void setCancelCheck(BooleanSupplier cancelCheck)
+    {
+        this.cancelCheck = cancelCheck;
+    }
+
     public void setDebug(boolean debug)
     {
         this.debug = debug;
@@ -97,6 +127,15 @@ abstract class Compiler
         return destDir;
     }
 
+    /**
+     * Get the directory which the class files are written to: the class output
+     * directory if one is set, and otherwise the destination directory.
+     */
+    public File getClassOutputDir()
+    {
+        return classOutputDir != null ? classOutputDir : destDir;
+    }
+
     public List<File> getClassPath()
     {
         return classPath;
@@ -107,11 +146,20 @@ abstract class Compiler
         return bootClassPath;
     }
 
+    public BooleanSupplier getCancelCheck()
+    {
+        return cancelCheck;
+    }
+
     /**
      * Compile some source files.
      * 
      * @param sources
      *            The files to compile
+     * @param unsavedSources
+     *            The source to compile in place of the contents of some of the files,
+     *            which have been edited but not saved (only for compilations which do
+     *            not keep classes)
      * @param observer
      *            The compilation observer
      * @param internal
@@ -124,7 +172,7 @@ abstract class Compiler
      * 
      * @return  true if the compilation was successful
      */
-    public abstract boolean compile(File[] sources, CompileObserver observer,
+    public abstract boolean compile(File[] sources, Map<File, String> unsavedSources, CompileObserver observer,
             boolean internal, List<String> options, Charset fileCharset, CompileType type);
 
 }
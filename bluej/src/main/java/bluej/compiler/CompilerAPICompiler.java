@@ -25,20 +25,25 @@ import java.io.File;
 import java.io.IOException;
 import java.net.URI;
 import java.nio.charset.Charset;
-import java.nio.file.Files;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
 
 import javax.tools.Diagnostic;
 import javax.tools.DiagnosticListener;
 import javax.tools.JavaCompiler;
+import javax.tools.JavaCompiler.CompilationTask;
+import javax.tools.JavaFileManager;
 import javax.tools.JavaFileObject;
 import javax.tools.StandardJavaFileManager;
-import javax.tools.StandardLocation;
-import javax.tools.ToolProvider;
+
+import com.sun.source.util.JavacTask;
+import com.sun.source.util.TaskEvent;
+import com.sun.source.util.TaskListener;
 
 import bluej.Config;
 import bluej.compiler.Diagnostic.DiagnosticOrigin;
@@ -52,6 +57,16 @@ public class CompilerAPICompiler extends Compiler
 {
     private static final AtomicInteger nextDiagnosticIdentifier = new AtomicInteger(1);
 
+    /**
+     * Thrown (by a task listener) to abandon a compilation which has been cancelled.
+     */
+    private static class CompilationCancelledException extends RuntimeException
+    {
+    }
+
+    /** The compiler and file manager, kept from one compilation to the next */
+    private final CompilerSession session = new CompilerSession();
+
     public CompilerAPICompiler()
     {
         setDebug(true);
@@ -64,6 +79,9 @@ public class CompilerAPICompiler extends Compiler
      * 
      * @param sources
      *            The files to compile
+     * @param unsavedSources
+     *            The source to compile in place of the contents of some of the files
+     *            (only used if classes are not kept)
      * @param observer
      *            The compilation observer
      * @param internal
@@ -73,11 +91,12 @@ public class CompilerAPICompiler extends Compiler
      * @return  true if successful
      */
     @Override
-    public boolean compile(final File[] sources, final CompileObserver observer,
+    public boolean compile(final File[] sources, Map<File, String> unsavedSources, final CompileObserver observer,
             final boolean internal, List<String> userOptions, Charset fileCharset, CompileType type)
     {
         boolean result = true;
-        JavaCompiler jc = ToolProvider.getSystemJavaCompiler();
+        JavaCompiler jc = session.getCompiler();
+        BooleanSupplier cancelCheck = getCancelCheck();
         List<String> optionsList = new ArrayList<String>();
 
         if (jc == null) {
@@ -91,6 +110,11 @@ public class CompilerAPICompiler extends Compiler
             @Override
             public void report(Diagnostic<? extends JavaFileObject> diag)
             {
+                if (cancelCheck != null && cancelCheck.getAsBoolean()) {
+                    // The results of a cancelled compilation are not wanted
+                    return;
+                }
+
                 String src = null;
                 if (diag.getSource() != null)
                 {
@@ -183,60 +207,74 @@ public class CompilerAPICompiler extends Compiler
 
         try
         {  
-            //setup the filemanager
-            StandardJavaFileManager sjfm = jc.getStandardFileManager(diagListener, null, fileCharset);
-            List<File> pathList = new ArrayList<File>();
-            List<File> outputList = new ArrayList<File>();
-            outputList.add(getDestDir());
-            pathList.addAll(getClassPath());
+            //add any options
+            if(isDebug()) {
+                optionsList.add("-g");
+            }
+            if(isDeprecation()) {
+                optionsList.add("-deprecation");
+            }
+            optionsList.addAll(userOptions);
 
-            // In BlueJ, the destination directory and the source path are
-            // always the same
-            sjfm.setLocation(StandardLocation.SOURCE_PATH, outputList);
-            sjfm.setLocation(StandardLocation.CLASS_PATH, pathList);
-            File tempDir = null;
+            //get the filemanager, which is only set up again if the class path has changed
+            StandardJavaFileManager sjfm = session.getFileManager(getClassPath(), getBootClassPath(),
+                    getDestDir(), getClassOutputDir(), fileCharset, optionsList);
+            JavaFileManager fileManager;
+            Iterable<? extends JavaFileObject> compilationUnits1;
             if (type.keepClasses())
             {
-                sjfm.setLocation(StandardLocation.CLASS_OUTPUT, outputList);
+                fileManager = sjfm;
+                //get the source files for compilation
+                compilationUnits1 = sjfm.getJavaFileObjectsFromFiles(Arrays.asList(sources));
             }
             else
             {
-                // We could make a new file manager that memory-mapped the output files
-                // and discarded them... but creating a temporary dir is much more
-                // straightforward:
-                tempDir = Files.createTempDirectory("bluej").toFile();
-                sjfm.setLocation(StandardLocation.CLASS_OUTPUT, Arrays.asList(tempDir));
+                // The classes are thrown away, and unsaved sources are compiled from
+                // memory, so that checking for errors needs no files written:
+                InMemoryFileManager imfm = new InMemoryFileManager(sjfm);
+                fileManager = imfm;
+                compilationUnits1 = imfm.getJavaFileObjects(sources, unsavedSources);
             }
 
-            //get the source files for compilation  
-            Iterable<? extends JavaFileObject> compilationUnits1 =
-                sjfm.getJavaFileObjectsFromFiles(Arrays.asList(sources));
-            //add any options
-            if(isDebug()) {
-                optionsList.add("-g");
+            //compile (the file manager is kept open for the next compilation)
+            CompilationTask task = jc.getTask(null, fileManager, diagListener, optionsList, null, compilationUnits1);
+            if (cancelCheck != null && task instanceof JavacTask javacTask) {
+                // Check whether to abandon the compilation as each stage of compiling each
+                // class starts:
+                javacTask.addTaskListener(new TaskListener() {
+                    @Override
+                    public void started(TaskEvent e)
+                    {
+                        if (cancelCheck.getAsBoolean()) {
+                            throw new CompilationCancelledException();
+                        }
+                    }
+                });
             }
-            if(isDeprecation()) {
-                optionsList.add("-deprecation");
+            try {
+                result = task.call();
             }
-
-            File[] bootClassPath = getBootClassPath();
-            if (bootClassPath != null && bootClassPath.length != 0) {
-                sjfm.setLocation(StandardLocation.PLATFORM_CLASS_PATH, Arrays.asList(bootClassPath));
+            catch (RuntimeException e) {
+                // The compiler wraps exceptions thrown by listeners:
+                if (!(e.getCause() instanceof CompilationCancelledException)) {
+                    throw e;
+                }
+                result = false;
             }
-
-            optionsList.addAll(userOptions);
-
-            //compile
-            result = jc.getTask(null, sjfm, diagListener, optionsList, null, compilationUnits1).call();
-            sjfm.close();
-            if (tempDir != null)
-                tempDir.delete();
+            fileManager.flush();
         }
         catch(IOException e)
         {
+            session.invalidate();
             e.printStackTrace(System.out);
             return false;
         }
+        catch(RuntimeException e)
+        {
+            // The compiler failed unexpectedly; don't rely on the file manager being usable:
+            session.invalidate();
+            throw e;
+        }
 
         return result;
     }
@@ -0,0 +1,157 @@
+/*
+ This file is part of the BlueJ program. 
+ Copyright (C) 2026  Michael Kolling and John Rosenberg
+ 
+ This program is free software; you can redistribute it and/or 
+ modify it under the terms of the GNU General Public License 
+ as published by the Free Software Foundation; either version 2 
+ of the License, or (at your option) any later version. 
+ 
+ This program is distributed in the hope that it will be useful, 
+ but WITHOUT ANY WARRANTY; without even the implied warranty of 
+ MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the 
+ GNU General Public License for more details. 
+ 
+ You should have received a copy of the GNU General Public License 
+ along with this program; if not, write to the Free Software 
+ Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA. 
+ 
+ This file is subject to the Classpath exception as provided in the  
+ LICENSE.txt file that accompanied this code.
+ */
+package bluej.compiler;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+
+import javax.tools.JavaCompiler;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.StandardLocation;
+import javax.tools.ToolProvider;
+
+import bluej.utility.Debug;
+
+/**
+ * The parts of a compilation which can be kept from one compilation to the next: the
+ * system Java compiler, and a standard file manager. The file manager keeps the archives
+ * on the class path (and the platform classes) open and indexed, so that each compilation
+ * need not open and index them again. The file manager is only replaced when something
+ * which affects it changes: the class path, one of the archives on the class path,
+ * the source character set or the compiler options.
+ *
+ * <p>A session must only be used by one compilation at a time.
+ */
+class CompilerSession
+{
+    /**
+     * Everything the file manager was set up with.
+     *
+     * @param archiveStamps  The size and modification time of each archive on the class path
+     */
+    private record FileManagerKey(List<File> classPath, List<Long> archiveStamps, List<File> bootClassPath,
+                                  File destDir, Charset charset, List<String> options) { }
+
+    private JavaCompiler compiler;
+    private StandardJavaFileManager fileManager;
+    private FileManagerKey fileManagerKey;
+    /** The class output location of the file manager */
+    private File classOutputDir;
+
+    /**
+     * Get the system Java compiler, or null if it is not available.
+     */
+    public JavaCompiler getCompiler()
+    {
+        if (compiler == null) {
+            compiler = ToolProvider.getSystemJavaCompiler();
+        }
+        return compiler;
+    }
+
+    /**
+     * Get a file manager with the given locations. The source path is the destination
+     * directory. The same file manager is returned as last time if the locations (and
+     * the archives on the class path) have not changed; a change to the class output
+     * location alone only moves the output. The file manager must not be closed by the
+     * caller.
+     *
+     * @param classOutputDir  Where the class files are written (usually the destination
+     *                        directory)
+     * @param options  The options which will be given to the compiler (which may
+     *                 include options for the file manager)
+     */
+    public StandardJavaFileManager getFileManager(List<File> classPath, File[] bootClassPath, File destDir,
+            File classOutputDir, Charset charset, List<String> options) throws IOException
+    {
+        List<Long> archiveStamps = new ArrayList<>();
+        for (File entry : classPath) {
+            if (entry.isFile()) {
+                archiveStamps.add(entry.length());
+                archiveStamps.add(entry.lastModified());
+            }
+        }
+        FileManagerKey key = new FileManagerKey(new ArrayList<>(classPath), archiveStamps,
+                bootClassPath == null ? Collections.emptyList() : Arrays.asList(bootClassPath),
+                destDir, charset, new ArrayList<>(options));
+        if (fileManager != null && key.equals(fileManagerKey)) {
+            if (!Objects.equals(classOutputDir, this.classOutputDir)) {
+                try {
+                    fileManager.setLocation(StandardLocation.CLASS_OUTPUT, Collections.singletonList(classOutputDir));
+                }
+                catch (IOException | IllegalArgumentException e) {
+                    invalidate();
+                    throw e;
+                }
+                this.classOutputDir = classOutputDir;
+            }
+            return fileManager;
+        }
+
+        invalidate();
+        StandardJavaFileManager sjfm = getCompiler().getStandardFileManager(null, null, charset);
+        try {
+            // In BlueJ, the destination directory and the source path are
+            // always the same
+            sjfm.setLocation(StandardLocation.SOURCE_PATH, Collections.singletonList(destDir));
+            sjfm.setLocation(StandardLocation.CLASS_PATH, classPath);
+            sjfm.setLocation(StandardLocation.CLASS_OUTPUT, Collections.singletonList(classOutputDir));
+            if (bootClassPath != null && bootClassPath.length != 0) {
+                sjfm.setLocation(StandardLocation.PLATFORM_CLASS_PATH, Arrays.asList(bootClassPath));
+            }
+        }
+        catch (IOException | IllegalArgumentException e) {
+            sjfm.close();
+            throw e;
+        }
+        fileManager = sjfm;
+        fileManagerKey = key;
+        this.classOutputDir = classOutputDir;
+        return fileManager;
+    }
+
+    /**
+     * Discard the file manager, so that the next compilation gets a new one. This
+     * should be done if a compilation fails unexpectedly, since the file manager
+     * may then be in a bad state.
+     */
+    public void invalidate()
+    {
+        if (fileManager != null) {
+            try {
+                fileManager.close();
+            }
+            catch (IOException ioe) {
+                Debug.reportError("Error closing compiler file manager", ioe);
+            }
+            fileManager = null;
+            fileManagerKey = null;
+            classOutputDir = null;
+        }
+    }
+}
@@ -21,10 +21,17 @@
  */
 package bluej.compiler;
 
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Set;
+
 import threadchecker.OnThread;
 import threadchecker.Tag;
 import bluej.Config;
-import bluej.utility.Queue;
 
 /**
  * The compiler thread. BlueJ uses exactly one thread for compilation. Jobs are
@@ -36,7 +43,25 @@ import bluej.utility.Queue;
  */
 class CompilerThread extends Thread
 {
-    private Queue jobs;
+    /**
+     * A job in the queue (or being compiled), with the jobs it has superseded.
+     */
+    private static class QueuedJob
+    {
+        private final Job job;
+        private final List<Job> superseded = new ArrayList<>();
+        /** The job's sources which have been modified since it was queued */
+        private final Set<File> modifiedSources = new HashSet<>();
+        private volatile boolean cancelled;
+
+        private QueuedJob(Job job)
+        {
+            this.job = job;
+        }
+    }
+
+    private final LinkedList<QueuedJob> jobs;
+    private QueuedJob currentJob;
     private boolean busy = true;
 
     /**
@@ -45,7 +70,7 @@ class CompilerThread extends Thread
     public CompilerThread()
     {
         super(Config.getString("compiler.thread.title"));
-        jobs = new Queue();
+        jobs = new LinkedList<>();
     }
 
     /**
@@ -56,10 +81,10 @@ class CompilerThread extends Thread
      */
     public void run()
     {
-        Job job;
+        QueuedJob job;
         while (true) {
             synchronized (this) {
-                while ((job = (Job) jobs.dequeue()) == null) {
+                while ((job = jobs.poll()) == null) {
                     busy = false;
                     notifyAll();
                     try {
@@ -67,9 +92,15 @@ class CompilerThread extends Thread
                     }
                     catch (InterruptedException e) {}
                 }
+                currentJob = job;
             }
 
-            job.compile();
+            QueuedJob compiling = job;
+            job.job.compile(job.superseded, () -> compiling.cancelled);
+
+            synchronized (this) {
+                currentJob = null;
+            }
         }
     }
 
@@ -77,18 +108,67 @@ class CompilerThread extends Thread
      * Add a new job to this thread's job queue. The job will be processed by
      * this thread some tim ein the near future. This method returns
      * immediately.
+     * 
+     * <p>Any jobs in the queue which the new job supersedes (see {@link Job#supersedes(Job)})
+     * are taken out of the queue, and are dealt with by the new job instead. If the job
+     * being compiled is superseded, and its classes are not kept, it is cancelled.
      */
     @OnThread(Tag.Any)
     public synchronized void addJob(Job job)
     {
-        jobs.enqueue(job);
+        QueuedJob queued = new QueuedJob(job);
+        for (Iterator<QueuedJob> i = jobs.iterator(); i.hasNext(); ) {
+            QueuedJob waiting = i.next();
+            if (job.supersedes(waiting.job)) {
+                i.remove();
+                queued.superseded.addAll(waiting.superseded);
+                queued.superseded.add(waiting.job);
+            }
+        }
+        // Classes which are kept must not be left half-written, so only
+        // compilations which discard their classes are cancelled:
+        if (currentJob != null && !currentJob.job.type().keepClasses() && job.supersedes(currentJob.job)) {
+            currentJob.cancelled = true;
+        }
+
+        jobs.add(queued);
         busy = true;
         notifyAll();
     }
 
+    /**
+     * A source file has been modified. Any job (waiting or being compiled) which does
+     * not keep its classes, and all of whose sources have now been modified since it
+     * was queued, is cancelled, since its results would be out of date.
+     * 
+     * @param javaFile  The Java source file which has been modified
+     */
+    @OnThread(Tag.Any)
+    public synchronized void sourceModified(File javaFile)
+    {
+        if (currentJob != null) {
+            sourceModified(currentJob, javaFile);
+        }
+        for (QueuedJob waiting : jobs) {
+            sourceModified(waiting, javaFile);
+        }
+    }
+
+    @OnThread(Tag.Any)
+    private static void sourceModified(QueuedJob queued, File javaFile)
+    {
+        if (!queued.job.type().keepClasses() && !queued.cancelled) {
+            Set<File> javaFiles = queued.job.getJavaFiles();
+            if (javaFiles.contains(javaFile)) {
+                queued.modifiedSources.add(javaFile);
+                queued.cancelled = queued.modifiedSources.containsAll(javaFiles);
+            }
+        }
+    }
+
     @OnThread(Tag.Any)
     public boolean isBusy()
     {
         return busy;
     }
-}
\ No newline at end of file
+}
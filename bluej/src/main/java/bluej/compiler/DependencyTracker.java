@@ -0,0 +1,337 @@
+/*
+ This file is part of the BlueJ program. 
+ Copyright (C) 2026  Michael Kolling and John Rosenberg
+ 
+ This program is free software; you can redistribute it and/or 
+ modify it under the terms of the GNU General Public License 
+ as published by the Free Software Foundation; either version 2 
+ of the License, or (at your option) any later version. 
+ 
+ This program is distributed in the hope that it will be useful, 
+ but WITHOUT ANY WARRANTY; without even the implied warranty of 
+ MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the 
+ GNU General Public License for more details. 
+ 
+ You should have received a copy of the GNU General Public License 
+ along with this program; if not, write to the Free Software 
+ Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA. 
+ 
+ This file is subject to the Classpath exception as provided in the  
+ LICENSE.txt file that accompanied this code.
+ */
+package bluej.compiler;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedSet;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import bluej.utility.Debug;
+
+/**
+ * Records, for each source which has been compiled successfully (keeping its classes), what
+ * its classes depended on: the parts of the API of each class in the project which they use,
+ * as read from the class files (see {@link ClassFileApi}). A source whose file and class files
+ * are unchanged since it was compiled need only be compiled again if the API which it uses
+ * has changed. In particular, a change to the body of a method changes no API, so the classes
+ * which depend on the changed class need not be compiled again.
+ *
+ * <p>The API of a class's supertypes is compared in full, since for example a new abstract
+ * method in a supertype can make the class fail to compile. For the other classes which it
+ * refers to, only the members with names which the class uses are compared. The constants
+ * of all the classes in the same directory are also compared, since a class which uses a
+ * constant need not refer to the constant's class in its class file at all.
+ *
+ * <p>The classes in libraries (and the library archives themselves) are not tracked; if the
+ * class path or anything on it changes, sources are compiled again.
+ *
+ * <p>A tracker must only be used by one thread at a time (the compiler thread).
+ */
+class DependencyTracker
+{
+    /** The size and modification time of a file, to tell whether it has changed */
+    private record Stamp(long length, long lastModified)
+    {
+        static Stamp of(File file)
+        {
+            return new Stamp(file.length(), file.lastModified());
+        }
+    }
+
+    /**
+     * What a source's classes depended on when it was compiled.
+     *
+     * @param environment          Everything else the compilation depended on (see {@link #environment})
+     * @param classFiles           The class files compiled from the source
+     * @param usedNames            The member names used by the source's classes
+     * @param supertypeHashes      The full API hash of each supertype (in the project) of the source's classes
+     * @param dependencyHashes     The hash of the used parts of the API of the other classes in the project
+     *                             which the source's classes refer to
+     * @param directoryConstants   The hash of the constants of the classes in the source's directory
+     */
+    private record SourceRecord(List<Object> environment, Stamp source, Map<File, Stamp> classFiles,
+                                SortedSet<String> usedNames, Map<String, Long> supertypeHashes,
+                                Map<String, Long> dependencyHashes, long directoryConstants) { }
+
+    private record CachedApi(Stamp stamp, ClassFileApi api) { }
+
+    private final Map<File, SourceRecord> records = new HashMap<>();
+    /** The class files which have been read, so that they need not be read again until they change */
+    private final Map<File, CachedApi> apiCache = new HashMap<>();
+
+    /**
+     * Get the environment of a compilation: everything which isn't a source in the project
+     * but which may affect the results. If the environment changes, sources must be
+     * compiled again.
+     */
+    public static List<Object> environment(List<File> classPath, List<String> options, Charset fileCharset,
+            boolean internal)
+    {
+        List<Object> environment = new ArrayList<>();
+        for (File entry : classPath)
+        {
+            environment.add(entry);
+            if (entry.isFile())
+            {
+                environment.add(Stamp.of(entry));
+            }
+        }
+        environment.add(new ArrayList<>(options));
+        environment.add(fileCharset);
+        environment.add(internal);
+        return environment;
+    }
+
+    /**
+     * Check whether a source file, and the class files compiled from it, are unchanged since
+     * the source was last compiled successfully (in the same environment). This does not
+     * check whether the classes which the source depends on are unchanged.
+     */
+    public boolean isUnchanged(File source, List<Object> environment)
+    {
+        SourceRecord record = records.get(source);
+        if (record == null || record.classFiles().isEmpty() || !record.environment().equals(environment)
+                || !record.source().equals(Stamp.of(source)))
+        {
+            return false;
+        }
+        for (Map.Entry<File, Stamp> classFile : record.classFiles().entrySet())
+        {
+            if (!classFile.getValue().equals(Stamp.of(classFile.getKey())))
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Check whether a source is up to date: it is unchanged since it was last compiled
+     * (see {@link #isUnchanged(File, List)}), and so is the API which it used of the
+     * other classes in the project.
+     *
+     * @param destDir  The destination directory of the compilation, which holds the classes
+     *                 of the project
+     */
+    public boolean isUpToDate(File source, File destDir, List<Object> environment)
+    {
+        if (!isUnchanged(source, environment))
+        {
+            return false;
+        }
+        SourceRecord record = records.get(source);
+        for (Map.Entry<String, Long> supertype : record.supertypeHashes().entrySet())
+        {
+            ClassFileApi api = getApi(classFile(destDir, supertype.getKey()));
+            if (api == null || api.getFullHash() != supertype.getValue())
+            {
+                return false;
+            }
+        }
+        for (Map.Entry<String, Long> dependency : record.dependencyHashes().entrySet())
+        {
+            ClassFileApi api = getApi(classFile(destDir, dependency.getKey()));
+            if (api == null || api.getHashFor(record.usedNames()) != dependency.getValue())
+            {
+                return false;
+            }
+        }
+        return directoryConstants(source.getParentFile()) == record.directoryConstants();
+    }
+
+    /**
+     * Record what the given sources depend on, after they have been compiled successfully.
+     *
+     * @param destDir  The destination directory of the compilation, which holds the classes
+     *                 of the project
+     */
+    public void record(File[] sources, File destDir, List<Object> environment)
+    {
+        Map<File, Map<File, ClassFileApi>> classesByDirectory = new HashMap<>();
+        for (File source : sources)
+        {
+            File directory = source.getParentFile();
+            Map<File, ClassFileApi> directoryClasses = classesByDirectory.computeIfAbsent(directory, this::getApis);
+
+            Map<File, Stamp> classFiles = new HashMap<>();
+            Set<String> ownClasses = new HashSet<>();
+            SortedSet<String> usedNames = new TreeSet<>();
+            Set<String> referenced = new HashSet<>();
+            Set<String> supertypes = new HashSet<>();
+            for (Map.Entry<File, ClassFileApi> classFile : directoryClasses.entrySet())
+            {
+                ClassFileApi api = classFile.getValue();
+                if (source.getName().equals(api.getSourceFile()))
+                {
+                    classFiles.put(classFile.getKey(), Stamp.of(classFile.getKey()));
+                    ownClasses.add(api.getName());
+                    usedNames.addAll(api.getUsedNames());
+                    referenced.addAll(api.getReferencedClasses());
+                    supertypes.addAll(api.getSupertypes());
+                }
+            }
+            supertypes = withSupertypes(supertypes, destDir);
+            referenced = withSupertypes(referenced, destDir);
+            supertypes.removeAll(ownClasses);
+            referenced.removeAll(ownClasses);
+            referenced.removeAll(supertypes);
+
+            Map<String, Long> supertypeHashes = new TreeMap<>();
+            for (String supertype : supertypes)
+            {
+                supertypeHashes.put(supertype, getApi(classFile(destDir, supertype)).getFullHash());
+            }
+            Map<String, Long> dependencyHashes = new TreeMap<>();
+            for (String dependency : referenced)
+            {
+                dependencyHashes.put(dependency, getApi(classFile(destDir, dependency)).getHashFor(usedNames));
+            }
+
+            records.put(source, new SourceRecord(environment, Stamp.of(source), classFiles,
+                    Collections.unmodifiableSortedSet(usedNames), supertypeHashes, dependencyHashes,
+                    directoryConstants(directory)));
+        }
+    }
+
+    /**
+     * Forget what the given sources depend on (for example because they failed to compile),
+     * so that they will be compiled next time.
+     */
+    public void forget(File[] sources)
+    {
+        for (File source : sources)
+        {
+            records.remove(source);
+        }
+    }
+
+    /**
+     * Add the supertypes (which are in the project) of the given classes, and remove any
+     * classes which are not in the project.
+     */
+    private Set<String> withSupertypes(Set<String> classNames, File destDir)
+    {
+        Set<String> result = new HashSet<>();
+        Deque<String> toVisit = new ArrayDeque<>(classNames);
+        while (!toVisit.isEmpty())
+        {
+            String className = toVisit.pop();
+            if (result.contains(className))
+            {
+                continue;
+            }
+            ClassFileApi api = getApi(classFile(destDir, className));
+            if (api != null)
+            {
+                result.add(className);
+                toVisit.addAll(api.getSupertypes());
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Get a hash of the constants of all the classes in a directory.
+     */
+    private long directoryConstants(File directory)
+    {
+        Map<String, Long> constants = new TreeMap<>();
+        for (ClassFileApi api : getApis(directory).values())
+        {
+            constants.put(api.getName(), api.getConstantsHash());
+        }
+        return ClassFileApi.hash(constants.toString());
+    }
+
+    /**
+     * Get the class file for a class, given its internal name.
+     */
+    private static File classFile(File destDir, String className)
+    {
+        return new File(destDir, className.replace('/', File.separatorChar) + ".class");
+    }
+
+    /**
+     * Read all the class files in a directory.
+     */
+    private Map<File, ClassFileApi> getApis(File directory)
+    {
+        File[] classFiles = directory.listFiles((dir, name) -> name.endsWith(".class"));
+        if (classFiles == null)
+        {
+            return Collections.emptyMap();
+        }
+        Map<File, ClassFileApi> apis = new TreeMap<>();
+        for (File classFile : classFiles)
+        {
+            ClassFileApi api = getApi(classFile);
+            if (api != null)
+            {
+                apis.put(classFile, api);
+            }
+        }
+        return apis;
+    }
+
+    /**
+     * Read a class file, or get it from the cache if it hasn't changed since it was last read.
+     * Returns null if the class file doesn't exist or can't be read.
+     */
+    private ClassFileApi getApi(File classFile)
+    {
+        if (!classFile.isFile())
+        {
+            apiCache.remove(classFile);
+            return null;
+        }
+        Stamp stamp = Stamp.of(classFile);
+        CachedApi cached = apiCache.get(classFile);
+        if (cached != null && cached.stamp().equals(stamp))
+        {
+            return cached.api();
+        }
+        try
+        {
+            ClassFileApi api = ClassFileApi.read(classFile);
+            apiCache.put(classFile, new CachedApi(stamp, api));
+            return api;
+        }
+        catch (IOException ioe)
+        {
+            Debug.reportError("Error reading class file " + classFile, ioe);
+            apiCache.remove(classFile);
+            return null;
+        }
+    }
+}
@@ -0,0 +1,147 @@
+/*
+ This file is part of the BlueJ program. 
+ Copyright (C) 2026  Michael Kolling and John Rosenberg
+ 
+ This program is free software; you can redistribute it and/or 
+ modify it under the terms of the GNU General Public License 
+ as published by the Free Software Foundation; either version 2 
+ of the License, or (at your option) any later version. 
+ 
+ This program is distributed in the hope that it will be useful, 
+ but WITHOUT ANY WARRANTY; without even the implied warranty of 
+ MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the 
+ GNU General Public License for more details. 
+ 
+ You should have received a copy of the GNU General Public License 
+ along with this program; if not, write to the Free Software 
+ Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA. 
+ 
+ This file is subject to the Classpath exception as provided in the  
+ LICENSE.txt file that accompanied this code.
+ */
+package bluej.compiler;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import javax.tools.FileObject;
+import javax.tools.ForwardingJavaFileManager;
+import javax.tools.JavaFileObject;
+import javax.tools.JavaFileObject.Kind;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.StandardLocation;
+
+/**
+ * A file manager for compilations which only check for errors. The class files which
+ * are output are discarded rather than written, and sources which have been edited
+ * but not saved can be compiled from memory, so that no files need to be written.
+ */
+class InMemoryFileManager extends ForwardingJavaFileManager<StandardJavaFileManager>
+{
+    InMemoryFileManager(StandardJavaFileManager fileManager)
+    {
+        super(fileManager);
+    }
+
+    /**
+     * Get the file objects for the given source files.
+     *
+     * @param sources  The files to compile
+     * @param unsavedSources  The source to compile in place of the saved contents of
+     *                        some of the files
+     */
+    public List<JavaFileObject> getJavaFileObjects(File[] sources, Map<File, String> unsavedSources)
+    {
+        List<JavaFileObject> fileObjects = new ArrayList<>();
+        for (File source : sources)
+        {
+            String unsavedSource = unsavedSources.get(source);
+            if (unsavedSource != null)
+            {
+                fileObjects.add(new UnsavedSourceFile(source, unsavedSource));
+            }
+            else
+            {
+                for (JavaFileObject fileObject : fileManager.getJavaFileObjects(source))
+                {
+                    fileObjects.add(fileObject);
+                }
+            }
+        }
+        return fileObjects;
+    }
+
+    @Override
+    public JavaFileObject getJavaFileForOutput(Location location, String className, Kind kind, FileObject sibling)
+            throws IOException
+    {
+        if (location == StandardLocation.CLASS_OUTPUT)
+        {
+            return new DiscardedOutputFile(className, kind);
+        }
+        return super.getJavaFileForOutput(location, className, kind, sibling);
+    }
+
+    @Override
+    public boolean isSameFile(FileObject a, FileObject b)
+    {
+        // The standard file manager only understands its own file objects:
+        if (a instanceof UnsavedSourceFile || b instanceof UnsavedSourceFile)
+        {
+            return a.toUri().equals(b.toUri());
+        }
+        return super.isSameFile(a, b);
+    }
+
+    /**
+     * A source file whose contents are held in memory.
+     */
+    private static class UnsavedSourceFile extends SimpleJavaFileObject
+    {
+        private final File file;
+        private final String source;
+
+        public UnsavedSourceFile(File file, String source)
+        {
+            super(file.toURI(), Kind.SOURCE);
+            this.file = file;
+            this.source = source;
+        }
+
+        @Override
+        public String getName()
+        {
+            // The same as the standard file manager, so that diagnostics name the file
+            // in the same way whether it was saved or not:
+            return file.getPath();
+        }
+
+        @Override
+        public CharSequence getCharContent(boolean ignoreEncodingErrors)
+        {
+            return source;
+        }
+    }
+
+    /**
+     * An output (class) file, whose contents are thrown away.
+     */
+    private static class DiscardedOutputFile extends SimpleJavaFileObject
+    {
+        public DiscardedOutputFile(String className, Kind kind)
+        {
+            super(new File(className.replace('.', File.separatorChar) + kind.extension).toURI(), kind);
+        }
+
+        @Override
+        public OutputStream openOutputStream()
+        {
+            return OutputStream.nullOutputStream();
+        }
+    }
+}
@@ -24,8 +24,18 @@ package bluej.compiler;
 import java.io.File;
 import java.nio.charset.Charset;
 import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
 
 import bluej.Config;
 import bluej.classmgr.BPClassLoader;
@@ -37,11 +47,14 @@ import bluej.classmgr.BPClassLoader;
  *
  * @author  Michael Cahill
  */
-record Job(CompileInputFile[] sources, Compiler compiler, CompileObserver observer, BPClassLoader bpClassLoader, File destDir,
+record Job(CompileInputFile[] sources, Compiler compiler, DependencyTracker dependencyTracker,
+           CompileObserver observer, BPClassLoader bpClassLoader, File destDir,
            boolean internal, // true for compiling shell files,
                              // or user files if we want to suppress
                              // "unchecked" warnings, false otherwise
-           List<String> userCompileOptions, Charset fileCharset, CompileType type, CompileReason reason)
+           List<String> userCompileOptions, Charset fileCharset, CompileType type, CompileReason reason,
+           SourceComponents components) // the dependencies between the sources, if they may be
+                                        // compiled in parallel; otherwise null
 {
     /**
      * Generator for unique ascending compilation identifiers.  It doesn't matter if it's shared between
@@ -51,13 +64,31 @@ record Job(CompileInputFile[] sources, Compiler compiler, CompileObserver observ
     private static final AtomicInteger nextCompilationSequence = new AtomicInteger(1);
 
     /**
-     * Compile this job
+     * Compile this job.
+     * 
+     * @param superseded  Jobs which this job supersedes (see {@link #supersedes(Job)}), which
+     *                    are not compiled themselves. Their observers are told that compilation
+     *                    has started and ended (with the result of compiling this job), each with
+     *                    its own compilation sequence number, but are not given any diagnostics.
+     * @param cancelled   Checked during compilation; if it returns true, compilation is
+     *                    abandoned, and is unsuccessful.
      */
-    public void compile()
+    public void compile(List<Job> superseded, BooleanSupplier cancelled)
     {
+        // The superseded jobs were queued first, so they start first:
+        int[] supersededSequences = new int[superseded.size()];
+        for (int i = 0; i < supersededSequences.length; i++) {
+            supersededSequences[i] = nextCompilationSequence.getAndIncrement();
+        }
         int compilationSequence = nextCompilationSequence.getAndIncrement();
 
         try {
+            for (int i = 0; i < supersededSequences.length; i++) {
+                Job job = superseded.get(i);
+                if (job.observer != null) {
+                    job.observer.startCompile(job.sources, job.reason, job.type, supersededSequences[i]);
+                }
+            }
             if(observer != null) {
                 observer.startCompile(sources, reason, type, compilationSequence);
             }
@@ -70,23 +101,158 @@ record Job(CompileInputFile[] sources, Compiler compiler, CompileObserver observ
 
             compiler.setBootClassPath(null);
 
+            compiler.setCancelCheck(cancelled);
+
             File[] actualSourceFiles = new File[sources.length];
+            Map<File, String> unsavedSources = new HashMap<>();
             for (int i = 0; i < sources.length; i++)
             {
                 actualSourceFiles[i] = sources[i].getJavaCompileInputFile();
+                if (sources[i].getUnsavedJavaSource() != null)
+                {
+                    unsavedSources.put(actualSourceFiles[i], sources[i].getUnsavedJavaSource());
+                }
             }
 
-            boolean successful = compiler.compile(actualSourceFiles, observer, internal, userCompileOptions, fileCharset, type);
+            boolean successful;
+            if (cancelled.getAsBoolean()) {
+                // A job may be cancelled before it starts:
+                successful = false;
+            }
+            else if (type.keepClasses() && destDir != null && dependencyTracker != null
+                    && reason != CompileReason.INVOKE) {
+                // Shell files for invocations are only compiled once, so there is no point tracking them:
+                successful = compileIncrementally(actualSourceFiles, cancelled);
+            }
+            else {
+                successful = compileSources(actualSourceFiles, components, unsavedSources, cancelled);
+            }
 
+            endSuperseded(superseded, supersededSequences, successful);
             if(observer != null) {
                 observer.endCompile(sources, successful, type, compilationSequence);
             }
         } catch(Exception e) {
             System.err.println(Config.getString("compileException") + ": " + e);
             e.printStackTrace();
+            if (dependencyTracker != null) {
+                dependencyTracker.forget(getJavaFiles().toArray(new File[0]));
+            }
+            endSuperseded(superseded, supersededSequences, false);
             if (observer != null) {
                 observer.endCompile(sources, false, type, compilationSequence);
             }
         }
     }
+
+    /**
+     * Compile the sources in passes, so that sources are only compiled if they need to be.
+     * The first pass compiles the sources which have changed since they were last compiled
+     * (or which have not been compiled, or which are being rebuilt). Each pass after that
+     * compiles the unchanged sources which depend on API which has changed, as read from the
+     * class files which the earlier passes wrote (see {@link DependencyTracker}). The sources
+     * which are not compiled are up to date: their class files are the same as compiling them
+     * would produce.
+     * 
+     * @return  true if all the passes were successful; compilation stops at the first
+     *          unsuccessful pass.
+     */
+    private boolean compileIncrementally(File[] files, BooleanSupplier cancelled) throws Exception
+    {
+        List<Object> environment = DependencyTracker.environment(bpClassLoader.getClassPathAsFiles(),
+                userCompileOptions, fileCharset, internal);
+
+        List<Integer> toCompile = new ArrayList<>();
+        List<Integer> unchanged = new ArrayList<>();
+        for (int i = 0; i < files.length; i++) {
+            if (reason != CompileReason.REBUILD && dependencyTracker.isUnchanged(files[i], environment)) {
+                unchanged.add(i);
+            }
+            else {
+                toCompile.add(i);
+            }
+        }
+
+        while (true) {
+            if (!toCompile.isEmpty()) {
+                int[] indexes = toCompile.stream().mapToInt(Integer::intValue).toArray();
+                File[] passFiles = Arrays.stream(indexes).mapToObj(i -> files[i]).toArray(File[]::new);
+                SourceComponents passComponents = components == null ? null
+                        : (indexes.length == files.length ? components : components.subset(indexes));
+                if (cancelled.getAsBoolean()
+                        || !compileSources(passFiles, passComponents, Collections.emptyMap(), cancelled)) {
+                    dependencyTracker.forget(passFiles);
+                    return false;
+                }
+                dependencyTracker.record(passFiles, destDir, environment);
+            }
+
+            toCompile = new ArrayList<>();
+            for (Iterator<Integer> i = unchanged.iterator(); i.hasNext(); ) {
+                int index = i.next();
+                if (!dependencyTracker.isUpToDate(files[index], destDir, environment)) {
+                    toCompile.add(index);
+                    i.remove();
+                }
+            }
+            if (toCompile.isEmpty()) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Compile some or all of this job's sources: in parallel, if the components of the sources
+     * are given and allow it, and otherwise with the job's compiler.
+     */
+    private boolean compileSources(File[] files, SourceComponents components, Map<File, String> unsavedSources,
+            BooleanSupplier cancelled) throws Exception
+    {
+        List<List<List<Integer>>> plan = components == null || destDir == null ? null
+                : components.planWaves(ParallelCompilation.THREADS);
+        if (plan != null && ParallelCompilation.isWorthwhile(plan, files.length)) {
+            return ParallelCompilation.compile(plan, components, files, observer, destDir,
+                    bpClassLoader.getClassPathAsFiles(), internal, userCompileOptions, fileCharset, type, cancelled);
+        }
+        return compiler.compile(files, unsavedSources, observer, internal, userCompileOptions, fileCharset, type);
+    }
+
+    /**
+     * Tell the observers of superseded jobs that compilation has ended.
+     */
+    private static void endSuperseded(List<Job> superseded, int[] sequences, boolean successful)
+    {
+        for (int i = 0; i < sequences.length; i++) {
+            Job job = superseded.get(i);
+            if (job.observer != null) {
+                job.observer.endCompile(job.sources, successful, job.type, sequences[i]);
+            }
+        }
+    }
+
+    /**
+     * Check whether compiling this job makes compiling another (earlier) job unnecessary.
+     * That is so if the jobs are of the same type and are compiled in the same way, and
+     * all the other job's sources are amongst this job's sources.
+     */
+    public boolean supersedes(Job other)
+    {
+        return type == other.type && compiler == other.compiler && internal == other.internal
+                && Objects.equals(destDir, other.destDir) && Objects.equals(fileCharset, other.fileCharset)
+                && userCompileOptions.equals(other.userCompileOptions)
+                && bpClassLoader.getClassPathAsFiles().equals(other.bpClassLoader.getClassPathAsFiles())
+                && getJavaFiles().containsAll(other.getJavaFiles());
+    }
+
+    /**
+     * Get the Java source files which are compiled by this job.
+     */
+    public Set<File> getJavaFiles()
+    {
+        Set<File> files = new HashSet<>();
+        for (CompileInputFile source : sources) {
+            files.add(source.getJavaCompileInputFile());
+        }
+        return files;
+    }
 }
@@ -52,6 +52,7 @@ public class JobQueue
 
     private CompilerThread thread = null;
     private Compiler compiler = null;
+    private final DependencyTracker dependencyTracker = new DependencyTracker();
 
     /**
      * Construct the JobQueue. This is private; use getJobQueue() to get the job queue instance.
@@ -81,13 +82,43 @@ public class JobQueue
      */
     public void addJob(CompileInputFile[] sources, CompileObserver observer, BPClassLoader bpClassLoader, File destDir,
             boolean suppressUnchecked, Charset fileCharset, CompileReason reason, CompileType type)
+    {
+        addJob(sources, observer, bpClassLoader, destDir, suppressUnchecked, fileCharset, reason, type, null);
+    }
+
+    /**
+     * Adds a job to the compile queue, whose sources may be compiled in parallel.
+     * 
+     * @param components  The dependencies between the sources (which are referred to by
+     *                    their index in the sources array). Sources which do not depend on each
+     *                    other may be compiled in parallel, by separate javac tasks. This should
+     *                    only be given if the classes are kept, since the tasks which compile
+     *                    dependent sources rely on the class files of their dependencies.
+     *                    If null, all the sources are compiled by a single task.
+     */
+    public void addJob(CompileInputFile[] sources, CompileObserver observer, BPClassLoader bpClassLoader, File destDir,
+            boolean suppressUnchecked, Charset fileCharset, CompileReason reason, CompileType type,
+            SourceComponents components)
     {
         List<String> options = new ArrayList<String>();
         String optionString = Config.getPropString(Compiler.COMPILER_OPTIONS, "");
         options.addAll(Utility.dequoteCommandLine(optionString));
         
-        thread.addJob(new Job(sources, compiler, observer, bpClassLoader,
-                destDir, suppressUnchecked, options, fileCharset, type, reason));
+        thread.addJob(new Job(sources, compiler, dependencyTracker, observer, bpClassLoader,
+                destDir, suppressUnchecked, options, fileCharset, type, reason, components));
+    }
+
+    /**
+     * Notify the job queue that a source file has been modified. Any compilations which only
+     * check for errors, and all of whose sources have been modified, are cancelled (whether
+     * they are waiting or have started), since their results will be out of date. Their
+     * observers are still told that compilation has started and ended (unsuccessfully).
+     * 
+     * @param javaFile  The Java source file which has been modified
+     */
+    public void sourceModified(File javaFile)
+    {
+        thread.sourceModified(javaFile);
     }
 
     /**
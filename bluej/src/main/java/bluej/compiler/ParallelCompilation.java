@@ -0,0 +1,274 @@
+/*
+ This file is part of the BlueJ program. 
+ Copyright (C) 2026  Michael Kolling and John Rosenberg
+ 
+ This program is free software; you can redistribute it and/or 
+ modify it under the terms of the GNU General Public License 
+ as published by the Free Software Foundation; either version 2 
+ of the License, or (at your option) any later version. 
+ 
+ This program is distributed in the hope that it will be useful, 
+ but WITHOUT ANY WARRANTY; without even the implied warranty of 
+ MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the 
+ GNU General Public License for more details. 
+ 
+ You should have received a copy of the GNU General Public License 
+ along with this program; if not, write to the Free Software 
+ Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA. 
+ 
+ This file is subject to the Classpath exception as provided in the  
+ LICENSE.txt file that accompanied this code.
+ */
+package bluej.compiler;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.BooleanSupplier;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import bluej.utility.FileUtility;
+
+/**
+ * Compiles the sources of a compilation as several javac tasks, following a plan made from
+ * the strongly connected components of the sources (see {@link SourceComponents#planWaves(int)}).
+ * The tasks of each wave are compiled in parallel, by a small pool of threads which each have
+ * a compiler of their own. Each task's diagnostics are collected, and once all the tasks have
+ * finished they are passed on to the observer in the order of the plan, so that they arrive in
+ * the same order however the tasks happened to run.
+ *
+ * <p>Each task writes its classes to a directory of its own, and they are only moved into the
+ * destination directory once all the tasks of the wave have finished. A task therefore never
+ * reads a class file which another task is writing, even if it uses a class which it was not
+ * known to depend on: it sees the class as it was before the wave (or its source, if that is
+ * newer). If a task fails, its classes are not moved, so the tasks which depend on it are not
+ * compiled (they would only fail as well, and report the same errors again).
+ */
+class ParallelCompilation
+{
+    /** The most tasks which are compiled at once */
+    static final int THREADS = Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors()));
+    /** Compilations with fewer sources are compiled in a single task, since each task has an overhead */
+    static final int MIN_SOURCES = 16;
+
+    private static ExecutorService executor;
+    /** Each thread has its own compiler, since a compiler is only used by one compilation at a time */
+    private static final ThreadLocal<Compiler> compilers = ThreadLocal.withInitial(CompilerAPICompiler::new);
+
+    /**
+     * The result of a task: whether it was successful, and the diagnostics it produced.
+     */
+    private record TaskResult(boolean successful, List<Diagnostic> diagnostics) { }
+
+    private static synchronized ExecutorService getExecutor()
+    {
+        if (executor == null)
+        {
+            executor = Executors.newFixedThreadPool(THREADS, r -> {
+                Thread t = new Thread(r, "Parallel compiler");
+                t.setDaemon(true);
+                // The same priority as the compiler thread, to keep the GUI responsive:
+                t.setPriority(Math.max(Thread.NORM_PRIORITY - 1, Thread.MIN_PRIORITY));
+                return t;
+            });
+        }
+        return executor;
+    }
+
+    /**
+     * Check whether a compilation should be compiled in parallel, according to the given plan.
+     */
+    static boolean isWorthwhile(List<List<List<Integer>>> waves, int sourceCount)
+    {
+        return sourceCount >= MIN_SOURCES && (waves.size() > 1 || waves.get(0).size() > 1);
+    }
+
+    /**
+     * Compile the sources, according to the plan.
+     *
+     * @param waves       The plan, from {@link SourceComponents#planWaves(int)}
+     * @param components  The components which the plan refers to
+     * @param sources     The files to compile, which the components refer to by index
+     * @param observer    The observer, which is given the diagnostics (but is not told of the
+     *                    start and end of compilation, which is the caller's responsibility)
+     * @param destDir     The destination directory, which is also the source path (and must
+     *                    be on the class path)
+     * @param cancelled   Checked by each task during compilation, to see if it should be abandoned
+     * @return  true if all the tasks were compiled successfully
+     */
+    static boolean compile(List<List<List<Integer>>> waves, SourceComponents components, File[] sources,
+            CompileObserver observer, File destDir, List<File> classPath, boolean internal,
+            List<String> options, Charset fileCharset, CompileType type, BooleanSupplier cancelled)
+            throws InterruptedException, ExecutionException, IOException
+    {
+        // The tasks mustn't write any classes except their own, since another task may be
+        // writing them at the same time:
+        List<String> taskOptions = new ArrayList<>(options);
+        taskOptions.add("-implicit:none");
+
+        boolean[] failed = new boolean[components.getCount()];
+        List<TaskResult> results = new ArrayList<>();
+        for (List<List<Integer>> wave : waves)
+        {
+            List<Future<TaskResult>> futures = new ArrayList<>();
+            List<File> outputDirs = new ArrayList<>();
+            try
+            {
+                for (List<Integer> task : wave)
+                {
+                    if (dependsOnFailure(task, components, failed))
+                    {
+                        futures.add(null);
+                        outputDirs.add(null);
+                        continue;
+                    }
+                    List<File> taskSources = new ArrayList<>();
+                    for (int component : task)
+                    {
+                        for (int source : components.getComponent(component))
+                        {
+                            taskSources.add(sources[source]);
+                        }
+                    }
+                    File outputDir = Files.createTempDirectory("bluej-compile").toFile();
+                    outputDirs.add(outputDir);
+                    futures.add(getExecutor().submit(() -> compileTask(taskSources.toArray(new File[0]), destDir,
+                            outputDir, classPath, internal, taskOptions, fileCharset, type, cancelled)));
+                }
+
+                List<TaskResult> waveResults = new ArrayList<>();
+                for (int t = 0; t < wave.size(); t++)
+                {
+                    TaskResult result = futures.get(t) == null ? new TaskResult(false, Collections.emptyList())
+                            : futures.get(t).get();
+                    waveResults.add(result);
+                    if (!result.successful())
+                    {
+                        for (int component : wave.get(t))
+                        {
+                            failed[component] = true;
+                        }
+                    }
+                }
+
+                // None of the wave's tasks is running now, so their classes can be put in place:
+                for (int t = 0; t < wave.size(); t++)
+                {
+                    if (waveResults.get(t).successful())
+                    {
+                        moveClasses(outputDirs.get(t), destDir);
+                    }
+                }
+                results.addAll(waveResults);
+            }
+            finally
+            {
+                for (File outputDir : outputDirs)
+                {
+                    if (outputDir != null)
+                    {
+                        FileUtility.deleteDir(outputDir);
+                    }
+                }
+            }
+        }
+
+        boolean successful = true;
+        for (TaskResult result : results)
+        {
+            for (Diagnostic diagnostic : result.diagnostics())
+            {
+                observer.compilerMessage(diagnostic, type);
+            }
+            successful &= result.successful();
+        }
+        return successful;
+    }
+
+    /**
+     * Check whether any component of a task depends on a component which failed to compile.
+     */
+    private static boolean dependsOnFailure(List<Integer> task, SourceComponents components, boolean[] failed)
+    {
+        for (int component : task)
+        {
+            for (int dependency : components.getDependencies(component))
+            {
+                if (failed[dependency])
+                {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Move the class files which a task wrote into the destination directory, replacing
+     * the class files from earlier compilations.
+     */
+    private static void moveClasses(File outputDir, File destDir) throws IOException
+    {
+        Path output = outputDir.toPath();
+        List<Path> classFiles;
+        try (Stream<Path> paths = Files.walk(output))
+        {
+            classFiles = paths.filter(Files::isRegularFile).collect(Collectors.toList());
+        }
+        for (Path classFile : classFiles)
+        {
+            Path target = destDir.toPath().resolve(output.relativize(classFile).toString());
+            Files.createDirectories(target.getParent());
+            Files.move(classFile, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * Compile one task, using this thread's compiler.
+     *
+     * @param outputDir  The directory which the task's classes are written to
+     */
+    private static TaskResult compileTask(File[] sources, File destDir, File outputDir, List<File> classPath,
+            boolean internal, List<String> options, Charset fileCharset, CompileType type, BooleanSupplier cancelled)
+    {
+        Compiler compiler = compilers.get();
+        compiler.setDestDir(destDir);
+        compiler.setClassOutputDir(outputDir);
+        compiler.setClasspath(classPath);
+        compiler.setBootClassPath(null);
+        compiler.setCancelCheck(cancelled);
+
+        List<Diagnostic> diagnostics = new ArrayList<>();
+        CompileObserver collector = new CompileObserver()
+        {
+            @Override
+            public void startCompile(CompileInputFile[] sources, CompileReason reason, CompileType type, int compilationSequence)
+            {
+            }
+
+            @Override
+            public void compilerMessage(Diagnostic diagnostic, CompileType type)
+            {
+                diagnostics.add(diagnostic);
+            }
+
+            @Override
+            public void endCompile(CompileInputFile[] sources, boolean succesful, CompileType type, int compilationSequence)
+            {
+            }
+        };
+        boolean successful = compiler.compile(sources, Collections.emptyMap(), collector, internal, options, fileCharset, type);
+        return new TaskResult(successful, diagnostics);
+    }
+}
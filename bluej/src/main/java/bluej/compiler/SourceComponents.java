@@ -0,0 +1,330 @@
+/*
+ This file is part of the BlueJ program. 
+ Copyright (C) 2026  Michael Kolling and John Rosenberg
+ 
+ This program is free software; you can redistribute it and/or 
+ modify it under the terms of the GNU General Public License 
+ as published by the Free Software Foundation; either version 2 
+ of the License, or (at your option) any later version. 
+ 
+ This program is distributed in the hope that it will be useful, 
+ but WITHOUT ANY WARRANTY; without even the implied warranty of 
+ MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the 
+ GNU General Public License for more details. 
+ 
+ You should have received a copy of the GNU General Public License 
+ along with this program; if not, write to the Free Software 
+ Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA. 
+ 
+ This file is subject to the Classpath exception as provided in the  
+ LICENSE.txt file that accompanied this code.
+ */
+package bluej.compiler;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * The sources of a compilation, divided into the strongly connected components of their
+ * dependency graph. The sources in a component all depend (directly or indirectly) on each
+ * other, and so must be compiled together; the components themselves form an acyclic graph.
+ * Components which do not depend on each other can be compiled separately (and in parallel),
+ * once the components which they depend on have been compiled.
+ *
+ * <p>Sources are referred to by their index in the compilation's list of sources. The
+ * components are in dependency order: a component only depends on components before it.
+ */
+public class SourceComponents
+{
+    private final int[][] edges;
+    private final List<int[]> components;
+    private final List<int[]> dependencies;
+
+    private SourceComponents(int[][] edges, List<int[]> components, List<int[]> dependencies)
+    {
+        this.edges = edges;
+        this.components = components;
+        this.dependencies = dependencies;
+    }
+
+    /**
+     * Find the strongly connected components of a dependency graph.
+     *
+     * @param nodes         The sources of the compilation, in order
+     * @param dependencies  The nodes which each node depends on. Any which are not
+     *                      themselves in the list of nodes are ignored.
+     */
+    public static <T> SourceComponents of(List<T> nodes, Function<? super T, ? extends Collection<?>> dependencies)
+    {
+        Map<Object, Integer> indexes = new IdentityHashMap<>();
+        for (int i = 0; i < nodes.size(); i++)
+        {
+            indexes.put(nodes.get(i), i);
+        }
+        int[][] edges = new int[nodes.size()][];
+        for (int i = 0; i < nodes.size(); i++)
+        {
+            edges[i] = dependencies.apply(nodes.get(i)).stream().map(indexes::get)
+                    .filter(d -> d != null).mapToInt(Integer::intValue).distinct().toArray();
+        }
+        return of(edges);
+    }
+
+    /**
+     * Find the strongly connected components of a dependency graph, given as the indexes
+     * of the sources which each source depends on. This uses Tarjan's algorithm (without
+     * recursion, so that long chains of dependencies can't overflow the stack), which finds
+     * each component after the components it depends on.
+     */
+    static SourceComponents of(int[][] edges)
+    {
+        int count = edges.length;
+        int[] index = new int[count];
+        int[] lowLink = new int[count];
+        int[] componentOf = new int[count];
+        Arrays.fill(index, -1);
+        boolean[] onStack = new boolean[count];
+        int[] stack = new int[count];
+        int stackSize = 0;
+        // The search path: the node, and how many of its edges have been followed
+        int[] pathNode = new int[count];
+        int[] pathEdge = new int[count];
+        int nextIndex = 0;
+        List<int[]> components = new ArrayList<>();
+
+        for (int root = 0; root < count; root++)
+        {
+            if (index[root] != -1)
+            {
+                continue;
+            }
+            int depth = 0;
+            pathNode[0] = root;
+            pathEdge[0] = 0;
+            index[root] = lowLink[root] = nextIndex++;
+            stack[stackSize++] = root;
+            onStack[root] = true;
+
+            while (depth >= 0)
+            {
+                int node = pathNode[depth];
+                if (pathEdge[depth] < edges[node].length)
+                {
+                    int next = edges[node][pathEdge[depth]++];
+                    if (index[next] == -1)
+                    {
+                        depth++;
+                        pathNode[depth] = next;
+                        pathEdge[depth] = 0;
+                        index[next] = lowLink[next] = nextIndex++;
+                        stack[stackSize++] = next;
+                        onStack[next] = true;
+                    }
+                    else if (onStack[next])
+                    {
+                        lowLink[node] = Math.min(lowLink[node], index[next]);
+                    }
+                    continue;
+                }
+
+                // All the node's dependencies have been searched:
+                if (lowLink[node] == index[node])
+                {
+                    int start = stackSize;
+                    do
+                    {
+                        start--;
+                        onStack[stack[start]] = false;
+                        componentOf[stack[start]] = components.size();
+                    }
+                    while (stack[start] != node);
+                    int[] component = Arrays.copyOfRange(stack, start, stackSize);
+                    Arrays.sort(component);
+                    components.add(component);
+                    stackSize = start;
+                }
+                depth--;
+                if (depth >= 0)
+                {
+                    int parent = pathNode[depth];
+                    lowLink[parent] = Math.min(lowLink[parent], lowLink[node]);
+                }
+            }
+        }
+
+        List<int[]> dependencies = new ArrayList<>();
+        for (int[] component : components)
+        {
+            int self = componentOf[component[0]];
+            dependencies.add(Arrays.stream(component).flatMap(node -> Arrays.stream(edges[node]))
+                    .map(d -> componentOf[d]).filter(c -> c != self).distinct().sorted().toArray());
+        }
+        return new SourceComponents(edges, components, dependencies);
+    }
+
+    /**
+     * Get the components of a subset of the sources. In the result, the sources are referred
+     * to by their index in the given array, rather than in the original list of sources.
+     *
+     * @param sources  The indexes (in the original list) of the sources in the subset
+     */
+    public SourceComponents subset(int[] sources)
+    {
+        int[] subsetIndex = new int[edges.length];
+        Arrays.fill(subsetIndex, -1);
+        for (int i = 0; i < sources.length; i++)
+        {
+            subsetIndex[sources[i]] = i;
+        }
+        int[][] subsetEdges = new int[sources.length][];
+        for (int i = 0; i < sources.length; i++)
+        {
+            subsetEdges[i] = Arrays.stream(edges[sources[i]]).map(d -> subsetIndex[d]).filter(d -> d != -1).toArray();
+        }
+        return of(subsetEdges);
+    }
+
+    /**
+     * Get the number of components.
+     */
+    public int getCount()
+    {
+        return components.size();
+    }
+
+    /**
+     * Get the indexes of the sources in a component.
+     */
+    public int[] getComponent(int component)
+    {
+        return components.get(component);
+    }
+
+    /**
+     * Get the indexes of the components which a component depends on directly (all of
+     * which are before it).
+     */
+    public int[] getDependencies(int component)
+    {
+        return dependencies.get(component);
+    }
+
+    /**
+     * Plan the compilation of the components as a series of waves of tasks. The tasks in
+     * a wave do not depend on each other, so they can be compiled in parallel, once the
+     * tasks of the earlier waves have been compiled. Each task is a list of components.
+     *
+     * <p>Each javac task has an overhead, so rather than compiling each component in a task
+     * of its own, a task also takes components which only depend on components in it (or in
+     * earlier waves), up to a share of the sources which remain. A chain of dependencies is
+     * then compiled in a single task, and so are graphs with no independent parts.
+     *
+     * @param maxTasks  The most tasks to have in a wave (the number which can run in parallel)
+     * @return  The waves of tasks, which are lists of component indexes
+     */
+    public List<List<List<Integer>>> planWaves(int maxTasks)
+    {
+        int count = components.size();
+        boolean[] done = new boolean[count];
+        int remaining = count;
+        int remainingSources = components.stream().mapToInt(c -> c.length).sum();
+        List<List<List<Integer>>> waves = new ArrayList<>();
+
+        while (remaining > 0)
+        {
+            List<Integer> ready = new ArrayList<>();
+            for (int c = 0; c < count; c++)
+            {
+                if (!done[c] && allDone(dependencies.get(c), done))
+                {
+                    ready.add(c);
+                }
+            }
+
+            // Share out the ready components between the tasks, each to the smallest task:
+            int taskCount = Math.min(maxTasks, ready.size());
+            List<List<Integer>> tasks = new ArrayList<>();
+            int[] taskSizes = new int[taskCount];
+            int[] taskOf = new int[count];
+            Arrays.fill(taskOf, -1);
+            for (int t = 0; t < taskCount; t++)
+            {
+                tasks.add(new ArrayList<>());
+            }
+            for (int c : ready)
+            {
+                int smallest = 0;
+                for (int t = 1; t < taskCount; t++)
+                {
+                    if (taskSizes[t] < taskSizes[smallest])
+                    {
+                        smallest = t;
+                    }
+                }
+                tasks.get(smallest).add(c);
+                taskSizes[smallest] += components.get(c).length;
+                taskOf[c] = smallest;
+            }
+
+            // Then add components which only depend on one task (and earlier waves). A lone
+            // task may take everything it can, since nothing else could run in parallel:
+            int limit = taskCount == 1 ? Integer.MAX_VALUE : (remainingSources + taskCount - 1) / taskCount;
+            for (int c = 0; c < count; c++)
+            {
+                if (done[c] || taskOf[c] != -1)
+                {
+                    continue;
+                }
+                int task = -1;
+                for (int d : dependencies.get(c))
+                {
+                    if (!done[d])
+                    {
+                        if (taskOf[d] == -1 || (task != -1 && taskOf[d] != task))
+                        {
+                            task = -2;
+                            break;
+                        }
+                        task = taskOf[d];
+                    }
+                }
+                if (task >= 0 && taskSizes[task] + components.get(c).length <= limit)
+                {
+                    tasks.get(task).add(c);
+                    taskSizes[task] += components.get(c).length;
+                    taskOf[c] = task;
+                }
+            }
+
+            for (int t = 0; t < taskCount; t++)
+            {
+                for (int c : tasks.get(t))
+                {
+                    done[c] = true;
+                    remaining--;
+                    remainingSources -= components.get(c).length;
+                }
+            }
+            waves.add(Collections.unmodifiableList(tasks));
+        }
+        return waves;
+    }
+
+    private static boolean allDone(int[] components, boolean[] done)
+    {
+        for (int c : components)
+        {
+            if (!done[c])
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -1163,7 +1163,8 @@ public class FlowEditor extends ScopeColorsBorderPane implements TextEditor, Flo
         {
             if (sourceIsCode)
             {
-                // Save will occur as part of the future compilation:
+                // Save will occur once the future compilation (which checks
+                // the unsaved contents for errors) has finished:
                 scheduleCompilation(CompileReason.MODIFIED, CompileType.ERROR_CHECK_ONLY);
             }
             else
@@ -2175,6 +2176,19 @@ public class FlowEditor extends ScopeColorsBorderPane implements TextEditor, Flo
             compilationQueued = false;
         }
 
+        if (!classesKept && saveState.isChanged())
+        {
+            // An error check may have compiled our contents without saving them;
+            // save them now, so that they are not lost:
+            try
+            {
+                save();
+            }
+            catch (IOException ioe) {}
+            // Note we can safely ignore the exception here: a message has
+            // already been displayed in the editor status bar by the save() method
+        }
+
         if (classesKept)
         {
             // Compilation requested via the editor interface has completed
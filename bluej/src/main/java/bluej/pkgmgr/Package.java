@@ -1480,7 +1480,7 @@ public final class Package
             {
                 if (!ct.isCompiled() && !ct.isQueued())
                 {
-                    ct.ensureSaved();
+                    ct.ensureSaved(type);
                     toCompile.add(ct);
                     ct.setQueued(true);
                 }
@@ -1717,7 +1717,7 @@ public final class Package
         try {
             List<ClassTarget> queue = new LinkedList<ClassTarget>();
             toCompile.add(t);
-            t.ensureSaved();
+            t.ensureSaved(type);
             queue.add(t);
             t.setQueued(true);
 
@@ -1729,7 +1729,7 @@ public final class Package
                     if (dependency instanceof ClassTarget to)
                     {
                         if (!to.isCompiled() && ! to.isQueued() && toCompile.add(to)) {
-                            to.ensureSaved();
+                            to.ensureSaved(type);
                             to.setQueued(true);
                             queue.add(to);
                         }
@@ -1750,7 +1750,8 @@ public final class Package
 
     /**
      * Compile every Target in 'targetList'. Every compilation goes through this method.
-     * All targets in the list should have been saved beforehand.
+     * All targets in the list should have been saved beforehand, as necessary for
+     * the type of compilation (see {@link ClassTarget#ensureSaved(CompileType)}).
      */
     private void doCompile(Collection<ClassTarget> targetList, FXCompileObserver edtObserver, CompileReason reason, CompileType type)
     {
@@ -1759,11 +1760,20 @@ public final class Package
             return;
         }
 
-        List<CompileInputFile> srcFiles = Utility.mapList(targetList, ClassTarget::getCompileInputFile);
+        // A fixed order, so that the compilation (and the order of its messages) doesn't
+        // depend on the order of the collection:
+        List<ClassTarget> targets = new ArrayList<>(targetList);
+        targets.sort(Comparator.comparing(ClassTarget::getQualifiedName));
+
+        List<CompileInputFile> srcFiles = Utility.mapList(targets, ct -> ct.getCompileInputFile(type));
         if (srcFiles.size() > 0 && srcFiles.stream().allMatch(CompileInputFile::isValid))
         {
+            // Classes which don't depend on each other may be compiled in parallel, but only
+            // if the classes are kept, since classes are compiled against their dependencies'
+            // class files:
+            SourceComponents components = type.keepClasses() ? SourceComponents.of(targets, ClassTarget::dependencies) : null;
             JobQueue.getJobQueue().addJob(srcFiles.toArray(new CompileInputFile[0]), observer, project.getClassLoader(), project.getProjectDir(),
-                ! PrefMgr.getFlag(PrefMgr.SHOW_UNCHECKED), project.getProjectCharset(), reason, type);
+                ! PrefMgr.getFlag(PrefMgr.SHOW_UNCHECKED), project.getProjectCharset(), reason, type, components);
         }
     }
 
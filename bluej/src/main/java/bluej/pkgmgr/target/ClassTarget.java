@@ -30,6 +30,7 @@ import bluej.compiler.CompileInputFile;
 import bluej.compiler.CompileReason;
 import bluej.compiler.CompileType;
 import bluej.compiler.Diagnostic;
+import bluej.compiler.JobQueue;
 import bluej.debugger.*;
 import bluej.debugger.gentype.Reflective;
 import bluej.debugmgr.objectbench.InvokeListener;
@@ -173,6 +174,9 @@ public class ClassTarget extends DependentTarget
 
     // Whether the current compilation is invalid due to edits since compilation began
     private boolean compilationInvalid = false;
+    // Whether the editor's unsaved contents have been passed to a compilation, and
+    // not modified since:
+    private boolean compilingUnsavedSource = false;
 
     private SourceType sourceAvailable;
     // Part of keeping track of number of editors opened, for Greenfoot phone home:
@@ -497,8 +501,10 @@ public class ClassTarget extends DependentTarget
      */
     public void markCompiling(int compilationSequence)
     {
-        // The results of compilation will be invalid if the editor contents have not been saved:
-        compilationInvalid = (editor != null) ? editor.isModified() : false; 
+        // The results of compilation will be invalid if the editor contents have not been saved
+        // (unless the compilation is of the unsaved contents):
+        compilationInvalid = (editor != null) ? editor.isModified() && !compilingUnsavedSource : false;
+        compilingUnsavedSource = false;
 
         if (getState() == State.HAS_ERROR)
         {
@@ -1386,6 +1392,32 @@ public class ClassTarget extends DependentTarget
         super.ensureSaved();
     }
 
+    /**
+     * Ensure that the source for this class is saved, if it needs to be for a
+     * compilation of the given type. Compilations which only check for errors
+     * can compile the unsaved contents of an open Java editor instead (see
+     * {@link #getCompileInputFile(CompileType)}).
+     */
+    public void ensureSaved(CompileType type) throws IOException
+    {
+        if (!canCompileUnsaved(type))
+        {
+            ensureSaved();
+        }
+    }
+
+    /**
+     * Check whether a compilation of the given type can compile the contents of
+     * the editor, rather than the saved file. That is only so for compilations
+     * which do not keep the classes, and only for Java classes whose editor is open
+     * (an editor which is closing has its changes saved).
+     */
+    private boolean canCompileUnsaved(CompileType type)
+    {
+        return !type.keepClasses() && sourceAvailable == SourceType.Java
+                && editor != null && editor.isOpen() && editor.assumeText() != null;
+    }
+
     // --- end of EditableTarget interface ---
 
     // --- user interface function implementation ---
@@ -1419,6 +1451,9 @@ public class ClassTarget extends DependentTarget
     @Override
     public void modificationEvent(Editor editor)
     {
+        compilingUnsavedSource = false;
+        // Error checks of the old source are no longer needed:
+        JobQueue.getJobQueue().sourceModified(getJavaSourceFile());
         invalidate();
 
         removeBreakpoints();
@@ -2628,6 +2663,24 @@ public class ClassTarget extends DependentTarget
         return new CompileInputFile(getJavaSourceFile(), getSourceFile());
     }
 
+    /**
+     * Get the input file for a compilation of the given type. If the compilation only
+     * checks for errors, and the editor has unsaved changes, the contents of the editor
+     * are compiled in place of the saved file.
+     */
+    public CompileInputFile getCompileInputFile(CompileType type)
+    {
+        if (canCompileUnsaved(type) && editor.isModified())
+        {
+            TextEditor textEditor = editor.assumeText();
+            String source = textEditor.getText(textEditor.getLineColumnFromOffset(0),
+                    textEditor.getLineColumnFromOffset(textEditor.getTextLength()));
+            compilingUnsavedSource = true;
+            return new CompileInputFile(getJavaSourceFile(), getSourceFile(), source);
+        }
+        return getCompileInputFile();
+    }
+
     /**
      * Display a compilation diagnostic (error message), if possible and appropriate. The editor
      * decides if it is appropriate to display the error and may have a policy where eg it only
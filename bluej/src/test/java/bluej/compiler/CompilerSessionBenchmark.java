@@ -0,0 +1,175 @@
+/*
+ This file is part of the BlueJ program. 
+ Copyright (C) 2026  Michael Kolling and John Rosenberg
+ 
+ This program is free software; you can redistribute it and/or 
+ modify it under the terms of the GNU General Public License 
+ as published by the Free Software Foundation; either version 2 
+ of the License, or (at your option) any later version. 
+ 
+ This program is distributed in the hope that it will be useful, 
+ but WITHOUT ANY WARRANTY; without even the implied warranty of 
+ MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the 
+ GNU General Public License for more details. 
+ 
+ You should have received a copy of the GNU General Public License 
+ along with this program; if not, write to the Free Software 
+ Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA. 
+ 
+ This file is subject to the Classpath exception as provided in the  
+ LICENSE.txt file that accompanied this code.
+ */
+package bluej.compiler;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+/**
+ * A benchmark of the time taken by an error-check compile of a single class in a
+ * generated project, when each compile has a new compiler session (as each compile
+ * used to), and when the compiles share one session. The class path is that of the
+ * benchmark itself, so that it includes some library archives. Run it with the
+ * benchmarkCompile Gradle task; the optional arguments are the number of classes
+ * in the project, and the number of compiles to time.
+ */
+public class CompilerSessionBenchmark
+{
+    private static final int WARMUP_COMPILES = 5;
+
+    public static void main(String[] args) throws IOException
+    {
+        int classes = args.length > 0 ? Integer.parseInt(args[0]) : 200;
+        int compiles = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+
+        File projectDir = Files.createTempDirectory("bluej-benchmark").toFile();
+        try
+        {
+            File[] sources = new File[classes];
+            for (int i = 0; i < classes; i++)
+            {
+                sources[i] = new File(projectDir, "C" + i + ".java");
+                Files.writeString(sources[i].toPath(), classSource(i, ""));
+            }
+            List<File> classPath = new ArrayList<>();
+            classPath.add(projectDir);
+            for (String entry : System.getProperty("java.class.path").split(File.pathSeparator))
+            {
+                classPath.add(new File(entry));
+            }
+
+            // Compile the whole project first, as when it is opened:
+            if (!compile(new CompilerAPICompiler(), projectDir, classPath, sources, null, CompileType.EXPLICIT_USER_COMPILE))
+            {
+                System.out.println("The generated project did not compile");
+                return;
+            }
+
+            // Check a class in the middle of the project, with an unsaved edit:
+            int checked = classes / 2;
+            File[] checkSources = {sources[checked]};
+            String edited = classSource(checked, "    int edited;\n");
+
+            System.out.println(classes + " classes, " + compiles + " compiles; ms per error check:");
+            report("new session per compile", time(compiles, () -> new CompilerAPICompiler(),
+                    projectDir, classPath, checkSources, edited));
+            CompilerAPICompiler shared = new CompilerAPICompiler();
+            report("shared session", time(compiles, () -> shared,
+                    projectDir, classPath, checkSources, edited));
+        }
+        finally
+        {
+            try (Stream<Path> paths = Files.walk(projectDir.toPath()))
+            {
+                paths.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+            }
+        }
+    }
+
+    /**
+     * The source of a generated class, which uses the class before it and some library
+     * classes.
+     */
+    private static String classSource(int index, String extraMember)
+    {
+        String previous = index == 0 ? "Object" : "C" + (index - 1);
+        return "import java.util.*;\n"
+                + "public class C" + index + "\n"
+                + "{\n"
+                + "    private " + previous + " previous;\n"
+                + "    private final List<String> names = new ArrayList<>();\n"
+                + extraMember
+                + "    public int count(Map<String, Integer> counts)\n"
+                + "    {\n"
+                + "        int total = 0;\n"
+                + "        for (String name : names)\n"
+                + "        {\n"
+                + "            total += counts.getOrDefault(name, " + index + ");\n"
+                + "        }\n"
+                + "        return total + Objects.hashCode(previous);\n"
+                + "    }\n"
+                + "}\n";
+    }
+
+    /**
+     * Run a number of error-check compiles (after some warm-up compiles), and return
+     * the average time per compile in milliseconds.
+     */
+    private static double time(int compiles, Supplier<CompilerAPICompiler> compilers, File projectDir,
+            List<File> classPath, File[] sources, String unsavedSource)
+    {
+        for (int i = 0; i < WARMUP_COMPILES; i++)
+        {
+            compile(compilers.get(), projectDir, classPath, sources, unsavedSource, CompileType.ERROR_CHECK_ONLY);
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < compiles; i++)
+        {
+            if (!compile(compilers.get(), projectDir, classPath, sources, unsavedSource, CompileType.ERROR_CHECK_ONLY))
+            {
+                throw new IllegalStateException("Error check failed");
+            }
+        }
+        return (System.nanoTime() - start) / 1e6 / compiles;
+    }
+
+    private static boolean compile(CompilerAPICompiler compiler, File projectDir, List<File> classPath,
+            File[] sources, String unsavedSource, CompileType type)
+    {
+        compiler.setDestDir(projectDir);
+        compiler.setClasspath(classPath);
+        compiler.setBootClassPath(null);
+        return compiler.compile(sources, unsavedSource == null ? Collections.emptyMap()
+                : Collections.singletonMap(sources[0], unsavedSource), new CompileObserver()
+        {
+            @Override
+            public void startCompile(CompileInputFile[] sources, CompileReason reason, CompileType type, int compilationSequence)
+            {
+            }
+
+            @Override
+            public void compilerMessage(Diagnostic diagnostic, CompileType type)
+            {
+                System.out.println(diagnostic.getMessage().englishMessage());
+            }
+
+            @Override
+            public void endCompile(CompileInputFile[] sources, boolean succesful, CompileType type, int compilationSequence)
+            {
+            }
+        }, false, Collections.emptyList(), StandardCharsets.UTF_8, type);
+    }
+
+    private static void report(String name, double millis)
+    {
+        System.out.println(String.format("  %-24s %10.3f", name, millis));
+    }
+}
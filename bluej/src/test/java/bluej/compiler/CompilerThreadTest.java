@@ -0,0 +1,279 @@
+/*
+ This file is part of the BlueJ program.
+ Copyright (C) 2026  Michael Kolling and John Rosenberg
+
+ This program is free software; you can redistribute it and/or
+ modify it under the terms of the GNU General Public License
+ as published by the Free Software Foundation; either version 2
+ of the License, or (at your option) any later version.
+
+ This program is distributed in the hope that it will be useful,
+ but WITHOUT ANY WARRANTY; without even the implied warranty of
+ MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ GNU General Public License for more details.
+
+ You should have received a copy of the GNU General Public License
+ along with this program; if not, write to the Free Software
+ Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+
+ This file is subject to the Classpath exception as provided in the
+ LICENSE.txt file that accompanied this code.
+ */
+package bluej.compiler;
+
+import java.io.File;
+import java.net.URL;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import bluej.classmgr.BPClassLoader;
+import junit.framework.TestCase;
+
+/**
+ * Tests for the queueing of jobs by the compiler thread: jobs which are superseded by
+ * later jobs, and jobs which are cancelled.
+ */
+public class CompilerThreadTest extends TestCase
+{
+    private final File a = new File("A.java");
+    private final File b = new File("B.java");
+    private final File x = new File("X.java");
+
+    private CompilerThread thread;
+    private TestCompiler compiler;
+    private BPClassLoader classLoader;
+    /** The start and end of each job, as "name:start" and "name:end:successful" */
+    private final List<String> events = Collections.synchronizedList(new ArrayList<>());
+    /** The compilation sequence number each job started with */
+    private final Map<String, Integer> sequences = Collections.synchronizedMap(new HashMap<>());
+
+    @Override
+    protected void setUp() throws Exception
+    {
+        thread = new CompilerThread();
+        thread.setDaemon(true);
+        thread.start();
+        compiler = new TestCompiler();
+        classLoader = new BPClassLoader(new URL[0], null);
+    }
+
+    @Override
+    protected void tearDown() throws Exception
+    {
+        compiler.release();
+        classLoader.close();
+    }
+
+    public void testSupersededJobs() throws Exception
+    {
+        compiler.block();
+        thread.addJob(job("running", CompileType.EXPLICIT_USER_COMPILE, x));
+        compiler.awaitBlocked();
+
+        thread.addJob(job("first", CompileType.ERROR_CHECK_ONLY, a));
+        thread.addJob(job("second", CompileType.ERROR_CHECK_ONLY, a, b));
+        compiler.release();
+        waitUntilIdle();
+
+        // The first job is not compiled itself, but its observer is told the result
+        // of compiling the second:
+        assertEquals(Arrays.asList(Set.of(x), Set.of(a, b)), compiler.compiled);
+        assertEquals(Arrays.asList("running:start", "running:end:true",
+                "first:start", "second:start", "first:end:true", "second:end:true"), events);
+        assertTrue(sequences.get("first") < sequences.get("second"));
+    }
+
+    public void testJobsNotSuperseded() throws Exception
+    {
+        compiler.block();
+        thread.addJob(job("running", CompileType.EXPLICIT_USER_COMPILE, x));
+        compiler.awaitBlocked();
+
+        thread.addJob(job("both", CompileType.ERROR_CHECK_ONLY, a, b));
+        // Doesn't include all the sources of the earlier job:
+        thread.addJob(job("fewer", CompileType.ERROR_CHECK_ONLY, a));
+        // Of a different type:
+        thread.addJob(job("kept", CompileType.EXPLICIT_USER_COMPILE, a, b));
+        compiler.release();
+        waitUntilIdle();
+
+        assertEquals(Arrays.asList(Set.of(x), Set.of(a, b), Set.of(a), Set.of(a, b)), compiler.compiled);
+        assertEquals(Arrays.asList("running:start", "running:end:true", "both:start", "both:end:true",
+                "fewer:start", "fewer:end:true", "kept:start", "kept:end:true"), events);
+    }
+
+    public void testRunningJobSuperseded() throws Exception
+    {
+        // A job which discards its classes is cancelled when a job which supersedes it is queued:
+        compiler.block();
+        thread.addJob(job("check", CompileType.ERROR_CHECK_ONLY, a));
+        compiler.awaitBlocked();
+        thread.addJob(job("later", CompileType.ERROR_CHECK_ONLY, a, b));
+        compiler.release();
+        waitUntilIdle();
+
+        assertEquals(Arrays.asList(true, false), compiler.cancelled);
+        assertEquals(Arrays.asList("check:start", "check:end:false", "later:start", "later:end:true"), events);
+
+        // But one which keeps its classes is left to finish:
+        events.clear();
+        compiler.block();
+        thread.addJob(job("compile", CompileType.EXPLICIT_USER_COMPILE, a));
+        compiler.awaitBlocked();
+        thread.addJob(job("again", CompileType.EXPLICIT_USER_COMPILE, a, b));
+        compiler.release();
+        waitUntilIdle();
+
+        assertEquals(Arrays.asList(true, false, false, false), compiler.cancelled);
+        assertEquals(Arrays.asList("compile:start", "compile:end:true", "again:start", "again:end:true"), events);
+    }
+
+    public void testSourceModified() throws Exception
+    {
+        compiler.block();
+        thread.addJob(job("running", CompileType.EXPLICIT_USER_COMPILE, x));
+        compiler.awaitBlocked();
+
+        thread.addJob(job("check", CompileType.ERROR_CHECK_ONLY, a, b));
+        thread.addJob(job("kept", CompileType.EXPLICIT_USER_COMPILE, a));
+        // The check is only out of date once all its sources have been modified:
+        thread.sourceModified(a);
+        thread.sourceModified(x);
+        thread.sourceModified(b);
+        compiler.release();
+        waitUntilIdle();
+
+        // The cancelled check isn't compiled, but its observer is still told it has ended:
+        assertEquals(Arrays.asList(Set.of(x), Set.of(a)), compiler.compiled);
+        assertEquals(Arrays.asList("running:start", "running:end:true", "check:start", "check:end:false",
+                "kept:start", "kept:end:true"), events);
+    }
+
+    public void testRunningSourceModified() throws Exception
+    {
+        compiler.block();
+        thread.addJob(job("check", CompileType.ERROR_CHECK_ONLY, a));
+        compiler.awaitBlocked();
+        thread.sourceModified(a);
+        compiler.release();
+        waitUntilIdle();
+
+        assertEquals(Arrays.asList(true), compiler.cancelled);
+        assertEquals(Arrays.asList("check:start", "check:end:false"), events);
+    }
+
+    /**
+     * Create a job which compiles the given sources, and records its start and end in events.
+     */
+    private Job job(String name, CompileType type, File... files)
+    {
+        CompileInputFile[] sources = new CompileInputFile[files.length];
+        for (int i = 0; i < files.length; i++)
+        {
+            sources[i] = new CompileInputFile(files[i], files[i]);
+        }
+        CompileObserver observer = new CompileObserver()
+        {
+            @Override
+            public void startCompile(CompileInputFile[] sources, CompileReason reason, CompileType type, int compilationSequence)
+            {
+                events.add(name + ":start");
+                sequences.put(name, compilationSequence);
+            }
+
+            @Override
+            public void compilerMessage(Diagnostic diagnostic, CompileType type)
+            {
+            }
+
+            @Override
+            public void endCompile(CompileInputFile[] sources, boolean succesful, CompileType type, int compilationSequence)
+            {
+                events.add(name + ":end:" + succesful);
+            }
+        };
+        return new Job(sources, compiler, null, observer, classLoader, null, false, Collections.emptyList(),
+                StandardCharsets.UTF_8, type, CompileReason.USER, null);
+    }
+
+    private void waitUntilIdle() throws InterruptedException
+    {
+        long end = System.currentTimeMillis() + 10000;
+        while (thread.isBusy())
+        {
+            assertTrue("Compiler thread still busy", System.currentTimeMillis() < end);
+            Thread.sleep(5);
+        }
+    }
+
+    /**
+     * A compiler which records what it is asked to compile, without compiling it. It can
+     * be made to wait during its next compilation, so that jobs can be queued meanwhile.
+     */
+    private static class TestCompiler extends Compiler
+    {
+        /** The sources of each compilation */
+        private final List<Set<File>> compiled = Collections.synchronizedList(new ArrayList<>());
+        /** Whether each compilation was cancelled, when it finished */
+        private final List<Boolean> cancelled = Collections.synchronizedList(new ArrayList<>());
+        private volatile boolean blockNext;
+        private volatile CountDownLatch blocked;
+        private volatile CountDownLatch released;
+
+        /**
+         * Make the next compilation wait until release() is called.
+         */
+        private void block()
+        {
+            blocked = new CountDownLatch(1);
+            released = new CountDownLatch(1);
+            blockNext = true;
+        }
+
+        private void awaitBlocked() throws InterruptedException
+        {
+            assertTrue(blocked.await(10, TimeUnit.SECONDS));
+        }
+
+        private void release()
+        {
+            if (released != null)
+            {
+                released.countDown();
+            }
+        }
+
+        @Override
+        public boolean compile(File[] sources, Map<File, String> unsavedSources, CompileObserver observer,
+                boolean internal, List<String> options, Charset fileCharset, CompileType type)
+        {
+            compiled.add(new HashSet<>(Arrays.asList(sources)));
+            if (blockNext)
+            {
+                blockNext = false;
+                blocked.countDown();
+                try
+                {
+                    released.await(10, TimeUnit.SECONDS);
+                }
+                catch (InterruptedException e)
+                {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            boolean wasCancelled = getCancelCheck().getAsBoolean();
+            cancelled.add(wasCancelled);
+            return !wasCancelled;
+        }
+    }
+}
@@ -0,0 +1,147 @@
+/*
+ This file is part of the BlueJ program. 
+ Copyright (C) 2026  Michael Kolling and John Rosenberg
+ 
+ This program is free software; you can redistribute it and/or 
+ modify it under the terms of the GNU General Public License 
+ as published by the Free Software Foundation; either version 2 
+ of the License, or (at your option) any later version. 
+ 
+ This program is distributed in the hope that it will be useful, 
+ but WITHOUT ANY WARRANTY; without even the implied warranty of 
+ MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the 
+ GNU General Public License for more details. 
+ 
+ You should have received a copy of the GNU General Public License 
+ along with this program; if not, write to the Free Software 
+ Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA. 
+ 
+ This file is subject to the Classpath exception as provided in the  
+ LICENSE.txt file that accompanied this code.
+ */
+package bluej.compiler;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+import junit.framework.TestCase;
+
+public class DependencyTrackerTest extends TestCase
+{
+    private File dir;
+    private DependencyTracker tracker;
+    private List<Object> environment;
+
+    @Override
+    protected void setUp() throws Exception
+    {
+        dir = Files.createTempDirectory("bluej-tracker").toFile();
+        tracker = new DependencyTracker();
+        environment = DependencyTracker.environment(Collections.singletonList(dir), Collections.emptyList(),
+                StandardCharsets.UTF_8, false);
+
+        write("A", "public class A { public int foo() { return 1; } }");
+        write("B", "public class B { public int b(A a) { return a.foo(); } }");
+        write("C", "public abstract class C extends A { }");
+        compile("A", "B", "C");
+    }
+
+    @Override
+    protected void tearDown() throws Exception
+    {
+        try (Stream<Path> paths = Files.walk(dir.toPath()))
+        {
+            paths.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+        }
+    }
+
+    public void testBodyChange() throws Exception
+    {
+        assertTrue(tracker.isUpToDate(source("B"), dir, environment));
+
+        write("A", "public class A { public int foo() { return 2 + 3; } }");
+        assertFalse(tracker.isUnchanged(source("A"), environment));
+        compile("A");
+
+        // Only the body changed, so neither the user nor the subclass need compiling:
+        assertTrue(tracker.isUpToDate(source("B"), dir, environment));
+        assertTrue(tracker.isUpToDate(source("C"), dir, environment));
+    }
+
+    public void testNewMember() throws Exception
+    {
+        write("A", "public class A { public int foo() { return 1; } public void bar() { } }");
+        compile("A");
+
+        // B doesn't use bar, but a subclass may override it:
+        assertTrue(tracker.isUpToDate(source("B"), dir, environment));
+        assertFalse(tracker.isUpToDate(source("C"), dir, environment));
+    }
+
+    public void testChangedMember() throws Exception
+    {
+        write("A", "public class A { public long foo() { return 1; } }");
+        compile("A");
+
+        assertFalse(tracker.isUpToDate(source("B"), dir, environment));
+    }
+
+    public void testChangedEnvironment()
+    {
+        List<Object> otherEnvironment = DependencyTracker.environment(Collections.singletonList(dir),
+                Collections.singletonList("-deprecation"), StandardCharsets.UTF_8, false);
+        assertFalse(tracker.isUnchanged(source("B"), otherEnvironment));
+    }
+
+    private File source(String className)
+    {
+        return new File(dir, className + ".java");
+    }
+
+    private void write(String className, String source) throws IOException
+    {
+        File file = source(className);
+        long lastModified = file.lastModified();
+        Files.writeString(file.toPath(), source);
+        // Make sure the change is visible, even if the file system's timestamps are coarse:
+        if (file.lastModified() <= lastModified)
+        {
+            file.setLastModified(lastModified + 1000);
+        }
+    }
+
+    private void compile(String... classNames)
+    {
+        File[] sources = Stream.of(classNames).map(this::source).toArray(File[]::new);
+        CompilerAPICompiler compiler = new CompilerAPICompiler();
+        compiler.setDestDir(dir);
+        compiler.setClasspath(Collections.singletonList(dir));
+        compiler.setBootClassPath(null);
+        boolean successful = compiler.compile(sources, Collections.emptyMap(), new CompileObserver()
+        {
+            @Override
+            public void startCompile(CompileInputFile[] sources, CompileReason reason, CompileType type, int compilationSequence)
+            {
+            }
+
+            @Override
+            public void compilerMessage(Diagnostic diagnostic, CompileType type)
+            {
+            }
+
+            @Override
+            public void endCompile(CompileInputFile[] sources, boolean succesful, CompileType type, int compilationSequence)
+            {
+            }
+        }, false, Collections.emptyList(), StandardCharsets.UTF_8, CompileType.EXPLICIT_USER_COMPILE);
+        assertTrue(successful);
+        tracker.record(sources, dir, environment);
+    }
+}
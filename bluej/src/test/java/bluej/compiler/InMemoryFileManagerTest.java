@@ -0,0 +1,223 @@
+/*
+ This file is part of the BlueJ program.
+ Copyright (C) 2026  Michael Kolling and John Rosenberg
+
+ This program is free software; you can redistribute it and/or
+ modify it under the terms of the GNU General Public License
+ as published by the Free Software Foundation; either version 2
+ of the License, or (at your option) any later version.
+
+ This program is distributed in the hope that it will be useful,
+ but WITHOUT ANY WARRANTY; without even the implied warranty of
+ MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ GNU General Public License for more details.
+
+ You should have received a copy of the GNU General Public License
+ along with this program; if not, write to the Free Software
+ Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+
+ This file is subject to the Classpath exception as provided in the
+ LICENSE.txt file that accompanied this code.
+ */
+package bluej.compiler;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+
+import bluej.classmgr.BPClassLoader;
+import junit.framework.TestCase;
+
+/**
+ * Tests for compilations which only check for errors: the classes are discarded, and
+ * unsaved sources are compiled from memory.
+ */
+public class InMemoryFileManagerTest extends TestCase
+{
+    private File dir;
+    private final List<Diagnostic> diagnostics = Collections.synchronizedList(new ArrayList<>());
+
+    @Override
+    protected void setUp() throws Exception
+    {
+        dir = Files.createTempDirectory("bluej-inmemory").toFile();
+    }
+
+    @Override
+    protected void tearDown() throws Exception
+    {
+        try (Stream<Path> paths = Files.walk(dir.toPath()))
+        {
+            paths.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+        }
+    }
+
+    public void testCheckDiscardsClasses() throws Exception
+    {
+        File a = write("A", "public class A { class Inner { } }");
+
+        assertTrue(compile(new File[] {a}, Collections.emptyMap(), CompileType.ERROR_CHECK_ONLY));
+        assertEquals(Collections.emptyList(), diagnostics);
+        assertFalse(new File(dir, "A.class").exists());
+        assertFalse(new File(dir, "A$Inner.class").exists());
+
+        assertTrue(compile(new File[] {a}, Collections.emptyMap(), CompileType.EXPLICIT_USER_COMPILE));
+        assertTrue(new File(dir, "A.class").isFile());
+        assertTrue(new File(dir, "A$Inner.class").isFile());
+    }
+
+    public void testUnsavedSource() throws Exception
+    {
+        // The unsaved source is compiled in place of the broken saved file:
+        File a = write("A", "public class A { int x = \"not an int\"; }");
+        assertTrue(compile(new File[] {a}, Map.of(a, "public class A { int x = 1; }"), CompileType.ERROR_CHECK_ONLY));
+        assertEquals(Collections.emptyList(), diagnostics);
+
+        // And the other way round, with errors reported against the saved file's path:
+        write("A", "public class A { int x = 1; }");
+        assertFalse(compile(new File[] {a}, Map.of(a, "public class A {\n int x = \"not an int\"; }"),
+                CompileType.ERROR_CHECK_ONLY));
+        assertEquals(1, diagnostics.size());
+        assertEquals(Diagnostic.ERROR, diagnostics.get(0).getType());
+        assertEquals(a.getPath(), diagnostics.get(0).getFileName());
+        assertEquals(2, diagnostics.get(0).getStartLine());
+        assertFalse(new File(dir, "A.class").exists());
+    }
+
+    public void testUnsavedSourceIgnoredWhenKeepingClasses() throws Exception
+    {
+        // Classes which are kept must be compiled from the saved file:
+        File a = write("A", "public class A { int x = 1; }");
+        assertTrue(compile(new File[] {a}, Map.of(a, "public class A { int x = \"not an int\"; }"),
+                CompileType.EXPLICIT_USER_COMPILE));
+        assertTrue(new File(dir, "A.class").isFile());
+    }
+
+    public void testUnsavedSourceUsedByOthers() throws Exception
+    {
+        // B uses a method which only exists in the unsaved source of A. The saved A (on the
+        // class path) must not be used in place of the unsaved A:
+        File a = write("A", "public class A { }");
+        File b = write("B", "public class B { int b(A a) { return a.foo(); } }");
+        assertTrue(compile(new File[] {b, a}, Map.of(a, "public class A { int foo() { return 1; } }"),
+                CompileType.ERROR_CHECK_ONLY));
+        assertEquals(Collections.emptyList(), diagnostics);
+    }
+
+    public void testIsSameFile() throws Exception
+    {
+        File a = write("A", "public class A { }");
+        File b = write("B", "public class B { }");
+        JavaCompiler jc = ToolProvider.getSystemJavaCompiler();
+        try (StandardJavaFileManager sjfm = jc.getStandardFileManager(null, null, StandardCharsets.UTF_8))
+        {
+            InMemoryFileManager fileManager = new InMemoryFileManager(sjfm);
+            List<JavaFileObject> objects = fileManager.getJavaFileObjects(new File[] {a, b},
+                    Map.of(a, "public class A { }"));
+            JavaFileObject unsavedA = objects.get(0);
+            JavaFileObject savedB = objects.get(1);
+            JavaFileObject savedA = sjfm.getJavaFileObjects(a).iterator().next();
+
+            assertEquals(a.getPath(), unsavedA.getName());
+            assertEquals(savedA.getName(), unsavedA.getName());
+            assertTrue(fileManager.isSameFile(unsavedA, savedA));
+            assertTrue(fileManager.isSameFile(savedA, unsavedA));
+            assertTrue(fileManager.isSameFile(unsavedA, unsavedA));
+            assertFalse(fileManager.isSameFile(unsavedA, savedB));
+            assertFalse(fileManager.isSameFile(savedB, unsavedA));
+            assertFalse(fileManager.isSameFile(savedA, savedB));
+        }
+    }
+
+    public void testJobCompilesUnsavedSource() throws Exception
+    {
+        // The unsaved source given by an input file (as for an editor with unsaved changes)
+        // reaches the compiler through the compiler thread:
+        File a = write("A", "public class A { int x = \"not an int\"; }");
+        CompileInputFile[] sources = {new CompileInputFile(a, a, "public class A { int x = 1; }")};
+        List<Boolean> results = Collections.synchronizedList(new ArrayList<>());
+        CompilerThread thread = new CompilerThread();
+        thread.setDaemon(true);
+        thread.start();
+        try (BPClassLoader classLoader = new BPClassLoader(new URL[] {dir.toURI().toURL()}, null))
+        {
+            thread.addJob(new Job(sources, new CompilerAPICompiler(), null, new CompileObserver()
+            {
+                @Override
+                public void startCompile(CompileInputFile[] sources, CompileReason reason, CompileType type, int compilationSequence)
+                {
+                }
+
+                @Override
+                public void compilerMessage(Diagnostic diagnostic, CompileType type)
+                {
+                    diagnostics.add(diagnostic);
+                }
+
+                @Override
+                public void endCompile(CompileInputFile[] sources, boolean succesful, CompileType type, int compilationSequence)
+                {
+                    results.add(succesful);
+                }
+            }, classLoader, dir, false, Collections.emptyList(), StandardCharsets.UTF_8,
+                    CompileType.ERROR_CHECK_ONLY, CompileReason.MODIFIED, null));
+
+            long end = System.currentTimeMillis() + 30000;
+            while (results.isEmpty())
+            {
+                assertTrue("Compilation didn't finish", System.currentTimeMillis() < end);
+                Thread.sleep(5);
+            }
+        }
+        assertEquals(Collections.singletonList(true), results);
+        assertEquals(Collections.emptyList(), diagnostics);
+        assertFalse(new File(dir, "A.class").exists());
+    }
+
+    private File write(String className, String source) throws IOException
+    {
+        File file = new File(dir, className + ".java");
+        Files.writeString(file.toPath(), source);
+        return file;
+    }
+
+    private boolean compile(File[] sources, Map<File, String> unsavedSources, CompileType type)
+    {
+        diagnostics.clear();
+        CompilerAPICompiler compiler = new CompilerAPICompiler();
+        compiler.setDestDir(dir);
+        compiler.setClasspath(Collections.singletonList(dir));
+        return compiler.compile(sources, unsavedSources, new CompileObserver()
+        {
+            @Override
+            public void startCompile(CompileInputFile[] sources, CompileReason reason, CompileType type, int compilationSequence)
+            {
+            }
+
+            @Override
+            public void compilerMessage(Diagnostic diagnostic, CompileType type)
+            {
+                diagnostics.add(diagnostic);
+            }
+
+            @Override
+            public void endCompile(CompileInputFile[] sources, boolean succesful, CompileType type, int compilationSequence)
+            {
+            }
+        }, false, Collections.emptyList(), StandardCharsets.UTF_8, type);
+    }
+}
@@ -0,0 +1,156 @@
+/*
+ This file is part of the BlueJ program. 
+ Copyright (C) 2026  Michael Kolling and John Rosenberg
+ 
+ This program is free software; you can redistribute it and/or 
+ modify it under the terms of the GNU General Public License 
+ as published by the Free Software Foundation; either version 2 
+ of the License, or (at your option) any later version. 
+ 
+ This program is distributed in the hope that it will be useful, 
+ but WITHOUT ANY WARRANTY; without even the implied warranty of 
+ MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the 
+ GNU General Public License for more details. 
+ 
+ You should have received a copy of the GNU General Public License 
+ along with this program; if not, write to the Free Software 
+ Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA. 
+ 
+ This file is subject to the Classpath exception as provided in the  
+ LICENSE.txt file that accompanied this code.
+ */
+package bluej.compiler;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+import junit.framework.TestCase;
+
+public class ParallelCompilationTest extends TestCase
+{
+    private File dir;
+    private final List<Diagnostic> diagnostics = new ArrayList<>();
+
+    @Override
+    protected void setUp() throws Exception
+    {
+        dir = Files.createTempDirectory("bluej-parallel").toFile();
+    }
+
+    @Override
+    protected void tearDown() throws Exception
+    {
+        try (Stream<Path> paths = Files.walk(dir.toPath()))
+        {
+            paths.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+        }
+    }
+
+    public void testWaves() throws Exception
+    {
+        // Pairs of classes, each using the one before; the second of each pair waits for the first:
+        int pairs = 10;
+        File[] sources = new File[pairs * 2];
+        int[][] edges = new int[pairs * 2][];
+        for (int i = 0; i < pairs; i++)
+        {
+            sources[2 * i] = write("A" + i, "public class A" + i + " { public int foo() { return " + i + "; } }");
+            sources[2 * i + 1] = write("B" + i, "public class B" + i + " { int b(A" + i + " a) { return a.foo(); } }");
+            edges[2 * i] = new int[0];
+            edges[2 * i + 1] = new int[] {2 * i};
+        }
+
+        assertTrue(compile(sources, SourceComponents.of(edges)));
+        assertEquals(Collections.emptyList(), diagnostics);
+        for (int i = 0; i < pairs; i++)
+        {
+            assertTrue(new File(dir, "A" + i + ".class").isFile());
+            assertTrue(new File(dir, "B" + i + ".class").isFile());
+        }
+    }
+
+    public void testMissingDependency() throws Exception
+    {
+        // The B classes use the A classes, but the dependencies aren't known, so they are
+        // compiled at the same time. Each task must find the A classes it uses from their
+        // sources (as there are no class files yet), rather than from another task's output:
+        int pairs = 10;
+        File[] sources = new File[pairs * 2];
+        int[][] edges = new int[pairs * 2][];
+        for (int i = 0; i < pairs; i++)
+        {
+            sources[2 * i] = write("A" + i, "public class A" + i + " { public int foo() { return " + i + "; } }");
+            sources[2 * i + 1] = write("B" + i, "public class B" + i + " { int b(A" + i + " a) { return a.foo(); } }");
+            edges[2 * i] = new int[0];
+            edges[2 * i + 1] = new int[0];
+        }
+
+        assertTrue(compile(sources, SourceComponents.of(edges)));
+        for (int i = 0; i < pairs; i++)
+        {
+            assertTrue(new File(dir, "A" + i + ".class").isFile());
+            assertTrue(new File(dir, "B" + i + ".class").isFile());
+        }
+    }
+
+    public void testFailedTask() throws Exception
+    {
+        int count = 20;
+        File[] sources = new File[count + 1];
+        int[][] edges = new int[count + 1][];
+        for (int i = 0; i < count; i++)
+        {
+            String body = i == 3 ? "int x = \"not an int\";" : "";
+            sources[i] = write("C" + i, "public class C" + i + " { " + body + " }");
+            edges[i] = new int[0];
+        }
+        sources[count] = write("D", "public class D extends C3 { }");
+        edges[count] = new int[] {3};
+
+        assertFalse(compile(sources, SourceComponents.of(edges)));
+        assertEquals(1, diagnostics.size());
+        // The classes of a failed task aren't written, and the tasks depending on it aren't compiled:
+        assertFalse(new File(dir, "C3.class").exists());
+        assertFalse(new File(dir, "D.class").exists());
+        assertTrue(new File(dir, "C0.class").isFile() || new File(dir, "C19.class").isFile());
+    }
+
+    private File write(String className, String source) throws IOException
+    {
+        File file = new File(dir, className + ".java");
+        Files.writeString(file.toPath(), source);
+        return file;
+    }
+
+    private boolean compile(File[] sources, SourceComponents components) throws Exception
+    {
+        List<List<List<Integer>>> plan = components.planWaves(4);
+        return ParallelCompilation.compile(plan, components, sources, new CompileObserver()
+        {
+            @Override
+            public void startCompile(CompileInputFile[] sources, CompileReason reason, CompileType type, int compilationSequence)
+            {
+            }
+
+            @Override
+            public void compilerMessage(Diagnostic diagnostic, CompileType type)
+            {
+                diagnostics.add(diagnostic);
+            }
+
+            @Override
+            public void endCompile(CompileInputFile[] sources, boolean succesful, CompileType type, int compilationSequence)
+            {
+            }
+        }, dir, Collections.singletonList(dir), false, Collections.emptyList(), StandardCharsets.UTF_8,
+                CompileType.EXPLICIT_USER_COMPILE, () -> false);
+    }
+}
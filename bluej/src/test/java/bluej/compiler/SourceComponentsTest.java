@@ -0,0 +1,104 @@
+/*
+ This file is part of the BlueJ program. 
+ Copyright (C) 2026  Michael Kolling and John Rosenberg
+ 
+ This program is free software; you can redistribute it and/or 
+ modify it under the terms of the GNU General Public License 
+ as published by the Free Software Foundation; either version 2 
+ of the License, or (at your option) any later version. 
+ 
+ This program is distributed in the hope that it will be useful, 
+ but WITHOUT ANY WARRANTY; without even the implied warranty of 
+ MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the 
+ GNU General Public License for more details. 
+ 
+ You should have received a copy of the GNU General Public License 
+ along with this program; if not, write to the Free Software 
+ Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA. 
+ 
+ This file is subject to the Classpath exception as provided in the  
+ LICENSE.txt file that accompanied this code.
+ */
+package bluej.compiler;
+
+import java.util.List;
+
+import junit.framework.TestCase;
+
+public class SourceComponentsTest extends TestCase
+{
+    public void testComponents()
+    {
+        // 0 <-> 1 form a cycle, 2 depends on the cycle, 3 is independent:
+        SourceComponents components = SourceComponents.of(new int[][] {{1}, {0}, {1}, {}});
+        assertEquals(3, components.getCount());
+        int cycle = -1;
+        for (int c = 0; c < components.getCount(); c++)
+        {
+            if (components.getComponent(c).length == 2)
+            {
+                cycle = c;
+            }
+            for (int d : components.getDependencies(c))
+            {
+                assertTrue("Dependencies come first", d < c);
+            }
+        }
+        assertEquals(0, components.getComponent(cycle)[0]);
+        assertEquals(1, components.getComponent(cycle)[1]);
+    }
+
+    public void testLongChain()
+    {
+        int length = 100000;
+        int[][] edges = new int[length][];
+        edges[0] = new int[0];
+        for (int i = 1; i < length; i++)
+        {
+            edges[i] = new int[] {i - 1};
+        }
+        SourceComponents components = SourceComponents.of(edges);
+        assertEquals(length, components.getCount());
+
+        // A chain can't be compiled in parallel, so it is a single task:
+        List<List<List<Integer>>> waves = components.planWaves(4);
+        assertEquals(1, waves.size());
+        assertEquals(1, waves.get(0).size());
+        assertEquals(length, waves.get(0).get(0).size());
+    }
+
+    public void testIndependentChains()
+    {
+        // Two chains: 0 <- 2 <- 4 and 1 <- 3 <- 5
+        SourceComponents components = SourceComponents.of(new int[][] {{}, {}, {0}, {1}, {2}, {3}});
+        List<List<List<Integer>>> waves = components.planWaves(4);
+        assertEquals(1, waves.size());
+        assertEquals(2, waves.get(0).size());
+        assertEquals(3, waves.get(0).get(0).size());
+        assertEquals(3, waves.get(0).get(1).size());
+
+        // With a single task, everything is compiled together:
+        waves = components.planWaves(1);
+        assertEquals(1, waves.size());
+        assertEquals(1, waves.get(0).size());
+    }
+
+    public void testWaves()
+    {
+        // 2 depends on both 0 and 1, so must wait for both:
+        SourceComponents components = SourceComponents.of(new int[][] {{}, {}, {0, 1}});
+        List<List<List<Integer>>> waves = components.planWaves(4);
+        assertEquals(2, waves.size());
+        assertEquals(2, waves.get(0).size());
+        assertEquals(1, waves.get(1).size());
+    }
+
+    public void testSubset()
+    {
+        // A chain 0 <- 1 <- 2; without 1, 0 and 2 are independent:
+        SourceComponents components = SourceComponents.of(new int[][] {{}, {0}, {1}}).subset(new int[] {0, 2});
+        assertEquals(2, components.getCount());
+        assertEquals(0, components.getDependencies(0).length);
+        assertEquals(0, components.getDependencies(1).length);
+    }
+}
@@ -0,0 +1,117 @@
+/*
+ This file is part of the BlueJ program.
+ Copyright (C) 2026  Michael Kolling and John Rosenberg
+
+ This program is free software; you can redistribute it and/or
+ modify it under the terms of the GNU General Public License
+ as published by the Free Software Foundation; either version 2
+ of the License, or (at your option) any later version.
+
+ This program is distributed in the hope that it will be useful,
+ but WITHOUT ANY WARRANTY; without even the implied warranty of
+ MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ GNU General Public License for more details.
+
+ You should have received a copy of the GNU General Public License
+ along with this program; if not, write to the Free Software
+ Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+
+ This file is subject to the Classpath exception as provided in the
+ LICENSE.txt file that accompanied this code.
+ */
+package bluej.editor.flow;
+
+import bluej.Config;
+import bluej.parser.InitConfig;
+import javafx.beans.property.ReadOnlyBooleanWrapper;
+import javafx.scene.Scene;
+import javafx.scene.layout.BorderPane;
+import javafx.stage.Stage;
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks that an editor whose unsaved contents were compiled by an error check saves
+ * them once the check has finished.
+ */
+public class TestSaveAfterCheck extends FXTest
+{
+    private static final String ORIGINAL = "public class Check\n{\n}\n";
+    private static final String EDITED = "// Edited\n" + ORIGINAL;
+
+    private FlowEditor flowEditor;
+    private File file;
+
+    @Override
+    public void start(Stage stage) throws Exception
+    {
+        super.start(stage);
+
+        InitConfig.init();
+        Config.loadFXFonts();
+
+        file = File.createTempFile("Check", ".java");
+        Files.writeString(file.toPath(), ORIGINAL);
+        flowEditor = new FlowEditor(null, "", null, null, null, () -> {}, new ReadOnlyBooleanWrapper(true), true);
+        flowEditor.showFile(file.getPath(), StandardCharsets.UTF_8, false, null);
+        stage.setScene(new Scene(new BorderPane(flowEditor)));
+        stage.show();
+    }
+
+    @After
+    public void deleteFile()
+    {
+        file.delete();
+    }
+
+    private void edit()
+    {
+        fx_(() -> flowEditor.getSourcePane().getDocument().replaceText(0, 0, "// Edited\n"));
+        assertTrue(fx(() -> flowEditor.isModified()));
+    }
+
+    private String saved() throws IOException
+    {
+        return Files.readString(file.toPath());
+    }
+
+    @Test
+    public void testSavedAfterSuccessfulCheck() throws IOException
+    {
+        edit();
+        // The edit isn't saved while the check is compiling it:
+        assertEquals(ORIGINAL, saved());
+        fx_(() -> flowEditor.compileFinished(true, false));
+        assertFalse(fx(() -> flowEditor.isModified()));
+        assertEquals(EDITED, saved());
+    }
+
+    @Test
+    public void testSavedAfterFailedCheck() throws IOException
+    {
+        // The contents are saved even if they have errors, as a full compile would do:
+        edit();
+        fx_(() -> flowEditor.compileFinished(false, false));
+        assertFalse(fx(() -> flowEditor.isModified()));
+        assertEquals(EDITED, saved());
+    }
+
+    @Test
+    public void testUnchangedNotSaved() throws IOException
+    {
+        assertTrue(file.setLastModified(1000));
+        fx_(() -> flowEditor.compileFinished(true, false));
+        assertFalse(fx(() -> flowEditor.isModified()));
+        assertEquals(ORIGINAL, saved());
+        assertEquals(1000, file.lastModified());
+    }
+}
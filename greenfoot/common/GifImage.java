@@ -1,23 +1,53 @@
 import greenfoot.*;  // (World, Actor, GreenfootImage, Greenfoot and MouseInfo)
-import java.io.BufferedInputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.net.URL;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.ArrayList;
+import java.util.Map;
 
 /**
  * This class can be used to read animated gif image files and extract the individual
  * images of the animation sequence.
- * 
+ *
+ * The frames of a GIF file are only decoded when they are first shown, and the file and
+ * the decoded frames are shared between all the GifImages which use the same file, so
+ * each frame is only decoded once however many actors show it. Decoded frames are kept
+ * in a cache of limited size, and are decoded again if they are needed after being
+ * removed from the cache. Each GifImage is given its own copy of a frame when it first
+ * shows it, so the images it returns may be modified without affecting other GifImages.
+ * The copies share the decoded pixels until they are modified, so showing a frame does
+ * not copy it.
+ *
  * @author Michael Berry
  * @author Neil Brown
- * 
- * Copyright (c) 2011,2013,2014,2018,2021
+ *
+ * Copyright (c) 2011,2013,2014,2018,2021,2026
  */
 public class GifImage
 {
-    /** The images used in the animation. */
+    /** The largest total size of the GIF files kept in the cache, in bytes. */
+    private static final int FILE_CACHE_BYTES = 16 * 1024 * 1024;
+    /** The largest total number of pixels in the decoded frames kept in the cache. */
+    private static final long FRAME_CACHE_PIXELS = 8 * 1024 * 1024;
+
+    /** The GIF files which have been read, by file name, least recently used first. */
+    private static final Map<String, GifFile> gifFiles = new LinkedHashMap<String, GifFile>(16, 0.75f, true);
+    /** The total size of the files in gifFiles. */
+    private static long gifFileBytes;
+    /** The decoded frames, by file name and frame number, least recently used first. */
+    private static final Map<String, GreenfootImage> frameCache = new LinkedHashMap<String, GreenfootImage>(16, 0.75f, true);
+    /** The total number of pixels in the frames in frameCache. */
+    private static long frameCachePixels;
+
+    /** The GIF file, which is shared with other GifImages. Null if not a GIF file. */
+    private GifFile gif;
+    /**
+     * The images used in the animation. For a GIF file, each image is copied from the
+     * decoded frame when it is first needed, so the unused ones are null.
+     */
     private GreenfootImage[] images;
     /** The delay between each frame. */
     private int[] delay;
@@ -47,33 +77,36 @@ public class GifImage
     }
 
     /**
-     * Copy the given GifImage.  This is faster, and uses less memory, than loading the same
-     * GIF multiple times.  The current play state (position in the GIF, paused state) is copied
-     * from the given GifImage, but after that they can be independently played/paused.
-     * 
+     * Copy the given GifImage.  The current play state (position in the GIF, paused state) is
+     * copied from the given GifImage, but after that they can be independently played/paused.
+     *
      * The images making up the GIF are shared between the two images, so any modifications to
-     * the images will be shared in both GIFs.  You can call this constructor on the same source
-     * GIF multiple times.
+     * the images (made via getImages()) will be shared in both GIFs.  You can call this
+     * constructor on the same source GIF multiple times.
      * @param copyFrom The GifImage to copy from.
      */
     public GifImage(GifImage copyFrom)
     {
         pause = copyFrom.pause;
-        images = copyFrom.images.clone();
+        gif = copyFrom.gif;
+        // Share the array too, so that images copied from the frames later are also shared:
+        images = copyFrom.images;
         delay = copyFrom.delay.clone();
         currentIndex = copyFrom.currentIndex;
         time = copyFrom.time;
     }
 
     /**
-     * Get all the images used in the animation
+     * Get all the images used in the animation. The images belong to this GifImage (and to
+     * any copies of it), so they can be modified (for example, scaled) to change how this
+     * GifImage is shown.
      * @return a list of GreenfootImages, corresponding to each frame.
      */
     public List<GreenfootImage> getImages()
     {
         ArrayList<GreenfootImage> images = new ArrayList<GreenfootImage>(this.images.length);
-        for(GreenfootImage image : this.images) {
-            images.add(image);
+        for (int i = 0; i < this.images.length; i++) {
+            images.add(getImage(i));
         }
         return images;
     }
@@ -104,6 +137,9 @@ public class GifImage
         return !pause;
     }
 
+    /**
+     * Get the image which should currently be shown.
+     */
     public GreenfootImage getCurrentImage()
     {
         long delta = System.currentTimeMillis() - time;
@@ -111,9 +147,21 @@ public class GifImage
         while (delta >= delay[currentIndex] && !pause) {
             delta -= delay[currentIndex];
             time += delay[currentIndex];
-            currentIndex = (currentIndex+1) % images.length;
+            currentIndex = (currentIndex+1) % delay.length;
+        }
+        return getImage(currentIndex);
+    }
+
+    /**
+     * Get one of the images used in the animation, copying it from the decoded frame if
+     * this is the first time it is needed.
+     */
+    private GreenfootImage getImage(int index)
+    {
+        if (images[index] == null) {
+            images[index] = copyFrame(gif, index);
         }
-        return images[currentIndex];
+        return images[index];
     }
 
     /**
@@ -121,285 +169,315 @@ public class GifImage
      */
     private void loadImages(String file)
     {
-        GifDecoder decode = new GifDecoder();
-        decode.read(file);
-        int numFrames = decode.getFrameCount();
+        GifFile gifFile = loadGif(file);
+        int numFrames = gifFile.frames.size();
         if(numFrames>0) {
+            gif = gifFile;
             images = new GreenfootImage[numFrames];
             delay = new int[numFrames];
+            for (int i=0 ; i<numFrames ; i++) {
+                delay[i] = gifFile.frames.get(i).delay;
+                if (delay[i] == 0) {
+                    delay[i] = 100; // As browsers do; a zero delay would never move on
+                }
+            }
         }
         else {
             images = new GreenfootImage[1];
             images[0] = new GreenfootImage(1, 1);
-        }
-
-        for (int i=0 ; i<numFrames ; i++) {
-            GreenfootImage image = new GreenfootImage(decode.getFrame(i).getWidth(), decode.getFrame(i).getHeight());
-            image.drawImage(decode.getFrame(i), 0, 0);
-            delay[i] = decode.getDelay(i);
-            images[i] = image;
+            delay = new int[] {1000};
         }
         time = System.currentTimeMillis();
     }
 
     /**
-     * The Rectangle class represents rectangles. This is essentially a re-implementation
-     * of the java.awt.Rectangle class, created in order to avoid any dependency on AWT.
+     * Get the GIF file with the given name, reading it if it is not in the cache.
      */
-    private static class Rectangle
+    private static synchronized GifFile loadGif(String file)
     {
-        public int x;
-        public int y;
-        public int width;
-        public int height;
-        
-        public Rectangle(int x, int y, int width, int height)
-        {
-            this.x = x;
-            this.y = y;
-            this.width = width;
-            this.height = height;
+        GifFile gifFile = gifFiles.get(file);
+        if (gifFile == null) {
+            gifFile = new GifFile(file, readFile(file));
+            gifFiles.put(file, gifFile);
+            gifFileBytes += gifFile.data.length;
+
+            // Remove the least recently used files. Any GifImages using them keep them:
+            Iterator<GifFile> eldest = gifFiles.values().iterator();
+            while (gifFileBytes > FILE_CACHE_BYTES && gifFiles.size() > 1) {
+                gifFileBytes -= eldest.next().data.length;
+                eldest.remove();
+            }
         }
+        return gifFile;
     }
-    
+
     /**
-     * Class GifDecoder - Decodes a GIF file into one or more frames. <br><br>
-     * 
-     * <i>I (Michael) edited this slightly on 10/09/08 to bring class up to date with generics and therefore remove warnings.
-     * Also edited so that resources are grabbed from the jar file and not externally, so no security exceptions.</i>
-     * <br><br>
-     * <pre>
-     *  Example:
-     *     GifDecoder d = new GifDecoder();
-     *     d.read(&quot;sample.gif&quot;);
-     *     int n = d.getFrameCount();
-     *     for (int i = 0; i &lt; n; i++) {
-     *        BufferedImage frame = d.getFrame(i);  // frame i
-     *        int t = d.getDelay(i);  // display duration of frame in milliseconds
-     *        // do something with frame
-     *     }
-     * </pre>
-     * 
-     * No copyright asserted on the source code of this class. May be used for any
-     * purpose, however, refer to the Unisys LZW patent for any additional
-     * restrictions. Please forward any corrections to kweiner@fmsware.com.
-     * 
-     * @author Kevin Weiner, FM Software; LZW decoder adapted from John Cristy's
-     *         ImageMagick.
-     * @version 1.03 November 2003
-     * 
+     * Get a copy of a decoded frame of a GIF file, decoding the frame if it is not in the
+     * cache. The decoded frames are shared between GifImages, so they are never given out
+     * themselves; the copy shares the frame's pixels until either of them is modified.
      */
-    private class GifDecoder
+    private static synchronized GreenfootImage copyFrame(GifFile gifFile, int index)
     {
-        /**
-         * File read status: No errors.
-         */
-        public static final int STATUS_OK = 0;
-
-        /**
-         * File read status: Error decoding file (may be partially decoded)
-         */
-        public static final int STATUS_FORMAT_ERROR = 1;
-
-        /**
-         * File read status: Unable to open source.
-         */
-        public static final int STATUS_OPEN_ERROR = 2;
-
-        private BufferedInputStream in;
-
-        private int status;
-
-        private int width; // full image width
-
-        private int height; // full image height
-
-        private boolean gctFlag; // global color table used
-
-        private int gctSize; // size of global color table
-
-        private int loopCount = 1; // iterations; 0 = repeat forever
-
-        private int[] gct; // global color table
-
-        private int[] lct; // local color table
-
-        private int[] act; // active color table
-
-        private int bgIndex; // background color index
-
-        private Color bgColor; // background color
-
-        private Color lastBgColor; // previous bg color
-
-        private int pixelAspect; // pixel aspect ratio
-
-        private boolean lctFlag; // local color table flag
-
-        private boolean interlace; // interlace flag
-
-        private int lctSize; // local color table size
-
-        private int ix, iy, iw, ih; // current image rectangle
-
-        private Rectangle lastRect; // last image rect
-
-        private GreenfootImage image; // current frame
-
-        private GreenfootImage lastImage; // previous frame
-
-        private byte[] block = new byte[256]; // current data block
-
-        private int blockSize = 0; // block size
-
-        // last graphic control extension info
-        private int dispose = 0;
-
-        // 0=no action; 1=leave in place; 2=restore to bg; 3=restore to prev
-        private int lastDispose = 0;
-
-        private boolean transparency = false; // use transparent color
+        String key = gifFile.name + "#" + index;
+        GreenfootImage frame = frameCache.get(key);
+        if (frame == null) {
+            frame = gifFile.render(index);
+            frameCache.put(key, frame);
+            frameCachePixels += (long) frame.getWidth() * frame.getHeight();
+
+            // Remove the least recently used frames. The GifImages which have shown them
+            // have their own copies:
+            Iterator<GreenfootImage> eldest = frameCache.values().iterator();
+            while (frameCachePixels > FRAME_CACHE_PIXELS && frameCache.size() > 1) {
+                GreenfootImage removed = eldest.next();
+                frameCachePixels -= (long) removed.getWidth() * removed.getHeight();
+                eldest.remove();
+            }
+        }
+        return new GreenfootImage(frame);
+    }
 
-        private int delay = 0; // delay in milliseconds
+    /**
+     * Read the whole contents of a file (from the scenario, or its images directory).
+     */
+    private static byte[] readFile(String name)
+    {
+        InputStream resource = GifImage.class.getResourceAsStream(name);
+        if (resource == null) {
+            name = "images/" + name;
+            resource = GifImage.class.getResourceAsStream(name);
+            if (resource == null) {
+                throw new RuntimeException("The gif file \"" + name + "\" doesn't exist.");
+            }
+        }
+        try (InputStream in = resource) {
+            return in.readAllBytes();
+        }
+        catch (IOException e) {
+            return new byte[0];
+        }
+    }
 
-        private int transIndex; // transparent color index
+    /**
+     * A single frame of a GIF file: the part of the image which it changes, and how to
+     * decode it from the file.
+     */
+    private static class Frame
+    {
+        /** The area (within the whole image) which the frame draws on. */
+        private int x, y, width, height;
+        private boolean interlace;
+        /** The colours of the frame (packed ARGB, 256 entries). */
+        private int[] colorTable;
+        /** The index of the transparent colour, or -1 if none. */
+        private int transIndex = -1;
+        /** 1 = leave in place; 2 = restore to background; 3 = restore to previous. */
+        private int dispose;
+        /** The delay (in ms) before the next frame. */
+        private int delay;
+        /** The colour used when the previous frame is restored to background. */
+        private int backgroundFill;
+        /** The offset in the file of the frame's (LZW compressed) image data. */
+        private int dataOffset;
+    }
 
+    /**
+     * A GIF file. The file is read into memory, and the positions of its frames found,
+     * when it is created; the frames are decoded (from the compressed file contents) when
+     * they are rendered.
+     *
+     * Each frame of a GIF file only draws on part of the image, on top of the previous
+     * frame (depending on the previous frame's disposal method), so frames are rendered in
+     * order on a canvas which holds the last frame rendered.
+     *
+     * Parts of this class are adapted from GifDecoder by Kevin Weiner, FM Software
+     * (no copyright asserted), whose LZW decoder is adapted from John Cristy's ImageMagick.
+     */
+    private static class GifFile
+    {
         private static final int MaxStackSize = 4096;
 
-        // max decoder pixel stack size
+        /** The name of the file. */
+        private final String name;
+        /** The contents of the file. */
+        private final byte[] data;
+        /** The size of the whole image. */
+        private int width, height;
+        /** The frames in the file. */
+        private final List<Frame> frames = new ArrayList<Frame>();
+
+        /** The current read position in data. */
+        private int pos;
+
+        /** The image as it is after the last frame rendered. */
+        private int[] canvas;
+        /** The index of the last frame rendered, or -1 if none. */
+        private int lastRendered = -1;
+        /** The canvas before the last frame was rendered, if its disposal method needs it. */
+        private int[] saved;
 
         // LZW decoder working arrays
+        private byte[] block = new byte[256];
         private short[] prefix;
-
         private byte[] suffix;
-
         private byte[] pixelStack;
-
         private byte[] pixels;
 
-        private ArrayList<GifFrame> frames; // frames read from current file
-
-        private int frameCount;
-
         /**
-         * A single frame
+         * Create a GifFile from a file's contents, and find its frames. If the file is
+         * not valid, only the frames before the problem are found.
          */
-        private class GifFrame {
-            public GifFrame(GreenfootImage im, int del) {
-                image = im;
-                delay = del;
+        public GifFile(String name, byte[] data)
+        {
+            this.name = name;
+            this.data = data;
+            if (data.length < 13 || data[0] != 'G' || data[1] != 'I' || data[2] != 'F') {
+                return;
             }
 
-            private GreenfootImage image;
+            // Logical screen descriptor:
+            pos = 6;
+            width = readShort();
+            height = readShort();
+            int packed = read();
+            int bgIndex = read();
+            read(); // pixel aspect ratio
+            if (width <= 0 || height <= 0) {
+                return;
+            }
+            int[] globalTable = null;
+            int bgColor = 0;
+            if ((packed & 0x80) != 0) {
+                globalTable = readColorTable(2 << (packed & 7));
+                if (globalTable == null) {
+                    return;
+                }
+                bgColor = globalTable[bgIndex];
+            }
 
-            private int delay;
+            // Values from the last graphic control extension, which apply to the next frame:
+            int dispose = 0;
+            int transIndex = -1;
+            int delay = 0;
+            while (pos < data.length) {
+                int code = read();
+                if (code == 0x2C) {
+                    // Image descriptor
+                    Frame frame = new Frame();
+                    frame.x = readShort();
+                    frame.y = readShort();
+                    frame.width = readShort();
+                    frame.height = readShort();
+                    int imagePacked = read();
+                    frame.interlace = (imagePacked & 0x40) != 0;
+                    frame.colorTable = (imagePacked & 0x80) != 0 ? readColorTable(2 << (imagePacked & 7)) : globalTable;
+                    if (frame.colorTable == null) {
+                        return; // no colour table defined
+                    }
+                    frame.transIndex = transIndex;
+                    frame.dispose = dispose == 0 ? 1 : dispose; // elect to keep old image if discretionary
+                    frame.delay = delay;
+                    frame.backgroundFill = transIndex != -1 ? 0 : bgColor;
+                    frame.dataOffset = pos;
+                    read(); // LZW minimum code size
+                    skipBlocks();
+                    frames.add(frame);
+
+                    dispose = 0;
+                    transIndex = -1;
+                    delay = 0;
+                }
+                else if (code == 0x21) {
+                    // Extension
+                    if (read() == 0xF9) {
+                        // Graphic control extension
+                        read(); // block size
+                        int gcePacked = read();
+                        dispose = (gcePacked & 0x1c) >> 2;
+                        delay = readShort() * 10;
+                        int index = read();
+                        transIndex = (gcePacked & 1) != 0 ? index : -1;
+                    }
+                    skipBlocks();
+                }
+                else if (code != 0x00) {
+                    // Terminator, or a format error (0x00 is a bad byte, but keep going)
+                    return;
+                }
+            }
         }
 
         /**
-         * Convert an RGB integer value to a Color.
+         * Render a frame, returning a new image of it. Rendering the frame after the last
+         * one rendered only needs that frame decoding; otherwise rendering starts again
+         * from the first frame.
          */
-        private Color colorFromInt(int rgb)
+        public GreenfootImage render(int index)
         {
-            int r = (rgb & 0xFF0000) >> 16;
-            int g = (rgb & 0xFF00) >> 8;
-            int b = (rgb & 0xFF);
-            return new Color(r,g,b);
-        }
-        
-        /**
-         * Gets display duration for specified frame.
-         * 
-         * @param n
-         *          int index of frame
-         * @return delay in milliseconds
-         */
-        public int getDelay(int n) {
-            //
-            delay = -1;
-            if ((n >= 0) && (n < frameCount)) {
-                delay = (frames.get(n)).delay;
+            if (canvas == null) {
+                canvas = new int[width * height];
             }
-            return delay;
-        }
-
-        /**
-         * Gets the number of frames read from file.
-         * 
-         * @return frame count
-         */
-        public int getFrameCount() {
-            return frameCount;
-        }
+            if (index <= lastRendered) {
+                Arrays.fill(canvas, 0);
+                lastRendered = -1;
+            }
+            for (int i = lastRendered + 1; i <= index; i++) {
+                Frame frame = frames.get(i);
+                if (i > 0) {
+                    dispose(frames.get(i - 1), frame.backgroundFill);
+                }
+                if (frame.dispose == 3) {
+                    if (saved == null) {
+                        saved = new int[canvas.length];
+                    }
+                    System.arraycopy(canvas, 0, saved, 0, canvas.length);
+                }
+                draw(frame);
+            }
+            lastRendered = index;
 
-        /**
-         * Gets the first (or only) image read.
-         * 
-         * @return BufferedImage containing first frame, or null if none.
-         */
-        public GreenfootImage getImage() {
-            return getFrame(0);
+            GreenfootImage image = new GreenfootImage(width, height);
+            image.setPixels(canvas, 0, 0, width, height);
+            return image;
         }
 
         /**
-         * Gets the "Netscape" iteration count, if any. A count of 0 means repeat
-         * indefinitiely.
-         * 
-         * @return iteration count if one was specified, else 1.
+         * Dispose of a frame on the canvas, before the next frame is drawn.
          */
-        public int getLoopCount() {
-            return loopCount;
+        private void dispose(Frame frame, int backgroundFill)
+        {
+            if (frame.dispose == 2) {
+                int right = Math.min(frame.x + frame.width, width);
+                int bottom = Math.min(frame.y + frame.height, height);
+                for (int y = frame.y; y < bottom; y++) {
+                    if (frame.x < right) {
+                        Arrays.fill(canvas, y * width + frame.x, y * width + right, backgroundFill);
+                    }
+                }
+            }
+            else if (frame.dispose == 3) {
+                // Only the frame's area changed since the canvas was saved:
+                System.arraycopy(saved, 0, canvas, 0, canvas.length);
+            }
         }
 
         /**
-         * Creates new frame image from current data (and previous frames as specified
-         * by their disposition codes).
+         * Decode a frame and draw it on the canvas.
          */
-        protected void setPixels() {
-            // fill in starting image contents based on last image's dispose code
-            if (lastDispose > 0) {
-                if (lastDispose == 3) {
-                    // use image before last
-                    int n = frameCount - 2;
-                    if (n > 0) {
-                        lastImage = getFrame(n - 1);
-                    } else {
-                        lastImage = null;
-                    }
-                }
-
-                if (lastImage != null) {
-                    image.clear();
-                    image.drawImage(lastImage, 0, 0);
-                    
-                    // copy pixels
-
-                    if (lastDispose == 2) {
-                        // fill last image rect area with background color
-                        Color c = null;
-                        if (transparency) {
-                            c = new Color(0, 0, 0, 0); // assume background is transparent
-                        } else {
-                            c = lastBgColor; // use given background color
-                        }
-                        for (int x = 0; x < lastRect.width; x++)
-                        {
-                            for (int y = 0; y < lastRect.height; y++)
-                            {
-                                image.setColorAt(lastRect.x + x, lastRect.y + y, c);
-                            }
-                        }
-                    }
-                }
-            }
+        private void draw(Frame frame)
+        {
+            decodeImageData(frame);
+            int[] act = frame.colorTable;
+            int right = Math.min(frame.x + frame.width, width);
 
             // copy each source line to the appropriate place in the destination
             int pass = 1;
             int inc = 8;
             int iline = 0;
-            for (int i = 0; i < ih; i++) {
+            for (int i = 0; i < frame.height; i++) {
                 int line = i;
-                if (interlace) {
-                    if (iline >= ih) {
+                if (frame.interlace) {
+                    if (iline >= frame.height) {
                         pass++;
                         switch (pass) {
                         case 2:
@@ -417,17 +495,15 @@ public class GifImage
                     line = iline;
                     iline += inc;
                 }
-                line += iy;
+                line += frame.y;
                 if (line < height) {
                     int k = line * width;
-                    int dlim = Math.min(ix + iw, width);
-                    int sx = i * iw;
-                    
-                    for (int dx = ix; dx < dlim; dx++) {
+                    int sx = i * frame.width;
+                    for (int dx = frame.x; dx < right; dx++) {
                         int index = ((int) pixels[sx++]) & 0xff;
                         int c = act[index];
-                        if (c != 0) {
-                            image.setColorAt(dx, line, colorFromInt(c));
+                        if (c != 0 && index != frame.transIndex) {
+                            canvas[k + dx] = c;
                         }
                     }
                 }
@@ -435,116 +511,12 @@ public class GifImage
         }
 
         /**
-         * Gets the image contents of frame n.
-         * 
-         * @return BufferedImage representation of frame, or null if n is invalid.
+         * Decodes LZW image data of a frame into the pixel array.
          */
-        public GreenfootImage getFrame(int n) {
-            GreenfootImage im = null;
-            if ((n >= 0) && (n < frameCount)) {
-                im = ((GifFrame) frames.get(n)).image;
-            }
-            return im;
-        }
-
-        /**
-         * Gets image size.
-         * 
-         * @return GIF image dimensions as an array - [0] = width, [1] = height
-         */
-        public int[] getFrameSize() {
-            return new int[]{width, height};
-        }
-
-        /**
-         * Reads GIF image from stream
-         * 
-         * @param BufferedInputStream
-         *          containing GIF file.
-         * @return read status code (0 = no errors)
-         */
-        public int read(BufferedInputStream is) {
-            init();
-            if (is != null) {
-                in = is;
-                readHeader();
-                if (!err()) {
-                    readContents();
-                    if (frameCount < 0) {
-                        status = STATUS_FORMAT_ERROR;
-                    }
-                }
-            } else {
-                status = STATUS_OPEN_ERROR;
-            }
-            try {
-                is.close();
-            } catch (IOException e) {
-            }
-            return status;
-        }
-
-        /**
-         * Reads GIF image from stream
-         * 
-         * @param InputStream
-         *          containing GIF file.
-         * @return read status code (0 = no errors)
-         */
-        public int read(InputStream is) {
-            init();
-            if (is != null) {
-                if (!(is instanceof BufferedInputStream))
-                    is = new BufferedInputStream(is);
-                in = (BufferedInputStream) is;
-                readHeader();
-                if (!err()) {
-                    readContents();
-                    if (frameCount < 0) {
-                        status = STATUS_FORMAT_ERROR;
-                    }
-                }
-            } else {
-                status = STATUS_OPEN_ERROR;
-            }
-            try {
-                is.close();
-            } catch (IOException e) {
-            }
-            return status;
-        }
-
-        /**
-         * Reads GIF file from specified file/URL source (URL assumed if name contains
-         * ":/" or "file:")
-         * 
-         * @param name
-         *          String containing source
-         * @return read status code (0 = no errors)
-         */
-        public int read(String name) {
-            status = STATUS_OK;
-            InputStream resource = this.getClass().getResourceAsStream(name);
-            if (resource == null) {
-                name = "images/" + name;
-                resource = this.getClass().getResourceAsStream(name);
-                if (resource == null) {
-                    throw new RuntimeException("The gif file \"" + name + "\" doesn't exist.");
-                }
-            }
-            in = new BufferedInputStream(resource);
-            status = read(in);
-
-            return status;
-        }
-
-        /**
-         * Decodes LZW image data into pixel array. Adapted from John Cristy's
-         * ImageMagick.
-         */
-        protected void decodeImageData() {
+        private void decodeImageData(Frame frame)
+        {
             int NullCode = -1;
-            int npix = iw * ih;
+            int npix = frame.width * frame.height;
             int available, clear, code_mask, code_size, end_of_information, in_code, old_code, bits, code, count, i, datum, data_size, first, top, bi, pi;
 
             if ((pixels == null) || (pixels.length < npix)) {
@@ -559,7 +531,12 @@ public class GifImage
 
             // Initialize GIF data stream decoder.
 
+            pos = frame.dataOffset;
             data_size = read();
+            if (data_size < 1 || data_size > 11) {
+                Arrays.fill(pixels, 0, npix, (byte) 0);
+                return;
+            }
             clear = 1 << data_size;
             end_of_information = clear + 1;
             available = clear + 2;
@@ -597,50 +574,50 @@ public class GifImage
 
                     code = datum & code_mask;
                     datum >>= code_size;
-                        bits -= code_size;
+                    bits -= code_size;
 
-                        // Interpret the code
+                    // Interpret the code
 
-                        if ((code > available) || (code == end_of_information))
-                            break;
-                        if (code == clear) {
-                            // Reset decoder.
-                            code_size = data_size + 1;
-                            code_mask = (1 << code_size) - 1;
-                            available = clear + 2;
-                            old_code = NullCode;
-                            continue;
-                        }
-                        if (old_code == NullCode) {
-                            pixelStack[top++] = suffix[code];
-                            old_code = code;
-                            first = code;
-                            continue;
-                        }
-                        in_code = code;
-                        if (code == available) {
-                            pixelStack[top++] = (byte) first;
-                            code = old_code;
-                        }
-                        while (code > clear) {
-                            pixelStack[top++] = suffix[code];
-                            code = prefix[code];
-                        }
-                        first = ((int) suffix[code]) & 0xff;
+                    if ((code > available) || (code == end_of_information))
+                        break;
+                    if (code == clear) {
+                        // Reset decoder.
+                        code_size = data_size + 1;
+                        code_mask = (1 << code_size) - 1;
+                        available = clear + 2;
+                        old_code = NullCode;
+                        continue;
+                    }
+                    if (old_code == NullCode) {
+                        pixelStack[top++] = suffix[code];
+                        old_code = code;
+                        first = code;
+                        continue;
+                    }
+                    in_code = code;
+                    if (code == available) {
+                        pixelStack[top++] = (byte) first;
+                        code = old_code;
+                    }
+                    while (code > clear) {
+                        pixelStack[top++] = suffix[code];
+                        code = prefix[code];
+                    }
+                    first = ((int) suffix[code]) & 0xff;
 
-                        // Add a new string to the string table,
+                    // Add a new string to the string table,
 
-                        if (available >= MaxStackSize)
-                            break;
-                        pixelStack[top++] = (byte) first;
-                        prefix[available] = (short) old_code;
-                        suffix[available] = (byte) first;
-                        available++;
-                        if (((available & code_mask) == 0) && (available < MaxStackSize)) {
-                            code_size++;
-                            code_mask += available;
-                        }
-                        old_code = in_code;
+                    if (available >= MaxStackSize)
+                        break;
+                    pixelStack[top++] = (byte) first;
+                    prefix[available] = (short) old_code;
+                    suffix[available] = (byte) first;
+                    available++;
+                    if (((available & code_mask) == 0) && (available < MaxStackSize)) {
+                        code_size++;
+                        code_mask += available;
+                    }
+                    old_code = in_code;
                 }
 
                 // Pop a pixel off the pixel stack.
@@ -653,310 +630,77 @@ public class GifImage
             for (i = pi; i < npix; i++) {
                 pixels[i] = 0; // clear missing pixels
             }
-
         }
 
         /**
-         * Returns true if an error was encountered during reading/decoding
+         * Reads a single byte, or returns -1 at the end of the file.
          */
-        protected boolean err() {
-            return status != STATUS_OK;
+        private int read()
+        {
+            if (pos >= data.length) {
+                pos++;
+                return -1;
+            }
+            return ((int) data[pos++]) & 0xff;
         }
 
         /**
-         * Initializes or re-initializes reader
+         * Reads next 16-bit value, LSB first
          */
-        protected void init() {
-            status = STATUS_OK;
-            frameCount = 0;
-            frames = new ArrayList<GifFrame>();
-            gct = null;
-            lct = null;
+        private int readShort()
+        {
+            return read() | (read() << 8);
         }
 
         /**
-         * Reads a single byte from the input stream.
+         * Reads next variable length block into block.
+         *
+         * @return number of bytes stored in block
          */
-        protected int read() {
-            int curByte = 0;
-            try {
-                curByte = in.read();
-            } catch (IOException e) {
-                status = STATUS_FORMAT_ERROR;
+        private int readBlock()
+        {
+            int blockSize = read();
+            if (blockSize <= 0) {
+                return 0;
             }
-            return curByte;
+            int n = Math.max(0, Math.min(blockSize, data.length - pos));
+            System.arraycopy(data, pos, block, 0, n);
+            pos += blockSize;
+            return n;
         }
 
         /**
-         * Reads next variable length block from input.
-         * 
-         * @return number of bytes stored in "buffer"
+         * Skips variable length blocks up to and including next zero length block.
          */
-        protected int readBlock() {
-            blockSize = read();
-            int n = 0;
-            if (blockSize > 0) {
-                try {
-                    int count = 0;
-                    while (n < blockSize) {
-                        count = in.read(block, n, blockSize - n);
-                        if (count == -1)
-                            break;
-                        n += count;
-                    }
-                } catch (IOException e) {
-                }
-
-                if (n < blockSize) {
-                    status = STATUS_FORMAT_ERROR;
-                }
+        private void skipBlocks()
+        {
+            int blockSize;
+            while ((blockSize = read()) > 0) {
+                pos += blockSize;
             }
-            return n;
         }
 
         /**
          * Reads color table as 256 RGB integer values
-         * 
+         *
          * @param ncolors
          *          int number of colors to read
-         * @return int array containing 256 colors (packed ARGB with full alpha)
+         * @return int array containing 256 colors (packed ARGB with full alpha),
+         *          or null if the file ends first.
          */
-        protected int[] readColorTable(int ncolors) {
-            int nbytes = 3 * ncolors;
-            int[] tab = null;
-            byte[] c = new byte[nbytes];
-            int n = 0;
-            try {
-                n = in.read(c);
-            } catch (IOException e) {
+        private int[] readColorTable(int ncolors)
+        {
+            if (pos + 3 * ncolors > data.length) {
+                return null;
             }
-            if (n < nbytes) {
-                status = STATUS_FORMAT_ERROR;
-            } else {
-                tab = new int[256]; // max size to avoid bounds checks
-                int i = 0;
-                int j = 0;
-                while (i < ncolors) {
-                    int r = ((int) c[j++]) & 0xff;
-                    int g = ((int) c[j++]) & 0xff;
-                    int b = ((int) c[j++]) & 0xff;
-                    tab[i++] = 0xff000000 | (r << 16) | (g << 8) | b;
-                }
+            int[] tab = new int[256]; // max size to avoid bounds checks
+            for (int i = 0; i < ncolors; i++) {
+                int r = read();
+                int g = read();
+                int b = read();
+                tab[i] = 0xff000000 | (r << 16) | (g << 8) | b;
             }
             return tab;
         }
-
-        /**
-         * Main file parser. Reads GIF content blocks.
-         */
-        protected void readContents() {
-            // read GIF file content blocks
-            boolean done = false;
-            while (!(done || err())) {
-                int code = read();
-                switch (code) {
-
-                case 0x2C: // image separator
-                    readImage();
-                    break;
-
-                case 0x21: // extension
-                    code = read();
-                    switch (code) {
-                    case 0xf9: // graphics control extension
-                        readGraphicControlExt();
-                        break;
-
-                    case 0xff: // application extension
-                        readBlock();
-                        String app = "";
-                        for (int i = 0; i < 11; i++) {
-                            app += (char) block[i];
-                        }
-                        if (app.equals("NETSCAPE2.0")) {
-                            readNetscapeExt();
-                        } else
-                            skip(); // don't care
-                        break;
-
-                    default: // uninteresting extension
-                        skip();
-                    }
-                    break;
-
-                case 0x3b: // terminator
-                    done = true;
-                    break;
-
-                case 0x00: // bad byte, but keep going and see what happens
-                    break;
-
-                default:
-                    status = STATUS_FORMAT_ERROR;
-                }
-            }
-        }
-
-        /**
-         * Reads Graphics Control Extension values
-         */
-        protected void readGraphicControlExt() {
-            read(); // block size
-            int packed = read(); // packed fields
-            dispose = (packed & 0x1c) >> 2; // disposal method
-            if (dispose == 0) {
-                dispose = 1; // elect to keep old image if discretionary
-            }
-            transparency = (packed & 1) != 0;
-            delay = readShort() * 10; // delay in milliseconds
-            transIndex = read(); // transparent color index
-            read(); // block terminator
-        }
-
-        /**
-         * Reads GIF file header information.
-         */
-        protected void readHeader() {
-            String id = "";
-            for (int i = 0; i < 6; i++) {
-                id += (char) read();
-            }
-            if (!id.startsWith("GIF")) {
-                status = STATUS_FORMAT_ERROR;
-                return;
-            }
-
-            readLSD();
-            if (gctFlag && !err()) {
-                gct = readColorTable(gctSize);
-                bgColor = colorFromInt(gct[bgIndex]);
-            }
-        }
-
-        /**
-         * Reads next frame image
-         */
-        protected void readImage() {
-            ix = readShort(); // (sub)image position & size
-            iy = readShort();
-            iw = readShort();
-            ih = readShort();
-
-            int packed = read();
-            lctFlag = (packed & 0x80) != 0; // 1 - local color table flag
-            interlace = (packed & 0x40) != 0; // 2 - interlace flag
-            // 3 - sort flag
-            // 4-5 - reserved
-            lctSize = 2 << (packed & 7); // 6-8 - local color table size
-
-            if (lctFlag) {
-                lct = readColorTable(lctSize); // read table
-                act = lct; // make local table active
-            } else {
-                act = gct; // make global table active
-                if (bgIndex == transIndex)
-                    bgColor = colorFromInt(0);
-            }
-            int save = 0;
-            if (transparency) {
-                save = act[transIndex];
-                act[transIndex] = 0; // set transparent color if specified
-            }
-
-            if (act == null) {
-                status = STATUS_FORMAT_ERROR; // no color table defined
-            }
-
-            if (err())
-                return;
-
-            decodeImageData(); // decode pixel data
-            skip();
-
-            if (err())
-                return;
-
-            frameCount++;
-
-            // create new image to receive frame data
-            image = new GreenfootImage(width, height);
-
-            setPixels(); // transfer pixel data to image
-
-            frames.add(new GifFrame(image, delay)); // add image to frame list
-
-            if (transparency) {
-                act[transIndex] = save;
-            }
-            resetFrame();
-
-        }
-
-        /**
-         * Reads Logical Screen Descriptor
-         */
-        protected void readLSD() {
-
-            // logical screen size
-            width = readShort();
-            height = readShort();
-
-            // packed fields
-            int packed = read();
-            gctFlag = (packed & 0x80) != 0; // 1 : global color table flag
-            // 2-4 : color resolution
-            // 5 : gct sort flag
-            gctSize = 2 << (packed & 7); // 6-8 : gct size
-
-            bgIndex = read(); // background color index
-            pixelAspect = read(); // pixel aspect ratio
-        }
-
-        /**
-         * Reads Netscape extenstion to obtain iteration count
-         */
-        protected void readNetscapeExt() {
-            do {
-                readBlock();
-                if (block[0] == 1) {
-                    // loop count sub-block
-                    int b1 = ((int) block[1]) & 0xff;
-                    int b2 = ((int) block[2]) & 0xff;
-                    loopCount = (b2 << 8) | b1;
-                }
-            } while ((blockSize > 0) && !err());
-        }
-
-        /**
-         * Reads next 16-bit value, LSB first
-         */
-        protected int readShort() {
-            // read 16-bit value, LSB first
-            return read() | (read() << 8);
-        }
-
-        /**
-         * Resets frame state for reading next image.
-         */
-        protected void resetFrame() {
-            lastDispose = dispose;
-            lastRect = new Rectangle(ix, iy, iw, ih);
-            lastImage = image;
-            lastBgColor = bgColor;
-            int dispose = 0;
-            boolean transparency = false;
-            int delay = 0;
-            lct = null;
-        }
-
-        /**
-         * Skips variable length blocks up to and including next zero length block.
-         */
-        protected void skip() {
-            do {
-                readBlock();
-            } while ((blockSize > 0) && !err());
-        }
     }
-
 }
@@ -70,6 +70,20 @@ public abstract class Actor
      */
     int y;
 
+    /**
+     * The exact location of the object, of which x and y are the rounded values.
+     * Only a change of cell (x or y) is reported to the world.
+     */
+    private double exactX;
+    private double exactY;
+    /**
+     * While setLocation(double, double) calls setLocation(int, int), the exact location
+     * being set; the exact location is updated to match when the cell is set.
+     */
+    private boolean settingExact;
+    private double settingExactX;
+    private double settingExactY;
+
     /**
      * Sequence number of this actor
      */
@@ -101,8 +115,10 @@ public abstract class Actor
     // The following variables cache various aspects of an actor's size, including
     // its bounding box after rotation.
     
-    /** Axis-aligned bounding rectangle of the object, in pixels. */
-    private Rect boundingRect;
+    /** Axis-aligned bounding rectangle of the object, in pixels. Updated in place. */
+    private final Rect boundingRect = new Rect(0, 0, 0, 0);
+    /** Whether boundingRect and the corner coordinates are up to date */
+    private boolean boundsValid;
     /** X-coordinates of the rotated bounding rectangle's corners */
     private int[] boundingXs = new int[4];
     /** Y-coordinates of the rotated bounding rectangle's corners */
@@ -113,6 +129,12 @@ public abstract class Actor
     private int imageHeight;
     /** How many more act cycles the actor is sleeping for */
     private int sleepingFor = 0;
+    /**
+     * The changes this actor has made to itself while acting in parallel with
+     * other actors (see World.setParallelAct), which are applied once they have
+     * all acted. Null unless the actor has acted in the current parallel run.
+     */
+    private PendingChanges pending;
 
     static {
         //Do this in a 'try' since a failure at this point will crash Greenfoot.
@@ -126,6 +148,20 @@ public abstract class Actor
         }
     }
 
+    // Sine and cosine of each rotation (in whole degrees), so that moving and
+    // calculating the bounds of rotated actors does not need the trigonometric
+    // functions. The values are exactly those of Math.sin and Math.cos.
+    private static final double[] SIN = new double[360];
+    private static final double[] COS = new double[360];
+
+    static {
+        for (int i = 0; i < 360; i++) {
+            double radians = Math.toRadians(i);
+            SIN[i] = Math.sin(radians);
+            COS[i] = Math.cos(radians);
+        }
+    }
+
     /**
      * Construct an Actor.
      * The object will have a default image.
@@ -169,7 +205,7 @@ public abstract class Actor
     public int getX() throws IllegalStateException
     {
         failIfNotInWorld();
-        return x;
+        return currentX();
     }
 
     /**
@@ -182,7 +218,39 @@ public abstract class Actor
     public int getY()
     {
         failIfNotInWorld();
-        return y;
+        return currentY();
+    }
+
+    /**
+     * Return the exact x-coordinate of the actor's current location. This is the
+     * same as getX(), unless the actor has been moved using setLocation(double, double)
+     * or move(double), in which case getX() returns this value rounded to the
+     * nearest cell.
+     * 
+     * @return The exact x-coordinate of the object's current location.
+     * @throws IllegalStateException If the actor has not been added into a world.
+     * @since Greenfoot 3.9.1
+     */
+    public double getExactX()
+    {
+        failIfNotInWorld();
+        return currentExactX();
+    }
+
+    /**
+     * Return the exact y-coordinate of the actor's current location. This is the
+     * same as getY(), unless the actor has been moved using setLocation(double, double)
+     * or move(double), in which case getY() returns this value rounded to the
+     * nearest cell.
+     * 
+     * @return The exact y-coordinate of the object's current location.
+     * @throws IllegalStateException If the actor has not been added into a world.
+     * @since Greenfoot 3.9.1
+     */
+    public double getExactY()
+    {
+        failIfNotInWorld();
+        return currentExactY();
     }
 
     /**
@@ -196,7 +264,7 @@ public abstract class Actor
      */
     public int getRotation()
     {
-        return rotation;
+        return currentRotation();
     }
 
     /**
@@ -232,10 +300,28 @@ public abstract class Actor
             }
         }
         
+        applyRotation(rotation);
+    }
+    
+    /**
+     * Set the (normalised) rotation of this actor, without calling any
+     * overriding method.
+     */
+    private void applyRotation(int rotation)
+    {
+        PendingChanges p = ownPendingChanges();
+        if (p != null) {
+            p.rotation = rotation;
+            return;
+        }
+        if (isActingInParallel() && world.deferChange(() -> applyRotation(rotation))) {
+            return;
+        }
+        
         if (this.rotation != rotation) {
             this.rotation = rotation;
             // Recalculate the bounding rect.
-            boundingRect = null;
+            boundsValid = false;
             // since the rotation have changed, the size probably has too.
             sizeChanged();
         }
@@ -249,7 +335,7 @@ public abstract class Actor
      */
     public void turnTowards(int x, int y)
     {
-        double a = Math.atan2(y - this.y, x - this.x);
+        double a = Math.atan2(y - currentY(), x - currentX());
         setRotation((int) Math.toDegrees(a));
     }
     
@@ -268,6 +354,8 @@ public abstract class Actor
         failIfNotInWorld();
         // We use <=,>= not == because actors can be outside the world bounds, and 
         // the method should still return true in this case
+        int x = currentX();
+        int y = currentY();
         return (x <= 0 || y <= 0 || x >= world.getWidth() - 1 || y >= world.getHeight() - 1);
     }
 
@@ -287,6 +375,45 @@ public abstract class Actor
     {
         setLocationDrag(x, y);
     }
+
+    /**
+     * Assign a new exact location for this actor. This allows an actor to move
+     * smoothly by less than a cell at a time. The actor is shown in, and collides
+     * as if it were in, the cell nearest to the exact location; getX() and getY()
+     * return the coordinates of that cell, while getExactX() and getExactY() return
+     * the exact location.
+     * 
+     * <p>This method calls setLocation(int, int) with the nearest cell, so an
+     * override of that method (for example, to wrap around the edges of the world)
+     * also applies to exact movement. If the override changes the cell, the
+     * exact location is moved by the same amount, so its fraction of a cell is
+     * kept. If this method is overridden, call "super.setLocation(x,y)" from the
+     * overriding method.
+     * 
+     * @param x Exact location on the x-axis
+     * @param y Exact location on the y-axis
+     * 
+     * @see #move(double)
+     * @since Greenfoot 3.9.1
+     */
+    public void setLocation(double x, double y)
+    {
+        if (world != null) {
+            if (world.isBounded()) {
+                x = limitValue(x, world.width);
+                y = limitValue(y, world.height);
+            }
+            settingExact = true;
+            settingExactX = x;
+            settingExactY = y;
+            try {
+                setLocation((int) Math.floor(x + 0.5), (int) Math.floor(y + 0.5));
+            }
+            finally {
+                settingExact = false;
+            }
+        }
+    }
     
     /**
      * Move this actor the specified distance in the direction it is
@@ -301,13 +428,29 @@ public abstract class Actor
      */
     public void move(int distance)
     {
-        double radians = Math.toRadians(rotation);
-
         // We round to the nearest integer, to allow moving one unit at an angle
         // to actually move.
-        int dx = (int) Math.round(Math.cos(radians) * distance);
-        int dy = (int) Math.round(Math.sin(radians) * distance);
-        setLocation(x + dx, y + dy);
+        int rotation = currentRotation();
+        int dx = (int) Math.round(COS[rotation] * distance);
+        int dy = (int) Math.round(SIN[rotation] * distance);
+        setLocation(currentX() + dx, currentY() + dy);
+    }
+
+    /**
+     * Move this actor the specified exact distance in the direction it is
+     * currently facing. Unlike move(int), the movement is not rounded, so that
+     * small movements at an angle accumulate precisely.
+     * 
+     * @param distance  The distance to move (in cell-size units); a negative value
+     *                  will move backwards
+     * 
+     * @see #setLocation(double, double)
+     * @since Greenfoot 3.9.1
+     */
+    public void move(double distance)
+    {
+        int rotation = currentRotation();
+        setLocation(currentExactX() + COS[rotation] * distance, currentExactY() + SIN[rotation] * distance);
     }
     
     /**
@@ -319,7 +462,7 @@ public abstract class Actor
      */
     public void turn(int amount)
     {
-        setRotation(rotation + amount);
+        setRotation(currentRotation() + amount);
     }
 
     /**
@@ -364,34 +507,82 @@ public abstract class Actor
         // simulation thread. We must access world fields (width, height, cellSize) directly.
         
         if (world != null) {
-            int oldX = this.x;
-            int oldY = this.y;
-
             if (world.isBounded()) {
-                this.x = limitValue(x, world.width);
-                this.y = limitValue(y, world.height);
+                x = limitValue(x, world.width);
+                y = limitValue(y, world.height);
             }
-            else {
-                this.x = x;
-                this.y = y;
+            double exactX = x;
+            double exactY = y;
+            if (settingExact) {
+                // Called (via setLocation(int, int)) from setLocation(double, double).
+                // Keep the fraction of the exact location, even if an overriding
+                // setLocation(int, int) has changed the cell:
+                settingExact = false;
+                exactX = x + (settingExactX - Math.floor(settingExactX + 0.5));
+                exactY = y + (settingExactY - Math.floor(settingExactY + 0.5));
             }
+            applyLocation(x, y, exactX, exactY);
+        }
+    }
+
+    /**
+     * Set the exact location and the cell of the actor (which must be within the
+     * world bounds, if the world is bounded).
+     */
+    private void applyLocation(int x, int y, double exactX, double exactY)
+    {
+        PendingChanges p = ownPendingChanges();
+        if (p != null) {
+            p.x = x;
+            p.y = y;
+            p.exactX = exactX;
+            p.exactY = exactY;
+            return;
+        }
+        if (isActingInParallel() && world.deferChange(() -> applyLocation(x, y, exactX, exactY))) {
+            return;
+        }
+        
+        this.exactX = exactX;
+        this.exactY = exactY;
+        moveToCell(x, y);
+    }
 
-            if (this.x != oldX || this.y != oldY) {
-                if (boundingRect != null) {
-                    int dx = (this.x - oldX) * world.cellSize;
-                    int dy = (this.y - oldY) * world.cellSize;
+    /**
+     * Move the actor to the given cell (which must be within the world bounds, if the
+     * world is bounded), and if the cell has changed, notify the world. The exact
+     * location should already have been set.
+     */
+    private void moveToCell(int x, int y)
+    {
+        int oldX = this.x;
+        int oldY = this.y;
 
-                    boundingRect.setX(boundingRect.getX() + dx);
-                    boundingRect.setY(boundingRect.getY() + dy);
+        if (x != oldX || y != oldY) {
+            changeCell(x, y);
+            locationChanged(oldX, oldY);
+        }
+    }
 
-                    for (int i = 0; i < 4; i++) {
-                        boundingXs[i] += dx;
-                        boundingYs[i] += dy;
-                    }
-                }
-                locationChanged(oldX, oldY);
+    /**
+     * Set the cell of the actor, and move its bounds (if they are valid) with it.
+     */
+    private void changeCell(int x, int y)
+    {
+        if (boundsValid) {
+            int dx = (x - this.x) * world.cellSize;
+            int dy = (y - this.y) * world.cellSize;
+
+            boundingRect.setX(boundingRect.getX() + dx);
+            boundingRect.setY(boundingRect.getY() + dy);
+
+            for (int i = 0; i < 4; i++) {
+                boundingXs[i] += dx;
+                boundingYs[i] += dy;
             }
         }
+        this.x = x;
+        this.y = y;
     }
 
     /**
@@ -408,6 +599,20 @@ public abstract class Actor
         return v;
     }
 
+    /**
+     * Limits the exact coordinate v to the range of cells from zero to limit - 1.
+     */
+    private double limitValue(double v, int limit)
+    {
+        if (v < 0) {
+            v = 0;
+        }
+        if (limit - 1 < v) {
+            v = limit - 1;
+        }
+        return v;
+    }
+
     /**
      * Return the world that this actor lives in.
      * 
@@ -454,7 +659,8 @@ public abstract class Actor
      */
     public GreenfootImage getImage()
     {
-        return image;
+        PendingChanges p = ownPendingChanges();
+        return p == null ? image : p.image;
     }
 
     /**
@@ -478,6 +684,24 @@ public abstract class Actor
      */
     public void setImage(GreenfootImage image)
     {
+        applyImage(image);
+    }
+
+    /**
+     * Set the image of the actor, without calling any overriding method, and
+     * invalidate its bounds if its size has changed.
+     */
+    private void applyImage(GreenfootImage image)
+    {
+        PendingChanges p = ownPendingChanges();
+        if (p != null) {
+            p.image = image;
+            return;
+        }
+        if (isActingInParallel() && world.deferChange(() -> applyImage(image))) {
+            return;
+        }
+        
         if (image == null && this.image == null) {
             return;
         }
@@ -502,7 +726,7 @@ public abstract class Actor
         this.image = image;
 
         if (sizeChanged) {
-            boundingRect = null;
+            boundsValid = false;
             sizeChanged();
         }
     }
@@ -560,7 +784,9 @@ public abstract class Actor
         
         this.x = x;
         this.y = y;
-        boundingRect = null;
+        exactX = x;
+        exactY = y;
+        boundsValid = false;
 
         this.setWorld(world, null);
         
@@ -578,8 +804,11 @@ public abstract class Actor
      */
     Rect getBoundingRect() 
     {
-        if (boundingRect == null) {
+        if (! boundsValid) {
             calcBounds();
+            if (! boundsValid) {
+                return null;
+            }
         }
         return boundingRect;
     }
@@ -598,11 +827,12 @@ public abstract class Actor
         if (image == null) {
             int wx = x * cellSize + cellSize / 2;
             int wy = y * cellSize + cellSize / 2;
-            boundingRect = new Rect(wx, wy, 0, 0);
+            boundingRect.set(wx, wy, 0, 0);
             for (int i = 0; i < 4; i++) {
                 boundingXs[i] = wx;
                 boundingYs[i] = wy;
             }
+            boundsValid = true;
             return;
         }
         
@@ -623,7 +853,7 @@ public abstract class Actor
             
             int x = cellSize * this.x + (cellSize - width - 1) / 2;
             int y = cellSize * this.y + (cellSize - height - 1) / 2;
-            boundingRect = new Rect(x, y, width, height);
+            boundingRect.set(x, y, width, height);
             boundingXs[0] = x; boundingYs[0] = y;
             boundingXs[1] = x + width - 1; boundingYs[1] = y;
             boundingXs[2] = boundingXs[1]; boundingYs[2] = y + height - 1;
@@ -651,8 +881,9 @@ public abstract class Actor
             // would get with floating point.
             // For instance, if something has the width 28.2, it might cover 30
             // pixels.
-            boundingRect = new Rect(minX, minY, maxX - minX + 1, maxY - minY + 1);
+            boundingRect.set(minX, minY, maxX - minX + 1, maxY - minY + 1);
         }
+        boundsValid = true;
     }
 
     /**
@@ -672,6 +903,52 @@ public abstract class Actor
         return data;
     }
     
+    /**
+     * Start acting in parallel with other actors, on the current thread. Until
+     * endParallelAct() is called, changes this actor makes to its location,
+     * rotation and image are only seen by itself; everything else (including
+     * the collision checking) sees the actor as it was before.
+     */
+    void beginParallelAct()
+    {
+        pending = new PendingChanges(this);
+    }
+    
+    /**
+     * Finish acting in parallel. The actor's changes to itself are kept until
+     * applyPendingChanges() is called.
+     */
+    void endParallelAct()
+    {
+        PendingChanges p = pending;
+        if (p != null) {
+            p.owner = null;
+        }
+    }
+    
+    /**
+     * Apply the changes this actor made to itself while acting in parallel, once
+     * all the actors in the parallel run have acted.
+     */
+    void applyPendingChanges()
+    {
+        PendingChanges p = pending;
+        if (p == null) {
+            return;
+        }
+        pending = null;
+        
+        if (p.image != image) {
+            applyImage(p.image);
+        }
+        applyRotation(p.rotation);
+        if (world != null) {
+            // (An actor removed by an earlier actor in the run gets its location
+            // when it is next added to a world.)
+            applyLocation(p.x, p.y, p.exactX, p.exactY);
+        }
+    }
+    
     /**
      * Translate a cell coordinate into a pixel. This will return the coordinate of the centre of he cell.
      */
@@ -735,6 +1012,72 @@ public abstract class Actor
         }
     }
     
+    /**
+     * Get the changes this actor has made to itself while acting in parallel,
+     * if it is acting in parallel on the current thread; otherwise, null.
+     */
+    private PendingChanges ownPendingChanges()
+    {
+        PendingChanges p = pending;
+        return (p != null && p.owner == Thread.currentThread()) ? p : null;
+    }
+    
+    /**
+     * Check whether this actor is in a world whose actors are acting in parallel.
+     * Checked before deferring a change to the actor, to avoid creating the
+     * deferred change when it is not needed.
+     */
+    private boolean isActingInParallel()
+    {
+        World w = world;
+        return w != null && w.isActingInParallel();
+    }
+    
+    /**
+     * Get the cell x-coordinate, as seen by the current thread.
+     */
+    private int currentX()
+    {
+        PendingChanges p = ownPendingChanges();
+        return p == null ? x : p.x;
+    }
+    
+    /**
+     * Get the cell y-coordinate, as seen by the current thread.
+     */
+    private int currentY()
+    {
+        PendingChanges p = ownPendingChanges();
+        return p == null ? y : p.y;
+    }
+    
+    /**
+     * Get the exact x-coordinate, as seen by the current thread.
+     */
+    private double currentExactX()
+    {
+        PendingChanges p = ownPendingChanges();
+        return p == null ? exactX : p.exactX;
+    }
+    
+    /**
+     * Get the exact y-coordinate, as seen by the current thread.
+     */
+    private double currentExactY()
+    {
+        PendingChanges p = ownPendingChanges();
+        return p == null ? exactY : p.exactY;
+    }
+    
+    /**
+     * Get the rotation, as seen by the current thread.
+     */
+    private int currentRotation()
+    {
+        PendingChanges p = ownPendingChanges();
+        return p == null ? rotation : p.rotation;
+    }
+    
     /**
      * Throws an exception if the actor is not in a world.
      * 
@@ -773,9 +1116,8 @@ public abstract class Actor
         ys[2] = ys[1] + height - 1;
         ys[3] = ys[2];
         
-        double rotR = Math.toRadians(rotation);
-        double sinR = Math.sin(rotR);
-        double cosR = Math.cos(rotR);
+        double sinR = SIN[rotation];
+        double cosR = COS[rotation];
         
         double xc = cellSize * x + cellSize / 2.;
         double yc = cellSize * y + cellSize / 2.;
@@ -1047,7 +1389,7 @@ public abstract class Actor
             return false;
         }
 
-        if (boundingRect == null) {
+        if (! boundsValid) {
             calcBounds(); // Make sure bounds are up-to-date
         }
         
@@ -1057,6 +1399,7 @@ public abstract class Actor
                     && py >= boundingRect.getY() && py < boundingRect.getTop());
         }
         
+        boolean hasEdge = false;
         vloop: for (int v = 0; v < 4; v++) {
             int v1 = (v + 1) & 3; // wrap at 4 back to 0
             int edgeX = boundingXs[v] - boundingXs[v1];
@@ -1067,6 +1410,7 @@ public abstract class Actor
             if (reX == 0 && reY == 0) {
                 continue vloop;
             }
+            hasEdge = true;
 
             int scalar = reX * (px - boundingXs[v1]) + reY * (py - boundingYs[v1]);
             if (scalar < 0) {
@@ -1078,6 +1422,13 @@ public abstract class Actor
             return false;
         }
         
+        if (! hasEdge) {
+            // A tiny image can have all its corners rounded to the same point, leaving
+            // no edges to test against. Use the bounding rectangle, rather than
+            // counting every point as inside:
+            return (px >= boundingRect.getX() && px < boundingRect.getRight()
+                    && py >= boundingRect.getY() && py < boundingRect.getTop());
+        }
         return true;
     }
     
@@ -1152,5 +1503,31 @@ public abstract class Actor
     {
         return delegate.getImage(clazz.getName());
     }
-
+    
+    /**
+     * The location, rotation and image of an actor acting in parallel with
+     * other actors, as changed by the actor itself.
+     */
+    private static class PendingChanges
+    {
+        /** The thread the actor is acting on, or null once it has finished acting */
+        Thread owner;
+        int x;
+        int y;
+        double exactX;
+        double exactY;
+        int rotation;
+        GreenfootImage image;
+        
+        PendingChanges(Actor actor)
+        {
+            owner = Thread.currentThread();
+            x = actor.x;
+            y = actor.y;
+            exactX = actor.exactX;
+            exactY = actor.exactY;
+            rotation = actor.rotation;
+            image = actor.image;
+        }
+    }
 }
@@ -185,5 +185,28 @@ public class ActorVisitor
         // Has to be exactly zero.  Positive means we were (and maybe still are) counting down, negative means we are sleeping indefinitely.
         return s == 0;
     }
+    
+    /**
+     * Start the given actor acting in parallel with others, on the current thread.
+     * 
+     * @see World#setParallelAct(Class...)
+     */
+    public static void beginParallelAct(Actor actor)
+    {
+        actor.beginParallelAct();
+    }
+    
+    public static void endParallelAct(Actor actor)
+    {
+        actor.endParallelAct();
+    }
+    
+    /**
+     * Apply the changes the given actor made to itself while acting in parallel.
+     */
+    public static void applyPendingChanges(Actor actor)
+    {
+        actor.applyPendingChanges();
+    }
 
 }
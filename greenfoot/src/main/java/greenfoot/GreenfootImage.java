@@ -38,11 +38,15 @@ import java.awt.Shape;
 import java.awt.geom.AffineTransform;
 import java.awt.image.AffineTransformOp;
 import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
 import java.awt.image.ImageObserver;
+import java.awt.image.SinglePixelPackedSampleModel;
 import java.awt.image.VolatileImage;
+import java.awt.image.WritableRaster;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.net.URL;
+import java.util.function.Consumer;
 
 
 /**
@@ -82,6 +86,31 @@ public class GreenfootImage
      * Value from 0 to 255, with 0 being completely transparent and 255 being opaque.
      */
     private int transparency = 255;
+    
+    /**
+     * Count of the changes made to the pixels of the image (through this
+     * GreenfootImage's drawing methods). Caches of images derived from this one
+     * use it to tell whether they are out of date.
+     */
+    private int modCount;
+    
+    /**
+     * Whether the AWT image backing this image has been handed out by
+     * getAwtImage(), in which case it may be changed at any time without
+     * modCount being updated.
+     */
+    private boolean awtImageExposed;
+    
+    /**
+     * The graphics context used by the drawing methods, which is kept between
+     * calls rather than created for each one. It draws on graphicsImage; if the
+     * image has since been replaced (by a copy-on-write copy, for instance) a new
+     * context is created. graphicsStale is set when the colour or font changes,
+     * so that the context's settings are updated before it is next used.
+     */
+    private Graphics2D graphics;
+    private BufferedImage graphicsImage;
+    private boolean graphicsStale;
 
     /**
      * Create an image from an image file. Supported file formats are JPEG, GIF
@@ -111,11 +140,12 @@ public class GreenfootImage
                 GreenfootUtil.addCachedImage(filename, null);
                 throw ile;
             }
-        }
-        //if the image was successfully cached, ensure that the image is copyOnWrite
-        boolean success = GreenfootUtil.addCachedImage(filename, new GreenfootImage(this));
-        if (success){
-            copyOnWrite = true;
+            //the cached image shares the loaded image with this one; if it was
+            //successfully cached, ensure that this image is copyOnWrite too
+            boolean success = GreenfootUtil.addCachedImage(filename, getCopyOnWriteClone());
+            if (success){
+                copyOnWrite = true;
+            }
         }
     }
        
@@ -133,21 +163,27 @@ public class GreenfootImage
     /**
      * Create a GreenfootImage from another GreenfootImage.
      * 
+     * <p>The pixel data is shared between the two images until either of them
+     * is drawn on, so copying an image is cheap; changes to one image never
+     * affect the other.
+     * 
      * @param image The source image to be copied.
      */
     public GreenfootImage(GreenfootImage image)
         throws IllegalArgumentException
     {
-        if (! image.copyOnWrite) {
+        if (! image.copyOnWrite && image.awtImageExposed) {
+            // The source image may be changed through its AWT image without
+            // it knowing, so the pixels must be copied now.
             setImage(GraphicsUtilities.createCompatibleTranslucentImage(image.getWidth(), image.getHeight()));
-            Graphics2D g = getGraphics();
+            Graphics2D g = this.image.createGraphics();
             g.setComposite(AlphaComposite.Src);
-            g.drawImage(image.getAwtImage(), 0, 0, null);
+            g.drawImage(image.image, 0, 0, null);
             g.dispose();
         }
         else {
-            // If the source image is a copy-on-write image, we can easily
-            // make this a copy-on-write image as well.
+            // Share the pixels; both images copy them before their next change.
+            image.copyOnWrite = true;
             this.image = image.image;
             copyOnWrite = true;
         }
@@ -254,10 +290,13 @@ public class GreenfootImage
     }
     
     /**
-     * Copies the states from the src image to dst image.
+     * Copies the states from the src image to dst image. The modification count
+     * is copied too, so that an image sharing its pixels with the source is not
+     * matched with images derived from the pixels before the source was changed.
      */
     private static void copyStates(GreenfootImage src, GreenfootImage dst)
     {
+        dst.modCount = src.modCount;
         dst.imageFileName = src.imageFileName;
         dst.imageUrl = src.imageUrl;
         dst.currentColor = src.currentColor;
@@ -328,21 +367,68 @@ public class GreenfootImage
     public BufferedImage getAwtImage()
     {
         ensureWritableImage();
+        awtImageExposed = true;
         return image;
     }
     
     /**
-     * Remember to call dispose() when no longer using the graphics object.
+     * Get the graphics context for drawing on this image, with the current colour
+     * and font. The context is kept for further drawing, so it must not be disposed,
+     * and any other changes to its settings must be undone after use.
      */
     private Graphics2D getGraphics()
     {
         if (copyOnWrite) {
-        ensureWritableImage();
+            ensureWritableImage();
+        }
+        modCount++;
+        if (graphics == null || graphicsImage != image) {
+            if (graphics != null) {
+                graphics.dispose();
+            }
+            graphics = image.createGraphics();
+            graphicsImage = image;
+            initGraphics(graphics);
+            graphicsStale = false;
+        }
+        else if (graphicsStale) {
+            initGraphics(graphics);
+            graphicsStale = false;
         }
-        Graphics2D graphics = image.createGraphics();
-        initGraphics(graphics);
         return graphics;
     }
+    
+    /**
+     * Draw on this image using the Java 2D API. The given drawing code is called with
+     * a graphics context for the image, set up with the current colour and font. This
+     * is faster than calling the drawing methods of this class many times, and allows
+     * any of the Java 2D drawing operations to be used, for example:
+     * 
+     * <pre>
+     * image.drawBatch(g -&gt; {
+     *     for (Particle p : particles) {
+     *         g.fillRect(p.x, p.y, 2, 2);
+     *     }
+     * });
+     * </pre>
+     * 
+     * <p>Changes to the settings of the graphics context (such as its colour)
+     * only apply during the batch. The graphics context must not be used after
+     * the drawing code returns.
+     * 
+     * @param drawing  The code which draws on the image
+     * @since Greenfoot 3.9.1
+     */
+    public void drawBatch(Consumer<Graphics2D> drawing)
+    {
+        Graphics2D g = (Graphics2D) getGraphics().create();
+        try {
+            drawing.accept(g);
+        }
+        finally {
+            g.dispose();
+        }
+    }
 
     /**
      * Initialises the graphics. Should be called whenever we have created a
@@ -444,7 +530,6 @@ public class GreenfootImage
     {
         Graphics g = getGraphics();
         g.fillRect(0, 0, getWidth(), getHeight());
-        g.dispose();
     }
 
     /**
@@ -458,7 +543,6 @@ public class GreenfootImage
     {
         Graphics2D g = getGraphics();
         image.drawImage(g, x, y, null, true);
-        g.dispose();
     }
 
     /**
@@ -468,6 +552,15 @@ public class GreenfootImage
      *            drawing the image.
      */
     void drawImage(Graphics2D g, int x, int y, ImageObserver observer, boolean useTransparency)
+    {
+        drawImage(g, image, x, y, observer, useTransparency);
+    }
+    
+    /**
+     * Draws an image derived from this image (such as a rotated copy) onto the
+     * given Graphics object, using this image's transparency if requested.
+     */
+    void drawImage(Graphics2D g, Image derivedImage, int x, int y, ImageObserver observer, boolean useTransparency)
     {
         Composite oldComposite = null;
         if(useTransparency) {
@@ -480,7 +573,7 @@ public class GreenfootImage
             }
         }
         
-        g.drawImage(image, x, y, observer);
+        g.drawImage(derivedImage, x, y, observer);
 
         if(oldComposite != null) {
             g.setComposite(oldComposite);
@@ -495,6 +588,12 @@ public class GreenfootImage
     public void setFont(greenfoot.Font f)
     {
         currentFont = f;
+        graphicsStale = true;
+        if (f == null && graphics != null) {
+            // The context cannot be returned to the default font, so start again:
+            graphics.dispose();
+            graphics = null;
+        }
     }
     
     /**
@@ -505,7 +604,9 @@ public class GreenfootImage
     public greenfoot.Font getFont()
     {
         if (currentFont == null) {
-            currentFont = new greenfoot.Font(getGraphics().getFont());
+            Graphics2D g = image.createGraphics();
+            currentFont = new greenfoot.Font(g.getFont());
+            g.dispose();
         }
         return currentFont;
     }
@@ -521,6 +622,7 @@ public class GreenfootImage
         if (color == null)
             throw new NullPointerException("Cannot set color of GreenfootImage to null");
         currentColor = color;
+        graphicsStale = true;
     }
 
     /**
@@ -559,6 +661,149 @@ public class GreenfootImage
         setRGBAt(x, y, color.getColorObject().getRGB());
     }
 
+    /**
+     * An operation on all the pixels of an image at once; see editPixels().
+     * 
+     * @since Greenfoot 3.9.1
+     */
+    @FunctionalInterface
+    public static interface PixelEditor
+    {
+        /**
+         * Read and/or change the pixels of an image.
+         * 
+         * @param pixels  The pixels, row by row: the pixel at (x, y) is at index
+         *                y * width + x. Each pixel is a colour in the default
+         *                (non-premultiplied) ARGB format, as used by getPixels().
+         *                The array must not be used after this method returns.
+         * @param width   The width of the image
+         * @param height  The height of the image
+         */
+        public void edit(int[] pixels, int width, int height);
+    }
+
+    /**
+     * Copy the colours of a rectangle of pixels into an array. This is much faster
+     * than calling getColorAt() for each pixel.
+     * 
+     * <p>Each colour is an int in ARGB format: the alpha (transparency) value in
+     * bits 24-31, the red in bits 16-23, the green in bits 8-15 and the blue in
+     * bits 0-7. For example, the red, green, blue and alpha values of a pixel
+     * {@code p} are {@code (p >> 16) & 0xFF}, {@code (p >> 8) & 0xFF},
+     * {@code p & 0xFF} and {@code (p >>> 24)}.
+     * 
+     * @param pixels  The array to copy the colours into, row by row: the colour of
+     *                pixel (x + i, y + j) goes at index j * width + i.
+     * @param x       The x-coordinate of the top left of the rectangle
+     * @param y       The y-coordinate of the top left of the rectangle
+     * @param width   The width of the rectangle
+     * @param height  The height of the rectangle
+     * @throws IndexOutOfBoundsException If the rectangle is not within the image,
+     *                                   or the array is too small.
+     * @since Greenfoot 3.9.1
+     */
+    public void getPixels(int[] pixels, int x, int y, int width, int height)
+    {
+        checkPixelRect(pixels, x, y, width, height);
+        if (isDirectIntImage(image)) {
+            image.getRaster().getDataElements(x, y, width, height, pixels);
+        }
+        else {
+            image.getRGB(x, y, width, height, pixels, 0, width);
+        }
+    }
+
+    /**
+     * Set the colours of a rectangle of pixels from an array. This is much faster
+     * than calling setColorAt() for each pixel.
+     * 
+     * @param pixels  The colours, in ARGB format (see getPixels()), row by row:
+     *                the colour of pixel (x + i, y + j) is at index j * width + i.
+     * @param x       The x-coordinate of the top left of the rectangle
+     * @param y       The y-coordinate of the top left of the rectangle
+     * @param width   The width of the rectangle
+     * @param height  The height of the rectangle
+     * @throws IndexOutOfBoundsException If the rectangle is not within the image,
+     *                                   or the array is too small.
+     * @since Greenfoot 3.9.1
+     */
+    public void setPixels(int[] pixels, int x, int y, int width, int height)
+    {
+        checkPixelRect(pixels, x, y, width, height);
+        ensureWritableImage();
+        modCount++;
+        if (isDirectIntImage(image)) {
+            image.getRaster().setDataElements(x, y, width, height, pixels);
+        }
+        else {
+            image.setRGB(x, y, width, height, pixels, 0, width);
+        }
+    }
+
+    /**
+     * Read and/or change all the pixels of this image directly. The given editor is
+     * called with an array holding the image's pixels; changes to the array change
+     * the image. This is the fastest way to process every pixel of an image, for
+     * example:
+     * 
+     * <pre>
+     * image.editPixels((pixels, width, height) -&gt; {
+     *     for (int i = 0; i &lt; pixels.length; i++) {
+     *         pixels[i] = pixels[i] ^ 0x00FFFFFF; // invert the colour
+     *     }
+     * });
+     * </pre>
+     * 
+     * <p>The array is only valid while the editor runs; it must not be kept
+     * and used afterwards, and the image must not be drawn on (or otherwise
+     * changed) while the editor is running.
+     * 
+     * @param editor  The editor, which is called once with the pixels
+     * @see #getPixels(int[], int, int, int, int)
+     * @since Greenfoot 3.9.1
+     */
+    public void editPixels(PixelEditor editor)
+    {
+        ensureWritableIntImage();
+        modCount++;
+        int[] pixels = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+        editor.edit(pixels, image.getWidth(), image.getHeight());
+    }
+
+    /**
+     * Check that a rectangle of pixels is within the image, and an array is large
+     * enough to hold its pixels.
+     */
+    private void checkPixelRect(int[] pixels, int x, int y, int width, int height)
+    {
+        if (x < 0 || y < 0 || width < 0 || height < 0
+                || x + width > getWidth() || y + height > getHeight()) {
+            throw new IndexOutOfBoundsException("Rectangle (" + x + "," + y + "," + width + "," + height
+                    + ") is not within the image, which is " + getWidth() + "x" + getHeight());
+        }
+        if (pixels.length < width * height) {
+            throw new IndexOutOfBoundsException("Array of length " + pixels.length
+                    + " is too small for " + width + "x" + height + " pixels");
+        }
+    }
+
+    /**
+     * Check whether an image stores its pixels as ARGB ints, one per pixel in a
+     * single array with no padding, so that its data elements are the pixel colours
+     * and the array can be used directly.
+     */
+    private static boolean isDirectIntImage(BufferedImage image)
+    {
+        if (image.getType() != BufferedImage.TYPE_INT_ARGB) {
+            return false;
+        }
+        WritableRaster raster = image.getRaster();
+        return raster.getSampleModel() instanceof SinglePixelPackedSampleModel
+                && ((SinglePixelPackedSampleModel) raster.getSampleModel()).getScanlineStride() == image.getWidth()
+                && raster.getSampleModelTranslateX() == 0 && raster.getSampleModelTranslateY() == 0
+                && raster.getDataBuffer().getOffset() == 0;
+    }
+
     /**
      * Set the transparency of the image.
      * 
@@ -627,6 +872,7 @@ public class GreenfootImage
         }
 
         ensureWritableImage();
+        modCount++;
         image.setRGB(x,y,rgb);
     }
  
@@ -649,7 +895,6 @@ public class GreenfootImage
     {
         Graphics2D g = getGraphics();
         g.fillRect(x, y, width, height);
-        g.dispose();
     }
 
     /**
@@ -659,7 +904,6 @@ public class GreenfootImage
     {
         Graphics2D g = getGraphics();
         g.clearRect(0, 0, getWidth(), getHeight());
-        g.dispose();
     }
 
     /**
@@ -678,7 +922,6 @@ public class GreenfootImage
     {
         Graphics2D g = getGraphics();
         g.drawRect(x, y, width, height);
-        g.dispose();
     }
 
     /**
@@ -700,8 +943,6 @@ public class GreenfootImage
         for (int i = 0; i < lines.length; i++) {
             g.drawString(lines[i], x, y + (i * height));
         }
-        
-        g.dispose();
     }
 
     /**
@@ -714,7 +955,6 @@ public class GreenfootImage
     {
         Graphics2D g = getGraphics();
         g.draw(shape);
-        g.dispose();
     }
 
 
@@ -733,7 +973,6 @@ public class GreenfootImage
     {
         Graphics2D g = getGraphics();
         g.fillOval(x, y, width, height);
-        g.dispose();
     }
 
     /**
@@ -751,7 +990,6 @@ public class GreenfootImage
     {
         Graphics2D g = getGraphics();
         g.drawOval(x, y, width, height);
-        g.dispose();
     }
 
     /**
@@ -778,7 +1016,6 @@ public class GreenfootImage
     {
         Graphics2D g = getGraphics();
         g.fillPolygon(xPoints, yPoints, nPoints);
-        g.dispose();
     }
 
     /**
@@ -802,7 +1039,6 @@ public class GreenfootImage
     {
         Graphics2D g = getGraphics();
         g.drawPolygon(xPoints, yPoints, nPoints);
-        g.dispose();
     }
 
     /**
@@ -818,7 +1054,6 @@ public class GreenfootImage
     {
         Graphics2D g = getGraphics();
         g.drawLine(x1, y1, x2, y2);
-        g.dispose();
     }
 
     /**
@@ -845,6 +1080,25 @@ public class GreenfootImage
         }
     }
 
+    /**
+     * Get the AWT image from which derived images (such as rotated copies) can
+     * be cached, or null if the image may be changed without this object knowing
+     * (because it has been handed out by getAwtImage()). The returned image must
+     * not be modified. Images which share pixel data return the same AWT image.
+     */
+    BufferedImage getCacheableImage()
+    {
+        return awtImageExposed ? null : image;
+    }
+    
+    /**
+     * Get the count of changes made to the pixels of this image; see getCacheableImage().
+     */
+    int getModCount()
+    {
+        return modCount;
+    }
+
     /**
      * Ensure we have an image which we are allowed to write to. If we are
      * a copy-on-write image, create a copy of the image (and set up the
@@ -854,12 +1108,30 @@ public class GreenfootImage
     {
         if (copyOnWrite) {
             BufferedImage bImage = GraphicsUtilities.createCompatibleTranslucentImage(image.getWidth(null), image.getHeight(null));
-            Graphics2D graphics = bImage.createGraphics();
-            initGraphics(graphics);
-            graphics.drawImage(image, 0, 0, null);
+            Graphics2D g = bImage.createGraphics();
+            initGraphics(g);
+            g.drawImage(image, 0, 0, null);
+            image = bImage;
+            copyOnWrite = false;
+            g.dispose();
+        }
+    }
+    
+    /**
+     * Ensure we have an image which we are allowed to write to, which stores
+     * its pixels in a single ARGB int array (see isDirectIntImage). If not, the
+     * pixels are copied into a new image of that type, which is kept.
+     */
+    private void ensureWritableIntImage()
+    {
+        if (copyOnWrite || ! isDirectIntImage(image)) {
+            int width = image.getWidth();
+            int height = image.getHeight();
+            BufferedImage bImage = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+            int[] pixels = ((DataBufferInt) bImage.getRaster().getDataBuffer()).getData();
+            image.getRGB(0, 0, width, height, pixels, 0, width);
             image = bImage;
             copyOnWrite = false;
-            graphics.dispose();
         }
     }
     
@@ -130,6 +130,32 @@ public class GreenfootSound
         sound.setVolume(level);
     }
 
+    /**
+     * Get the current balance of the sound between the left and right speakers,
+     * between -100 (left only) and 100 (right only.)
+     * 
+     * @return A number between -100 and 100; 0 is the centre.
+     * @since Greenfoot 3.9.1
+     */
+    public int getPan()
+    {
+        return sound.getPan();
+    }
+
+    /**
+     * Set the balance of the sound between the left and right speakers, between
+     * -100 (left only) and 100 (right only.) The default is 0, the centre.
+     * Some sound cards cannot change the balance of long sounds, which are
+     * streamed from the file rather than loaded into memory.
+     * 
+     * @param pan the balance to set, between -100 and 100.
+     * @since Greenfoot 3.9.1
+     */
+    public void setPan(int pan)
+    {
+        sound.setPan(pan);
+    }
+
     /**
      * Returns a string representation of this sound containing the name of the
      * file and whether it is currently playing or not.
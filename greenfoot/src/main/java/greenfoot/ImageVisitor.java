@@ -22,6 +22,8 @@
 package greenfoot;
 
 import java.awt.Graphics2D;
+import java.awt.Image;
+import java.awt.image.BufferedImage;
 import java.awt.image.ImageObserver;
 
 /**
@@ -41,6 +43,33 @@ public class ImageVisitor
         image.drawImage(g, x, y, observer, useTranparency);
     }
     
+    /**
+     * Draw an image derived from the given image (such as a rotated copy of it),
+     * using the given image's transparency if requested.
+     */
+    public static void drawDerivedImage(GreenfootImage image, Graphics2D g, Image derivedImage, int x, int y, boolean useTransparency)
+    {
+        image.drawImage(g, derivedImage, x, y, null, useTransparency);
+    }
+    
+    /**
+     * Get the AWT image from which derived images can be cached, or null if
+     * derived images must not be cached. The returned image must not be modified.
+     */
+    public static BufferedImage getCacheableImage(GreenfootImage image)
+    {
+        return image.getCacheableImage();
+    }
+    
+    /**
+     * Get the count of changes made to the pixels of the image, to detect
+     * when images derived from it are out of date.
+     */
+    public static int getModCount(GreenfootImage image)
+    {
+        return image.getModCount();
+    }
+    
     public static boolean equal(GreenfootImage image1, GreenfootImage image2)
     {
         return GreenfootImage.equal(image1, image2);
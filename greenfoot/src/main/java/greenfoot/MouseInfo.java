@@ -144,6 +144,28 @@ public class MouseInfo
         return py;
     }
     
+    /**
+     * Make a copy of this MouseInfo.
+     */
+    MouseInfo copy()
+    {
+        MouseInfo copy = new MouseInfo();
+        copy.actor = actor;
+        copy.button = button;
+        copy.setLoc(x, y, px, py);
+        copy.clickCount = clickCount;
+        return copy;
+    }
+    
+    /**
+     * Check whether this MouseInfo holds the same information as another.
+     */
+    boolean isSameAs(MouseInfo other)
+    {
+        return actor == other.actor && button == other.button && x == other.x && y == other.y
+                && px == other.px && py == other.py && clickCount == other.clickCount;
+    }
+    
     public String toString() 
     {
         return "MouseInfo. Actor: " + actor + "  Location: (" + x + "," + y + ")  Button: " + button + " Click Count: " + clickCount;
@@ -62,6 +62,22 @@ public class MouseInfoVisitor
         return new MouseInfo();
     }
 
+    /**
+     * Make a copy of a MouseInfo object.
+     */
+    public static MouseInfo copy(MouseInfo info)
+    {
+        return info.copy();
+    }
+    
+    /**
+     * Check whether two MouseInfo objects hold the same information.
+     */
+    public static boolean isSame(MouseInfo info, MouseInfo other)
+    {
+        return info.isSameAs(other);
+    }
+
     public static void setClickCount(MouseInfo mouseInfo, int clickCount)
     {
         mouseInfo.setClickCount(clickCount);
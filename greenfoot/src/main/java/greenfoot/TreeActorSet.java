@@ -34,6 +34,14 @@ import java.util.*;
  * a class; any actors of that class are put in the set, along with any actors
  * of subclasses as long as there isn't a more appropriate set for them.
  * 
+ * <p>Once a query by class has been made (see {@link #addInstancesOf}), the
+ * set also keeps an index of actors by their exact class, with each exact-class
+ * set registered under every class it is assignable to. Counting or finding the
+ * instances of a class then only visits the matching sets, costing time
+ * proportional to the number found rather than the number of actors in the set.
+ * The index is guarded by the monitor of this set, since actors acting in
+ * parallel may query the set concurrently.
+ * 
  * @author Davin McCall
  */
 public class TreeActorSet extends AbstractSet<Actor>
@@ -45,6 +53,25 @@ public class TreeActorSet extends AbstractSet<Actor>
     
     private HashMap<Class<?>, ActorSet> classSets;
     
+    /** Actors indexed by their exact class; null until the first query by class. */
+    private HashMap<Class<?>, ActorSet> exactClassSets;
+    
+    /** For each class queried, the sets in exactClassSets which hold instances of that class. */
+    private HashMap<Class<?>, List<ActorSet>> instanceSets;
+    
+    /**
+     * The iteration position of each indexed actor: the index of its subset in the
+     * high bits, and the order in which it was added to the index in the low bits.
+     * Used to merge several exact-class sets back into iteration order.
+     */
+    private IdentityHashMap<Actor, Long> positions;
+    
+    /** The add order to give the next actor put in the class index. */
+    private long nextIndexStamp;
+    
+    /** The number of bits of a position holding the add order. */
+    private static final int POSITION_SUBSET_SHIFT = 40;
+    
     /**
      * Construct an empty TreeActorSet.
      */
@@ -72,6 +99,10 @@ public class TreeActorSet extends AbstractSet<Actor>
      */
     public void setClassOrder(boolean reverse, Class<?> ... classes)
     {
+        // Actors may move between subsets, changing their iteration positions;
+        // the class index is rebuilt on the next query:
+        clearClassIndex();
+        
         HashMap<Class<?>, ActorSet> oldClassSets = classSets;
         classSets = new HashMap<Class<?>, ActorSet>();
         
@@ -177,12 +208,203 @@ public class TreeActorSet extends AbstractSet<Actor>
             throw new UnsupportedOperationException("Cannot add null actor.");
         }
         
-        return setForActor(o).add(o);
+        ActorSet set = setForActor(o);
+        boolean added = set.add(o);
+        if (added) {
+            synchronized (this) {
+                if (exactClassSets != null) {
+                    addToClassIndex(o, subSets.indexOf(set));
+                }
+            }
+        }
+        return added;
     }
     
     public boolean remove(Actor o)
     {
-        return setForActor(o).remove(o);
+        boolean removed = setForActor(o).remove(o);
+        if (removed) {
+            removeFromClassIndex(o);
+        }
+        return removed;
+    }
+    
+    /**
+     * Add all the actors in this set which are instances of the given class (or
+     * its subclasses) to the given list, in the iteration order of this set.
+     * 
+     * @param cls     The class of actors to find. Must not be null.
+     * @param result  The list to add the actors to
+     */
+    @OnThread(Tag.Simulation)
+    @SuppressWarnings("unchecked")
+    public synchronized <A> void addInstancesOf(Class<A> cls, List<? super A> result)
+    {
+        List<ActorSet> sets = instanceSetsForClass(cls);
+        if (sets.size() == 1) {
+            // The actors of one exact class are all in the same subset, in the
+            // same order as in the index:
+            for (Actor actor : sets.get(0)) {
+                result.add((A) actor);
+            }
+        }
+        else if (sets.size() > 1) {
+            // Each exact-class set is in iteration order; merge them by position
+            // so that instances of different classes stay interleaved:
+            PriorityQueue<IndexCursor> cursors = new PriorityQueue<IndexCursor>(sets.size());
+            for (ActorSet set : sets) {
+                IndexCursor cursor = new IndexCursor(set.iterator());
+                if (cursor.advance()) {
+                    cursors.add(cursor);
+                }
+            }
+            while (! cursors.isEmpty()) {
+                IndexCursor cursor = cursors.poll();
+                result.add((A) cursor.actor);
+                if (cursor.advance()) {
+                    cursors.add(cursor);
+                }
+            }
+        }
+    }
+    
+    /**
+     * Count the actors in this set which are instances of the given class (or
+     * its subclasses).
+     * 
+     * @param cls  The class of actors to count. Must not be null.
+     */
+    @OnThread(Tag.Simulation)
+    public synchronized int countInstancesOf(Class<?> cls)
+    {
+        int count = 0;
+        for (ActorSet set : instanceSetsForClass(cls)) {
+            count += set.size();
+        }
+        return count;
+    }
+    
+    /**
+     * Get the exact-class sets which hold instances of the given class, building
+     * the class index if it does not exist yet. The caller must hold the monitor.
+     */
+    @OnThread(Tag.Simulation)
+    private List<ActorSet> instanceSetsForClass(Class<?> cls)
+    {
+        if (exactClassSets == null) {
+            exactClassSets = new HashMap<Class<?>, ActorSet>();
+            instanceSets = new HashMap<Class<?>, List<ActorSet>>();
+            positions = new IdentityHashMap<Actor, Long>();
+            int subSetIndex = 0;
+            for (ActorSet subSet : subSets) {
+                for (Actor actor : subSet) {
+                    addToClassIndex(actor, subSetIndex);
+                }
+                subSetIndex++;
+            }
+        }
+        
+        List<ActorSet> sets = instanceSets.get(cls);
+        if (sets == null) {
+            sets = new ArrayList<ActorSet>();
+            for (Map.Entry<Class<?>, ActorSet> entry : exactClassSets.entrySet()) {
+                if (cls.isAssignableFrom(entry.getKey())) {
+                    sets.add(entry.getValue());
+                }
+            }
+            instanceSets.put(cls, sets);
+        }
+        return sets;
+    }
+    
+    /**
+     * Add an actor to the class index, at the end of the given subset's iteration
+     * order. The caller must hold the monitor.
+     */
+    private void addToClassIndex(Actor o, int subSetIndex)
+    {
+        exactSetForClass(o.getClass()).add(o);
+        positions.put(o, ((long) subSetIndex << POSITION_SUBSET_SHIFT) | nextIndexStamp++);
+    }
+    
+    /**
+     * Get the set from the class index holding actors of exactly the given class,
+     * creating it (and registering it for queries of its superclasses) if necessary.
+     * The caller must hold the monitor.
+     */
+    private ActorSet exactSetForClass(Class<?> cls)
+    {
+        ActorSet set = exactClassSets.get(cls);
+        if (set == null) {
+            set = new ActorSet();
+            exactClassSets.put(cls, set);
+            for (Map.Entry<Class<?>, List<ActorSet>> entry : instanceSets.entrySet()) {
+                if (entry.getKey().isAssignableFrom(cls)) {
+                    entry.getValue().add(set);
+                }
+            }
+        }
+        return set;
+    }
+    
+    /**
+     * Remove an actor (which has been removed from this set) from the class index.
+     */
+    private synchronized void removeFromClassIndex(Actor o)
+    {
+        if (exactClassSets != null) {
+            ActorSet set = exactClassSets.get(o.getClass());
+            if (set != null) {
+                set.remove(o);
+            }
+            positions.remove(o);
+        }
+    }
+    
+    /**
+     * Discard the class index; it is rebuilt by the next query by class.
+     */
+    private synchronized void clearClassIndex()
+    {
+        exactClassSets = null;
+        instanceSets = null;
+        positions = null;
+    }
+    
+    /**
+     * A position in one exact-class set of the class index, ordered by the
+     * iteration position of its current actor.
+     */
+    @OnThread(Tag.Simulation)
+    private class IndexCursor implements Comparable<IndexCursor>
+    {
+        private final Iterator<Actor> iterator;
+        private Actor actor;
+        private long position;
+        
+        IndexCursor(Iterator<Actor> iterator)
+        {
+            this.iterator = iterator;
+        }
+        
+        /**
+         * Move to the next actor in the set. Returns false if there is none.
+         */
+        boolean advance()
+        {
+            if (! iterator.hasNext()) {
+                return false;
+            }
+            actor = iterator.next();
+            position = positions.get(actor);
+            return true;
+        }
+        
+        @Override
+        public int compareTo(IndexCursor other)
+        {
+            return Long.compare(position, other.position);
+        }
     }
 
     @OnThread(value = Tag.Simulation, ignoreParent = true)
@@ -227,6 +449,8 @@ public class TreeActorSet extends AbstractSet<Actor>
         private Iterator<ActorSet> setIterator;
         private ActorSet currentSet;
         private Iterator<Actor> actorIterator;
+        /** The actor most recently returned by next() */
+        private Actor lastReturned;
         
         public TasIterator()
         {
@@ -242,13 +466,15 @@ public class TreeActorSet extends AbstractSet<Actor>
         public void remove()
         {
             actorIterator.remove();
+            removeFromClassIndex(lastReturned);
         }
 
         @OnThread(value = Tag.Simulation, ignoreParent = true)
         public Actor next()
         {
             hasNext(); // update iterator if necessary
-            return actorIterator.next();
+            lastReturned = actorIterator.next();
+            return lastReturned;
         }
 
         @OnThread(value = Tag.Simulation, ignoreParent = true)
@@ -24,18 +24,23 @@ package greenfoot;
 
 import greenfoot.collision.ColManager;
 import greenfoot.collision.CollisionChecker;
+import greenfoot.collision.GridColChecker;
+import greenfoot.collision.ibsp.IBSPColChecker;
 import greenfoot.collision.ibsp.Rect;
 import greenfoot.core.TextLabel;
 import greenfoot.core.WorldHandler;
+import greenfoot.platforms.ActorDelegate;
 import threadchecker.OnThread;
 import threadchecker.Tag;
 
 import java.awt.Graphics;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.function.UnaryOperator;
 
 
 /**
@@ -60,9 +65,11 @@ public abstract class World
 {    
     private static final greenfoot.Color DEFAULT_BACKGROUND_COLOR = greenfoot.Color.WHITE;
 
-    // private CollisionChecker collisionChecker = new GridCollisionChecker();
-    // private CollisionChecker collisionChecker = new BVHInsChecker();
-    private CollisionChecker collisionChecker = new ColManager();
+    /** Project property giving the default collision grid size; see setCollisionGridSize */
+    private static final String COLLISION_GRID_SIZE_PROPERTY = "collision.gridSize";
+
+    private final ColManager colManager = new ColManager();
+    private CollisionChecker collisionChecker = colManager;
     
     //{
     //    collisionChecker = new CollisionProfiler(collisionChecker);
@@ -95,6 +102,18 @@ public abstract class World
     
     /** Whether actors are bound to stay inside the world */
     private boolean isBounded;
+    
+    /** Classes whose instances (including instances of subclasses) act in parallel */
+    private Class<?>[] parallelActClasses = new Class<?>[0];
+    
+    /** Cache of whether instances of a class act in parallel */
+    private final HashMap<Class<?>, Boolean> parallelActCache = new HashMap<Class<?>, Boolean>();
+    
+    /** Whether a batch of actors is currently acting in parallel */
+    private volatile boolean actingInParallel;
+    
+    /** For threads acting in parallel, the list of deferred changes to the world */
+    private final ThreadLocal<List<Runnable>> deferredChanges = new ThreadLocal<List<Runnable>>();
 
     /**
      * Construct a new world. The size of the world (in number of cells) and the
@@ -126,6 +145,10 @@ public abstract class World
         this.height = worldHeight;
         this.cellSize = cellSize;
         collisionChecker.initialize(worldWidth, worldHeight, cellSize, false);
+        int gridSize = getDefaultCollisionGridSize();
+        if (gridSize > 0) {
+            setCollisionGridSize(gridSize);
+        }
         this.isBounded = bounded;
         
         backgroundIsClassImage = true;
@@ -322,6 +345,11 @@ public abstract class World
     @SuppressWarnings("unchecked")
     public void setPaintOrder(Class ... classes)
     {
+        final Class[] order = classes;
+        if (deferChange(() -> setPaintOrder(order))) {
+            return;
+        }
+        
         if (classes == null) {
             // Allow null as an argument, to specify no paint order
             if(objectsInPaintOrder == objectsDisordered) {
@@ -377,6 +405,11 @@ public abstract class World
     @SuppressWarnings("unchecked")
     public void setActOrder(Class ... classes)
     {
+        final Class[] order = classes;
+        if (deferChange(() -> setActOrder(order))) {
+            return;
+        }
+        
         if (classes == null) {
             // Allow null as an argument, to specify no paint order
             if (objectsInActOrder == objectsDisordered) {
@@ -411,6 +444,70 @@ public abstract class World
         objectsInActOrder.setClassOrder(false, classes);
     }
     
+    /**
+     * Let actors of the given classes (and their subclasses) act in parallel
+     * with each other, using all the processors of the computer. This can make
+     * scenarios with very many actors run much faster, but only suits actors
+     * whose act() method looks at the world and changes only the actor itself.
+     * <p>
+     * Actors still act in act order: each run of consecutive actors (in the act
+     * order) of these classes acts in parallel, and the next actor does not act
+     * until they have all finished. While they act, changes they make to the
+     * world (adding and removing actors, showing text, setting the paint or act
+     * order) do not take effect until the whole run has finished acting. An
+     * actor sees its own moves, turns and image changes at once, but other
+     * actors, and methods which find actors (such as getIntersectingObjects()),
+     * see every actor where it was when the run began. All the changes are made
+     * in act order once the run has finished. Such actors should not call
+     * Greenfoot.delay(), nor change images or actors shared with other actors.
+     * <p>
+     * Calling this method with no classes makes all actors act one after another
+     * again, which is the default.
+     * 
+     * @param classes  The classes whose actors may act in parallel
+     */
+    public void setParallelAct(Class<?> ... classes)
+    {
+        parallelActClasses = classes == null ? new Class<?>[0] : classes.clone();
+        parallelActCache.clear();
+    }
+    
+    /**
+     * Set the world to use a grid for collision checking (the methods which find
+     * intersecting, nearby or overlapping actors). The world is divided into square
+     * areas of the given size, and each actor is recorded in the areas it covers.
+     * This is often faster than the default collision checking in worlds which have
+     * many actors of similar size that move in every act; the grid size should then
+     * be around the size of a typical actor's image.
+     * <p>
+     * The default can also be set for all worlds in a scenario using the
+     * "collision.gridSize" property in the project.greenfoot file.
+     * 
+     * @param gridSize  The size of each grid square (in pixels), or 0 to
+     *                  use the default collision checking.
+     * @throws IllegalArgumentException If the grid size is negative.
+     */
+    public void setCollisionGridSize(int gridSize)
+    {
+        if (gridSize < 0) {
+            throw new IllegalArgumentException("Grid size must not be less than 0. It was: " + gridSize);
+        }
+        if (deferChange(() -> setCollisionGridSize(gridSize))) {
+            return;
+        }
+        if (gridSize == 0) {
+            if (colManager.getCollisionChecker() instanceof GridColChecker) {
+                colManager.setCollisionChecker(new IBSPColChecker());
+            }
+        }
+        else {
+            CollisionChecker current = colManager.getCollisionChecker();
+            if (! (current instanceof GridColChecker) || ((GridColChecker) current).getGridSize() != gridSize) {
+                colManager.setCollisionChecker(new GridColChecker(gridSize));
+            }
+        }
+    }
+
     /**
      * Add an Actor to the world.
      * 
@@ -420,6 +517,10 @@ public abstract class World
      */
     public void addObject(Actor object, int x, int y)
     {
+        if (deferChange(() -> addObject(object, x, y))) {
+            return;
+        }
+        
         if (object.world != null) {
             if (object.world == this) {
                 return;  // Actor is already in the world
@@ -454,6 +555,9 @@ public abstract class World
         if (object == null || object.world != this) {
             return;
         }
+        if (deferChange(() -> removeObject(object))) {
+            return;
+        }
         
         objectsDisordered.remove(object);
         collisionChecker.removeObject(object);
@@ -494,16 +598,12 @@ public abstract class World
     @SuppressWarnings({ "rawtypes", "unchecked" })
     public <A> List<A> getObjects(Class<A> cls)
     {
-        List result = new ArrayList();
-        
-        Iterator<Actor> i = objectsDisordered.iterator();
-        while (i.hasNext()) {
-            Actor actor = i.next();
-            if (cls == null || cls.isInstance(actor)) {
-                result.add(actor);
-            }
+        if (cls == null) {
+            return new ArrayList(objectsDisordered);
         }
         
+        List<A> result = new ArrayList<A>();
+        objectsDisordered.addInstancesOf(cls, result);
         return result;
     }
     
@@ -517,6 +617,21 @@ public abstract class World
         return objectsDisordered.size();
     }
     
+    /**
+     * Get the number of actors of a particular class (or its subclasses)
+     * currently in the world.
+     * 
+     * @param cls Class of objects to count ('null' will count all objects).
+     * @return The number of actors of the given class
+     */
+    public int numberOfObjects(Class<?> cls)
+    {
+        if (cls == null) {
+            return objectsDisordered.size();
+        }
+        return objectsDisordered.countInstancesOf(cls);
+    }
+    
     /**
      * Repaints the world. 
      */
@@ -602,6 +717,10 @@ public abstract class World
      */
     public void showText(String text, int x, int y)
     {
+        if (deferChange(() -> showText(text, x, y))) {
+            return;
+        }
+        
         for (Iterator<TextLabel> i = textLabels.iterator(); i.hasNext(); ) {
             TextLabel label = i.next();
             if (label.getX() == x && label.getY() == y) {
@@ -787,6 +906,112 @@ public abstract class World
     {
         collisionChecker.updateObjectSize(object);
     }
+    
+    /**
+     * Replace the collision checker used for this world's queries by a wrapper
+     * around it (for instance, one which times or profiles the queries).
+     */
+    void wrapCollisionChecker(UnaryOperator<CollisionChecker> wrapper)
+    {
+        collisionChecker = wrapper.apply(collisionChecker);
+    }
+    
+    /**
+     * Check whether the given actor should act in parallel with other actors.
+     * 
+     * @see #setParallelAct(Class...)
+     */
+    boolean actsInParallel(Actor actor)
+    {
+        if (parallelActClasses.length == 0) {
+            return false;
+        }
+        
+        Class<?> cls = actor.getClass();
+        Boolean parallel = parallelActCache.get(cls);
+        if (parallel == null) {
+            parallel = false;
+            for (Class<?> parallelClass : parallelActClasses) {
+                if (parallelClass.isAssignableFrom(cls)) {
+                    parallel = true;
+                    break;
+                }
+            }
+            parallelActCache.put(cls, parallel);
+        }
+        return parallel;
+    }
+    
+    /**
+     * Prepare for a batch of actors to act in parallel. Until endParallelAct()
+     * is called, changes to the world made on threads with a deferred change
+     * list (see setDeferredChanges()) are recorded rather than applied.
+     * 
+     * <p>Nothing changes the actors' locations, rotations or images (as seen by
+     * other actors) during the batch, so collision queries see a snapshot of the
+     * world as it was before the batch. The collision checker and the actors'
+     * bounds are brought up to date first, so that the queries only read them
+     * and need no locking.
+     */
+    void beginParallelAct()
+    {
+        colManager.prepareForConcurrentQueries();
+        for (Actor actor : objectsDisordered) {
+            actor.getBoundingRect();
+        }
+        actingInParallel = true;
+    }
+    
+    /**
+     * Finish a batch of actors acting in parallel. The changes the actors made to
+     * themselves (see Actor.applyPendingChanges()) and the deferred changes
+     * recorded during the batch should be applied afterwards, in act order.
+     */
+    void endParallelAct()
+    {
+        actingInParallel = false;
+    }
+    
+    /**
+     * Check whether a batch of actors is acting in parallel.
+     */
+    boolean isActingInParallel()
+    {
+        return actingInParallel;
+    }
+    
+    /**
+     * Set the list to which changes made to the world by the current thread are
+     * added, while acting in parallel. Pass null to stop recording changes.
+     */
+    void setDeferredChanges(List<Runnable> changes)
+    {
+        if (changes == null) {
+            deferredChanges.remove();
+        }
+        else {
+            deferredChanges.set(changes);
+        }
+    }
+    
+    /**
+     * Record a change to the world (or to an actor other than the one acting) if
+     * the current thread is acting in parallel.
+     * 
+     * @return  true if the change was recorded (and so should not be made now)
+     */
+    boolean deferChange(Runnable change)
+    {
+        if (! actingInParallel) {
+            return false;
+        }
+        List<Runnable> changes = deferredChanges.get();
+        if (changes == null) {
+            return false;
+        }
+        changes.add(change);
+        return true;
+    }
 
     /**
      * Used to indicate the start of an animation sequence. For use in the
@@ -878,6 +1103,30 @@ public abstract class World
         return null;
     }
 
+    /**
+     * Get the collision grid size from the project properties, or 0 if
+     * it is not set (or not valid).
+     */
+    private static int getDefaultCollisionGridSize()
+    {
+        ActorDelegate delegate = Actor.getDelegate();
+        if (delegate == null) {
+            // Unit tests may not set a delegate
+            return 0;
+        }
+        String gridSize = delegate.getProjectProperty(COLLISION_GRID_SIZE_PROPERTY);
+        if (gridSize == null) {
+            return 0;
+        }
+        try {
+            return Math.max(0, Integer.parseInt(gridSize.trim()));
+        }
+        catch (NumberFormatException e) {
+            System.err.println("Ignoring invalid " + COLLISION_GRID_SIZE_PROPERTY + " property: " + gridSize);
+            return 0;
+        }
+    }
+
     /**
      * Methods that throws an exception if the location is out of bounds.
      * 
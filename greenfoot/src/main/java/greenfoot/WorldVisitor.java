@@ -21,6 +21,7 @@
  */
 package greenfoot;
 
+import greenfoot.collision.CollisionChecker;
 import greenfoot.core.TextLabel;
 import threadchecker.OnThread;
 import threadchecker.Tag;
@@ -28,6 +29,7 @@ import threadchecker.Tag;
 import java.awt.Graphics;
 import java.util.Collection;
 import java.util.List;
+import java.util.function.UnaryOperator;
 
 /**
  * Class that makes it possible for classes outside the greenfoot package to get
@@ -142,4 +144,41 @@ public class WorldVisitor
     {
         return world.textLabels;
     }
+    
+    /**
+     * Replace the collision checker used for the world's queries by a wrapper
+     * around it, for profiling.
+     */
+    public static void wrapCollisionChecker(World world, UnaryOperator<CollisionChecker> wrapper)
+    {
+        world.wrapCollisionChecker(wrapper);
+    }
+    
+    /**
+     * Check whether an actor should act in parallel with other actors.
+     * @see World#setParallelAct(Class...)
+     */
+    public static boolean actsInParallel(World world, Actor actor)
+    {
+        return world.actsInParallel(actor);
+    }
+    
+    public static void beginParallelAct(World world)
+    {
+        world.beginParallelAct();
+    }
+    
+    public static void endParallelAct(World world)
+    {
+        world.endParallelAct();
+    }
+    
+    /**
+     * Set the list which records changes made to the world by the current thread
+     * while acting in parallel (or null to stop recording).
+     */
+    public static void setDeferredChanges(World world, List<Runnable> changes)
+    {
+        world.setDeferredChanges(changes);
+    }
 }
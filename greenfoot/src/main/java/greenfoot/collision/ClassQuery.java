@@ -34,6 +34,25 @@ public class ClassQuery implements CollisionQuery
         this.subQuery = subQuery;
     }
     
+    /**
+     * Construct a ClassQuery which must be initialised (using init) before use.
+     */
+    public ClassQuery()
+    {
+    }
+    
+    /**
+     * Initialise, so that a single ClassQuery can be re-used for many queries.
+     * 
+     * @param cls       Only actors of this class are found
+     * @param subQuery  The query which actors of the class must also satisfy
+     */
+    public void init(Class<?> cls, CollisionQuery subQuery)
+    {
+        this.cls = cls;
+        this.subQuery = subQuery;
+    }
+    
     public boolean checkCollision(Actor actor)
     {
         if (cls.isInstance(actor)) {
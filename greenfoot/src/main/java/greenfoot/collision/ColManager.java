@@ -53,6 +53,43 @@ public class ColManager implements CollisionChecker
     
     /** The actual collision checker. */
     private CollisionChecker collisionChecker = new IBSPColChecker();
+    
+    /** The parameters the collision checker was initialised with. */
+    private int width;
+    private int height;
+    private int cellSize;
+    private boolean wrap;
+    private boolean initialized = false;
+
+    /**
+     * Change the collision checker which performs the actual collision checking.
+     * Any objects already in the old collision checker are moved to the new one.
+     * 
+     * @param checker  The new (not yet initialised) collision checker.
+     */
+    public void setCollisionChecker(CollisionChecker checker)
+    {
+        List<Actor> collisionObjects = collisionChecker.getObjects(null);
+        for (Actor actor : collisionObjects) {
+            collisionChecker.removeObject(actor);
+        }
+        
+        collisionChecker = checker;
+        if (initialized) {
+            collisionChecker.initialize(width, height, cellSize, wrap);
+        }
+        for (Actor actor : collisionObjects) {
+            collisionChecker.addObject(actor);
+        }
+    }
+    
+    /**
+     * Get the collision checker which performs the actual collision checking.
+     */
+    public CollisionChecker getCollisionChecker()
+    {
+        return collisionChecker;
+    }
 
     /**
      * Ensures that objects of this class are in the collision checker
@@ -60,6 +97,11 @@ public class ColManager implements CollisionChecker
      */
     private void makeCollisionObjects(Class<? extends Actor> cls, boolean includeSubclasses)
     {
+        if (freeObjects.isEmpty()) {
+            // Everything is already in the collision checker
+            return;
+        }
+        
         if (cls == null) {
             //long start = System.nanoTime();
             Set<Entry<Class<? extends Actor>, LinkedList<Actor>>> entries = freeObjects.entrySet();
@@ -104,6 +146,16 @@ public class ColManager implements CollisionChecker
         }
     }
 
+    /**
+     * Put all the objects into the collision checker. Until objects are next
+     * added, queries then only read the collision checker, so (if the collision
+     * checker's own queries allow it) they may be made concurrently.
+     */
+    public void prepareForConcurrentQueries()
+    {
+        makeCollisionObjects(null, false);
+    }
+
     /**
      * Ensure that objects of the actors class and all objects of 'cls' or a
      * subclass is part of the collision detection.
@@ -195,6 +247,11 @@ public class ColManager implements CollisionChecker
 
     public void initialize(int width, int height, int cellSize, boolean wrap)
     {
+        this.width = width;
+        this.height = height;
+        this.cellSize = cellSize;
+        this.wrap = wrap;
+        initialized = true;
         collisionChecker.initialize(width, height, cellSize, wrap);
     }
 
@@ -0,0 +1,454 @@
+/*
+ This file is part of the Greenfoot program. 
+ Copyright (C) 2026  Poul Henriksen and Michael Kolling
+ 
+ This program is free software; you can redistribute it and/or 
+ modify it under the terms of the GNU General Public License 
+ as published by the Free Software Foundation; either version 2 
+ of the License, or (at your option) any later version. 
+ 
+ This program is distributed in the hope that it will be useful, 
+ but WITHOUT ANY WARRANTY; without even the implied warranty of 
+ MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the 
+ GNU General Public License for more details. 
+ 
+ You should have received a copy of the GNU General Public License 
+ along with this program; if not, write to the Free Software 
+ Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA. 
+ 
+ This file is subject to the Classpath exception as provided in the  
+ LICENSE.txt file that accompanied this code.
+ */
+package greenfoot.collision;
+
+import greenfoot.Actor;
+import greenfoot.ActorVisitor;
+import greenfoot.collision.ibsp.Rect;
+
+import java.awt.Color;
+import java.awt.Graphics;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A collision checker using a uniform grid of squares laid over the world.
+ *
+ * <p>Each actor is recorded in every grid square which its bounding rectangle
+ * overlaps. Actors outside the world are recorded in the nearest squares at the
+ * world's edge. This works well when the world contains many actors of roughly
+ * similar size (ideally no bigger than a grid square) which move often: moving
+ * an actor only touches the handful of squares it leaves and enters, and
+ * nothing needs rebalancing.
+ *
+ * <p>Actors are identified by an integer id (stored as the actor's collision
+ * checker data), and the grid squares hold arrays of ids. Queries do not
+ * change the checker, so (while no actors are added, removed or updated) they
+ * may be made concurrently, as they are while actors act in parallel.
+ */
+public class GridColChecker implements CollisionChecker
+{
+    /** The size of grid square used if none is specified, in pixels */
+    public static final int DEFAULT_GRID_SIZE = 64;
+
+    /** Size of a grid square, in pixels */
+    private final int gridSize;
+    private int cellSize;
+    /** Number of grid squares across and down */
+    private int cols;
+    private int rows;
+
+    /** For each grid square, the ids of the actors overlapping it (first squareCounts[n] are valid) */
+    private int[][] squareContents;
+    private int[] squareCounts;
+
+    /** Actors by id; null for unused ids */
+    private Actor[] actors = new Actor[64];
+    /** For each actor id, the grid squares covered: minCol, minRow, maxCol, maxRow */
+    private int[] actorSquares = new int[64 * 4];
+    /** Ids of removed actors available for re-use */
+    private int[] freeIds = new int[16];
+    private int freeIdCount = 0;
+    /** The lowest id never yet used */
+    private int nextId = 0;
+    private int actorCount = 0;
+
+    /**
+     * Construct a grid collision checker using the default grid square size.
+     */
+    public GridColChecker()
+    {
+        this(DEFAULT_GRID_SIZE);
+    }
+
+    /**
+     * Construct a grid collision checker.
+     *
+     * @param gridSize  The size of each grid square, in pixels. For best performance
+     *                  this should be around the size of a typical actor.
+     */
+    public GridColChecker(int gridSize)
+    {
+        if (gridSize <= 0) {
+            throw new IllegalArgumentException("Grid size must be positive. It was: " + gridSize);
+        }
+        this.gridSize = gridSize;
+    }
+
+    /**
+     * Get the size of each grid square, in pixels.
+     */
+    public int getGridSize()
+    {
+        return gridSize;
+    }
+
+    public void initialize(int width, int height, int cellSize, boolean wrap)
+    {
+        this.cellSize = cellSize;
+        cols = Math.max(1, (width * cellSize + gridSize - 1) / gridSize);
+        rows = Math.max(1, (height * cellSize + gridSize - 1) / gridSize);
+        squareContents = new int[cols * rows][];
+        squareCounts = new int[cols * rows];
+    }
+
+    public void addObject(Actor actor)
+    {
+        int id;
+        if (freeIdCount > 0) {
+            id = freeIds[--freeIdCount];
+        }
+        else {
+            id = nextId++;
+            if (id == actors.length) {
+                int newLength = actors.length * 2;
+                actors = Arrays.copyOf(actors, newLength);
+                actorSquares = Arrays.copyOf(actorSquares, newLength * 4);
+            }
+        }
+        actors[id] = actor;
+        actorCount++;
+        ActorVisitor.setData(actor, id);
+
+        calcSquares(actor, actorSquares, id * 4);
+        addToSquares(id);
+    }
+
+    public void removeObject(Actor object)
+    {
+        int id = getId(object);
+        removeFromSquares(id);
+        actors[id] = null;
+        ActorVisitor.setData(object, null);
+        actorCount--;
+
+        if (freeIdCount == freeIds.length) {
+            freeIds = Arrays.copyOf(freeIds, freeIds.length * 2);
+        }
+        freeIds[freeIdCount++] = id;
+    }
+
+    public void updateObjectLocation(Actor object, int oldX, int oldY)
+    {
+        updateObject(object);
+    }
+
+    public void updateObjectSize(Actor object)
+    {
+        updateObject(object);
+    }
+
+    /**
+     * Update the grid squares which an actor occupies, after its bounds have changed.
+     */
+    private void updateObject(Actor object)
+    {
+        int id = getId(object);
+        int base = id * 4;
+        int minCol = actorSquares[base];
+        int minRow = actorSquares[base + 1];
+        int maxCol = actorSquares[base + 2];
+        int maxRow = actorSquares[base + 3];
+
+        calcSquares(object, actorSquares, base);
+        if (minCol == actorSquares[base] && minRow == actorSquares[base + 1]
+                && maxCol == actorSquares[base + 2] && maxRow == actorSquares[base + 3]) {
+            // Still in the same squares; nothing to do.
+            return;
+        }
+
+        // Remove from the old squares (which we must restore temporarily), and add to the new:
+        int newMinCol = actorSquares[base];
+        int newMinRow = actorSquares[base + 1];
+        int newMaxCol = actorSquares[base + 2];
+        int newMaxRow = actorSquares[base + 3];
+        actorSquares[base] = minCol;
+        actorSquares[base + 1] = minRow;
+        actorSquares[base + 2] = maxCol;
+        actorSquares[base + 3] = maxRow;
+        removeFromSquares(id);
+        actorSquares[base] = newMinCol;
+        actorSquares[base + 1] = newMinRow;
+        actorSquares[base + 2] = newMaxCol;
+        actorSquares[base + 3] = newMaxRow;
+        addToSquares(id);
+    }
+
+    private static int getId(Actor actor)
+    {
+        return (Integer) ActorVisitor.getData(actor);
+    }
+
+    /**
+     * Calculate the range of grid squares covered by an actor, and store it (as
+     * minCol, minRow, maxCol, maxRow) into the given array at the given position.
+     */
+    private void calcSquares(Actor actor, int[] dest, int pos)
+    {
+        Rect bounds = ActorVisitor.getBoundingRect(actor);
+        // The queries which look at the logical location of actors rely on finding the
+        // actor in the square containing its cell centre, so we make sure that is covered:
+        int centreX = ActorVisitor.toPixel(actor, ActorVisitor.getX(actor));
+        int centreY = ActorVisitor.toPixel(actor, ActorVisitor.getY(actor));
+        int minX = Math.min(bounds.getX(), centreX);
+        int minY = Math.min(bounds.getY(), centreY);
+        int maxX = Math.max(bounds.getRight() - 1, centreX);
+        int maxY = Math.max(bounds.getTop() - 1, centreY);
+
+        dest[pos] = toCol(minX);
+        dest[pos + 1] = toRow(minY);
+        dest[pos + 2] = toCol(maxX);
+        dest[pos + 3] = toRow(maxY);
+    }
+
+    /**
+     * Convert a pixel x-coordinate to a grid column, clamped to the grid.
+     */
+    private int toCol(int px)
+    {
+        int col = Math.floorDiv(px, gridSize);
+        return col < 0 ? 0 : (col >= cols ? cols - 1 : col);
+    }
+
+    /**
+     * Convert a pixel y-coordinate to a grid row, clamped to the grid.
+     */
+    private int toRow(int py)
+    {
+        int row = Math.floorDiv(py, gridSize);
+        return row < 0 ? 0 : (row >= rows ? rows - 1 : row);
+    }
+
+    /**
+     * Add the actor with the given id to all the squares recorded for it in actorSquares.
+     */
+    private void addToSquares(int id)
+    {
+        int base = id * 4;
+        for (int row = actorSquares[base + 1]; row <= actorSquares[base + 3]; row++) {
+            for (int col = actorSquares[base]; col <= actorSquares[base + 2]; col++) {
+                int square = row * cols + col;
+                int[] contents = squareContents[square];
+                int count = squareCounts[square];
+                if (contents == null) {
+                    contents = new int[4];
+                    squareContents[square] = contents;
+                }
+                else if (count == contents.length) {
+                    contents = Arrays.copyOf(contents, count * 2);
+                    squareContents[square] = contents;
+                }
+                contents[count] = id;
+                squareCounts[square] = count + 1;
+            }
+        }
+    }
+
+    /**
+     * Remove the actor with the given id from all the squares recorded for it in actorSquares.
+     */
+    private void removeFromSquares(int id)
+    {
+        int base = id * 4;
+        for (int row = actorSquares[base + 1]; row <= actorSquares[base + 3]; row++) {
+            for (int col = actorSquares[base]; col <= actorSquares[base + 2]; col++) {
+                int square = row * cols + col;
+                int[] contents = squareContents[square];
+                int count = squareCounts[square];
+                for (int i = 0; i < count; i++) {
+                    if (contents[i] == id) {
+                        // Order within a square doesn't matter; move the last entry into the gap:
+                        contents[i] = contents[count - 1];
+                        squareCounts[square] = count - 1;
+                        break;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Find actors matching the query in the grid squares which overlap the given pixel
+     * area (inclusive), adding them to the result list if given. The first actor found
+     * (other than the ignored actor) is returned; if no result list is given, the search
+     * stops at the first actor found.
+     */
+    private Actor findInArea(int minX, int minY, int maxX, int maxY, CollisionQuery query,
+            Actor ignore, List<Actor> result)
+    {
+        Actor first = null;
+        int minCol = toCol(minX);
+        int minRow = toRow(minY);
+        int maxCol = toCol(maxX);
+        int maxRow = toRow(maxY);
+        for (int row = minRow; row <= maxRow; row++) {
+            for (int col = minCol; col <= maxCol; col++) {
+                int square = row * cols + col;
+                int[] contents = squareContents[square];
+                int count = squareCounts[square];
+                for (int i = 0; i < count; i++) {
+                    int id = contents[i];
+                    // An actor may cover several of the squares searched; only
+                    // check it in the first of them (the top-left one):
+                    int base = id * 4;
+                    if (col != Math.max(actorSquares[base], minCol)
+                            || row != Math.max(actorSquares[base + 1], minRow)) {
+                        continue;
+                    }
+                    Actor candidate = actors[id];
+                    if (candidate != ignore && query.checkCollision(candidate)) {
+                        if (result == null) {
+                            return candidate;
+                        }
+                        if (first == null) {
+                            first = candidate;
+                        }
+                        result.add(candidate);
+                    }
+                }
+            }
+        }
+        return first;
+    }
+
+    @SuppressWarnings("unchecked")
+    public <T extends Actor> List<T> getObjectsAt(int x, int y, Class<T> cls)
+    {
+        int px = x * cellSize + cellSize / 2;
+        int py = y * cellSize + cellSize / 2;
+        PointCollisionQuery pointQuery = new PointCollisionQuery();
+        pointQuery.init(px, py, cls);
+        List<Actor> result = new ArrayList<Actor>();
+        findInArea(px, py, px, py, pointQuery, null, result);
+        return (List<T>) result;
+    }
+
+    @SuppressWarnings("unchecked")
+    public <T extends Actor> List<T> getIntersectingObjects(Actor actor, Class<T> cls)
+    {
+        Rect r = ActorVisitor.getBoundingRect(actor);
+        GOCollisionQuery actorQuery = new GOCollisionQuery();
+        actorQuery.init(cls, actor);
+        List<Actor> result = new ArrayList<Actor>();
+        findInArea(r.getX(), r.getY(), r.getRight() - 1, r.getTop() - 1, actorQuery, null, result);
+        return (List<T>) result;
+    }
+
+    @SuppressWarnings("unchecked")
+    public <T extends Actor> List<T> getObjectsInRange(int x, int y, int r, Class<T> cls)
+    {
+        int halfCell = cellSize / 2;
+        int px = x * cellSize + halfCell;
+        int py = y * cellSize + halfCell;
+        int pr = r * cellSize;
+
+        InRangeQuery inRangeQuery = new InRangeQuery();
+        inRangeQuery.init(px, py, pr);
+        CollisionQuery query = inRangeQuery;
+        if (cls != null) {
+            query = new ClassQuery(cls, inRangeQuery);
+        }
+        List<Actor> result = new ArrayList<Actor>();
+        findInArea(px - pr, py - pr, px + pr, py + pr, query, null, result);
+        return (List<T>) result;
+    }
+
+    @SuppressWarnings("unchecked")
+    public <T extends Actor> List<T> getNeighbours(Actor actor, int distance, boolean diag, Class<T> cls)
+    {
+        int x = ActorVisitor.getX(actor);
+        int y = ActorVisitor.getY(actor);
+        int xPixel = x * cellSize + cellSize / 2;
+        int yPixel = y * cellSize + cellSize / 2;
+        int dPixel = distance * cellSize;
+
+        NeighbourCollisionQuery neighbourQuery = new NeighbourCollisionQuery();
+        neighbourQuery.init(x, y, distance, diag, cls);
+        List<Actor> result = new ArrayList<Actor>();
+        findInArea(xPixel - dPixel, yPixel - dPixel, xPixel + dPixel, yPixel + dPixel,
+                neighbourQuery, null, result);
+        return (List<T>) result;
+    }
+
+    public <T extends Actor> List<T> getObjectsInDirection(int x, int y, int angle, int length, Class<T> cls)
+    {
+        // non-functional (as for the other collision checkers)
+        return new ArrayList<T>();
+    }
+
+    @SuppressWarnings("unchecked")
+    public <T extends Actor> List<T> getObjects(Class<T> cls)
+    {
+        List<T> result = new ArrayList<T>(actorCount);
+        for (int id = 0; id < nextId; id++) {
+            Actor actor = actors[id];
+            if (actor != null && (cls == null || cls.isInstance(actor))) {
+                result.add((T) actor);
+            }
+        }
+        return result;
+    }
+
+    public List<Actor> getObjectsList()
+    {
+        return getObjects(null);
+    }
+
+    public void startSequence()
+    {
+        // Nothing necessary.
+    }
+
+    @SuppressWarnings("unchecked")
+    public <T extends Actor> T getOneObjectAt(Actor object, int dx, int dy, Class<T> cls)
+    {
+        int px = dx * cellSize + cellSize / 2;
+        int py = dy * cellSize + cellSize / 2;
+        PointCollisionQuery pointQuery = new PointCollisionQuery();
+        pointQuery.init(px, py, cls);
+        return (T) findInArea(px, py, px, py, pointQuery, object, null);
+    }
+
+    @SuppressWarnings("unchecked")
+    public <T extends Actor> T getOneIntersectingObject(Actor actor, Class<T> cls)
+    {
+        Rect r = ActorVisitor.getBoundingRect(actor);
+        GOCollisionQuery actorQuery = new GOCollisionQuery();
+        actorQuery.init(cls, actor);
+        return (T) findInArea(r.getX(), r.getY(), r.getRight() - 1, r.getTop() - 1, actorQuery, actor, null);
+    }
+
+    public void paintDebug(Graphics g)
+    {
+        Color oldColor = g.getColor();
+        g.setColor(Color.RED);
+        for (int row = 0; row < rows; row++) {
+            for (int col = 0; col < cols; col++) {
+                if (squareCounts[row * cols + col] != 0) {
+                    g.drawRect(col * gridSize, row * gridSize, gridSize, gridSize);
+                }
+            }
+        }
+        g.setColor(oldColor);
+    }
+}
@@ -0,0 +1,196 @@
+/*
+ This file is part of the Greenfoot program. 
+ Copyright (C) 2026  Poul Henriksen and Michael Kolling
+ 
+ This program is free software; you can redistribute it and/or 
+ modify it under the terms of the GNU General Public License 
+ as published by the Free Software Foundation; either version 2 
+ of the License, or (at your option) any later version. 
+ 
+ This program is distributed in the hope that it will be useful, 
+ but WITHOUT ANY WARRANTY; without even the implied warranty of 
+ MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the 
+ GNU General Public License for more details. 
+ 
+ You should have received a copy of the GNU General Public License 
+ along with this program; if not, write to the Free Software 
+ Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA. 
+ 
+ This file is subject to the Classpath exception as provided in the  
+ LICENSE.txt file that accompanied this code.
+ */
+package greenfoot.collision;
+
+import greenfoot.Actor;
+
+import java.awt.Graphics;
+import java.util.List;
+
+/**
+ * A collision checker which passes all calls on to another collision checker,
+ * and keeps a running total of the time spent in them. Unlike CollisionProfiler
+ * it produces no output of its own; it is used by the benchmark runner.
+ */
+public class TimedCollisionChecker implements CollisionChecker
+{
+    private final CollisionChecker checker;
+    
+    /** Total time (in nanoseconds) spent answering queries */
+    private long queryTime;
+    /** Total time (in nanoseconds) spent adding, removing and updating objects */
+    private long updateTime;
+    /** Number of queries answered */
+    private long queryCount;
+    
+    public TimedCollisionChecker(CollisionChecker checker)
+    {
+        this.checker = checker;
+    }
+    
+    /**
+     * Get the total time spent answering queries, in nanoseconds.
+     */
+    public long getQueryTime()
+    {
+        return queryTime;
+    }
+    
+    /**
+     * Get the total time spent adding, removing and updating objects, in nanoseconds.
+     */
+    public long getUpdateTime()
+    {
+        return updateTime;
+    }
+    
+    /**
+     * Get the number of queries answered.
+     */
+    public long getQueryCount()
+    {
+        return queryCount;
+    }
+    
+    private void queried(long start)
+    {
+        queryTime += System.nanoTime() - start;
+        queryCount++;
+    }
+    
+    private void updated(long start)
+    {
+        updateTime += System.nanoTime() - start;
+    }
+
+    public void initialize(int width, int height, int cellSize, boolean wrap)
+    {
+        checker.initialize(width, height, cellSize, wrap);
+    }
+
+    public void addObject(Actor actor)
+    {
+        long start = System.nanoTime();
+        checker.addObject(actor);
+        updated(start);
+    }
+
+    public void removeObject(Actor object)
+    {
+        long start = System.nanoTime();
+        checker.removeObject(object);
+        updated(start);
+    }
+
+    public void updateObjectLocation(Actor object, int oldX, int oldY)
+    {
+        long start = System.nanoTime();
+        checker.updateObjectLocation(object, oldX, oldY);
+        updated(start);
+    }
+
+    public void updateObjectSize(Actor object)
+    {
+        long start = System.nanoTime();
+        checker.updateObjectSize(object);
+        updated(start);
+    }
+
+    public <T extends Actor> List<T> getObjectsAt(int x, int y, Class<T> cls)
+    {
+        long start = System.nanoTime();
+        List<T> result = checker.getObjectsAt(x, y, cls);
+        queried(start);
+        return result;
+    }
+
+    public <T extends Actor> List<T> getIntersectingObjects(Actor actor, Class<T> cls)
+    {
+        long start = System.nanoTime();
+        List<T> result = checker.getIntersectingObjects(actor, cls);
+        queried(start);
+        return result;
+    }
+
+    public <T extends Actor> List<T> getObjectsInRange(int x, int y, int r, Class<T> cls)
+    {
+        long start = System.nanoTime();
+        List<T> result = checker.getObjectsInRange(x, y, r, cls);
+        queried(start);
+        return result;
+    }
+
+    public <T extends Actor> List<T> getNeighbours(Actor actor, int distance, boolean diag, Class<T> cls)
+    {
+        long start = System.nanoTime();
+        List<T> result = checker.getNeighbours(actor, distance, diag, cls);
+        queried(start);
+        return result;
+    }
+
+    public <T extends Actor> List<T> getObjectsInDirection(int x, int y, int angle, int length, Class<T> cls)
+    {
+        long start = System.nanoTime();
+        List<T> result = checker.getObjectsInDirection(x, y, angle, length, cls);
+        queried(start);
+        return result;
+    }
+
+    public <T extends Actor> List<T> getObjects(Class<T> cls)
+    {
+        long start = System.nanoTime();
+        List<T> result = checker.getObjects(cls);
+        queried(start);
+        return result;
+    }
+
+    public List<Actor> getObjectsList()
+    {
+        return checker.getObjectsList();
+    }
+
+    public void startSequence()
+    {
+        checker.startSequence();
+    }
+
+    public <T extends Actor> T getOneObjectAt(Actor object, int dx, int dy, Class<T> cls)
+    {
+        long start = System.nanoTime();
+        T result = checker.getOneObjectAt(object, dx, dy, cls);
+        queried(start);
+        return result;
+    }
+
+    public <T extends Actor> T getOneIntersectingObject(Actor object, Class<T> cls)
+    {
+        long start = System.nanoTime();
+        T result = checker.getOneIntersectingObject(object, cls);
+        queried(start);
+        return result;
+    }
+
+    public void paintDebug(Graphics g)
+    {
+        checker.paintDebug(g);
+    }
+}
@@ -38,7 +38,21 @@ public final class ActorNode
     private ActorNode prev;
     private boolean mark;
     
+    // The list of actor nodes in the BSPNode (see BSPNode.addActor)
+    ActorNode nodeNext;
+    ActorNode nodePrev;
+    
     public ActorNode(Actor actor, BSPNode node)
+    {
+        init(actor, node);
+    }
+    
+    /**
+     * Initialise this ActorNode for the given actor and BSPNode, and insert it
+     * into the actor's list of actor nodes. Used when the ActorNode is first
+     * created, and when it is re-used from the ActorNodeCache.
+     */
+    void init(Actor actor, BSPNode node)
     {
         this.actor = actor;
         this.node = node;
@@ -46,6 +60,7 @@ public final class ActorNode
         // insert into linked list
         ActorNode first = IBSPColChecker.getNodeForActor(actor);
         this.next = first;
+        this.prev = null;
         IBSPColChecker.setNodeForActor(actor, this);
         if (next != null) {
             next.prev = this;
@@ -54,6 +69,18 @@ public final class ActorNode
         mark = true;
     }
     
+    /**
+     * Clear the references held by this node, once it has been removed. The
+     * next() call remains valid.
+     */
+    void blankNode()
+    {
+        actor = null;
+        node = null;
+        nodeNext = null;
+        nodePrev = null;
+    }
+    
     /**
      * Clar the mark on this ActorNode. This is used by the collision
      * checker when actors reposition or resize.
@@ -107,12 +134,14 @@ public final class ActorNode
      * Remove this actor node. The node is removed from both the BSPNode
      * which contains it, and the linked list of actor nodes for the actor.
      * The next() call will still be valid, unless the next actor is also
-     * removed.
+     * removed, or another actor node is created (the removed node is
+     * returned to the ActorNodeCache for re-use).
      */
     public void remove()
     {
         removed();
-        node.actorRemoved(actor);
+        node.actorRemoved(this);
+        ActorNodeCache.returnNode(this);
     }
     
     /**
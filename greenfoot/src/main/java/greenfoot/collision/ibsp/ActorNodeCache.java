@@ -0,0 +1,62 @@
+/*
+ This file is part of the Greenfoot program. 
+ Copyright (C) 2026  Poul Henriksen and Michael Kolling
+ 
+ This program is free software; you can redistribute it and/or 
+ modify it under the terms of the GNU General Public License 
+ as published by the Free Software Foundation; either version 2 
+ of the License, or (at your option) any later version. 
+ 
+ This program is distributed in the hope that it will be useful, 
+ but WITHOUT ANY WARRANTY; without even the implied warranty of 
+ MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the 
+ GNU General Public License for more details. 
+ 
+ You should have received a copy of the GNU General Public License 
+ along with this program; if not, write to the Free Software 
+ Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA. 
+ 
+ This file is subject to the Classpath exception as provided in the  
+ LICENSE.txt file that accompanied this code.
+ */
+package greenfoot.collision.ibsp;
+
+import greenfoot.Actor;
+
+/**
+ * A cache for actor nodes, allowing object re-use. Actor nodes are created and
+ * removed whenever an actor moves across the boundary of a BSP node, so re-using
+ * them avoids creating garbage while actors move.
+ */
+public class ActorNodeCache
+{
+    private static final int CACHE_SIZE = 1000;
+    
+    private static ActorNode [] cache = new ActorNode[CACHE_SIZE];
+    private static int size = 0;
+    
+    public static ActorNode getActorNode(Actor actor, BSPNode node)
+    {
+        if (size == 0) {
+            return new ActorNode(actor, node);
+        }
+        else {
+            ActorNode anode = cache[--size];
+            cache[size] = null;
+            anode.init(actor, node);
+            return anode;
+        }
+    }
+    
+    /**
+     * Return an actor node, which has been removed from its BSPNode and
+     * actor, to the cache.
+     */
+    public static void returnNode(ActorNode node)
+    {
+        if (size < CACHE_SIZE) {
+            node.blankNode();
+            cache[size++] = node;
+        }
+    }
+}
@@ -28,17 +28,20 @@ import java.util.*;
 /**
  * A node in a BSP tree. Each node covers a rectangular area, and is potentially split
  * down either axis to allow two child nodes. A BSP node area contains one or more
- * Actors (or parts of Actors); in implementation, this is represented as a map of
- * Actor to ActorNode.
+ * Actors (or parts of Actors); in implementation, this is represented as a linked
+ * list of ActorNodes.
  * 
  * @author Davin McCall
  */
 public final class BSPNode
 {
-    private Map<Actor, ActorNode> actors;
+    private ActorNode firstActor;
+    private int numberActors;
     
     private BSPNode parent;
-    private Rect area;
+    private final Rect area;
+    private final Rect leftArea = new Rect(0, 0, 0, 0);
+    private final Rect rightArea = new Rect(0, 0, 0, 0);
     private int splitAxis;  // which axis is split
     private int splitPos;   // where it is split (absolute)
     private BSPNode left;
@@ -52,9 +55,6 @@ public final class BSPNode
         this.area = area;
         this.splitAxis = splitAxis;
         this.splitPos = splitPos;
-        
-        // actorNodes = new LinkedList<ActorNode>();
-        actors = new HashMap<Actor, ActorNode>();
     }
     
     /**
@@ -77,9 +77,12 @@ public final class BSPNode
         }
     }
     
+    /**
+     * Set the area of this node. The area is copied; the given Rect is not retained.
+     */
     public void setArea(Rect area)
     {
-        this.area = area;
+        this.area.copyFrom(area);
         areaRipple = true;
     }
     
@@ -109,24 +112,34 @@ public final class BSPNode
         return splitPos;
     }
 
+    /**
+     * Get the area on the left of the split. The same Rect is returned (with
+     * its value recalculated) by each call, so it must not be modified or kept.
+     */
     public Rect getLeftArea()
     {
         if (splitAxis == IBSPColChecker.X_AXIS) {
-            return new Rect(area.getX(), area.getY(), splitPos - area.getX(), area.getHeight());
+            leftArea.set(area.getX(), area.getY(), splitPos - area.getX(), area.getHeight());
         }
         else {
-            return new Rect(area.getX(), area.getY(), area.getWidth(), splitPos - area.getY());
+            leftArea.set(area.getX(), area.getY(), area.getWidth(), splitPos - area.getY());
         }
+        return leftArea;
     }
     
+    /**
+     * Get the area on the right of the split. The same Rect is returned (with
+     * its value recalculated) by each call, so it must not be modified or kept.
+     */
     public Rect getRightArea()
     {
         if (splitAxis == IBSPColChecker.X_AXIS) {
-            return new Rect(splitPos, area.getY(), area.getRight() - splitPos, area.getHeight());
+            rightArea.set(splitPos, area.getY(), area.getRight() - splitPos, area.getHeight());
         }
         else {
-            return new Rect(area.getX(), splitPos, area.getWidth(), area.getTop() - splitPos);
+            rightArea.set(area.getX(), splitPos, area.getWidth(), area.getTop() - splitPos);
         }
+        return rightArea;
     }
     
     /**
@@ -193,7 +206,13 @@ public final class BSPNode
     
     public void addActor(Actor actor)
     {
-        actors.put(actor, new ActorNode(actor, this));
+        ActorNode anode = ActorNodeCache.getActorNode(actor, this);
+        anode.nodeNext = firstActor;
+        if (firstActor != null) {
+            firstActor.nodePrev = anode;
+        }
+        firstActor = anode;
+        numberActors++;
     }
     
     /**
@@ -202,22 +221,39 @@ public final class BSPNode
      */
     public boolean containsActor(Actor actor)
     {
-        ActorNode anode = actors.get(actor);
-        if (anode != null) {
-            anode.mark();
-            return true;
+        // An actor is only in a few nodes, so search the actor's nodes
+        // rather than the actors in this node:
+        ActorNode anode = IBSPColChecker.getNodeForActor(actor);
+        while (anode != null) {
+            if (anode.getBSPNode() == this) {
+                anode.mark();
+                return true;
+            }
+            anode = anode.getNext();
         }
         return false;
     }
     
-    public void actorRemoved(Actor actor)
+    /**
+     * Remove an actor node from the list of actor nodes in this node.
+     */
+    void actorRemoved(ActorNode anode)
     {
-        actors.remove(actor);
+        if (anode.nodePrev == null) {
+            firstActor = anode.nodeNext;
+        }
+        else {
+            anode.nodePrev.nodeNext = anode.nodeNext;
+        }
+        if (anode.nodeNext != null) {
+            anode.nodeNext.nodePrev = anode.nodePrev;
+        }
+        numberActors--;
     }
     
     public int numberActors()
     {
-        return actors.size();
+        return numberActors;
     }
     
     /**
@@ -225,28 +261,45 @@ public final class BSPNode
      */
     public boolean isEmpty()
     {
-        return actors.isEmpty();
-    }
-    
-    public Iterator<Map.Entry<Actor, ActorNode>> getEntriesIterator()
-    {
-        return actors.entrySet().iterator();
+        return firstActor == null;
     }
     
     public Iterator<Actor> getActorsIterator()
     {
-        return actors.keySet().iterator();
+        return new Iterator<Actor>() {
+            private ActorNode anode = firstActor;
+            
+            public boolean hasNext()
+            {
+                return anode != null;
+            }
+            
+            public Actor next()
+            {
+                if (anode == null) {
+                    throw new NoSuchElementException();
+                }
+                Actor actor = anode.getActor();
+                anode = anode.nodeNext;
+                return actor;
+            }
+        };
     }
     
     public List<Actor> getActorsList()
     {
-        return new ArrayList<Actor>(actors.keySet());
+        List<Actor> list = new ArrayList<Actor>(numberActors);
+        for (ActorNode anode = firstActor; anode != null; anode = anode.nodeNext) {
+            list.add(anode.getActor());
+        }
+        return list;
     }
     
     // Blanks the node.  Used by BSPNodeCache 
     void blankNode()
     {
-        actors.clear();
+        firstActor = null;
+        numberActors = 0;
     }
     
     public void areaChanged()
@@ -49,11 +49,6 @@ public class IBSPColChecker implements CollisionChecker
     
     public static final int REBALANCE_THRESHOLD = 20;
     
-    private GOCollisionQuery actorQuery = new GOCollisionQuery();
-    private NeighbourCollisionQuery neighbourQuery = new NeighbourCollisionQuery();
-    private PointCollisionQuery pointQuery = new PointCollisionQuery();
-    private InRangeQuery inRangeQuery = new InRangeQuery();
-    
     private int cellSize;
     
     private BSPNode bspTree;
@@ -151,7 +146,7 @@ public class IBSPColChecker implements CollisionChecker
                 }
             }
             
-            insertObject(actor, bounds, bounds, treeArea, bspTree);
+            insertObject(actor, bounds, treeArea, bspTree);
         }
         // checkConsistency(true);
     }
@@ -209,11 +204,10 @@ public class IBSPColChecker implements CollisionChecker
      * 
      * @param actor   The actor to insert
      * @param actorBounds  The total bounds of the actor
-     * @param bounds  The bounds of the actor (limited to the present area)
      * @param area    The total area represented by the current search node
      * @param node    The current search node (null, if the search has reached its end!)
      */
-    private void insertObject(Actor actor, Rect actorBounds, Rect bounds, Rect area, BSPNode node)
+    private void insertObject(Actor actor, Rect actorBounds, Rect area, BSPNode node)
     {
         // the current search node might already contain the
         // actor...
@@ -229,32 +223,31 @@ public class IBSPColChecker implements CollisionChecker
             return;
         }
 
-        // The search continues...
+        // The search continues... (The child areas lie within this node's area,
+        // so the actor's total bounds intersect a child area exactly when the
+        // part of the actor within this area does.)
         Rect leftArea = node.getLeftArea();
         Rect rightArea = node.getRightArea();
 
-        Rect leftIntersects = Rect.getIntersection(leftArea, bounds);
-        Rect rightIntersects = Rect.getIntersection(rightArea, bounds);
-
-        if (leftIntersects != null) {
+        if (Rect.hasIntersection(leftArea, actorBounds)) {
             if (node.getLeft() == null) {
                 BSPNode newLeft = createNewNode(leftArea);
                 newLeft.addActor(actor);
                 node.setChild(PARENT_LEFT, newLeft);
             }
             else {
-                insertObject(actor, actorBounds, leftIntersects, leftArea, node.getLeft());
+                insertObject(actor, actorBounds, leftArea, node.getLeft());
             }
         }
 
-        if (rightIntersects != null) {
+        if (Rect.hasIntersection(rightArea, actorBounds)) {
             if (node.getRight() == null) {
                 BSPNode newRight = createNewNode(rightArea);
                 newRight.addActor(actor);
                 node.setChild(PARENT_RIGHT, newRight);
             }
             else {
-                insertObject(actor, actorBounds, rightIntersects, rightArea, node.getRight());
+                insertObject(actor, actorBounds, rightArea, node.getRight());
             }
         }
     }
@@ -508,7 +501,7 @@ public class IBSPColChecker implements CollisionChecker
                 
         // Note, we can pass null as the parent because bspNode is guaranteed not to be null.
         bspArea = bspNode.getArea();
-        insertObject(object, newBounds, newBounds, bspArea, bspNode);
+        insertObject(object, newBounds, bspArea, bspNode);
         
         // Finally, it's possible the object changed size and therefore has been stored
         // in higher nodes than previously. This means there are duplicate actor nodes.
@@ -698,12 +691,13 @@ public class IBSPColChecker implements CollisionChecker
     @SuppressWarnings("unchecked")
     public <T extends Actor> List<T> getObjectsAt(int x, int y, Class<T> cls)
     {
-        synchronized (pointQuery) {
-            int px = x * cellSize + cellSize / 2;
-            int py = y * cellSize + cellSize / 2;
-            pointQuery.init(px, py, cls);
-            return (List<T>) getIntersectingObjects(new Rect(px, py, 1, 1), pointQuery);
-        }
+        // The queries use their own query objects, so that they may be made
+        // concurrently (while actors act in parallel):
+        int px = x * cellSize + cellSize / 2;
+        int py = y * cellSize + cellSize / 2;
+        PointCollisionQuery pointQuery = new PointCollisionQuery();
+        pointQuery.init(px, py, cls);
+        return (List<T>) getIntersectingObjects(new Rect(px, py, 1, 1), pointQuery);
     }
 
     @SuppressWarnings("unchecked")
@@ -712,10 +706,9 @@ public class IBSPColChecker implements CollisionChecker
     {
         Rect r = getActorBounds(actor);
         
-        synchronized (actorQuery) {
-            actorQuery.init(cls, actor);
-            return (List<T>) getIntersectingObjects(r, actorQuery);
-        }
+        GOCollisionQuery actorQuery = new GOCollisionQuery();
+        actorQuery.init(cls, actor);
+        return (List<T>) getIntersectingObjects(r, actorQuery);
     }
 
     @SuppressWarnings("unchecked")
@@ -730,19 +723,16 @@ public class IBSPColChecker implements CollisionChecker
                 size,
                 size);
         
-        List<T> result;
-        synchronized (actorQuery) {
-            actorQuery.init(cls, null);
-            result = (List<T>) getIntersectingObjects(rect, actorQuery);
-        }
+        GOCollisionQuery actorQuery = new GOCollisionQuery();
+        actorQuery.init(cls, null);
+        List<T> result = (List<T>) getIntersectingObjects(rect, actorQuery);
         
         Iterator<T> i = result.iterator();
-        synchronized (inRangeQuery) {
-            inRangeQuery.init(x * cellSize + halfCell , y * cellSize + halfCell, r * cellSize);
-            while (i.hasNext()) {
-                if (! inRangeQuery.checkCollision(i.next())) {
-                    i.remove();
-                }
+        InRangeQuery inRangeQuery = new InRangeQuery();
+        inRangeQuery.init(x * cellSize + halfCell , y * cellSize + halfCell, r * cellSize);
+        while (i.hasNext()) {
+            if (! inRangeQuery.checkCollision(i.next())) {
+                i.remove();
             }
         }
         
@@ -761,11 +751,10 @@ public class IBSPColChecker implements CollisionChecker
         
         Rect r = new Rect(xPixel - dPixel, yPixel - dPixel, dPixel * 2 + 1, dPixel * 2 + 1);
         
-        synchronized (neighbourQuery) {
-            neighbourQuery.init(x, y, distance, diag, cls);
-            List<T> res = (List<T>) getIntersectingObjects(r, neighbourQuery);
-            return res;
-        }
+        NeighbourCollisionQuery neighbourQuery = new NeighbourCollisionQuery();
+        neighbourQuery.init(x, y, distance, diag, cls);
+        List<T> res = (List<T>) getIntersectingObjects(r, neighbourQuery);
+        return res;
     }
 
     public <T extends Actor> List<T> getObjectsInDirection(int x, int y,
@@ -822,43 +811,41 @@ public class IBSPColChecker implements CollisionChecker
     public <T extends Actor> T getOneObjectAt(Actor object, int dx, int dy,
             Class<T> cls)
     {
-        synchronized (pointQuery) {
-            int px = dx * cellSize + cellSize / 2;
-            int py = dy * cellSize + cellSize / 2;
-            pointQuery.init(px, py, cls);
-            CollisionQuery query = pointQuery;
-            if (cls != null) {
-                query = new ClassQuery(cls, pointQuery);
-            }
-            // Use of getOneIntersectingDown is ok, because the area is only 1x1 pixel
-            // in size - it will be contained by all nodes.
-            return (T) getOneIntersectingDown(new Rect(px, py, 1, 1), query, object);
+        int px = dx * cellSize + cellSize / 2;
+        int py = dy * cellSize + cellSize / 2;
+        PointCollisionQuery pointQuery = new PointCollisionQuery();
+        pointQuery.init(px, py, cls);
+        CollisionQuery query = pointQuery;
+        if (cls != null) {
+            query = new ClassQuery(cls, pointQuery);
         }
+        // Use of getOneIntersectingDown is ok, because the area is only 1x1 pixel
+        // in size - it will be contained by all nodes.
+        return (T) getOneIntersectingDown(new Rect(px, py, 1, 1), query, object);
     }
 
     @SuppressWarnings("unchecked")
     public <T extends Actor> T getOneIntersectingObject(Actor actor, Class<T> cls)
     {
         Rect r = getActorBounds(actor);
-        synchronized (actorQuery) {
-            actorQuery.init(cls, actor);
-            
-            ActorNode node = getNodeForActor(actor);
-            do {
-                BSPNode bspNode = node.getBSPNode();
-                T ret = (T) getOneObjectDownTree(actor, r, actorQuery, bspNode);
-                if (ret != null) {
-                    return ret;
-                }
-                ret = (T) getOneIntersectingUp(r, actorQuery, actor, bspNode.getParent());
-                if (ret != null) {
-                    return ret;
-                }
-                node = node.getNext();
+        GOCollisionQuery actorQuery = new GOCollisionQuery();
+        actorQuery.init(cls, actor);
+        
+        ActorNode node = getNodeForActor(actor);
+        do {
+            BSPNode bspNode = node.getBSPNode();
+            T ret = (T) getOneObjectDownTree(actor, r, actorQuery, bspNode);
+            if (ret != null) {
+                return ret;
             }
-            while (node != null);
-            return (T) getOneIntersectingDown(r, actorQuery, actor);
+            ret = (T) getOneIntersectingUp(r, actorQuery, actor, bspNode.getParent());
+            if (ret != null) {
+                return ret;
+            }
+            node = node.getNext();
         }
+        while (node != null);
+        return (T) getOneIntersectingDown(r, actorQuery, actor);
     }
 
     public void paintDebug(Graphics g)
@@ -33,6 +33,17 @@ final public class Rect
         this.height = height;
     }
     
+    /**
+     * Set the position and size of this rectangle.
+     */
+    public void set(int x, int y, int width, int height)
+    {
+        this.x = x;
+        this.y = y;
+        this.width = width;
+        this.height = height;
+    }
+    
     public void copyFrom(Rect other)
     {
         this.x = other.x;
@@ -119,6 +130,16 @@ final public class Rect
         }
     }
     
+    /**
+     * Check whether two rectangles intersect, with the same meaning as
+     * getIntersection(a, b) != null, but without creating the intersection.
+     */
+    public static boolean hasIntersection(Rect a, Rect b)
+    {
+        return Math.max(a.x, b.x) < Math.min(a.getRight(), b.getRight())
+                && Math.max(a.y, b.y) < Math.min(a.getTop(), b.getTop());
+    }
+    
     public static boolean equals(Rect a, Rect b)
     {
         return a.x == b.x && a.y == b.y &&
@@ -115,6 +115,7 @@ public class GreenfootMain
 
             projectProperties = new ShadowProjectProperties();
             ActorDelegateIDE.setupAsActorDelegate(projectProperties);
+            ImageCache.getInstance().setProjectProperties(projectProperties);
 
             EventQueue.invokeLater(new Runnable() {
                 @Override
@@ -132,6 +133,7 @@ public class GreenfootMain
                     WorldHandler worldHandler = WorldHandler.getInstance();
                     Simulation.initialize();
                     Simulation sim = Simulation.getInstance();
+                    sim.setProjectProperties(projectProperties);
 
                     sim.addSimulationListener(new SimulationListener() {
                         @OnThread(Tag.Simulation)
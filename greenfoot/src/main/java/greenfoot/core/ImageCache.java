@@ -23,14 +23,19 @@ package greenfoot.core;
 
 import greenfoot.GreenfootImage;
 
-import java.lang.ref.Reference;
-import java.lang.ref.ReferenceQueue;
-import java.lang.ref.SoftReference;
-import java.util.HashMap;
-import java.util.Map;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Set;
 
 /**
- * An image cache, which uses soft references to avoid holding images when heap space becomes exhausted.
+ * An image cache, which holds the images loaded from files so that they do not have
+ * to be loaded and decoded again. The cache is limited by the memory used by the
+ * images; when it is full, the least recently used images are dropped. The limit can
+ * be set (in megabytes) with the project property "imageCache.size".
+ * 
+ * <p>The cached images are copy-on-write, so they share their pixels with the images
+ * created from them until either is changed.
  * 
  * @author Davin McCall
  */
@@ -38,20 +43,23 @@ public class ImageCache
 {
     private static ImageCache instance = new ImageCache();
     
-    /** A soft reference to a cached image */
-    private class CachedImageRef extends SoftReference<GreenfootImage>
-    {
-        String imgName;
-        
-        public CachedImageRef(String imgName, GreenfootImage image, ReferenceQueue<GreenfootImage> queue)
-        {
-            super(image, queue);
-            this.imgName = imgName;
-        }
-    }
+    /** The project property which sets the size of the cache, in megabytes */
+    public static final String SIZE_PROPERTY = "imageCache.size";
+    /** The default size of the cache, in megabytes */
+    public static final int DEFAULT_SIZE = 64;
     
-    private Map<String,CachedImageRef> imageCache = new HashMap<String,CachedImageRef>();
-    private ReferenceQueue<GreenfootImage> imgCacheRefQueue = new ReferenceQueue<GreenfootImage>();
+    /** The cached images, in order of use (least recently used first) */
+    private final LinkedHashMap<String,GreenfootImage> imageCache = new LinkedHashMap<String,GreenfootImage>(16, 0.75f, true);
+    /** Names of images which could not be loaded */
+    private final Set<String> nullImages = new HashSet<String>();
+    /** The memory used by the cached images, in bytes */
+    private long cachedBytes = 0;
+    
+    private ReadOnlyProjectProperties projectProperties;
+    
+    private long hits = 0;
+    private long misses = 0;
+    private long evictions = 0;
     
     /**
      * Retrieve the image cache instance.
@@ -60,25 +68,78 @@ public class ImageCache
     {
         return instance;
     }
+    
+    /**
+     * Set the project properties to read the size of the cache from. Until this is
+     * called (and if the property is not set) the default size is used.
+     */
+    public void setProjectProperties(ReadOnlyProjectProperties projectProperties)
+    {
+        synchronized (imageCache) {
+            this.projectProperties = projectProperties;
+        }
+    }
+
+    /**
+     * Get the maximum memory to be used by the cached images, in bytes.
+     */
+    public long getMaxBytes()
+    {
+        synchronized (imageCache) {
+            int megabytes = DEFAULT_SIZE;
+            if (projectProperties != null) {
+                try {
+                    megabytes = Integer.parseInt(projectProperties.getString(SIZE_PROPERTY, Integer.toString(DEFAULT_SIZE)).trim());
+                }
+                catch (NumberFormatException e) {
+                    // Use the default
+                }
+            }
+            return Math.max(0, megabytes) * 1024L * 1024L;
+        }
+    }
+
+    /**
+     * The memory used by an image's pixels, in bytes.
+     */
+    private static long getSizeInBytes(GreenfootImage image)
+    {
+        return (long) image.getWidth() * image.getHeight() * 4;
+    }
 
     /**
      * Requests that an image with associated name be added into the cache. The image may be null,
      * in which case the null response will be cached. Thread-safe.
      * 
-     * @return  whether the image was cached.
+     * <p>The image should be copy-on-write (and will not be changed by the cache).
+     * 
+     * @return  whether the image was cached; it is not if it is too large for the cache.
      */
     public boolean addCachedImage(String fileName, GreenfootImage image) 
     {
         synchronized (imageCache) {
-            if (image != null) {
-                CachedImageRef cr = new CachedImageRef(fileName, image, imgCacheRefQueue);
-                imageCache.put(fileName, cr);
+            removeCachedImage(fileName);
+            if (image == null) {
+                nullImages.add(fileName);
+                return true;
             }
-            else {
-                imageCache.put(fileName, null);
+            
+            long maxBytes = getMaxBytes();
+            long size = getSizeInBytes(image);
+            if (size > maxBytes) {
+                return false;
             }
+            imageCache.put(fileName, image);
+            cachedBytes += size;
+            
+            Iterator<GreenfootImage> it = imageCache.values().iterator();
+            while (cachedBytes > maxBytes) {
+                cachedBytes -= getSizeInBytes(it.next());
+                it.remove();
+                evictions++;
+            }
+            return true;
         }
-        return true;
     }
 
     /**
@@ -91,12 +152,14 @@ public class ImageCache
     public GreenfootImage getCachedImage(String fileName)
     { 
         synchronized (imageCache) {
-            flushImgCacheRefQueue();
-            CachedImageRef sr = imageCache.get(fileName);
-            if (sr != null) {
-                return sr.get();
+            GreenfootImage image = imageCache.get(fileName);
+            if (image != null) {
+                hits++;
+            }
+            else {
+                misses++;
             }
-            return null;
+            return image;
         }
     }
 
@@ -107,10 +170,11 @@ public class ImageCache
     public void removeCachedImage(String fileName)
     {
         synchronized (imageCache) {
-            CachedImageRef cr = imageCache.remove(fileName);
-            if (cr != null) {
-                cr.clear();
+            GreenfootImage image = imageCache.remove(fileName);
+            if (image != null) {
+                cachedBytes -= getSizeInBytes(image);
             }
+            nullImages.remove(fileName);
         }
     }
 
@@ -121,7 +185,7 @@ public class ImageCache
     public boolean isNullCachedImage(String fileName)
     {
         synchronized (imageCache) {
-            return imageCache.containsKey(fileName) && imageCache.get(fileName) == null;
+            return nullImages.contains(fileName);
         }
     }
 
@@ -132,26 +196,49 @@ public class ImageCache
     {
         synchronized (imageCache) {
             imageCache.clear();
-            imgCacheRefQueue = new ReferenceQueue<GreenfootImage>();
+            nullImages.clear();
+            cachedBytes = 0;
         }
     }
 
     /**
-     * Flush the image cache reference queue.
-     * <p>
-     * Because the images are cached via soft references, the references may be cleared, but the
-     * key will still map to the (cleared) reference. Calling this method occasionally removes such
-     * dead keys.
+     * The memory used by the cached images, in bytes.
      */
-    private void flushImgCacheRefQueue()
+    public long getCachedBytes()
     {
-        Reference<? extends GreenfootImage> ref = imgCacheRefQueue.poll();
-        while (ref != null) {
-            if (ref instanceof CachedImageRef) {
-                CachedImageRef cr = (CachedImageRef) ref;
-                imageCache.remove(cr.imgName);
-            }
-            ref = imgCacheRefQueue.poll();
+        synchronized (imageCache) {
+            return cachedBytes;
+        }
+    }
+
+    /**
+     * The number of times an image has been found in the cache.
+     */
+    public long getHits()
+    {
+        synchronized (imageCache) {
+            return hits;
+        }
+    }
+
+    /**
+     * The number of times an image has been looked for but was not in the cache.
+     */
+    public long getMisses()
+    {
+        synchronized (imageCache) {
+            return misses;
+        }
+    }
+
+    /**
+     * The number of images which have been dropped from the cache to make room
+     * for others.
+     */
+    public long getEvictions()
+    {
+        synchronized (imageCache) {
+            return evictions;
         }
     }
 }
@@ -0,0 +1,708 @@
+/*
+ This file is part of the Greenfoot program. 
+ Copyright (C) 2026  Poul Henriksen and Michael Kolling
+ 
+ This program is free software; you can redistribute it and/or 
+ modify it under the terms of the GNU General Public License 
+ as published by the Free Software Foundation; either version 2 
+ of the License, or (at your option) any later version. 
+ 
+ This program is distributed in the hope that it will be useful, 
+ but WITHOUT ANY WARRANTY; without even the implied warranty of 
+ MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the 
+ GNU General Public License for more details. 
+ 
+ You should have received a copy of the GNU General Public License 
+ along with this program; if not, write to the Free Software 
+ Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA. 
+ 
+ This file is subject to the Classpath exception as provided in the  
+ LICENSE.txt file that accompanied this code.
+ */
+package greenfoot.core;
+
+import bluej.Config;
+import greenfoot.Actor;
+import greenfoot.World;
+import greenfoot.WorldVisitor;
+import greenfoot.collision.TimedCollisionChecker;
+import greenfoot.gui.WorldRenderer;
+import greenfoot.platforms.WorldHandlerDelegate;
+import greenfoot.platforms.standalone.ActorDelegateStandAlone;
+import greenfoot.platforms.standalone.GreenfootUtilDelegateStandAlone;
+import greenfoot.util.GreenfootUtil;
+import greenfoot.util.StandalonePropStringManager;
+import threadchecker.OnThread;
+import threadchecker.Tag;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+
+/**
+ * Runs a Greenfoot scenario headless and reports how quickly it runs. The
+ * scenario's sources are compiled, its world is created, and it is run for a
+ * number of act rounds with no delay between rounds and without displaying it.
+ * The results (act rounds per second, round time percentiles and histogram, the
+ * time split between acting, collision checking and rendering, and allocation)
+ * are written as JSON, so that they can be compared between versions.
+ *
+ * <p>Usage: {@code ScenarioBenchmark <scenario directory> [options]}, where the
+ * options are:
+ * <ul>
+ * <li>{@code --world <class>}: the world class to run (default: the world
+ *     last instantiated in the scenario)
+ * <li>{@code --rounds <n>}: the number of act rounds to measure (default 1000)
+ * <li>{@code --warmup <n>}: the number of act rounds to run before measuring
+ *     (default 200)
+ * <li>{@code --render-every <n>}: render the world into an off-screen image
+ *     after every n rounds, or never if 0 (default 1)
+ * <li>{@code --output <file>}: where to write the JSON results (default:
+ *     standard output)
+ * </ul>
+ *
+ * <p>The allocation figures are for the benchmark thread only; allocation by
+ * actors acting in parallel (see World.setParallelAct) is not included.
+ */
+@OnThread(Tag.Simulation)
+public class ScenarioBenchmark
+{
+    private static final String USAGE = "Usage: ScenarioBenchmark <scenario directory> [--world <class>]"
+            + " [--rounds <n>] [--warmup <n>] [--render-every <n>] [--output <file>]";
+
+    /** The upper bound of the first histogram bucket, in microseconds. Each bucket doubles this. */
+    private static final int FIRST_BUCKET_MICROS = 16;
+    private static final int HISTOGRAM_BUCKETS = 16;
+
+    private File scenarioDir;
+    private String worldClassName;
+    private int rounds = 1000;
+    private int warmupRounds = 200;
+    private int renderEvery = 1;
+    private File outputFile;
+
+    /** Collision timers for each world which has acted */
+    private final Map<World, TimedCollisionChecker> collisionTimers = new IdentityHashMap<>();
+
+    public static void main(String[] args)
+    {
+        System.setProperty("java.awt.headless", "true");
+        ScenarioBenchmark benchmark = new ScenarioBenchmark();
+        try
+        {
+            benchmark.parseArgs(args);
+            String results = benchmark.run();
+            if (benchmark.outputFile == null)
+            {
+                System.out.println(results);
+            }
+            else
+            {
+                Files.write(benchmark.outputFile.toPath(), results.getBytes(StandardCharsets.UTF_8));
+            }
+        }
+        catch (IllegalArgumentException e)
+        {
+            System.err.println(e.getMessage());
+            System.err.println(USAGE);
+            System.exit(2);
+        }
+        catch (Throwable t)
+        {
+            t.printStackTrace();
+            System.exit(1);
+        }
+        // The scenario may have left other threads (such as sound) running:
+        System.exit(0);
+    }
+
+    /**
+     * Read the command line arguments into the options of this benchmark.
+     * 
+     * @throws IllegalArgumentException  if the arguments are not valid
+     */
+    void parseArgs(String[] args)
+    {
+        for (int i = 0; i < args.length; i++)
+        {
+            String arg = args[i];
+            if (arg.startsWith("--"))
+            {
+                if (i + 1 == args.length)
+                {
+                    throw new IllegalArgumentException("Missing value for " + arg);
+                }
+                String value = args[++i];
+                switch (arg)
+                {
+                    case "--world": worldClassName = value; break;
+                    case "--rounds": rounds = parseCount(arg, value, 1); break;
+                    case "--warmup": warmupRounds = parseCount(arg, value, 0); break;
+                    case "--render-every": renderEvery = parseCount(arg, value, 0); break;
+                    case "--output": outputFile = new File(value); break;
+                    default: throw new IllegalArgumentException("Unknown option: " + arg);
+                }
+            }
+            else if (scenarioDir == null)
+            {
+                scenarioDir = new File(arg);
+            }
+            else
+            {
+                throw new IllegalArgumentException("Unexpected argument: " + arg);
+            }
+        }
+
+        if (scenarioDir == null)
+        {
+            throw new IllegalArgumentException("No scenario directory given");
+        }
+        if (! scenarioDir.isDirectory())
+        {
+            throw new IllegalArgumentException("Not a directory: " + scenarioDir);
+        }
+    }
+
+    private static int parseCount(String option, String value, int minimum)
+    {
+        try
+        {
+            int count = Integer.parseInt(value);
+            if (count >= minimum)
+            {
+                return count;
+            }
+        }
+        catch (NumberFormatException nfe)
+        {
+            // Reported below
+        }
+        throw new IllegalArgumentException("The value for " + option + " must be a number, at least " + minimum);
+    }
+
+    /**
+     * Compile and run the scenario, and return the results as JSON.
+     */
+    private String run() throws Exception
+    {
+        Properties projectProperties = new Properties();
+        try (InputStream is = new FileInputStream(new File(scenarioDir, ExportedProjectProperties.GREENFOOT_PKG_NAME)))
+        {
+            projectProperties.load(is);
+        }
+        if (worldClassName == null)
+        {
+            worldClassName = projectProperties.getProperty("world.lastInstantiated",
+                    projectProperties.getProperty("main.class"));
+            if (worldClassName == null)
+            {
+                throw new IllegalArgumentException("No world class given, and the scenario does not record one");
+            }
+        }
+
+        File classesDir = Files.createTempDirectory("greenfoot-benchmark").toFile();
+        try
+        {
+            compileScenario(classesDir, projectProperties.getProperty("project.charset"));
+            ClassLoader loader = new URLClassLoader(new URL[] {classesDir.toURI().toURL(), scenarioDir.toURI().toURL()},
+                    ScenarioBenchmark.class.getClassLoader());
+            Thread.currentThread().setContextClassLoader(loader);
+            return runScenario(loader, projectProperties);
+        }
+        finally
+        {
+            deleteDirectory(classesDir);
+        }
+    }
+
+    /**
+     * Compile all the Java sources of the scenario into the given directory.
+     */
+    private void compileScenario(File classesDir, String charset) throws IOException
+    {
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        if (compiler == null)
+        {
+            throw new IOException("No Java compiler is available; the benchmark must be run using a JDK");
+        }
+        File[] sources = scenarioDir.listFiles((dir, name) -> name.endsWith(".java"));
+        if (sources == null || sources.length == 0)
+        {
+            throw new IllegalArgumentException("No Java source files in " + scenarioDir);
+        }
+
+        String encoding = "UTF-8";
+        try
+        {
+            if (charset != null && Charset.isSupported(charset))
+            {
+                encoding = charset;
+            }
+        }
+        catch (IllegalArgumentException iae)
+        {
+            // Illegal charset name; use the default
+        }
+
+        List<String> options = Arrays.asList("-d", classesDir.getPath(),
+                "-classpath", System.getProperty("java.class.path"),
+                "-encoding", encoding, "-nowarn");
+        try (StandardJavaFileManager fileManager = compiler.getStandardFileManager(null, null, null))
+        {
+            Iterable<? extends JavaFileObject> units = fileManager.getJavaFileObjects(sources);
+            if (! compiler.getTask(null, fileManager, null, options, null, units).call())
+            {
+                throw new IOException("The scenario in " + scenarioDir + " did not compile");
+            }
+        }
+    }
+
+    /**
+     * Set up Greenfoot to run headless, create the world, and run and measure
+     * the act rounds.
+     */
+    String runScenario(ClassLoader loader, Properties projectProperties) throws Exception
+    {
+        Config.initializeStandalone(new StandalonePropStringManager(new Properties()));
+        GreenfootUtil.initialise(new BenchmarkUtilDelegate(loader));
+        ActorDelegateStandAlone.setupAsActorDelegate();
+        ActorDelegateStandAlone.initProperties(projectProperties::getProperty);
+        ImageCache.getInstance().setProjectProperties(projectProperties::getProperty);
+
+        Simulation.initialize();
+        BenchmarkWorldHandlerDelegate delegate = new BenchmarkWorldHandlerDelegate(renderEvery);
+        WorldHandler.initialise(delegate);
+        WorldHandler worldHandler = WorldHandler.getInstance();
+        Simulation sim = Simulation.getInstance();
+        sim.attachWorldHandlerHeadless(worldHandler);
+
+        Class<?> worldClass = Class.forName(worldClassName, true, loader);
+        World world = (World) worldClass.getConstructor().newInstance();
+        if (! worldHandler.checkWorldSet())
+        {
+            worldHandler.setWorld(world, false);
+        }
+        worldHandler.getWorld().started();
+
+        for (int i = 0; i < warmupRounds; i++)
+        {
+            runRound(sim, worldHandler);
+        }
+
+        // Measure:
+        ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+        com.sun.management.ThreadMXBean allocationBean = null;
+        if (threadBean instanceof com.sun.management.ThreadMXBean
+                && ((com.sun.management.ThreadMXBean) threadBean).isThreadAllocatedMemorySupported())
+        {
+            allocationBean = (com.sun.management.ThreadMXBean) threadBean;
+            allocationBean.setThreadAllocatedMemoryEnabled(true);
+        }
+
+        long[] roundTimes = new long[rounds];
+        long collisionQueryStart = totalCollisionQueryTime();
+        long collisionUpdateStart = totalCollisionUpdateTime();
+        long queryCountStart = totalCollisionQueryCount();
+        long renderStart = delegate.renderTime;
+        int framesStart = delegate.framesRendered;
+        long gcCountStart = gcCount();
+        long gcTimeStart = gcTime();
+        long allocatedStart = allocationBean == null ? 0 : allocationBean.getCurrentThreadAllocatedBytes();
+        long start = System.nanoTime();
+
+        for (int i = 0; i < rounds; i++)
+        {
+            long roundStart = System.nanoTime();
+            runRound(sim, worldHandler);
+            roundTimes[i] = System.nanoTime() - roundStart;
+        }
+
+        long totalTime = System.nanoTime() - start;
+        long allocated = allocationBean == null ? -1 : allocationBean.getCurrentThreadAllocatedBytes() - allocatedStart;
+        long collisionQueryTime = totalCollisionQueryTime() - collisionQueryStart;
+        long collisionUpdateTime = totalCollisionUpdateTime() - collisionUpdateStart;
+        long renderTime = delegate.renderTime - renderStart;
+        long actTime = totalTime - collisionQueryTime - collisionUpdateTime - renderTime;
+
+        Arrays.sort(roundTimes);
+        JsonWriter json = new JsonWriter();
+        json.field("scenario", scenarioDir.getAbsolutePath());
+        json.field("world", worldClassName);
+        json.field("rounds", rounds);
+        json.field("warmupRounds", warmupRounds);
+        json.field("renderEvery", renderEvery);
+        json.field("actors", worldHandler.getWorld().numberOfObjects());
+        json.field("totalTimeMs", millis(totalTime));
+        json.field("actRoundsPerSecond", rounds / (totalTime / 1e9));
+        json.startObject("roundTimeMicros");
+        json.field("mean", micros(totalTime / rounds));
+        json.field("p50", micros(percentile(roundTimes, 50)));
+        json.field("p90", micros(percentile(roundTimes, 90)));
+        json.field("p99", micros(percentile(roundTimes, 99)));
+        json.field("max", micros(roundTimes[rounds - 1]));
+        json.endObject();
+        json.startObject("timeSplitMs");
+        json.field("act", millis(actTime));
+        json.field("collisionQueries", millis(collisionQueryTime));
+        json.field("collisionUpdates", millis(collisionUpdateTime));
+        json.field("render", millis(renderTime));
+        json.endObject();
+        json.field("collisionQueries", totalCollisionQueryCount() - queryCountStart);
+        json.field("framesRendered", delegate.framesRendered - framesStart);
+        json.startObject("allocation");
+        json.field("bytes", allocated);
+        json.field("bytesPerRound", allocated < 0 ? -1 : allocated / rounds);
+        json.field("mbPerSecond", allocated < 0 ? -1 : allocated / (1024.0 * 1024.0) / (totalTime / 1e9));
+        json.endObject();
+        json.startObject("gc");
+        json.field("collections", gcCount() - gcCountStart);
+        json.field("timeMs", gcTime() - gcTimeStart);
+        json.endObject();
+        json.startArray("roundTimeHistogram");
+        for (int bucket = 0, index = 0; bucket < HISTOGRAM_BUCKETS; bucket++)
+        {
+            long limit = (bucket == HISTOGRAM_BUCKETS - 1) ? Long.MAX_VALUE
+                    : (FIRST_BUCKET_MICROS * 1000L) << bucket;
+            int count = 0;
+            while (index < rounds && roundTimes[index] < limit)
+            {
+                count++;
+                index++;
+            }
+            json.startObject(null);
+            json.field("belowMicros", limit == Long.MAX_VALUE ? -1 : limit / 1000);
+            json.field("count", count);
+            json.endObject();
+        }
+        json.endArray();
+        return json.finish();
+    }
+
+    /**
+     * Run one act round of the current world, making sure its collision checking is timed.
+     */
+    private void runRound(Simulation sim, WorldHandler worldHandler)
+    {
+        World world = worldHandler.getWorld();
+        if (world != null && ! collisionTimers.containsKey(world))
+        {
+            WorldVisitor.wrapCollisionChecker(world, checker -> {
+                TimedCollisionChecker timer = new TimedCollisionChecker(checker);
+                collisionTimers.put(world, timer);
+                return timer;
+            });
+        }
+        if (! sim.runRound())
+        {
+            throw new IllegalStateException("There is no world to act");
+        }
+    }
+
+    private long totalCollisionQueryTime()
+    {
+        return collisionTimers.values().stream().mapToLong(TimedCollisionChecker::getQueryTime).sum();
+    }
+
+    private long totalCollisionUpdateTime()
+    {
+        return collisionTimers.values().stream().mapToLong(TimedCollisionChecker::getUpdateTime).sum();
+    }
+
+    private long totalCollisionQueryCount()
+    {
+        return collisionTimers.values().stream().mapToLong(TimedCollisionChecker::getQueryCount).sum();
+    }
+
+    private static long gcCount()
+    {
+        long count = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans())
+        {
+            count += Math.max(0, gc.getCollectionCount());
+        }
+        return count;
+    }
+
+    private static long gcTime()
+    {
+        long time = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans())
+        {
+            time += Math.max(0, gc.getCollectionTime());
+        }
+        return time;
+    }
+
+    /**
+     * Get a percentile from a sorted array of times.
+     */
+    private static long percentile(long[] sortedTimes, int percent)
+    {
+        int index = (int) Math.ceil(sortedTimes.length * percent / 100.0) - 1;
+        return sortedTimes[Math.max(0, Math.min(index, sortedTimes.length - 1))];
+    }
+
+    private static double millis(long nanos)
+    {
+        return nanos / 1e6;
+    }
+
+    private static double micros(long nanos)
+    {
+        return nanos / 1e3;
+    }
+
+    private static void deleteDirectory(File dir)
+    {
+        File[] children = dir.listFiles();
+        if (children != null)
+        {
+            for (File child : children)
+            {
+                deleteDirectory(child);
+            }
+        }
+        dir.delete();
+    }
+
+    /**
+     * Loads resources (images and sounds) from the scenario's class loader.
+     */
+    private static class BenchmarkUtilDelegate extends GreenfootUtilDelegateStandAlone
+    {
+        private final ClassLoader loader;
+
+        public BenchmarkUtilDelegate(ClassLoader loader)
+        {
+            this.loader = loader;
+        }
+
+        @Override
+        @OnThread(Tag.Any)
+        public URL getResource(String path)
+        {
+            return loader.getResource(path.replace('\\', '/'));
+        }
+
+        @Override
+        @OnThread(Tag.Any)
+        public String getGreenfootLogoPath()
+        {
+            // The logo is at the top of an exported scenario's jar, but Greenfoot's
+            // own build has it in the images directory:
+            URL logo = loader.getResource("greenfoot.png");
+            if (logo == null)
+            {
+                logo = loader.getResource("images/greenfoot.png");
+            }
+            return logo == null ? "" : logo.toString();
+        }
+    }
+
+    /**
+     * A world handler delegate with no display. The world is rendered into an
+     * off-screen image (every renderEvery paints), and the time taken recorded.
+     */
+    private static class BenchmarkWorldHandlerDelegate implements WorldHandlerDelegate
+    {
+        private final int renderEvery;
+        private final WorldRenderer worldRenderer = new WorldRenderer();
+        private BufferedImage worldImage;
+        private int paintCount;
+
+        /** Total time spent rendering, in nanoseconds */
+        private long renderTime;
+        private int framesRendered;
+
+        public BenchmarkWorldHandlerDelegate(int renderEvery)
+        {
+            this.renderEvery = renderEvery;
+        }
+
+        @Override
+        @OnThread(Tag.Any)
+        public void setWorld(World oldWorld, World newWorld)
+        {
+        }
+
+        @Override
+        @OnThread(Tag.Any)
+        public void instantiateNewWorld(String className, Runnable runIfError)
+        {
+            // Resetting is not supported while benchmarking
+            runIfError.run();
+        }
+
+        @Override
+        @OnThread(Tag.Any)
+        public void discardWorld(World world)
+        {
+        }
+
+        @Override
+        public void objectAddedToWorld(Actor actor)
+        {
+        }
+
+        @Override
+        public String ask(String prompt)
+        {
+            return "";
+        }
+
+        @Override
+        public void paint(World world, boolean forcePaint)
+        {
+            if (world == null || renderEvery == 0 || (++paintCount % renderEvery) != 0)
+            {
+                return;
+            }
+
+            long start = System.nanoTime();
+            int width = WorldVisitor.getWidthInPixels(world);
+            int height = WorldVisitor.getHeightInPixels(world);
+            if (worldImage == null || worldImage.getWidth() != width || worldImage.getHeight() != height)
+            {
+                worldImage = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+            }
+            worldRenderer.renderWorld(world, worldImage);
+            renderTime += System.nanoTime() - start;
+            framesRendered++;
+        }
+
+        @Override
+        public void notifyStoppedWithError()
+        {
+        }
+    }
+
+    /**
+     * A minimal writer for the JSON results.
+     */
+    static class JsonWriter
+    {
+        private final StringBuilder json = new StringBuilder("{");
+        /** Whether the current object or array has had any members written yet */
+        private boolean empty = true;
+        private int depth = 1;
+
+        private void name(String name)
+        {
+            json.append(empty ? "\n" : ",\n");
+            for (int i = 0; i < depth; i++)
+            {
+                json.append("  ");
+            }
+            if (name != null)
+            {
+                string(name);
+                json.append(": ");
+            }
+            empty = false;
+        }
+
+        private void string(String s)
+        {
+            json.append('"');
+            for (char c : s.toCharArray())
+            {
+                if (c == '"' || c == '\\')
+                {
+                    json.append('\\').append(c);
+                }
+                else if (c < ' ')
+                {
+                    json.append(String.format("\\u%04x", (int) c));
+                }
+                else
+                {
+                    json.append(c);
+                }
+            }
+            json.append('"');
+        }
+
+        public void field(String name, String value)
+        {
+            name(name);
+            string(value);
+        }
+
+        public void field(String name, long value)
+        {
+            name(name);
+            json.append(value);
+        }
+
+        public void field(String name, double value)
+        {
+            name(name);
+            json.append(String.format(Locale.ROOT, "%.3f", value));
+        }
+
+        public void startObject(String name)
+        {
+            name(name);
+            json.append('{');
+            empty = true;
+            depth++;
+        }
+
+        public void startArray(String name)
+        {
+            name(name);
+            json.append('[');
+            empty = true;
+            depth++;
+        }
+
+        private void end(char close)
+        {
+            depth--;
+            json.append('\n');
+            for (int i = 0; i < depth; i++)
+            {
+                json.append("  ");
+            }
+            json.append(close);
+            empty = false;
+        }
+
+        public void endObject()
+        {
+            end('}');
+        }
+
+        public void endArray()
+        {
+            end(']');
+        }
+
+        public String finish()
+        {
+            end('}');
+            return json.toString();
+        }
+    }
+}
@@ -41,6 +41,8 @@ import java.util.Collection;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Queue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 
 import javax.swing.event.EventListenerList;
 
@@ -60,12 +62,21 @@ public class Simulation extends Thread
     // All user code should generally be run on the simulation thread. The simulation monitor
     // should not be held while executing user code (though the world lock should be held).
     
-    // The following two constants control repainting of the world while the simulation is
-    // running. We skip repaints if the simulation is running faster than the MAX_FRAME_RATE.
-    // This makes the high speeds run faster, since we avoid repaints that can't be seen
-    // anyway. Once requested, the repaint may take some time to occur; if the effective
-    // repaint rate falls below MIN_FRAME_RATE, then we temporarily suspend the simulation
-    // and wait for the repaint to occur.
+    // While the simulation is running, act rounds and repaints of the world are scheduled
+    // by a TickScheduler: act rounds at the period given by the speed, and repaints at most
+    // PAINT_PERIOD apart, independently of the act rounds. This makes the high speeds run
+    // faster, since we avoid repaints that can't be seen anyway.
+    //
+    // The repaints themselves are done here, on the simulation thread, between act rounds:
+    // rendering reads the actors and the pixels of their images, which user code may change
+    // at any time during an act round, so it cannot run alongside the act rounds without
+    // copying the world first. Only the rendered image is handed to another thread: the
+    // delegate passes on the latest one, dropping any which have not been sent in time.
+
+    /** The project property which turns on catching up of missed act rounds */
+    public static final String CATCH_UP_PROPERTY = "simulation.catchUp";
+    /** The shortest time between repaints while running, in nanoseconds */
+    private static final long PAINT_PERIOD = TickScheduler.DEFAULT_PAINT_PERIOD;
     
     @OnThread(Tag.Any)
     private WorldHandler worldHandler;
@@ -96,8 +107,13 @@ public class Simulation extends Thread
     @OnThread(value = Tag.Any, requireSynchronized = true)
     private int speed; // the simulation speed in range (1..100)
 
-    private long lastDelayTime;
     private long delay; // the speed translated into delay (nanoseconds)
+    /** Schedules act rounds and repaints while running; delay is its tick period. */
+    @OnThread(Tag.Any)
+    private final TickScheduler scheduler;
+    /** The project properties, used to check whether to catch up; may be null. */
+    @OnThread(value = Tag.Any, requireSynchronized = true)
+    private ReadOnlyProjectProperties projectProperties;
 
     /**
      * Lock to synchronize access to the two fields: delaying and interruptDelay
@@ -119,6 +135,10 @@ public class Simulation extends Thread
     
     /** flag to indicate that we want to abort the simulation and never start it again. */
     private volatile boolean abort;
+    
+    /** Pool of threads for actors which act in parallel; created when first needed. */
+    @OnThread(value = Tag.Any, requireSynchronized = true)
+    private static ForkJoinPool parallelActPool;
 
     /**
      * Create new simulation. Leaves the simulation in paused state
@@ -131,6 +151,7 @@ public class Simulation extends Thread
         paused = true;
         speed = 50;
         delay = calculateDelay(speed);
+        scheduler = new TickScheduler(delay, PAINT_PERIOD);
         HDTimer.init();
     }
     
@@ -154,16 +175,61 @@ public class Simulation extends Thread
         return instance;
     }
 
+    /**
+     * Set the project properties. Whether missed act rounds are caught up (see
+     * TickScheduler) is read from these each time the simulation starts running.
+     */
+    @OnThread(Tag.Any)
+    public synchronized void setProjectProperties(ReadOnlyProjectProperties projectProperties)
+    {
+        this.projectProperties = projectProperties;
+    }
+
     /**
      * Attach this simulation to the world handler (and vice versa).
      */
     @OnThread(Tag.Any)
     public void attachWorldHandler(WorldHandler worldHandler)
+    {
+        attachWorldHandlerHeadless(worldHandler);
+        start();
+    }
+    
+    /**
+     * Attach this simulation to the world handler (and vice versa) without
+     * starting the simulation thread. Act rounds must then be run explicitly
+     * using runRound(). Used for running scenarios headless, by ScenarioBenchmark.
+     */
+    @OnThread(Tag.Any)
+    public void attachWorldHandlerHeadless(WorldHandler worldHandler)
     {
         this.worldHandler = worldHandler;
         worldHandler.addWorldListener(this);
         addSimulationListener(worldHandler);
-        start();
+    }
+    
+    /**
+     * Run a single act round of the current world on the calling thread, with
+     * no delay, after running any queued tasks. The world is then painted
+     * (without forcing) as the running simulation would paint it after a
+     * round. This is only for use when the simulation thread has not been
+     * started (see attachWorldHandlerHeadless).
+     * 
+     * @return  false if there was no (enabled) world to act
+     * @throws ActInterruptedException  if an act() call was interrupted.
+     */
+    @OnThread(Tag.Simulation)
+    public boolean runRound()
+    {
+        runQueuedTasks();
+        World world = worldHandler.getWorld();
+        if (world == null || !enabled)
+        {
+            return false;
+        }
+        runOneLoop(world);
+        paintRemote(false);
+        return true;
     }
     
     // The following methods should run only on the simulation thread itself!
@@ -191,7 +257,16 @@ public class Simulation extends Thread
                 maybePause();
                                 
                 if (worldHandler.hasWorld()) {
+                    // A single act round (when paused) is not scheduled, and is
+                    // painted when we go back to being paused:
+                    boolean scheduled = isRunning;
+                    if (scheduled) {
+                        scheduler.tickStarted(System.nanoTime());
+                    }
                     runOneLoop(worldHandler.getWorld());
+                    if (scheduled && scheduler.tickCompleted(System.nanoTime())) {
+                        paintScheduled();
+                    }
                 }
 
                 // Don't delay if doing a single cycle:
@@ -311,6 +386,7 @@ public class Simulation extends Thread
                 
                 if (checkStop) {
                     isRunning = false; // if we start again, we'll need to signal it.
+                    scheduler.stop();
                     synchronized (interruptLock) {
                         interruptDelay = false;
                     }
@@ -361,7 +437,6 @@ public class Simulation extends Thread
                     System.gc();
                     try {
                         simulationWait();
-                        lastDelayTime = System.nanoTime();
                     }
                     catch (InterruptedException e1) {
                         // Swallow the interrupt
@@ -395,7 +470,12 @@ public class Simulation extends Thread
     private void resumeRunning() throws InterruptedException
     {
         isRunning = true;
-        lastDelayTime = System.nanoTime();
+        boolean catchUp;
+        synchronized (this) {
+            catchUp = projectProperties != null && projectProperties.getBoolean(CATCH_UP_PROPERTY, false);
+        }
+        scheduler.setCatchUp(catchUp);
+        scheduler.start(System.nanoTime());
         fireSimulationEventSync(SyncEvent.STARTED);
         World world = worldHandler.getWorld();
         if (world != null) {
@@ -505,7 +585,6 @@ public class Simulation extends Thread
             actWorld(world);
             if (world != worldHandler.getWorld())
             {
-                paintRemote(false);
                 return; // New world was set
             }
         }
@@ -527,13 +606,33 @@ public class Simulation extends Thread
             if (ActorVisitor.decrementSleepForIfPositive(possiblySleepingActor))
                 awakeObjects.add(possiblySleepingActor);
         }
-        for (Actor actor : awakeObjects)
+        for (int i = 0; i < awakeObjects.size(); i++)
         {
             if (!enabled)
             {
                 return;
             }
-            if (ActorVisitor.getWorld(actor) != null)
+            Actor actor = awakeObjects.get(i);
+            if (WorldVisitor.actsInParallel(world, actor))
+            {
+                // Act this actor together with the run of parallel actors which follow it:
+                int end = i + 1;
+                while (end < awakeObjects.size() && WorldVisitor.actsInParallel(world, awakeObjects.get(end)))
+                {
+                    end++;
+                }
+                ActInterruptedException e = actInParallel(world, awakeObjects.subList(i, end));
+                if (e != null && interruptedException == null)
+                {
+                    interruptedException = e;
+                }
+                if (world != worldHandler.getWorld())
+                {
+                    return; // New world was set
+                }
+                i = end - 1;
+            }
+            else if (ActorVisitor.getWorld(actor) != null)
             {
                 try
                 {
@@ -560,13 +659,159 @@ public class Simulation extends Thread
             throw interruptedException;
         }
         
-        // printUpdateRate(System.nanoTime());
-
-        repaintIfNeeded();
-
         fireSimulationEventSync(SyncEvent.END_ACT_ROUND);
     }
     
+    /**
+     * Act a run of actors which act in parallel (see World.setParallelAct). The
+     * actors act concurrently on the parallel act pool; changes they make to
+     * themselves and to the world are deferred until all of them have acted, and
+     * are then made in act order. If an actor's act() threw an exception (other than an
+     * ActInterruptedException), the first such exception in act order is
+     * rethrown once the changes have been made.
+     * 
+     * @return  The first ActInterruptedException thrown by an actor (in act
+     *          order), or null if there was none
+     */
+    private ActInterruptedException actInParallel(World world, List<Actor> actors)
+    {
+        ParallelActTask task = new ParallelActTask(world, actors,
+                Thread.currentThread().getContextClassLoader());
+        WorldVisitor.beginParallelAct(world);
+        try
+        {
+            getParallelActPool().invoke(task);
+        }
+        finally
+        {
+            WorldVisitor.endParallelAct(world);
+        }
+        
+        for (int i = 0; i < actors.size(); i++)
+        {
+            ActorVisitor.applyPendingChanges(actors.get(i));
+            List<Runnable> changes = task.changes[i];
+            if (changes != null)
+            {
+                for (Runnable change : changes)
+                {
+                    change.run();
+                }
+            }
+        }
+        
+        ActInterruptedException interruptedException = null;
+        for (Throwable t : task.thrown)
+        {
+            if (t instanceof ActInterruptedException)
+            {
+                if (interruptedException == null)
+                {
+                    interruptedException = (ActInterruptedException) t;
+                }
+            }
+            else if (t instanceof RuntimeException)
+            {
+                throw (RuntimeException) t;
+            }
+            else if (t instanceof Error)
+            {
+                throw (Error) t;
+            }
+            else if (t != null)
+            {
+                throw new RuntimeException(t);
+            }
+        }
+        return interruptedException;
+    }
+    
+    /**
+     * Get the pool used for acting actors in parallel, creating it if necessary.
+     */
+    @OnThread(Tag.Simulation)
+    private static synchronized ForkJoinPool getParallelActPool()
+    {
+        if (parallelActPool == null)
+        {
+            parallelActPool = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+        }
+        return parallelActPool;
+    }
+    
+    /**
+     * A task which acts a range of actors in parallel, splitting the range in half
+     * until a single actor is left. Any changes each actor makes to the world, and
+     * any exception it throws, are recorded by index.
+     */
+    private static class ParallelActTask extends RecursiveAction
+    {
+        private final World world;
+        private final List<Actor> actors;
+        private final ClassLoader contextLoader;
+        private final List<Runnable>[] changes;
+        private final Throwable[] thrown;
+        private final int from;
+        private final int to;
+        
+        @SuppressWarnings("unchecked")
+        public ParallelActTask(World world, List<Actor> actors, ClassLoader contextLoader)
+        {
+            this(world, actors, contextLoader, new List[actors.size()], new Throwable[actors.size()],
+                    0, actors.size());
+        }
+        
+        private ParallelActTask(World world, List<Actor> actors, ClassLoader contextLoader,
+                List<Runnable>[] changes, Throwable[] thrown, int from, int to)
+        {
+            this.world = world;
+            this.actors = actors;
+            this.contextLoader = contextLoader;
+            this.changes = changes;
+            this.thrown = thrown;
+            this.from = from;
+            this.to = to;
+        }
+        
+        @Override
+        @OnThread(value = Tag.Simulation, ignoreParent = true)
+        protected void compute()
+        {
+            if (to - from > 1)
+            {
+                int middle = (from + to) >>> 1;
+                invokeAll(new ParallelActTask(world, actors, contextLoader, changes, thrown, from, middle),
+                        new ParallelActTask(world, actors, contextLoader, changes, thrown, middle, to));
+                return;
+            }
+            
+            Actor actor = actors.get(from);
+            if (ActorVisitor.getWorld(actor) == null)
+            {
+                return;
+            }
+            
+            // User code may load resources via the context class loader:
+            Thread.currentThread().setContextClassLoader(contextLoader);
+            changes[from] = new ArrayList<>();
+            WorldVisitor.setDeferredChanges(world, changes[from]);
+            ActorVisitor.beginParallelAct(actor);
+            try
+            {
+                actActor(actor);
+            }
+            catch (Throwable t)
+            {
+                thrown[from] = t;
+            }
+            finally
+            {
+                ActorVisitor.endParallelAct(actor);
+                WorldVisitor.setDeferredChanges(world, null);
+            }
+        }
+    }
+    
     // The actActor, actWorld and newInstance methods exist as a tagging mechanism
     // that allows them to be found easily in the debugger when we
     // are attempting to reach the next call to user code
@@ -591,11 +836,12 @@ public class Simulation extends Thread
     }
     
     /**
-     * Repaints the world if needed to obtain the desired frame rate.
+     * Repaints the world, as scheduled by the tick scheduler.
      */
-    private void repaintIfNeeded()
+    private void paintScheduled()
     {
         paintRemote(false);
+        scheduler.painted(System.nanoTime());
     }
     
     protected void paintRemote(boolean forcePaint)
@@ -603,23 +849,6 @@ public class Simulation extends Thread
         WorldHandler.getInstance().paint(forcePaint);
     }
 
-    /**
-     * Debug output to print the rate at which updates are performed
-     * (acts/second).
-     */
-    /*
-    private void printUpdateRate(long currentTime)
-    {
-        //updates++;
-
-        long timeSinceUpdate = currentTime - lastUpdate;
-        if (timeSinceUpdate > 3000000000L) {
-            lastUpdate = currentTime;
-            //updates = 0;
-        }
-    }
-    */
-
     // Public methods etc.
 
     /**
@@ -865,6 +1094,28 @@ public class Simulation extends Thread
         return speed;
     }
 
+    /**
+     * Get the measured number of act rounds per second while running.
+     * 
+     * @return The act rate, or 0 if the simulation is not running.
+     */
+    @OnThread(Tag.Any)
+    public int getActRate()
+    {
+        return scheduler.getTickRate();
+    }
+
+    /**
+     * Get the measured number of repaints per second while running.
+     * 
+     * @return The frame rate, or 0 if the simulation is not running.
+     */
+    @OnThread(Tag.Any)
+    public int getFrameRate()
+    {
+        return scheduler.getPaintRate();
+    }
+
     /**
      * Sleep an amount of time according to the current speed setting for this
      * simulation. This will wait without considering previous waits, as opposed
@@ -942,9 +1193,10 @@ public class Simulation extends Thread
     }
 
     /**
-     * Cause a delay (wait) according to the current speed setting for this
-     * simulation. It will take the time spend in this simulation loop into
-     * consideration and only pause the remaining time.
+     * Cause a delay (wait) until the next act round is due, according to the
+     * tick scheduler. It will take the time spent in this simulation loop into
+     * consideration and only pause the remaining time. Any repaint which falls
+     * due while waiting is done during the delay.
      * 
      * <p>This method is used for controlling the speed of the animation.
      * 
@@ -953,10 +1205,6 @@ public class Simulation extends Thread
      */
     private void delay()
     {
-        long currentTime = System.nanoTime();
-        long timeElapsed = currentTime - lastDelayTime;
-        long actualDelay = Math.max(delay - timeElapsed, 0L);
-        
         synchronized (this)
         {
             synchronized (interruptLock)
@@ -967,7 +1215,6 @@ public class Simulation extends Thread
                     interruptDelay = false;
                     if (paused || abort)
                     {
-                        lastDelayTime = currentTime;
                         return; // return... without delay
                     }
                 }
@@ -977,37 +1224,58 @@ public class Simulation extends Thread
 
         fireSimulationEventSync(SyncEvent.DELAY_LOOP_ENTERED);
 
-        while (actualDelay > 0)
+        try
         {
-            try
-            {
-                HDTimer.sleep(actualDelay);
-            }
-            catch (InterruptedException ie)
+            long currentTime = System.nanoTime();
+            while (true)
             {
-                // We get interrupted either due to a pause, abort, being disabled or
-                // a speed change. If it's a speed change, we can continue to delay, up
-                // to the new time; otherwise we should finish up now.
+                // The speed may have been changed since we last looked:
                 synchronized (this)
                 {
-                    if (!enabled || paused || abort)
+                    scheduler.setTickPeriod(delay);
+                }
+                
+                if (scheduler.isPaintDue(currentTime))
+                {
+                    paintScheduled();
+                    currentTime = System.nanoTime();
+                    continue;
+                }
+                
+                long actualDelay = scheduler.getTimeToNextEvent(currentTime);
+                if (actualDelay <= 0)
+                {
+                    break; // The next act round is due
+                }
+                
+                try
+                {
+                    HDTimer.sleep(actualDelay);
+                }
+                catch (InterruptedException ie)
+                {
+                    // We get interrupted either due to a pause, abort, being disabled or
+                    // a speed change. If it's a speed change, we can continue to delay, up
+                    // to the new time; otherwise we should finish up now.
+                    synchronized (this)
                     {
-                        break;
+                        if (!enabled || paused || abort)
+                        {
+                            break;
+                        }
                     }
                 }
+                currentTime = System.nanoTime();
             }
-
-            currentTime = System.nanoTime();
-            timeElapsed = currentTime - lastDelayTime;
-            actualDelay = delay - timeElapsed;
         }
-
-        lastDelayTime = currentTime;
-        synchronized (interruptLock)
+        finally
         {
-            Thread.interrupted(); // clear interrupt, in case we were interrupted just after the delay
-            interruptDelay = false;
-            delaying = false;
+            synchronized (interruptLock)
+            {
+                Thread.interrupted(); // clear interrupt, in case we were interrupted just after the delay
+                interruptDelay = false;
+                delaying = false;
+            }
         }
         fireSimulationEventSync(SyncEvent.DELAY_LOOP_COMPLETED);
     }
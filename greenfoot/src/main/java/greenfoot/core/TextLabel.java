@@ -26,6 +26,7 @@ import greenfoot.util.GraphicsUtilities;
 import java.awt.Color;
 import java.awt.Font;
 import java.awt.Graphics2D;
+import java.awt.Rectangle;
 
 /**
  * Representation for text labels appearing on the world.
@@ -58,14 +59,12 @@ public class TextLabel
      */
     public void draw(Graphics2D g, int cellsize)
     {
-        if (dimensions == null) {
-            dimensions = GraphicsUtilities.getMultiLineStringDimensions(lines, Font.BOLD, 25.0);
-        }
+        calculateDimensions();
         
         // Position of base line:
-        int ydraw = ypos * cellsize - dimensions.getHeight() / 2 + cellsize / 2;
+        int ydraw = getDrawY(cellsize);
         
-        int xdraw = xpos * cellsize - dimensions.getWidth() / 2 + cellsize / 2;
+        int xdraw = getDrawX(cellsize);
         
         g.translate(xdraw, ydraw);
         
@@ -74,6 +73,37 @@ public class TextLabel
         g.translate(-xdraw, -ydraw);
     }
     
+    /**
+     * Get the area (in pixels) which this label covers when drawn.
+     * @param cellsize   The world's cell size
+     */
+    public Rectangle getBounds(int cellsize)
+    {
+        calculateDimensions();
+        Rectangle bounds = dimensions.getOutlineBounds();
+        bounds.translate(getDrawX(cellsize), getDrawY(cellsize));
+        // Allow for the width of the outline:
+        bounds.grow(2, 2);
+        return bounds;
+    }
+    
+    private void calculateDimensions()
+    {
+        if (dimensions == null) {
+            dimensions = GraphicsUtilities.getMultiLineStringDimensions(lines, Font.BOLD, 25.0);
+        }
+    }
+    
+    private int getDrawX(int cellsize)
+    {
+        return xpos * cellsize - dimensions.getWidth() / 2 + cellsize / 2;
+    }
+    
+    private int getDrawY(int cellsize)
+    {
+        return ypos * cellsize - dimensions.getHeight() / 2 + cellsize / 2;
+    }
+    
     /**
      * Get the X position of this label.
      */
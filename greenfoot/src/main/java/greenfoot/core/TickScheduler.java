@@ -0,0 +1,256 @@
+/*
+ This file is part of the Greenfoot program. 
+ Copyright (C) 2026  Poul Henriksen and Michael Kolling
+ 
+ This program is free software; you can redistribute it and/or 
+ modify it under the terms of the GNU General Public License 
+ as published by the Free Software Foundation; either version 2 
+ of the License, or (at your option) any later version. 
+ 
+ This program is distributed in the hope that it will be useful, 
+ but WITHOUT ANY WARRANTY; without even the implied warranty of 
+ MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the 
+ GNU General Public License for more details. 
+ 
+ You should have received a copy of the GNU General Public License 
+ along with this program; if not, write to the Free Software 
+ Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA. 
+ 
+ This file is subject to the Classpath exception as provided in the  
+ LICENSE.txt file that accompanied this code.
+ */
+package greenfoot.core;
+
+import threadchecker.OnThread;
+import threadchecker.Tag;
+
+/**
+ * Decides when the simulation should run its act rounds ("ticks") and when it should
+ * paint the world, and measures the rates at which it actually does both. All times
+ * are in nanoseconds, as returned by System.nanoTime().
+ *
+ * <p>Ticks are scheduled at a fixed period, which is set from the simulation speed.
+ * If a tick runs late, the following tick is normally scheduled a whole period after
+ * the late tick started. If catching up is enabled, it is instead scheduled at its
+ * regular time, so that missed ticks are run back-to-back until the simulation is back
+ * on schedule. At most MAX_CATCH_UP_TICKS ticks are ever owed; any further backlog is
+ * dropped, so that a simulation whose ticks always take longer than the period does
+ * not fall ever further behind.
+ *
+ * <p>Paints have their own period, independent of the tick period, so that running
+ * many ticks per second does not mean painting after each of them. A tick which is
+ * not painted straight away leaves a paint pending, which is done once it is due,
+ * even if no further tick has run by then.
+ *
+ * <p>This class only decides when to paint; the paints themselves are still done on
+ * the simulation thread, between ticks. A slow paint therefore delays the next tick,
+ * and counts towards the time that tick is late.
+ */
+@OnThread(Tag.Simulation)
+public class TickScheduler
+{
+    /** The largest number of missed ticks which will be caught up. */
+    public static final int MAX_CATCH_UP_TICKS = 10;
+    /** The default time between paints: 60 frames per second. */
+    public static final long DEFAULT_PAINT_PERIOD = 1_000_000_000L / 60;
+    /** The period over which the tick and paint rates are measured. */
+    private static final long RATE_PERIOD = 1_000_000_000L;
+
+    private final long paintPeriod;
+    private long tickPeriod;
+    private boolean catchUp;
+
+    private long lastTickTime;
+    private long nextTickTime;
+    private long nextPaintTime;
+    private boolean paintPending;
+    private long droppedTicks;
+
+    private long rateStartTime;
+    private int ticksSinceRateStart;
+    private int paintsSinceRateStart;
+    @OnThread(Tag.Any)
+    private volatile int tickRate;
+    @OnThread(Tag.Any)
+    private volatile int paintRate;
+
+    /**
+     * Create a scheduler.
+     *
+     * @param tickPeriod   The time between ticks.
+     * @param paintPeriod  The (shortest) time between paints.
+     */
+    @OnThread(Tag.Any)
+    public TickScheduler(long tickPeriod, long paintPeriod)
+    {
+        this.tickPeriod = tickPeriod;
+        this.paintPeriod = paintPeriod;
+    }
+
+    /**
+     * Set the time between ticks. If it has changed, the next tick is rescheduled
+     * to be this long after the previous one.
+     */
+    public void setTickPeriod(long tickPeriod)
+    {
+        if (tickPeriod == this.tickPeriod) {
+            return;
+        }
+        this.tickPeriod = tickPeriod;
+        nextTickTime = lastTickTime + tickPeriod;
+    }
+
+    /**
+     * Set whether ticks which were missed (because a tick or paint took too long)
+     * should be caught up.
+     */
+    public void setCatchUp(boolean catchUp)
+    {
+        this.catchUp = catchUp;
+    }
+
+    /**
+     * The simulation has started (or resumed) running: the first tick is due now,
+     * and the rates are measured afresh.
+     */
+    public void start(long now)
+    {
+        lastTickTime = now;
+        nextTickTime = now;
+        nextPaintTime = now;
+        paintPending = false;
+        rateStartTime = now;
+        ticksSinceRateStart = 0;
+        paintsSinceRateStart = 0;
+    }
+
+    /**
+     * The simulation has stopped running. The rates are reset to zero.
+     */
+    public void stop()
+    {
+        tickRate = 0;
+        paintRate = 0;
+    }
+
+    /**
+     * A tick is starting. Schedules the next tick.
+     */
+    public void tickStarted(long now)
+    {
+        long next;
+        if (catchUp) {
+            next = nextTickTime + tickPeriod;
+            // Never owe more than MAX_CATCH_UP_TICKS ticks (including the next one):
+            long earliest = now - (MAX_CATCH_UP_TICKS - 1) * tickPeriod;
+            if (next - earliest < 0) {
+                if (tickPeriod > 0) {
+                    droppedTicks += (earliest - next) / tickPeriod;
+                }
+                next = earliest;
+            }
+        }
+        else {
+            next = now + tickPeriod;
+        }
+        lastTickTime = now;
+        nextTickTime = next;
+        ticksSinceRateStart++;
+        updateRates(now);
+    }
+
+    /**
+     * A tick has completed, so its results need painting.
+     *
+     * @return  Whether the paint is due now.
+     */
+    public boolean tickCompleted(long now)
+    {
+        paintPending = true;
+        return isPaintDue(now);
+    }
+
+    /**
+     * Check whether there is a paint pending which is now due.
+     */
+    public boolean isPaintDue(long now)
+    {
+        return paintPending && now - nextPaintTime >= 0;
+    }
+
+    /**
+     * The world has been painted. Schedules the next paint.
+     */
+    public void painted(long now)
+    {
+        paintPending = false;
+        nextPaintTime += paintPeriod;
+        if (nextPaintTime - now < 0) {
+            // We're more than a period late; don't try to make up for it:
+            nextPaintTime = now + paintPeriod;
+        }
+        paintsSinceRateStart++;
+        updateRates(now);
+    }
+
+    /**
+     * Get the time left until the next tick is due (zero or negative if it is
+     * already due).
+     */
+    public long getTimeToNextTick(long now)
+    {
+        return nextTickTime - now;
+    }
+
+    /**
+     * Get the time left until either the next tick or a pending paint is due
+     * (zero or negative if one of them is already due).
+     */
+    public long getTimeToNextEvent(long now)
+    {
+        long toTick = nextTickTime - now;
+        return paintPending ? Math.min(toTick, nextPaintTime - now) : toTick;
+    }
+
+    /**
+     * Get the number of ticks which were not caught up because they exceeded
+     * MAX_CATCH_UP_TICKS.
+     */
+    public long getDroppedTicks()
+    {
+        return droppedTicks;
+    }
+
+    /**
+     * Update the measured rates if the measuring period has passed.
+     */
+    private void updateRates(long now)
+    {
+        long elapsed = now - rateStartTime;
+        if (elapsed >= RATE_PERIOD) {
+            tickRate = (int) Math.round(ticksSinceRateStart * 1_000_000_000D / elapsed);
+            paintRate = (int) Math.round(paintsSinceRateStart * 1_000_000_000D / elapsed);
+            rateStartTime = now;
+            ticksSinceRateStart = 0;
+            paintsSinceRateStart = 0;
+        }
+    }
+
+    /**
+     * Get the measured number of ticks per second (zero if not running).
+     */
+    @OnThread(Tag.Any)
+    public int getTickRate()
+    {
+        return tickRate;
+    }
+
+    /**
+     * Get the measured number of paints per second (zero if not running).
+     */
+    @OnThread(Tag.Any)
+    public int getPaintRate()
+    {
+        return paintRate;
+    }
+}
@@ -0,0 +1,923 @@
+/*
+ This file is part of the Greenfoot program. 
+ Copyright (C) 2026  Poul Henriksen and Michael Kolling
+ 
+ This program is free software; you can redistribute it and/or 
+ modify it under the terms of the GNU General Public License 
+ as published by the Free Software Foundation; either version 2 
+ of the License, or (at your option) any later version. 
+ 
+ This program is distributed in the hope that it will be useful, 
+ but WITHOUT ANY WARRANTY; without even the implied warranty of 
+ MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the 
+ GNU General Public License for more details. 
+ 
+ You should have received a copy of the GNU General Public License 
+ along with this program; if not, write to the Free Software 
+ Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA. 
+ 
+ This file is subject to the Classpath exception as provided in the  
+ LICENSE.txt file that accompanied this code.
+ */
+package greenfoot.export;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.jar.JarFile;
+import java.util.jar.Manifest;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
+import java.util.zip.ZipFile;
+
+import bluej.utility.Debug;
+
+/**
+ * Writes a zip (or jar) file for an exported scenario. Unlike ZipOutputStream, this
+ * compresses the entries in parallel, and can copy entries from other zip files
+ * without decompressing and recompressing them.
+ *
+ * <p>Files are compressed on the given executor, but are written to the file in
+ * the order they were added. Files which are already compressed (images, sounds
+ * and archives; see isCompressedMedia) are stored rather than deflated. The
+ * deflated data of files is cached (by path, size, modification time and a checksum
+ * of the contents), so that exporting the same project again only compresses the
+ * files which have changed. The files are still read each time, to find the checksum.
+ *
+ * <p>The entries waiting to be written are limited by their total size, as well as
+ * their number, so that a few large files cannot fill the heap. Files (and entries of
+ * copied zip files) which are too large to hold in memory at all are not compressed in
+ * the background, but are read as they are written.
+ *
+ * <p>Zip64 is not supported, so the exported file must be less than 4GB and have
+ * fewer than 65535 entries. A ZipException is thrown if either limit is exceeded.
+ */
+public class ExportZipWriter
+{
+    /** File extensions of files which are already compressed, and so are stored. */
+    private static final String[] COMPRESSED_MEDIA = {
+        "png", "jpg", "jpeg", "gif", "mp3", "ogg", "jar", "zip"
+    };
+
+    /** The most deflated data the cache will keep, in bytes. */
+    private static final int MAX_CACHE_BYTES = 64 * 1024 * 1024;
+    /** The default limit on the size of the entries waiting to be written, in bytes. */
+    private static final long MAX_PENDING_BYTES = 64L * 1024 * 1024;
+    /** The most entries a zip file can have without Zip64. */
+    private static final int MAX_ENTRIES = 0xfffe;
+    /** The largest size or offset a zip file can have without Zip64. */
+    private static final long MAX_SIZE = 0xffffffffL;
+    private static final String TOO_LARGE = "Export is too large for a zip file (the limits are 4GB and "
+            + MAX_ENTRIES + " files)";
+
+    private static final int LOCAL_HEADER_SIG = 0x04034b50;
+    private static final int CENTRAL_HEADER_SIG = 0x02014b50;
+    private static final int END_SIG = 0x06054b50;
+    private static final int DATA_DESCRIPTOR_SIG = 0x08074b50;
+    private static final int LOCAL_HEADER_SIZE = 30;
+    private static final int CENTRAL_HEADER_SIZE = 46;
+    private static final int END_SIZE = 22;
+    private static final int VERSION = 20;
+    /** General purpose flag: the name is in UTF-8. */
+    private static final int FLAG_UTF8 = 0x0800;
+    /** General purpose flag: the sizes and CRC follow the data, rather than being in the header. */
+    private static final int FLAG_DATA_DESCRIPTOR = 0x0008;
+
+    /**
+     * The (possibly compressed) data for an entry, ready to be written.
+     */
+    static class EntryData
+    {
+        final int method;
+        final int flags;
+        final int dosTime;
+        final int crc;
+        final long size;
+        final long compressedSize;
+        /** The data, or null if it is read while it is written (see PendingEntry.source). */
+        final byte[] data;
+
+        EntryData(int method, int flags, int dosTime, int crc, long size, byte[] data)
+        {
+            this(method, flags, dosTime, crc, size, data.length, data);
+        }
+
+        EntryData(int method, int flags, int dosTime, int crc, long size, long compressedSize, byte[] data)
+        {
+            this.method = method;
+            this.flags = flags;
+            this.dosTime = dosTime;
+            this.crc = crc;
+            this.size = size;
+            this.compressedSize = compressedSize;
+            this.data = data;
+        }
+    }
+
+    /**
+     * An entry which has been written, as needed for the central directory.
+     */
+    private static class WrittenEntry
+    {
+        final byte[] name;
+        final EntryData data;
+        final long offset;
+
+        WrittenEntry(byte[] name, EntryData data, long offset)
+        {
+            this.name = name;
+            this.data = data;
+            this.offset = offset;
+        }
+    }
+
+    /**
+     * The source of an entry which is too large to be held in memory.
+     */
+    private interface EntrySource
+    {
+        InputStream open() throws IOException;
+    }
+
+    /**
+     * An entry which has been added, but may still be being compressed.
+     */
+    private static class PendingEntry
+    {
+        final String name;
+        /**
+         * The entry data. If source is set, this has no data, and the source is copied
+         * as it is. If source is set and this is null, the source is stored or deflated
+         * (according to method) as it is written.
+         */
+        final Future<EntryData> data;
+        /** The number of bytes of memory the entry is expected to use. */
+        final long bytes;
+        final EntrySource source;
+        final int method;
+        final int dosTime;
+
+        PendingEntry(String name, Future<EntryData> data, long bytes)
+        {
+            this(name, data, bytes, null, 0, 0);
+        }
+
+        PendingEntry(String name, Future<EntryData> data, long bytes, EntrySource source, int method, int dosTime)
+        {
+            this.name = name;
+            this.data = data;
+            this.bytes = bytes;
+            this.source = source;
+            this.method = method;
+            this.dosTime = dosTime;
+        }
+    }
+
+    /** Deflated data of files, by path, size, modification time and checksum; least recently used first. */
+    private static final LinkedHashMap<String,EntryData> cache = new LinkedHashMap<>(16, 0.75f, true);
+    private static long cachedBytes = 0;
+
+    private final OutputStream out;
+    private final ExecutorService executor;
+    private final int maxPending;
+    private final long maxPendingBytes;
+    /** Entries larger than this are read as they are written, rather than held in memory. */
+    private final long largeEntryBytes;
+    private final Queue<PendingEntry> pending = new ArrayDeque<>();
+    private long pendingBytes = 0;
+    private final List<WrittenEntry> written = new ArrayList<>();
+    private final Set<String> names = new HashSet<>();
+    private long position = 0;
+    private boolean closed = false;
+
+    /**
+     * Create a writer.
+     *
+     * @param out       The stream to write the zip file to. It is closed by close().
+     * @param executor  The executor to compress files on.
+     * @param threads   The number of threads the executor uses. This limits how many
+     *                  files are compressed (and held in memory) ahead of being written.
+     */
+    public ExportZipWriter(OutputStream out, ExecutorService executor, int threads)
+    {
+        this(out, executor, threads, MAX_PENDING_BYTES);
+    }
+
+    /**
+     * Create a writer which holds at most maxPendingBytes (approximately) of entries
+     * waiting to be written. Entries of more than a quarter of that are read as they
+     * are written.
+     */
+    ExportZipWriter(OutputStream out, ExecutorService executor, int threads, long maxPendingBytes)
+    {
+        this.out = out;
+        this.executor = executor;
+        this.maxPending = threads * 4;
+        this.maxPendingBytes = maxPendingBytes;
+        this.largeEntryBytes = maxPendingBytes / 4;
+    }
+
+    /**
+     * Add the manifest, as the file META-INF/MANIFEST.MF. For a jar file, this should
+     * be the first entry.
+     */
+    public void addManifest(Manifest manifest) throws IOException
+    {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        manifest.write(bytes);
+        addEntry(new PendingEntry(JarFile.MANIFEST_NAME, CompletableFuture.completedFuture(
+                deflate(bytes.toByteArray(), toDosTime(System.currentTimeMillis()))), bytes.size()));
+    }
+
+    /**
+     * Add a file. The file is compressed in the background, if needed, unless it is
+     * too large to hold in memory, in which case it is compressed as it is written.
+     *
+     * @param file       The file to add.
+     * @param entryName  The name of the entry, which should always be a path with /
+     *                   separators (NOT the platform dependent File.separator).
+     */
+    public void addFile(File file, String entryName) throws IOException
+    {
+        final String path = file.getCanonicalPath();
+        long length = file.length();
+        if (length > largeEntryBytes) {
+            int method = isCompressedMedia(file.getName()) ? ZipEntry.STORED : ZipEntry.DEFLATED;
+            addEntry(new PendingEntry(entryName, null, 0, () -> Files.newInputStream(file.toPath()),
+                    method, toDosTime(file.lastModified())));
+            return;
+        }
+
+        addEntry(new PendingEntry(entryName, executor.submit(() -> {
+            long lastModified = file.lastModified();
+            byte[] contents = Files.readAllBytes(file.toPath());
+            int dosTime = toDosTime(lastModified);
+            if (isCompressedMedia(file.getName())) {
+                return store(contents, dosTime);
+            }
+
+            // The key includes a checksum of the contents, as a file may be rewritten
+            // without its size or modification time changing (such as the properties
+            // file and sound list, which are generated for every export):
+            CRC32 crc = new CRC32();
+            crc.update(contents);
+            String key = path + "|" + contents.length + "|" + lastModified + "|" + crc.getValue();
+            EntryData data = getCached(key);
+            if (data == null) {
+                data = deflate(contents, dosTime);
+                putCached(key, data);
+            }
+            return data;
+        }), length));
+    }
+
+    /**
+     * Add the contents of a zip (or jar) file, apart from any manifest. The entries are
+     * copied as they are, without being decompressed and recompressed. Entries with a
+     * name which has already been added are skipped.
+     */
+    public void addZipContents(File zip) throws IOException
+    {
+        List<ZipRecord> records;
+        try {
+            records = readCentralDirectory(zip);
+        }
+        catch (ZipException e) {
+            // We can't read it ourselves (for example, it uses Zip64), so
+            // decompress and recompress it instead:
+            addZipContentsRecompressed(zip);
+            return;
+        }
+
+        try (RandomAccessFile file = new RandomAccessFile(zip, "r")) {
+            for (ZipRecord record : records) {
+                if (record.name.equals(JarFile.MANIFEST_NAME)) {
+                    continue;
+                }
+                // The local header can have a different extra field length to the
+                // central directory, so we must read it to find the data:
+                byte[] header = new byte[LOCAL_HEADER_SIZE];
+                file.seek(record.localHeaderOffset);
+                file.readFully(header);
+                ByteBuffer buffer = ByteBuffer.wrap(header).order(ByteOrder.LITTLE_ENDIAN);
+                if (buffer.getInt(0) != LOCAL_HEADER_SIG) {
+                    throw new ZipException("Bad local header for " + record.name + " in " + zip);
+                }
+                int nameLength = buffer.getShort(26) & 0xffff;
+                int extraLength = buffer.getShort(28) & 0xffff;
+                long dataOffset = record.localHeaderOffset + LOCAL_HEADER_SIZE + nameLength + extraLength;
+
+                int flags = (record.flags & ~FLAG_DATA_DESCRIPTOR) | FLAG_UTF8;
+                if (record.compressedSize > largeEntryBytes) {
+                    // Copy it straight from the zip file when it is written:
+                    EntryData entryData = new EntryData(record.method, flags, record.dosTime, record.crc,
+                            record.size, record.compressedSize, null);
+                    addEntry(new PendingEntry(record.name, CompletableFuture.completedFuture(entryData), 0,
+                            () -> openRange(zip, dataOffset, record.compressedSize), 0, 0));
+                    continue;
+                }
+                byte[] data = new byte[(int) record.compressedSize];
+                file.seek(dataOffset);
+                file.readFully(data);
+                addEntry(new PendingEntry(record.name, CompletableFuture.completedFuture(new EntryData(
+                        record.method, flags, record.dosTime, record.crc, record.size, data)), data.length));
+            }
+        }
+    }
+
+    /**
+     * Add the contents of a zip file by decompressing each entry and compressing it
+     * again.
+     */
+    private void addZipContentsRecompressed(File zip) throws IOException
+    {
+        try (ZipFile zipFile = new ZipFile(zip)) {
+            Enumeration<? extends ZipEntry> entries = zipFile.entries();
+            while (entries.hasMoreElements()) {
+                ZipEntry entry = entries.nextElement();
+                if (entry.getName().equals(JarFile.MANIFEST_NAME)) {
+                    continue;
+                }
+                int dosTime = toDosTime(entry.getTime());
+                if (entry.getSize() > largeEntryBytes) {
+                    // Decompress it from the zip file again when it is written:
+                    String entryName = entry.getName();
+                    addEntry(new PendingEntry(entryName, null, 0, () -> openZipEntry(zip, entryName),
+                            ZipEntry.DEFLATED, dosTime));
+                    continue;
+                }
+                byte[] contents;
+                try (InputStream in = zipFile.getInputStream(entry)) {
+                    contents = in.readAllBytes();
+                }
+                addEntry(new PendingEntry(entry.getName(), executor.submit(() -> deflate(contents, dosTime)),
+                        contents.length));
+            }
+        }
+    }
+
+    /**
+     * Open part of a file, as a stream.
+     */
+    private static InputStream openRange(File file, long offset, long length) throws IOException
+    {
+        InputStream in = Files.newInputStream(file.toPath());
+        try {
+            in.skipNBytes(offset);
+        }
+        catch (IOException e) {
+            in.close();
+            throw e;
+        }
+        return new FilterInputStream(in) {
+            long remaining = length;
+
+            @Override
+            public int read() throws IOException
+            {
+                byte[] b = new byte[1];
+                return read(b, 0, 1) == -1 ? -1 : (b[0] & 0xff);
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException
+            {
+                if (remaining <= 0) {
+                    return -1;
+                }
+                int n = super.read(b, off, (int) Math.min(len, remaining));
+                if (n > 0) {
+                    remaining -= n;
+                }
+                return n;
+            }
+        };
+    }
+
+    /**
+     * Open the (decompressed) contents of an entry of a zip file, as a stream. The zip
+     * file is closed when the stream is closed.
+     */
+    private static InputStream openZipEntry(File zip, String entryName) throws IOException
+    {
+        ZipFile zipFile = new ZipFile(zip);
+        ZipEntry entry = zipFile.getEntry(entryName);
+        if (entry == null) {
+            zipFile.close();
+            throw new ZipException("Entry " + entryName + " has gone from " + zip);
+        }
+        return new FilterInputStream(zipFile.getInputStream(entry)) {
+            @Override
+            public void close() throws IOException
+            {
+                try {
+                    super.close();
+                }
+                finally {
+                    zipFile.close();
+                }
+            }
+        };
+    }
+
+    /**
+     * Add an entry, writing out the oldest pending entries if too many, or too many
+     * bytes, are pending.
+     */
+    private void addEntry(PendingEntry entry) throws IOException
+    {
+        if (!names.add(entry.name)) {
+            if (entry.data != null) {
+                entry.data.cancel(false);
+            }
+            if (!entry.name.endsWith("/")) {
+                // Directories are often in several jars, but files shouldn't be:
+                Debug.message("warning: duplicate entry " + entry.name + " not exported");
+            }
+            return;
+        }
+        if (names.size() > MAX_ENTRIES) {
+            if (entry.data != null) {
+                entry.data.cancel(false);
+            }
+            throw new ZipException(TOO_LARGE);
+        }
+        pending.add(entry);
+        pendingBytes += entry.bytes;
+        while (!pending.isEmpty() && (pending.size() > maxPending || pendingBytes > maxPendingBytes)) {
+            PendingEntry oldest = pending.remove();
+            pendingBytes -= oldest.bytes;
+            writePending(oldest);
+        }
+    }
+
+    /**
+     * Write an entry, waiting for it to be compressed if necessary.
+     */
+    private void writePending(PendingEntry entry) throws IOException
+    {
+        if (position > MAX_SIZE) {
+            throw new ZipException(TOO_LARGE);
+        }
+        if (entry.data == null) {
+            writeStreamed(entry);
+            return;
+        }
+
+        EntryData data;
+        try {
+            data = entry.data.get();
+        }
+        catch (InterruptedException e) {
+            throw new IOException("Interrupted while exporting " + entry.name, e);
+        }
+        catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new IOException("Error exporting " + entry.name, e.getCause());
+        }
+
+        if (data.size > MAX_SIZE || data.compressedSize > MAX_SIZE) {
+            throw new ZipException(TOO_LARGE);
+        }
+        byte[] name = entry.name.getBytes(StandardCharsets.UTF_8);
+        written.add(new WrittenEntry(name, data, position));
+        writeLocalHeader(name, data);
+        if (data.data != null) {
+            writeBytes(data.data);
+        }
+        else {
+            // A large entry copied as it is:
+            long copied;
+            try (InputStream in = entry.source.open()) {
+                copied = copy(in, null, null);
+            }
+            if (copied != data.compressedSize) {
+                throw new ZipException("Entry " + entry.name + " changed while it was being exported");
+            }
+        }
+    }
+
+    /**
+     * Write an entry which is too large to hold in memory, storing or deflating it as it
+     * is read. A stored entry is read twice: first to find its checksum, which must be in
+     * the local header. A deflated entry is followed by a data descriptor instead.
+     */
+    private void writeStreamed(PendingEntry entry) throws IOException
+    {
+        byte[] name = entry.name.getBytes(StandardCharsets.UTF_8);
+        long offset = position;
+        CRC32 crc = new CRC32();
+        EntryData data;
+        if (entry.method == ZipEntry.STORED) {
+            long size;
+            try (InputStream in = entry.source.open()) {
+                size = checksum(in, crc);
+            }
+            if (size > MAX_SIZE) {
+                throw new ZipException(TOO_LARGE);
+            }
+            data = new EntryData(ZipEntry.STORED, FLAG_UTF8, entry.dosTime, (int) crc.getValue(), size, size, null);
+            writeLocalHeader(name, data);
+            CRC32 copiedCrc = new CRC32();
+            long copied;
+            try (InputStream in = entry.source.open()) {
+                copied = copy(in, copiedCrc, null);
+            }
+            if (copied != size || copiedCrc.getValue() != crc.getValue()) {
+                throw new ZipException("Entry " + entry.name + " changed while it was being exported");
+            }
+        }
+        else {
+            int flags = FLAG_UTF8 | FLAG_DATA_DESCRIPTOR;
+            writeLocalHeader(name, new EntryData(ZipEntry.DEFLATED, flags, entry.dosTime, 0, 0, 0, null));
+            long start = position;
+            long size;
+            Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+            try (InputStream in = entry.source.open()) {
+                size = copy(in, crc, deflater);
+            }
+            finally {
+                deflater.end();
+            }
+            long compressedSize = position - start;
+            if (size > MAX_SIZE || compressedSize > MAX_SIZE) {
+                throw new ZipException(TOO_LARGE);
+            }
+            data = new EntryData(ZipEntry.DEFLATED, flags, entry.dosTime, (int) crc.getValue(), size,
+                    compressedSize, null);
+            ByteBuffer descriptor = ByteBuffer.allocate(16).order(ByteOrder.LITTLE_ENDIAN);
+            descriptor.putInt(DATA_DESCRIPTOR_SIG);
+            descriptor.putInt(data.crc);
+            descriptor.putInt((int) compressedSize);
+            descriptor.putInt((int) size);
+            writeBytes(descriptor.array());
+        }
+        written.add(new WrittenEntry(name, data, offset));
+    }
+
+    /**
+     * Read a stream to the end, updating a checksum.
+     *
+     * @return  The number of bytes read.
+     */
+    private static long checksum(InputStream in, CRC32 crc) throws IOException
+    {
+        byte[] buffer = new byte[8192];
+        long total = 0;
+        int n;
+        while ((n = in.read(buffer)) != -1) {
+            crc.update(buffer, 0, n);
+            total += n;
+        }
+        return total;
+    }
+
+    /**
+     * Copy a stream to the output, updating the checksum (if not null) and deflating
+     * it first (if the deflater is not null).
+     *
+     * @return  The number of bytes read.
+     */
+    private long copy(InputStream in, CRC32 crc, Deflater deflater) throws IOException
+    {
+        byte[] buffer = new byte[8192];
+        byte[] compressed = deflater == null ? null : new byte[8192];
+        long total = 0;
+        int n;
+        while ((n = in.read(buffer)) != -1) {
+            if (crc != null) {
+                crc.update(buffer, 0, n);
+            }
+            total += n;
+            if (deflater == null) {
+                out.write(buffer, 0, n);
+                position += n;
+            }
+            else {
+                deflater.setInput(buffer, 0, n);
+                while (!deflater.needsInput()) {
+                    writeDeflated(deflater, compressed);
+                }
+            }
+        }
+        if (deflater != null) {
+            deflater.finish();
+            while (!deflater.finished()) {
+                writeDeflated(deflater, compressed);
+            }
+        }
+        return total;
+    }
+
+    private void writeDeflated(Deflater deflater, byte[] buffer) throws IOException
+    {
+        int n = deflater.deflate(buffer);
+        out.write(buffer, 0, n);
+        position += n;
+    }
+
+    private void writeLocalHeader(byte[] name, EntryData data) throws IOException
+    {
+        ByteBuffer header = ByteBuffer.allocate(LOCAL_HEADER_SIZE + name.length).order(ByteOrder.LITTLE_ENDIAN);
+        header.putInt(LOCAL_HEADER_SIG);
+        header.putShort((short) VERSION);
+        putEntryFields(header, data, name.length);
+        header.putShort((short) 0); // extra field length
+        header.put(name);
+        writeBytes(header.array());
+    }
+
+    /**
+     * Put the fields which are the same in the local and central headers: from the
+     * flags up to the name length.
+     */
+    private static void putEntryFields(ByteBuffer header, EntryData data, int nameLength)
+    {
+        header.putShort((short) data.flags);
+        header.putShort((short) data.method);
+        header.putInt(data.dosTime);
+        header.putInt(data.crc);
+        header.putInt((int) data.compressedSize);
+        header.putInt((int) data.size);
+        header.putShort((short) nameLength);
+    }
+
+    private void writeBytes(byte[] bytes) throws IOException
+    {
+        out.write(bytes);
+        position += bytes.length;
+    }
+
+    /**
+     * Write any pending entries and the central directory, and close the stream.
+     * The stream is closed even if writing fails. Closing again has no effect.
+     */
+    public void close() throws IOException
+    {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            while (!pending.isEmpty()) {
+                writePending(pending.remove());
+            }
+            if (written.size() > MAX_ENTRIES || position > MAX_SIZE) {
+                throw new ZipException(TOO_LARGE);
+            }
+
+            long centralStart = position;
+            for (WrittenEntry entry : written) {
+                ByteBuffer header = ByteBuffer.allocate(CENTRAL_HEADER_SIZE + entry.name.length)
+                        .order(ByteOrder.LITTLE_ENDIAN);
+                header.putInt(CENTRAL_HEADER_SIG);
+                header.putShort((short) VERSION); // version made by
+                header.putShort((short) VERSION); // version needed
+                putEntryFields(header, entry.data, entry.name.length);
+                header.putShort((short) 0); // extra field length
+                header.putShort((short) 0); // comment length
+                header.putShort((short) 0); // disk number
+                header.putShort((short) 0); // internal attributes
+                header.putInt(0); // external attributes
+                header.putInt((int) entry.offset);
+                header.put(entry.name);
+                writeBytes(header.array());
+            }
+            long centralSize = position - centralStart;
+
+            ByteBuffer end = ByteBuffer.allocate(END_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            end.putInt(END_SIG);
+            end.putShort((short) 0); // this disk
+            end.putShort((short) 0); // disk with central directory
+            end.putShort((short) written.size());
+            end.putShort((short) written.size());
+            end.putInt((int) centralSize);
+            end.putInt((int) centralStart);
+            end.putShort((short) 0); // comment length
+            writeBytes(end.array());
+        }
+        finally {
+            for (PendingEntry entry : pending) {
+                if (entry.data != null) {
+                    entry.data.cancel(false);
+                }
+            }
+            out.close();
+        }
+    }
+
+    /**
+     * Check whether a file is of a type which is already compressed, so that it is not
+     * worth compressing it again.
+     */
+    static boolean isCompressedMedia(String fileName)
+    {
+        String lowerName = fileName.toLowerCase(Locale.ENGLISH);
+        for (String extension : COMPRESSED_MEDIA) {
+            if (lowerName.endsWith("." + extension)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static EntryData store(byte[] contents, int dosTime)
+    {
+        CRC32 crc = new CRC32();
+        crc.update(contents);
+        return new EntryData(ZipEntry.STORED, FLAG_UTF8, dosTime, (int) crc.getValue(),
+                contents.length, contents);
+    }
+
+    private static EntryData deflate(byte[] contents, int dosTime)
+    {
+        CRC32 crc = new CRC32();
+        crc.update(contents);
+        Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+        try {
+            deflater.setInput(contents);
+            deflater.finish();
+            ByteArrayOutputStream compressed = new ByteArrayOutputStream(contents.length / 2 + 64);
+            byte[] buffer = new byte[8192];
+            while (!deflater.finished()) {
+                int n = deflater.deflate(buffer);
+                compressed.write(buffer, 0, n);
+            }
+            return new EntryData(ZipEntry.DEFLATED, FLAG_UTF8, dosTime, (int) crc.getValue(),
+                    contents.length, compressed.toByteArray());
+        }
+        finally {
+            deflater.end();
+        }
+    }
+
+    /**
+     * Convert a time (in milliseconds) to the MS-DOS date and time used in zip files:
+     * the date in the upper 16 bits, and the time in the lower 16 bits.
+     */
+    static int toDosTime(long time)
+    {
+        LocalDateTime date = LocalDateTime.ofInstant(Instant.ofEpochMilli(time), ZoneId.systemDefault());
+        if (date.getYear() < 1980) {
+            return (1 << 21) | (1 << 16); // 1st January 1980
+        }
+        return (date.getYear() - 1980) << 25 | date.getMonthValue() << 21 | date.getDayOfMonth() << 16
+                | date.getHour() << 11 | date.getMinute() << 5 | date.getSecond() >> 1;
+    }
+
+    private static synchronized EntryData getCached(String key)
+    {
+        return cache.get(key);
+    }
+
+    private static synchronized void putCached(String key, EntryData data)
+    {
+        if (data.data.length > MAX_CACHE_BYTES) {
+            return;
+        }
+        EntryData old = cache.put(key, data);
+        if (old != null) {
+            cachedBytes -= old.data.length;
+        }
+        cachedBytes += data.data.length;
+        Iterator<EntryData> i = cache.values().iterator();
+        while (cachedBytes > MAX_CACHE_BYTES) {
+            cachedBytes -= i.next().data.length;
+            i.remove();
+        }
+    }
+
+    /**
+     * Remove everything from the cache of compressed files.
+     */
+    static synchronized void clearCache()
+    {
+        cache.clear();
+        cachedBytes = 0;
+    }
+
+    /**
+     * Get the number of files whose compressed data is cached.
+     */
+    static synchronized int getCacheSize()
+    {
+        return cache.size();
+    }
+
+    /**
+     * An entry in the central directory of a zip file which is being copied.
+     */
+    private static class ZipRecord
+    {
+        String name;
+        int flags;
+        int method;
+        int dosTime;
+        int crc;
+        long compressedSize;
+        long size;
+        long localHeaderOffset;
+    }
+
+    /**
+     * Read the central directory of a zip file.
+     *
+     * @throws ZipException if the file is not a zip file we can read (including if it
+     *                      uses Zip64).
+     */
+    private static List<ZipRecord> readCentralDirectory(File zip) throws IOException
+    {
+        try (RandomAccessFile file = new RandomAccessFile(zip, "r")) {
+            // The end record is at the end of the file, followed by a comment of up to 64K:
+            int tailLength = (int) Math.min(file.length(), END_SIZE + 0xffff);
+            byte[] tail = new byte[tailLength];
+            file.seek(file.length() - tailLength);
+            file.readFully(tail);
+            ByteBuffer buffer = ByteBuffer.wrap(tail).order(ByteOrder.LITTLE_ENDIAN);
+            int endPos = -1;
+            for (int i = tailLength - END_SIZE; i >= 0; i--) {
+                if (buffer.getInt(i) == END_SIG) {
+                    endPos = i;
+                    break;
+                }
+            }
+            if (endPos == -1) {
+                throw new ZipException("No central directory in " + zip);
+            }
+            int count = buffer.getShort(endPos + 10) & 0xffff;
+            long centralSize = buffer.getInt(endPos + 12) & 0xffffffffL;
+            long centralStart = buffer.getInt(endPos + 16) & 0xffffffffL;
+            if (count == 0xffff || centralStart == 0xffffffffL
+                    || centralStart + centralSize > file.length()) {
+                throw new ZipException("Unsupported central directory in " + zip);
+            }
+
+            byte[] central = new byte[(int) centralSize];
+            file.seek(centralStart);
+            file.readFully(central);
+            buffer = ByteBuffer.wrap(central).order(ByteOrder.LITTLE_ENDIAN);
+            List<ZipRecord> records = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                if (buffer.remaining() < CENTRAL_HEADER_SIZE || buffer.getInt() != CENTRAL_HEADER_SIG) {
+                    throw new ZipException("Bad central directory in " + zip);
+                }
+                ZipRecord record = new ZipRecord();
+                buffer.getShort(); // version made by
+                buffer.getShort(); // version needed
+                record.flags = buffer.getShort() & 0xffff;
+                record.method = buffer.getShort() & 0xffff;
+                record.dosTime = buffer.getInt();
+                record.crc = buffer.getInt();
+                record.compressedSize = buffer.getInt() & 0xffffffffL;
+                record.size = buffer.getInt() & 0xffffffffL;
+                int nameLength = buffer.getShort() & 0xffff;
+                int extraLength = buffer.getShort() & 0xffff;
+                int commentLength = buffer.getShort() & 0xffff;
+                buffer.getShort(); // disk number
+                buffer.getShort(); // internal attributes
+                buffer.getInt(); // external attributes
+                record.localHeaderOffset = buffer.getInt() & 0xffffffffL;
+                if (record.compressedSize == 0xffffffffL || record.size == 0xffffffffL
+                        || record.localHeaderOffset == 0xffffffffL) {
+                    throw new ZipException("Zip64 entry in " + zip);
+                }
+                byte[] name = new byte[nameLength];
+                buffer.get(name);
+                // As with ZipFile, names are taken to be UTF-8:
+                record.name = new String(name, StandardCharsets.UTF_8);
+                buffer.position(buffer.position() + extraLength + commentLength);
+                records.add(record);
+            }
+            return records;
+        }
+    }
+}
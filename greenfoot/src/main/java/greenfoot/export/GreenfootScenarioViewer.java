@@ -26,6 +26,7 @@ import bluej.utility.javafx.JavaFXUtil;
 import bluej.utility.javafx.UnfocusableScrollPane;
 import greenfoot.World;
 import greenfoot.core.ExportedProjectProperties;
+import greenfoot.core.ImageCache;
 import greenfoot.core.Simulation;
 import greenfoot.core.WorldHandler;
 import greenfoot.event.SimulationListener;
@@ -139,10 +140,12 @@ public class GreenfootScenarioViewer extends BorderPane implements ControlPanelL
 
             ActorDelegateStandAlone.setupAsActorDelegate();
             ActorDelegateStandAlone.initProperties(properties);
+            ImageCache.getInstance().setProjectProperties(properties);
 
             // We must construct the simulation before the world, as a call to
             // Greenfoot.setSpeed() requires a call to the simulation instance.
             Simulation.initialize();
+            Simulation.getInstance().setProjectProperties(properties);
             
             guiSetup(lockScenario, worldClassName);
 
@@ -21,15 +21,12 @@
  */
 package greenfoot.export;
 
-import java.io.BufferedInputStream;
 import java.io.BufferedOutputStream;
 import java.io.BufferedWriter;
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.InputStream;
 import java.io.OutputStream;
 import java.io.OutputStreamWriter;
 import java.io.UnsupportedEncodingException;
@@ -39,13 +36,10 @@ import java.util.Hashtable;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Properties;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.jar.Attributes;
-import java.util.jar.JarInputStream;
-import java.util.jar.JarOutputStream;
 import java.util.jar.Manifest;
-import java.util.zip.ZipEntry;
-import java.util.zip.ZipException;
-import java.util.zip.ZipOutputStream;
 
 import bluej.Boot;
 import bluej.Config;
@@ -201,6 +195,8 @@ public class JarCreator
         properties.put("controls.reset.longDescription", Config.getString("controls.reset.longDescription"));
         properties.put("controls.reset.shortDescription", Config.getString("controls.reset.shortDescription"));
         properties.put("controls.speedSlider.tooltip", Config.getString("controls.speedSlider.tooltip"));
+        properties.put("controls.actRate.label", Config.getString("controls.actRate.label"));
+        properties.put("controls.frameRate.label", Config.getString("controls.frameRate.label"));
         
         // Error messages etc
         properties.put("sound-line-unavailable", Config.getString("sound-line-unavailable"));
@@ -261,11 +257,18 @@ public class JarCreator
         File jarFile = new File(exportDir, jarName);
         File propertiesFile = null;
         File soundFile = null;
-        OutputStream oStream = null;
-        ZipOutputStream jStream = null;
+        ExportZipWriter jStream = null;
+        // Files are compressed in parallel, but written in order:
+        int threads = Runtime.getRuntime().availableProcessors();
+        ExecutorService executor = Executors.newFixedThreadPool(threads, r -> {
+            Thread t = new Thread(r, "Export compression");
+            t.setDaemon(true);
+            return t;
+        });
 
         try {
-            oStream = new BufferedOutputStream(new FileOutputStream(jarFile));
+            jStream = new ExportZipWriter(new BufferedOutputStream(new FileOutputStream(jarFile)),
+                    executor, threads);
             String pathPrefix = ""; // Put everything in top level of jar
             if (! isZip) {
                 // It is a jar file so we write the manifest and the properties.
@@ -274,12 +277,11 @@ public class JarCreator
                 writePropertiesFile(propertiesFile);
                 soundFile = new File(projectDir, "soundindex.list");
                 writeSoundFilesList(soundFile);
-                jStream = new JarOutputStream(oStream, manifest);
+                jStream.addManifest(manifest);
             }
             else {
                 // It is a zip, so we want a dir with the project name inside the zip
                 pathPrefix = projectDir.getName() + "/";
-                jStream = new ZipOutputStream(oStream);
             }
             // Write contents of directories added
             for(File dir : dirs) {
@@ -291,6 +293,8 @@ public class JarCreator
             for(File jar : extraJarsInJar) {
                 writeJarToJar(jar, jStream);
             }
+            // Close here (as well as in finally) so that any error finishing the jar is reported:
+            jStream.close();
             copyLibsToDir(extraJars, exportDir);            
         }
         catch (IOException exc) {
@@ -302,6 +306,7 @@ public class JarCreator
                     jStream.close();
             }
             catch (IOException e) {}
+            executor.shutdownNow();
             if(propertiesFile != null) {
                 propertiesFile.delete();
             }
@@ -516,7 +521,7 @@ public class JarCreator
      * the Jar file we are creating (to prevent including itself in the Jar
      * file)
      */
-    private void writeDirToJar(File sourceDir, String pathPrefix, ZipOutputStream stream, File outputFile)
+    private void writeDirToJar(File sourceDir, String pathPrefix, ExportZipWriter stream, File outputFile)
         throws IOException
     {
         if (!skipDir(sourceDir))
@@ -539,7 +544,7 @@ public class JarCreator
      * @param onlyDirContents If sourceFile is a dir, this parameter indicates that
      *           the contents of the dir should be added, not the dir itself.
      */
-    private void writeFileToJar(File sourceFile, String pathPrefix, ZipOutputStream stream, File outputFile, boolean onlyDirContents)
+    private void writeFileToJar(File sourceFile, String pathPrefix, ExportZipWriter stream, File outputFile, boolean onlyDirContents)
         throws IOException
     {
         if(!sourceFile.exists()) {
@@ -565,10 +570,11 @@ public class JarCreator
     }
     
     /**
-     * Write the contents of a jar into another jar stream. If the source file does not exist,
-     * this method will just return without doing anything.
+     * Write the contents of a jar into another jar stream, without recompressing the
+     * entries. If the source file does not exist, this method will just return without
+     * doing anything.
      */
-    private void writeJarToJar(File inputJar, ZipOutputStream outputStream)
+    private void writeJarToJar(File inputJar, ExportZipWriter outputStream)
         throws IOException
     {
         if(!inputJar.exists()) {
@@ -576,18 +582,8 @@ public class JarCreator
             return;
         }
         
-        JarInputStream inputStream = new JarInputStream(
-                new BufferedInputStream(new FileInputStream(inputJar)));
-        
-        ZipEntry inputEntry = inputStream.getNextJarEntry();
-        while(inputEntry != null) {
-            //TODO: What if we have duplicate files????
-            outputStream.putNextEntry(inputEntry);
-            FileUtility.copyStream(inputStream, outputStream);
-            inputStream.closeEntry();
-            inputEntry = inputStream.getNextJarEntry();
-        }        
-        inputStream.close();
+        // Duplicate entries (other than the first) are skipped:
+        outputStream.addZipContents(inputJar);
     }
 
     /**
@@ -651,24 +647,13 @@ public class JarCreator
     /**
      * Write a jar file entry to the jar output stream. Note: entryName should
      * always be a path with / seperators (NOT the platform dependant
-     * File.seperator)
+     * File.seperator). The file is compressed in the background (unless it is
+     * already compressed media, which is stored as it is).
      */
-    private void writeJarEntry(File file, ZipOutputStream stream, String entryName)
+    private void writeJarEntry(File file, ExportZipWriter stream, String entryName)
         throws IOException
     {
-        InputStream in = null;
-        try {
-            in = new BufferedInputStream(new FileInputStream(file));
-            stream.putNextEntry(new ZipEntry(entryName));
-            FileUtility.copyStream(in, stream);
-        }
-        catch (ZipException exc) {
-            Debug.message("warning: " + exc);
-        }
-        finally {
-            if (in != null)
-                in.close();
-        }
+        stream.addFile(file, entryName);
     }
     
     public void generateHTMLSkeleton(File outputFile, String title, int width, int height)
@@ -0,0 +1,161 @@
+/*
+ This file is part of the Greenfoot program. 
+ Copyright (C) 2026  Poul Henriksen and Michael Kolling
+ 
+ This program is free software; you can redistribute it and/or 
+ modify it under the terms of the GNU General Public License 
+ as published by the Free Software Foundation; either version 2 
+ of the License, or (at your option) any later version. 
+ 
+ This program is distributed in the hope that it will be useful, 
+ but WITHOUT ANY WARRANTY; without even the implied warranty of 
+ MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the 
+ GNU General Public License for more details. 
+ 
+ You should have received a copy of the GNU General Public License 
+ along with this program; if not, write to the Free Software 
+ Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA. 
+ 
+ This file is subject to the Classpath exception as provided in the  
+ LICENSE.txt file that accompanied this code.
+ */
+package greenfoot.gui;
+
+import threadchecker.OnThread;
+import threadchecker.Tag;
+
+import java.awt.Rectangle;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * An area of an image which has changed and needs repainting (or re-sending), made up
+ * of a small number of rectangles. Overlapping rectangles are merged as they are added,
+ * and if the region becomes too fragmented or too large it is simply marked as full,
+ * meaning that the whole image should be considered changed.
+ */
+@OnThread(Tag.Simulation)
+public class DamageRegion
+{
+    /** The maximum number of separate rectangles held before they are merged into one */
+    private static final int MAX_RECTANGLES = 16;
+
+    private final ArrayList<Rectangle> rectangles = new ArrayList<>();
+    private boolean full;
+    private int width;
+    private int height;
+
+    /**
+     * Empty the region, and set the size of the image it applies to. Areas added
+     * outside the image are ignored.
+     */
+    public void clear(int width, int height)
+    {
+        this.width = width;
+        this.height = height;
+        rectangles.clear();
+        full = false;
+    }
+
+    /**
+     * Mark the whole image as damaged.
+     */
+    public void setFull()
+    {
+        rectangles.clear();
+        full = true;
+    }
+
+    /**
+     * Check whether the whole image is damaged. If so, getRectangles() should be ignored.
+     */
+    public boolean isFull()
+    {
+        return full;
+    }
+
+    /**
+     * Check whether nothing is damaged.
+     */
+    public boolean isEmpty()
+    {
+        return !full && rectangles.isEmpty();
+    }
+
+    /**
+     * Get the damaged rectangles, which do not overlap each other. The returned list
+     * should not be modified.
+     */
+    public List<Rectangle> getRectangles()
+    {
+        return Collections.unmodifiableList(rectangles);
+    }
+
+    /**
+     * Add all of another region to this region.
+     */
+    public void add(DamageRegion other)
+    {
+        if (other.full) {
+            setFull();
+        }
+        else {
+            for (Rectangle r : other.rectangles) {
+                add(r);
+            }
+        }
+    }
+
+    /**
+     * Add a rectangle to the region.
+     */
+    public void add(Rectangle r)
+    {
+        if (full) {
+            return;
+        }
+
+        Rectangle added = r.intersection(new Rectangle(0, 0, width, height));
+        if (added.isEmpty()) {
+            return;
+        }
+
+        // Merge with any rectangles the new one overlaps. The merged rectangle may
+        // then overlap others, so keep going until it does not:
+        boolean merged;
+        do {
+            merged = false;
+            for (int i = 0; i < rectangles.size(); i++) {
+                Rectangle existing = rectangles.get(i);
+                if (existing.intersects(added)) {
+                    added = added.union(existing);
+                    rectangles.remove(i);
+                    merged = true;
+                    break;
+                }
+            }
+        } while (merged);
+
+        rectangles.add(added);
+
+        if (rectangles.size() > MAX_RECTANGLES) {
+            Rectangle bounds = new Rectangle(rectangles.get(0));
+            for (Rectangle existing : rectangles) {
+                bounds.add(existing);
+            }
+            rectangles.clear();
+            rectangles.add(bounds);
+        }
+
+        // Past a point, it is quicker to treat everything as damaged than to
+        // repaint in pieces:
+        long area = 0;
+        for (Rectangle existing : rectangles) {
+            area += (long) existing.width * existing.height;
+        }
+        if (area * 2 > (long) width * height) {
+            setFull();
+        }
+    }
+}
@@ -0,0 +1,296 @@
+/*
+ This file is part of the Greenfoot program. 
+ Copyright (C) 2026  Poul Henriksen and Michael Kolling
+ 
+ This program is free software; you can redistribute it and/or 
+ modify it under the terms of the GNU General Public License 
+ as published by the Free Software Foundation; either version 2 
+ of the License, or (at your option) any later version. 
+ 
+ This program is distributed in the hope that it will be useful, 
+ but WITHOUT ANY WARRANTY; without even the implied warranty of 
+ MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the 
+ GNU General Public License for more details. 
+ 
+ You should have received a copy of the GNU General Public License 
+ along with this program; if not, write to the Free Software 
+ Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA. 
+ 
+ This file is subject to the Classpath exception as provided in the  
+ LICENSE.txt file that accompanied this code.
+ */
+package greenfoot.gui;
+
+import greenfoot.util.GraphicsUtilities;
+import threadchecker.OnThread;
+import threadchecker.Tag;
+
+import java.awt.AlphaComposite;
+import java.awt.Graphics2D;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.Rectangle2D;
+import java.awt.image.BufferedImage;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.WeakHashMap;
+
+/**
+ * A cache of rotated copies of actor images, so that rotated actors can be
+ * painted without transforming the graphics every frame. Sprites are keyed on
+ * the source image's pixel data (and its modification count), the rotation,
+ * and whether the centre of rotation falls half-way between pixels. The cache
+ * holds up to a maximum number of bytes of rotated images, discarding the
+ * least recently used when it is full. Only the rotated copies count towards
+ * that maximum: the source images belong to their GreenfootImage and are not
+ * counted, although a cached sprite keeps its source image from being collected.
+ * The cache holds the only references to its sprites, so that those it discards
+ * can be collected; they are looked up again each time they are drawn.
+ *
+ * <p>An image which has been modified since the last time it was drawn is not
+ * cached; it is likely to be modified again before the next frame (for example,
+ * an image which is redrawn in every act), and caching it would only fill the
+ * cache with sprites which are never drawn twice. Such images are rotated with
+ * getUncachedSprite instead, into a buffer which is reused. (They are not drawn
+ * with a transform, since a transformed draw does not always cover the same
+ * pixels as drawing a sprite, which would make incremental repaints differ from
+ * a full render.)
+ *
+ * <p>Actors which share an image (such as those created with the image of
+ * their class) share the rotated sprites as well.
+ */
+@OnThread(Tag.Simulation)
+public class SpriteCache
+{
+    /** The default maximum memory used by the rotated images, in bytes */
+    public static final long DEFAULT_MAX_BYTES = 16L * 1024 * 1024;
+
+    private final long maxBytes;
+    private long cachedBytes;
+    private final LinkedHashMap<Sprite, Sprite> sprites = new LinkedHashMap<>(64, 0.75f, true);
+    /** The modification count of each source image when it was last drawn */
+    private final WeakHashMap<BufferedImage, Integer> lastModCounts = new WeakHashMap<>();
+    /** The key used to look sprites up, reused so that drawing a cached sprite does not allocate */
+    private final Sprite lookup = new Sprite(null, 0, 0, false, false);
+    /** The sprite used for images which are not cached; see getUncachedSprite */
+    private final Sprite uncached = new Sprite(null, 0, 0, false, false);
+
+    @OnThread(Tag.Any)
+    public SpriteCache()
+    {
+        this(DEFAULT_MAX_BYTES);
+    }
+
+    @OnThread(Tag.Any)
+    public SpriteCache(long maxBytes)
+    {
+        this.maxBytes = maxBytes;
+        uncached.buffer = GraphicsUtilities.createCompatibleTranslucentImage(1, 1);
+    }
+
+    /**
+     * A rotated copy of an image. A sprite is drawn at the position the
+     * unrotated image would be drawn, plus (offsetX, offsetY).
+     */
+    public static final class Sprite
+    {
+        private BufferedImage source;
+        private int modCount;
+        private int rotation;
+        private boolean halfX;
+        private boolean halfY;
+
+        private BufferedImage image;
+        /**
+         * For a sprite which is drawn again for each image (rather than cached), the
+         * image which its images are part of, so that they need not be created each time.
+         */
+        private BufferedImage buffer;
+        private int offsetX;
+        private int offsetY;
+
+        private Sprite(BufferedImage source, int modCount, int rotation, boolean halfX, boolean halfY)
+        {
+            set(source, modCount, rotation, halfX, halfY);
+        }
+
+        /**
+         * Set the parameters of the sprite. Only used for the lookup key: a sprite
+         * in the cache must not be changed.
+         */
+        private void set(BufferedImage source, int modCount, int rotation, boolean halfX, boolean halfY)
+        {
+            this.source = source;
+            this.modCount = modCount;
+            this.rotation = rotation;
+            this.halfX = halfX;
+            this.halfY = halfY;
+        }
+
+        /**
+         * Check whether this sprite is the rotated image for the given parameters.
+         */
+        public boolean matches(BufferedImage source, int modCount, int rotation, boolean halfX, boolean halfY)
+        {
+            return this.source == source && this.modCount == modCount && this.rotation == rotation
+                    && this.halfX == halfX && this.halfY == halfY;
+        }
+
+        public BufferedImage getImage()
+        {
+            return image;
+        }
+
+        public int getOffsetX()
+        {
+            return offsetX;
+        }
+
+        public int getOffsetY()
+        {
+            return offsetY;
+        }
+
+        /**
+         * Draw the rotated image. The rotation is about the centre of the source
+         * image, moved by half a pixel right and/or down if halfX/halfY are set,
+         * to match the way the renderer positions rotated images.
+         * 
+         * <p>A sprite with a buffer draws its image in the buffer, which is
+         * made bigger if necessary, so that the image need not be created each
+         * time the sprite is drawn.
+         */
+        private void render()
+        {
+            double pivotX = source.getWidth() / 2. + (halfX ? 0.5 : 0);
+            double pivotY = source.getHeight() / 2. + (halfY ? 0.5 : 0);
+            AffineTransform rotate = AffineTransform.getRotateInstance(Math.toRadians(rotation), pivotX, pivotY);
+            Rectangle2D bounds = rotate.createTransformedShape(
+                    new Rectangle2D.Double(0, 0, source.getWidth(), source.getHeight())).getBounds2D();
+            offsetX = (int) Math.floor(bounds.getMinX());
+            offsetY = (int) Math.floor(bounds.getMinY());
+            int width = Math.max(1, (int) Math.ceil(bounds.getMaxX()) - offsetX);
+            int height = Math.max(1, (int) Math.ceil(bounds.getMaxY()) - offsetY);
+
+            if (buffer == null) {
+                image = GraphicsUtilities.createCompatibleTranslucentImage(width, height);
+            }
+            else if (image == null || image.getWidth() != width || image.getHeight() != height) {
+                if (buffer.getWidth() < width || buffer.getHeight() < height) {
+                    // Leave room for slightly bigger images too:
+                    buffer = GraphicsUtilities.createCompatibleTranslucentImage(
+                            Math.max(buffer.getWidth(), width + 16), Math.max(buffer.getHeight(), height + 16));
+                }
+                image = buffer.getSubimage(0, 0, width, height);
+            }
+
+            Graphics2D g = image.createGraphics();
+            if (buffer != null) {
+                g.setComposite(AlphaComposite.Clear);
+                g.fillRect(0, 0, width, height);
+                g.setComposite(AlphaComposite.SrcOver);
+            }
+            g.translate(-offsetX, -offsetY);
+            g.transform(rotate);
+            g.drawImage(source, 0, 0, null);
+            g.dispose();
+        }
+
+        private long getBytes()
+        {
+            return 4L * image.getWidth() * image.getHeight();
+        }
+
+        @Override
+        public boolean equals(Object o)
+        {
+            if (! (o instanceof Sprite)) {
+                return false;
+            }
+            Sprite other = (Sprite) o;
+            return other.matches(source, modCount, rotation, halfX, halfY);
+        }
+
+        @Override
+        public int hashCode()
+        {
+            int hash = System.identityHashCode(source);
+            hash = hash * 31 + modCount;
+            hash = hash * 31 + rotation;
+            return hash * 4 + (halfX ? 2 : 0) + (halfY ? 1 : 0);
+        }
+    }
+
+    /**
+     * Get the rotated copy of an image, creating it if it is not in the cache.
+     * If the image has been modified since it was last passed to this method,
+     * null is returned instead, and getUncachedSprite should be used. The sprite
+     * should not be kept after it is drawn, so that it can be collected once it
+     * has been removed from the cache.
+     *
+     * @param source    The image to rotate. It must not be modified afterwards
+     *                  (unless modCount is changed).
+     * @param modCount  The modification count of the image
+     * @param rotation  The rotation, in degrees clockwise
+     * @param halfX     Whether the centre of rotation is half a pixel right of the image centre
+     * @param halfY     Whether the centre of rotation is half a pixel below the image centre
+     * @return  The rotated image, or null if the image is not to be cached
+     */
+    public Sprite getSprite(BufferedImage source, int modCount, int rotation, boolean halfX, boolean halfY)
+    {
+        Integer lastModCount = lastModCounts.get(source);
+        if (lastModCount == null || lastModCount != modCount) {
+            lastModCounts.put(source, modCount);
+            if (lastModCount != null) {
+                return null;
+            }
+        }
+
+        lookup.set(source, modCount, rotation, halfX, halfY);
+        Sprite sprite = sprites.get(lookup);
+        lookup.source = null;
+        if (sprite == null) {
+            sprite = new Sprite(source, modCount, rotation, halfX, halfY);
+            sprite.render();
+            sprites.put(sprite, sprite);
+            cachedBytes += sprite.getBytes();
+            evict();
+        }
+        return sprite;
+    }
+
+    /**
+     * Get a rotated copy of an image which is not to be cached (see getSprite).
+     * The same sprite, with the same image, is drawn again for the next image
+     * passed to this method, so it must be used straight away. The parameters
+     * are the same as for getSprite.
+     */
+    public Sprite getUncachedSprite(BufferedImage source, int modCount, int rotation, boolean halfX, boolean halfY)
+    {
+        uncached.set(source, modCount, rotation, halfX, halfY);
+        uncached.render();
+        uncached.source = null;
+        return uncached;
+    }
+
+    /**
+     * Remove the least recently used sprites until the cache is within its size limit.
+     */
+    private void evict()
+    {
+        Iterator<Sprite> i = sprites.keySet().iterator();
+        while (cachedBytes > maxBytes && i.hasNext()) {
+            cachedBytes -= i.next().getBytes();
+            i.remove();
+        }
+    }
+
+    /**
+     * Remove all sprites from the cache.
+     */
+    public void clear()
+    {
+        sprites.clear();
+        lastModCounts.clear();
+        cachedBytes = 0;
+    }
+}
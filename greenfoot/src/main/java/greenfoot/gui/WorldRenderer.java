@@ -34,36 +34,112 @@ import threadchecker.Tag;
 
 import java.awt.*;
 import java.awt.geom.AffineTransform;
+import java.awt.geom.Rectangle2D;
 import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.WeakHashMap;
 
 /**
  * A class which handles the rendering of a World into a BufferedImage, including
  * handling the currently-dragging actor (if any).
+ * 
+ * <p>Rendering is incremental: the renderer remembers where each actor was painted,
+ * and with which image, and only repaints the areas which have changed since the
+ * target image was last rendered into. Images rendered into by a renderer should
+ * therefore not be modified by anything else.
  */
 @OnThread(Tag.Simulation)
 public class WorldRenderer
 {
     private static final Color BACKGROUND = Color.WHITE;
     
+    /**
+     * The number of frames of damage history kept. An image which was last rendered
+     * into longer ago than this is repainted completely.
+     */
+    private static final int DAMAGE_HISTORY = 8;
+    
     /** The actor being dragged. Null if no dragging. */
     private Actor dragActor;
     /** The current location where the object is dragged - in pixel coordinates relative to this canvas. */
     private Point dragLocation;
     /** Image used when dragging new actors on the world. Includes the drop shadow.*/
     private BufferedImage dragImage;
+    /** Rotated actor images, so rotated actors can be drawn without a transform */
+    private final SpriteCache spriteCache = new SpriteCache();
+    
+    /** The number of frames rendered so far */
+    private long frameCount;
+    /** The area changed by each of the last few frames, indexed by frame number modulo DAMAGE_HISTORY */
+    private final DamageRegion[] frameDamage = new DamageRegion[DAMAGE_HISTORY];
+    /** The frame number last rendered into each image */
+    private final Map<BufferedImage, Long> imageFrames = new WeakHashMap<>();
+    /** The area to repaint in the current target image */
+    private final DamageRegion repaintArea = new DamageRegion();
+    
+    /** The world, and its size, last painted. */
+    private World paintedWorld;
+    private int paintedWidth;
+    private int paintedHeight;
+    /** The state of the background last painted */
+    private GreenfootImage paintedBackground;
+    private BufferedImage paintedBackgroundSource;
+    private int paintedBackgroundModCount;
+    private int paintedBackgroundTransparency;
+    /** The actors last painted */
+    private final Map<Actor, PaintedActor> paintedActors = new IdentityHashMap<>();
+    /** The actors last painted, in paint order */
+    private final List<PaintedActor> paintOrder = new ArrayList<>();
+    /** The text labels last painted */
+    private final List<TextLabel> paintedLabels = new ArrayList<>();
+
+    /**
+     * The state of an actor when it was last painted.
+     */
+    private static class PaintedActor
+    {
+        private final Actor actor;
+        private GreenfootImage image;
+        private BufferedImage source;
+        private int modCount;
+        private int transparency;
+        private int rotation;
+        private int paintX;
+        private int paintY;
+        private double xCenter;
+        private double yCenter;
+        private int paintSeq;
+        /** The frame in which this actor was last seen in the world */
+        private long frame;
+        /** The area covered by the actor's image */
+        private final Rectangle bounds = new Rectangle();
+
+        private PaintedActor(Actor actor)
+        {
+            this.actor = actor;
+        }
+    }
 
     @OnThread(Tag.Any)
     public WorldRenderer()
     {
+        for (int i = 0; i < DAMAGE_HISTORY; i++) {
+            frameDamage[i] = new DamageRegion();
+        }
     }
     
     /**
      * Render the currently held world into the given image.  It is assumed
      * that the image size matches the current world size.
      * 
+     * <p>If the image was rendered into recently by this renderer, only the areas
+     * which have changed since then are repainted.
+     * 
      * @param drawWorld The world to draw (may be null, in which case a blank image is drawn)
      * @param worldImage The image to draw onto, which is assumed to be
      *                   of the right size for the world (or desired blank size
@@ -73,71 +149,318 @@ public class WorldRenderer
     {
         Graphics2D g2 = (Graphics2D)worldImage.getGraphics();
         
+        frameCount++;
+        DamageRegion damage = frameDamage[(int) (frameCount % DAMAGE_HISTORY)];
+        damage.clear(worldImage.getWidth(), worldImage.getHeight());
+        
         if (drawWorld == null)
         {
+            forgetPaintedWorld();
+            damage.setFull();
             g2.setColor(BACKGROUND);
             g2.fillRect(0, 0, worldImage.getWidth(), worldImage.getHeight());
         }
         else
         {
-            paintBackground(g2, drawWorld, worldImage.getWidth(), worldImage.getHeight());
-            paintObjects(g2, drawWorld);
-            paintDraggedObject(g2, drawWorld);
-            WorldVisitor.paintDebug(drawWorld, g2);
-            paintWorldText(g2, drawWorld);
+            updatePaintedState(drawWorld, damage, worldImage.getWidth(), worldImage.getHeight());
+            findRepaintArea(worldImage);
+            
+            if (repaintArea.isFull())
+            {
+                paintWorld(g2, drawWorld, null, worldImage.getWidth(), worldImage.getHeight());
+            }
+            else
+            {
+                for (Rectangle r : repaintArea.getRectangles())
+                {
+                    g2.setClip(r);
+                    paintWorld(g2, drawWorld, r, worldImage.getWidth(), worldImage.getHeight());
+                }
+            }
+        }
+        
+        g2.dispose();
+        imageFrames.put(worldImage, frameCount);
+    }
+    
+    /**
+     * Get the area which changed in the last frame rendered by renderWorld, compared
+     * to the frame before it (regardless of which images they were rendered into).
+     * The returned region is only valid until the next call to renderWorld.
+     */
+    public DamageRegion getFrameDamage()
+    {
+        return frameDamage[(int) (frameCount % DAMAGE_HISTORY)];
+    }
+    
+    /**
+     * Paint the world, or part of it.
+     * 
+     * @param clip  The area to paint (which the graphics should already be clipped to),
+     *              or null to paint everything.
+     */
+    private void paintWorld(Graphics2D g2, World drawWorld, Rectangle clip, int width, int height)
+    {
+        paintBackground(g2, drawWorld, width, height);
+        paintObjects(g2, clip);
+        paintDraggedObject(g2, drawWorld);
+        WorldVisitor.paintDebug(drawWorld, g2);
+        paintWorldText(g2, drawWorld);
+    }
+    
+    /**
+     * Forget what was painted, so that the next world painted is painted completely.
+     */
+    private void forgetPaintedWorld()
+    {
+        paintedWorld = null;
+        paintedBackground = null;
+        paintedBackgroundSource = null;
+        paintedActors.clear();
+        paintOrder.clear();
+        paintedLabels.clear();
+    }
+    
+    /**
+     * Work out the area of the given image which needs repainting, from the damage
+     * done by each frame since the image was last rendered into, and store it
+     * in repaintArea.
+     */
+    private void findRepaintArea(BufferedImage worldImage)
+    {
+        repaintArea.clear(worldImage.getWidth(), worldImage.getHeight());
+        
+        Long imageFrame = imageFrames.get(worldImage);
+        if (imageFrame == null || frameCount - imageFrame > DAMAGE_HISTORY) {
+            repaintArea.setFull();
+            return;
+        }
+        
+        for (long frame = imageFrame + 1; frame <= frameCount && !repaintArea.isFull(); frame++) {
+            repaintArea.add(frameDamage[(int) (frame % DAMAGE_HISTORY)]);
         }
     }
+    
+    /**
+     * Record the current state of the world (the actors' positions and images, the
+     * background and the text labels) for painting, and add any areas which have
+     * changed since the last frame to the damage region.
+     */
+    private void updatePaintedState(World drawWorld, DamageRegion damage, int width, int height)
+    {
+        if (drawWorld != paintedWorld || width != paintedWidth || height != paintedHeight) {
+            forgetPaintedWorld();
+            paintedWorld = drawWorld;
+            paintedWidth = width;
+            paintedHeight = height;
+            damage.setFull();
+        }
+        
+        // We can't tell which part of the background has changed, so any change
+        // means repainting everything:
+        GreenfootImage background = WorldVisitor.getBackgroundImage(drawWorld);
+        BufferedImage backgroundSource = background == null ? null : ImageVisitor.getCacheableImage(background);
+        if (background != null && (backgroundSource == null || background != paintedBackground
+                || backgroundSource != paintedBackgroundSource
+                || ImageVisitor.getModCount(background) != paintedBackgroundModCount
+                || background.getTransparency() != paintedBackgroundTransparency)) {
+            damage.setFull();
+        }
+        else if (background == null && paintedBackground != null) {
+            damage.setFull();
+        }
+        paintedBackground = background;
+        paintedBackgroundSource = backgroundSource;
+        if (background != null) {
+            paintedBackgroundModCount = ImageVisitor.getModCount(background);
+            paintedBackgroundTransparency = background.getTransparency();
+        }
+        
+        if (dragImage != null) {
+            damage.setFull();
+        }
 
+        updatePaintedActors(drawWorld, damage);
+        
+        List<TextLabel> labels = WorldVisitor.getTextLabels(drawWorld);
+        if (! labels.equals(paintedLabels)) {
+            int cellSize = WorldVisitor.getCellSize(drawWorld);
+            for (TextLabel label : paintedLabels) {
+                if (! labels.contains(label)) {
+                    damage.add(label.getBounds(cellSize));
+                }
+            }
+            for (TextLabel label : labels) {
+                if (! paintedLabels.contains(label)) {
+                    damage.add(label.getBounds(cellSize));
+                }
+            }
+            paintedLabels.clear();
+            paintedLabels.addAll(labels);
+        }
+    }
+    
     /**
-     * Paints all the objects.
+     * Record the position and image of every actor in the world, in paint order. The
+     * old and new areas of any actor which has changed (or been added or removed) are
+     * added to the damage region.
      *
      * Must be synchronized on the World.lock.
      */
-    private void paintObjects(Graphics2D g, World drawWorld)
+    private void updatePaintedActors(World drawWorld, DamageRegion damage)
     {
-        // This can happen if we try to grab a screenshot while the world is being replaced:
-        if (drawWorld == null)
-            return;
-
+        int cellSize = WorldVisitor.getCellSize(drawWorld);
+        paintOrder.clear();
+        
         Set<Actor> objects = WorldVisitor.getObjectsListInPaintOrder(drawWorld);
         int paintSeq = 0;
+        // The highest previous paint sequence number of the actors so far; an actor
+        // with a lower one has moved in front of some other actor:
+        int maxPreviousSeq = -1;
         for (Iterator<Actor> iter = objects.iterator(); iter.hasNext();) {
             Actor thing = iter.next();
-            int cellSize = WorldVisitor.getCellSize(drawWorld);
-
             GreenfootImage image = ActorVisitor.getDisplayImage(thing);
-            if (image != null) {
-                ActorVisitor.setLastPaintSeqNum(thing, paintSeq++);
-
-                double halfWidth = image.getWidth() / 2.;
-                double halfHeight = image.getHeight() / 2.;
+            if (image == null) {
+                continue;
+            }
+            ActorVisitor.setLastPaintSeqNum(thing, paintSeq);
+            
+            int ax;
+            int ay;
+            try {
+                ax = ActorVisitor.getX(thing);
+                ay = ActorVisitor.getY(thing);
+            }
+            catch (IllegalStateException e) {
+                // We get this if the object has been removed from the
+                // world. That can happen when interactively invoking a
+                // method that removes an object from the world, while the
+                // scenario is executing.
+                continue;
+            }
+            
+            double xCenter = ax * cellSize + cellSize / 2.;
+            int paintX = (int) Math.floor(xCenter - image.getWidth() / 2.);
+            double yCenter = ay * cellSize + cellSize / 2.;
+            int paintY = (int) Math.floor(yCenter - image.getHeight() / 2.);
+            int rotation = ActorVisitor.getRotation(thing);
+            BufferedImage source = ImageVisitor.getCacheableImage(image);
+            int modCount = ImageVisitor.getModCount(image);
+            
+            PaintedActor painted = paintedActors.get(thing);
+            boolean changed;
+            if (painted == null) {
+                painted = new PaintedActor(thing);
+                paintedActors.put(thing, painted);
+                changed = true;
+            }
+            else {
+                changed = source == null || image != painted.image || source != painted.source
+                        || modCount != painted.modCount || image.getTransparency() != painted.transparency
+                        || rotation != painted.rotation || paintX != painted.paintX || paintY != painted.paintY
+                        || painted.paintSeq < maxPreviousSeq;
+                maxPreviousSeq = Math.max(maxPreviousSeq, painted.paintSeq);
+                if (changed) {
+                    damage.add(painted.bounds);
+                }
+            }
+            
+            if (changed) {
+                painted.image = image;
+                painted.source = source;
+                painted.modCount = modCount;
+                painted.transparency = image.getTransparency();
+                painted.rotation = rotation;
+                painted.paintX = paintX;
+                painted.paintY = paintY;
+                painted.xCenter = xCenter;
+                painted.yCenter = yCenter;
+                calculateBounds(painted);
+                damage.add(painted.bounds);
+            }
+            painted.paintSeq = paintSeq++;
+            painted.frame = frameCount;
+            paintOrder.add(painted);
+        }
+        
+        // Repaint where any actors which have gone used to be:
+        for (Iterator<PaintedActor> iter = paintedActors.values().iterator(); iter.hasNext();) {
+            PaintedActor painted = iter.next();
+            if (painted.frame != frameCount) {
+                damage.add(painted.bounds);
+                iter.remove();
+            }
+        }
+    }
+    
+    /**
+     * Calculate the area covered by an actor's image, taking its rotation into account.
+     */
+    private static void calculateBounds(PaintedActor painted)
+    {
+        int width = painted.image.getWidth();
+        int height = painted.image.getHeight();
+        if (painted.rotation == 0) {
+            painted.bounds.setBounds(painted.paintX, painted.paintY, width, height);
+        }
+        else {
+            AffineTransform rotate = AffineTransform.getRotateInstance(Math.toRadians(painted.rotation),
+                    painted.xCenter, painted.yCenter);
+            Rectangle2D rotated = rotate.createTransformedShape(
+                    new Rectangle(painted.paintX, painted.paintY, width, height)).getBounds2D();
+            painted.bounds.setBounds(rotated.getBounds());
+            // Allow for rounding when the rotated image is drawn:
+            painted.bounds.grow(1, 1);
+        }
+    }
 
-                AffineTransform oldTx = null;
-                try {
-                    int ax = ActorVisitor.getX(thing);
-                    int ay = ActorVisitor.getY(thing);
-                    double xCenter = ax * cellSize + cellSize / 2.;
-                    int paintX = (int) Math.floor(xCenter - halfWidth);
-                    double yCenter = ay * cellSize + cellSize / 2.;
-                    int paintY = (int) Math.floor(yCenter - halfHeight);
-
-                    int rotation = ActorVisitor.getRotation(thing);
-                    if (rotation != 0) {
-                        // don't bother transforming if it is not rotated at
-                        // all.
-                        oldTx = g.getTransform();
-                        g.rotate(Math.toRadians(rotation), xCenter, yCenter);
-                    }
-
-                    ImageVisitor.drawImage(image, g, paintX, paintY, null, true);
+    /**
+     * Paints the objects recorded by updatePaintedState.
+     * 
+     * @param clip  The area being painted, or null if painting everything. Objects
+     *              outside this area are not painted.
+     */
+    private void paintObjects(Graphics2D g, Rectangle clip)
+    {
+        for (PaintedActor painted : paintOrder) {
+            if (clip != null && ! painted.bounds.intersects(clip)) {
+                continue;
+            }
+            
+            GreenfootImage image = painted.image;
+            int rotation = painted.rotation;
+            int paintX = painted.paintX;
+            int paintY = painted.paintY;
+            double xCenter = painted.xCenter;
+            double yCenter = painted.yCenter;
+            
+            BufferedImage source = rotation == 0 ? null : painted.source;
+            if (source != null) {
+                // Draw a pre-rotated copy of the image. The centre of rotation
+                // may be half a pixel from the image centre:
+                boolean halfX = paintX != xCenter - image.getWidth() / 2.;
+                boolean halfY = paintY != yCenter - image.getHeight() / 2.;
+                int modCount = painted.modCount;
+                SpriteCache.Sprite sprite = spriteCache.getSprite(source, modCount, rotation, halfX, halfY);
+                if (sprite == null) {
+                    // The image has changed since it was last drawn, and is
+                    // probably going to change again, so don't cache it:
+                    sprite = spriteCache.getUncachedSprite(source, modCount, rotation, halfX, halfY);
                 }
-                catch (IllegalStateException e) {
-                    // We get this if the object has been removed from the
-                    // world. That can happen when interactively invoking a
-                    // method that removes an object from the world, while the
-                    // scenario is executing.
+                ImageVisitor.drawDerivedImage(image, g, sprite.getImage(),
+                        paintX + sprite.getOffsetX(), paintY + sprite.getOffsetY(), true);
+            }
+            else {
+                AffineTransform oldTx = null;
+                if (rotation != 0) {
+                    // don't bother transforming if it is not rotated at
+                    // all.
+                    oldTx = g.getTransform();
+                    g.rotate(Math.toRadians(rotation), xCenter, yCenter);
                 }
 
+                ImageVisitor.drawImage(image, g, paintX, paintY, null, true);
+
                 // Restore the old state of the graphics
                 if (oldTx != null) {
                     g.setTransform(oldTx);
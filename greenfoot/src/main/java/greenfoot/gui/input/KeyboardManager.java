@@ -74,6 +74,11 @@ public class KeyboardManager
     @OnThread(Tag.Simulation)
     public synchronized void clearLatchedKeys()
     {
+        if (keyLatched.isEmpty())
+        {
+            // The usual case; don't create an iterator
+            return;
+        }
         for (Iterator<String> i = keyLatched.iterator(); i.hasNext(); )
         {
             String keyCode = i.next();
@@ -156,61 +161,67 @@ public class KeyboardManager
             return "" + (char)('0' + (keycode.ordinal() - KeyCode.NUMPAD0.ordinal()));
         }
 
-        // Seems on linux (at least) we can't get the numlock state (get an
-        // UnsupportedOperationException). Update: on Java 1.7.0_03 at least,
-        // we can now retrieve numlock state on linux.
-        boolean numlock = true;
-        if (hasNumLock)
+        // The keypad arrow keys depend on numlock.  Getting the numlock state may be slow
+        // (it asks the OS) so we only check it for those keys:
+        if (keycode == KeyCode.KP_UP || keycode == KeyCode.KP_DOWN
+                || keycode == KeyCode.KP_LEFT || keycode == KeyCode.KP_RIGHT)
         {
-            try
-            {
-                numlock = Toolkit.getDefaultToolkit().getLockingKeyState(KeyEvent.VK_NUM_LOCK);
-            }
-            catch (UnsupportedOperationException usoe)
+            // Seems on linux (at least) we can't get the numlock state (get an
+            // UnsupportedOperationException). Update: on Java 1.7.0_03 at least,
+            // we can now retrieve numlock state on linux.
+            boolean numlock = true;
+            if (hasNumLock)
             {
-                // Don't try to get numlock status again
-                hasNumLock = false;
+                try
+                {
+                    numlock = Toolkit.getDefaultToolkit().getLockingKeyState(KeyEvent.VK_NUM_LOCK);
+                }
+                catch (UnsupportedOperationException usoe)
+                {
+                    // Don't try to get numlock status again
+                    hasNumLock = false;
+                }
             }
-        }
 
-        if (numlock)
-        {
-            // Translate to digit
-            if (keycode == KeyCode.KP_UP)
-            {
-                keycode = KeyCode.DIGIT8;
-            }
-            else if (keycode == KeyCode.KP_DOWN)
-            {
-                keycode = KeyCode.DIGIT2;
-            }
-            else if (keycode == KeyCode.KP_LEFT)
-            {
-                keycode = KeyCode.DIGIT4;
-            }
-            else if (keycode == KeyCode.KP_RIGHT)
-            {
-                keycode = KeyCode.DIGIT6;
-            }
-        }
-        else
-        {
-            // Translate to direction
-            if (keycode == KeyCode.KP_UP)
-            {
-                keycode = KeyCode.UP;
-            }
-            else if (keycode == KeyCode.KP_DOWN)
-            {
-                keycode = KeyCode.DOWN;
-            }
-            else if (keycode == KeyCode.KP_LEFT)
+            if (numlock)
             {
-                keycode = KeyCode.LEFT;
+                // Translate to digit
+                if (keycode == KeyCode.KP_UP)
+                {
+                    keycode = KeyCode.DIGIT8;
+                }
+                else if (keycode == KeyCode.KP_DOWN)
+                {
+                    keycode = KeyCode.DIGIT2;
+                }
+                else if (keycode == KeyCode.KP_LEFT)
+                {
+                    keycode = KeyCode.DIGIT4;
+                }
+                else if (keycode == KeyCode.KP_RIGHT)
+                {
+                    keycode = KeyCode.DIGIT6;
+                }
             }
-            else if (keycode == KeyCode.KP_RIGHT)
+            else
             {
-                keycode = KeyCode.RIGHT;
+                // Translate to direction
+                if (keycode == KeyCode.KP_UP)
+                {
+                    keycode = KeyCode.UP;
+                }
+                else if (keycode == KeyCode.KP_DOWN)
+                {
+                    keycode = KeyCode.DOWN;
+                }
+                else if (keycode == KeyCode.KP_LEFT)
+                {
+                    keycode = KeyCode.LEFT;
+                }
+                else if (keycode == KeyCode.KP_RIGHT)
+                {
+                    keycode = KeyCode.RIGHT;
+                }
             }
         }
 
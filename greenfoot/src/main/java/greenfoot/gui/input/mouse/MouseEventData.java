@@ -29,13 +29,16 @@ import greenfoot.World;
 import threadchecker.OnThread;
 import threadchecker.Tag;
 
-import java.util.Arrays;
-
 
 /**
  * Class to hold data collected from the mouse events. Using MouseInfo is
  * not enough, since a mouse info object doesn't contain all the info we
  * need (whether it was a drag, move, etc)
+ * 
+ * <p>The MouseInfo objects are owned by the MouseEventData, and are re-used
+ * (rather than replaced) each time an event is recorded, so that collecting
+ * mouse data doesn't allocate any objects.
+ * 
  * @author Poul Henriksen
  * 
  */
@@ -46,30 +49,63 @@ class MouseEventData
     
     // We need to hold the data for each individual action that might have
     // happened, because what to report depends on what we are interested in,
-    // with relation to the actor, world or globally.
-    private MouseInfo mouseDragEndedInfo;
-    private MouseInfo mouseClickedInfo;
-    private MouseInfo mousePressedInfo;
-    private MouseInfo mouseDraggedInfo;
-    private MouseInfo mouseMovedInfo;
-    private MouseEventData dragStartedBy;
+    // with relation to the actor, world or globally.  Each info is only valid
+    // if the corresponding flag is set.
+    private final MouseInfo mouseDragEndedInfo = MouseInfoVisitor.newMouseInfo();
+    private final MouseInfo mouseClickedInfo = MouseInfoVisitor.newMouseInfo();
+    private final MouseInfo mousePressedInfo = MouseInfoVisitor.newMouseInfo();
+    private final MouseInfo mouseDraggedInfo = MouseInfoVisitor.newMouseInfo();
+    private final MouseInfo mouseMovedInfo = MouseInfoVisitor.newMouseInfo();
+    // Holds just the latest location, after init():
+    private final MouseInfo locationInfo = MouseInfoVisitor.newMouseInfo();
+    private boolean dragEnded;
+    private boolean clicked;
+    private boolean pressed;
+    private boolean dragged;
+    private boolean moved;
+    // The drag start (see MousePollingManager) which the drag-end was started by:
+    private int dragStartedBy;
 
+    /**
+     * Forget all the events, but retain the latest location (if any).
+     */
     public void init()
     {
-        mousePressedInfo = null;
-        mouseClickedInfo = null;
-        mouseDraggedInfo = null;
-        mouseDragEndedInfo = null;
-        mouseMovedInfo = null;
-        if (mouseInfo != null)
+        pressed = false;
+        clicked = false;
+        dragged = false;
+        dragEnded = false;
+        moved = false;
+        if (mouseInfo != null && mouseInfo != locationInfo)
         {
-            MouseInfo blankedMouseInfo = MouseInfoVisitor.newMouseInfo();
             // Only retain info on latest location, not clicks etc:
-            MouseInfoVisitor.setLoc(blankedMouseInfo, mouseInfo.getX(), mouseInfo.getY(),
-                    MouseInfoVisitor.getPx(mouseInfo), MouseInfoVisitor.getPy(mouseInfo));
-            mouseInfo = blankedMouseInfo;
+            setInfo(locationInfo, mouseInfo.getX(), mouseInfo.getY(),
+                    MouseInfoVisitor.getPx(mouseInfo), MouseInfoVisitor.getPy(mouseInfo), 0);
+            mouseInfo = locationInfo;
         }
-        
+    }
+
+    /**
+     * Forget all the events, and the location, so that this object can be
+     * used to collect new data.
+     */
+    public void clear()
+    {
+        init();
+        mouseInfo = null;
+        dragStartedBy = 0;
+    }
+
+    /**
+     * Reset a MouseInfo to hold the given location and button, with no actor
+     * and no click count.
+     */
+    private static void setInfo(MouseInfo info, int x, int y, int px, int py, int button)
+    {
+        MouseInfoVisitor.setLoc(info, x, y, px, py);
+        MouseInfoVisitor.setButton(info, button);
+        MouseInfoVisitor.setActor(info, null);
+        MouseInfoVisitor.setClickCount(info, 0);
     }
     
     public MouseInfo getMouseInfo()
@@ -79,12 +115,12 @@ class MouseEventData
 
     public boolean isMousePressed()
     {
-        return mousePressedInfo != null;
+        return pressed;
     }
 
     public boolean isMousePressedOn(Object obj)
     {
-        return checkObject(obj, mousePressedInfo);
+        return pressed && checkObject(obj, mousePressedInfo);
     }
 
     /**
@@ -99,10 +135,9 @@ class MouseEventData
     public void mousePressed(int x, int y, int px, int py, int button)
     {
         init();
-        mousePressedInfo = MouseInfoVisitor.newMouseInfo();
+        pressed = true;
         mouseInfo = mousePressedInfo;  
-        MouseInfoVisitor.setButton(mouseInfo, button);
-        MouseInfoVisitor.setLoc(mouseInfo, x, y, px, py);
+        setInfo(mouseInfo, x, y, px, py, button);
     }
 
     public boolean isMouseClickedOn(Object obj)
@@ -112,12 +147,12 @@ class MouseEventData
         if(obj != null && (isMousePressed() && !isMousePressedOn(obj))) {
             return false;
         }
-        return checkObject(obj, mouseClickedInfo);
+        return clicked && checkObject(obj, mouseClickedInfo);
     }
     
     public boolean isMouseClicked()
     {
-        return mouseClickedInfo != null;
+        return clicked;
     }
     
     /**
@@ -132,25 +167,24 @@ class MouseEventData
      */
     public void mouseClicked(int x, int y, int px, int py, int button, int clickCount)
     {
-        MouseInfo tempPressedInfo = mousePressedInfo;        
+        boolean wasPressed = pressed;
         init();       
-        mousePressedInfo = tempPressedInfo;
+        pressed = wasPressed;
         
-        mouseClickedInfo = MouseInfoVisitor.newMouseInfo();;
+        clicked = true;
         mouseInfo = mouseClickedInfo;
-        MouseInfoVisitor.setButton(mouseInfo, button);
-        MouseInfoVisitor.setLoc(mouseInfo, x, y, px, py);
+        setInfo(mouseInfo, x, y, px, py, button);
         MouseInfoVisitor.setClickCount(mouseInfo, clickCount);
     }
 
     public boolean isMouseDragged()
     {
-        return mouseDraggedInfo != null;
+        return dragged;
     }
 
     public boolean isMouseDraggedOn(Object obj)
     {
-        return checkObject(obj, mouseDraggedInfo);
+        return dragged && checkObject(obj, mouseDraggedInfo);
     }
 
     /**
@@ -166,21 +200,20 @@ class MouseEventData
     public void mouseDragged(int x, int y, int px, int py, int button, Actor actor)
     {
         init();
-        mouseDraggedInfo = MouseInfoVisitor.newMouseInfo();
+        dragged = true;
         mouseInfo = mouseDraggedInfo;
-        MouseInfoVisitor.setButton(mouseInfo, button);
-        MouseInfoVisitor.setLoc(mouseInfo, x, y, px, py);
+        setInfo(mouseInfo, x, y, px, py, button);
         MouseInfoVisitor.setActor(mouseInfo, actor);
     }
 
     public boolean isMouseDragEnded()
     {
-        return mouseDragEndedInfo != null;
+        return dragEnded;
     }
 
     public boolean isMouseDragEndedOn(Object obj)
     {
-        return checkObject(obj, mouseDragEndedInfo);
+        return dragEnded && checkObject(obj, mouseDragEndedInfo);
     }
 
     /**
@@ -192,36 +225,36 @@ class MouseEventData
      * @param py    y-coordinate in pixels
      * @param button    which button was pressed
      * @param dragStartData  the data object holding information about the drag start event.
+     * @param dragStart  the number identifying the drag start event.
      */
-    public void mouseDragEnded(int x, int y, int px, int py, int button, MouseEventData dragStartData)
+    public void mouseDragEnded(int x, int y, int px, int py, int button, MouseEventData dragStartData, int dragStart)
     {
-        MouseInfo tempPressedInfo = mousePressedInfo;
-        MouseInfo tempClickedInfo = mouseClickedInfo;
+        boolean wasPressed = pressed;
+        boolean wasClicked = clicked;
         init();
-        mousePressedInfo = tempPressedInfo;
-        mouseClickedInfo = tempClickedInfo;
-        mouseDragEndedInfo = MouseInfoVisitor.newMouseInfo();;
+        pressed = wasPressed;
+        clicked = wasClicked;
+        dragEnded = true;
         mouseInfo = mouseDragEndedInfo;
-        MouseInfoVisitor.setButton(mouseInfo, button);
-        MouseInfoVisitor.setLoc(mouseInfo, x, y, px, py);
+        setInfo(mouseInfo, x, y, px, py, button);
         MouseInfoVisitor.setActor(mouseInfo, dragStartData.getActor());
-        this.dragStartedBy = dragStartData;
+        this.dragStartedBy = dragStart;
     }
 
     public void mouseExited()
     {
-        mouseInfo = mouseDraggedInfo;
-        mouseMovedInfo = null;
+        mouseInfo = dragged ? mouseDraggedInfo : null;
+        moved = false;
     }
     
     public boolean isMouseMoved()
     {
-        return mouseMovedInfo != null;
+        return moved;
     }
 
     public boolean isMouseMovedOn(Object obj)
     {
-        return checkObject(obj, mouseMovedInfo);
+        return moved && checkObject(obj, mouseMovedInfo);
     }
 
     /**
@@ -235,9 +268,9 @@ class MouseEventData
     public void mouseMoved(int x, int y, int px, int py)
     {
         init();
-        mouseMovedInfo = MouseInfoVisitor.newMouseInfo();;
+        moved = true;
         mouseInfo = mouseMovedInfo;
-        MouseInfoVisitor.setLoc(mouseInfo, x, y, px, py);
+        setInfo(mouseInfo, x, y, px, py, 0);
     }
 
     public Actor getActor()
@@ -265,9 +298,6 @@ class MouseEventData
      */
     private boolean checkObject(Object obj, MouseInfo info)
     {
-        if(info == null) {
-            return false;
-        }
         Actor actor = info.getActor();
         return obj == null || (obj instanceof World && actor == null) || actor == obj;
     }
@@ -279,19 +309,19 @@ class MouseEventData
         if(mouseInfo != null) {
             s += mouseInfo.toString();
         }
-        if(mousePressedInfo != null) {
+        if(pressed) {
             s += " pressed";
         }
-        if(mouseClickedInfo != null) {
+        if(clicked) {
             s += " clicked";
         }
-        if(mouseDraggedInfo != null) {
+        if(dragged) {
             s += " dragged";
         }
-        if(mouseDragEndedInfo != null) {
+        if(dragEnded) {
             s += " dragEnded";
         }
-        if(mouseMovedInfo != null) {
+        if(moved) {
             s += " moved";
         }
         return s;
@@ -305,26 +335,54 @@ class MouseEventData
     @OnThread(Tag.Simulation)
     public void setActors(WorldLocator locator)
     {
-        for (MouseInfo info : Arrays.asList(mouseInfo, mouseClickedInfo, mouseDragEndedInfo,
-                mouseMovedInfo, mousePressedInfo, mouseDraggedInfo))
+        if (mouseInfo != null)
+        {
+            setActor(mouseInfo, locator);
+        }
+        if (clicked)
+        {
+            setActor(mouseClickedInfo, locator);
+        }
+        if (dragEnded)
+        {
+            setActor(mouseDragEndedInfo, locator);
+        }
+        if (moved)
+        {
+            setActor(mouseMovedInfo, locator);
+        }
+        if (pressed)
+        {
+            setActor(mousePressedInfo, locator);
+        }
+        if (dragged)
+        {
+            setActor(mouseDraggedInfo, locator);
+        }
+    }
+
+    /**
+     * Map the position of a MouseInfo into an actor, if it doesn't have one already.
+     */
+    @OnThread(Tag.Simulation)
+    private static void setActor(MouseInfo info, WorldLocator locator)
+    {
+        if (info.getActor() == null)
         {
-            if (info != null && info.getActor() == null)
-            {
-                int x = MouseInfoVisitor.getPx(info);
-                int y = MouseInfoVisitor.getPy(info);
-                MouseInfoVisitor.setActor(info, locator.getTopMostActorAt(x, y));
-            }
+            int x = MouseInfoVisitor.getPx(info);
+            int y = MouseInfoVisitor.getPy(info);
+            MouseInfoVisitor.setActor(info, locator.getTopMostActorAt(x, y));
         }
     }
 
     /**
-     * If drag ended, and was started by the given MouseEventData, copy the drag-start
+     * If drag ended, and was started by the given drag start, copy the drag-start
      * actor to the drag-end info.
      */
-    public void setDragStartActor(MouseEventData dragStartData)
+    public void setDragStartActor(MouseEventData dragStartData, int dragStart)
     {
         // 
-        if (mouseDragEndedInfo != null && dragStartedBy == dragStartData)
+        if (dragEnded && dragStartedBy == dragStart)
         {
             MouseInfoVisitor.setActor(mouseDragEndedInfo, dragStartData.getActor());
         }
@@ -22,6 +22,7 @@
 package greenfoot.gui.input.mouse;
 
 import greenfoot.MouseInfo;
+import greenfoot.MouseInfoVisitor;
 import greenfoot.gui.input.mouse.MouseEventData;
 
 import java.awt.event.MouseEvent;
@@ -47,6 +48,12 @@ import threadchecker.Tag;
  * into current mouseInfo and the creation of a new future mouse data object is
  * started.
  * <p>
+ * The mouse data objects (and the MouseInfo objects they hold) are re-used
+ * rather than re-created each frame, so that collecting mouse events doesn't
+ * allocate any objects. Since the user may keep a MouseInfo, they are instead
+ * given a copy, which never changes; a new copy is only made when the mouse
+ * info has changed since the last one was made.
+ * <p>
  * 
  * If several events happen in the same frame the events are prioritized like
  * this: <br>
@@ -110,6 +117,13 @@ public class MousePollingManager
      */
     private MouseEventData potentialNewDragData = new MouseEventData();
     
+    /**
+     * A spare data object, which is used for the next future data.
+     * 
+     * <p>Access to this field must be synchronized.
+     */
+    private MouseEventData spareData = new MouseEventData();
+    
     /**
      * Locates the actors in the world (read only field, requires no synchronization).
      */
@@ -122,7 +136,22 @@ public class MousePollingManager
      * 
      * <p>Accessed only from the GUI thread.
      */
-    private MouseEventData dragStartData = new MouseEventData();
+    private final MouseEventData dragStartData = new MouseEventData();
+    
+    /**
+     * A number identifying the latest drag start (incremented each time the mouse is
+     * pressed), used to tell whether a drag-end belongs to the latest drag start.
+     * 
+     * <p>Access to this field must be synchronized.
+     */
+    private int dragStart;
+    
+    /**
+     * The copy of the current mouse info which was last returned to the user.
+     * 
+     * <p>Accessed only from the simulation thread.
+     */
+    private MouseInfo userMouseInfo;
 
     /**
      * Track whether the mouse is currently being dragged.
@@ -173,11 +202,14 @@ public class MousePollingManager
         // use futureData as our current data. (If there's been no event, i.e. if
         // gotNewEvent is false, futureData will contain no events).
         if (gotNewEvent) {
-            MouseEventData newData = new MouseEventData();
             futureData.setActors(locator);
+            // The old current data is finished with, and becomes the spare:
+            MouseEventData oldData = currentData;
             currentData = futureData;
-            futureData = newData;
-            potentialNewDragData = new MouseEventData();
+            futureData = spareData;
+            futureData.clear();
+            spareData = oldData;
+            potentialNewDragData.clear();
 
             if (gotNewDragStartEvent)
             {
@@ -185,7 +217,7 @@ public class MousePollingManager
                 // We need to also set the actor on the drag-ended if it both
                 // started this frame (true if gotNewDragStartEvent was true) and
                 // ended this frame (check inside setDragStartActor):
-                currentData.setDragStartActor(dragStartData);
+                currentData.setDragStartActor(dragStartData, dragStart);
                 gotNewDragStartEvent = false;
             }
             
@@ -330,7 +362,17 @@ public class MousePollingManager
     @OnThread(Tag.Simulation)
     public MouseInfo getMouseInfo()
     {
-        return currentData.getMouseInfo();
+        MouseInfo mouseInfo = currentData.getMouseInfo();
+        if (mouseInfo == null) {
+            return null;
+        }
+        // The current data's MouseInfo will be re-used for later events, so the
+        // user gets a copy. The copy is never changed, so it can be returned
+        // again for as long as the mouse info stays the same:
+        if (userMouseInfo == null || ! MouseInfoVisitor.isSame(mouseInfo, userMouseInfo)) {
+            userMouseInfo = MouseInfoVisitor.copy(mouseInfo);
+        }
+        return userMouseInfo;
     }   
 
     /**
@@ -423,7 +465,8 @@ public class MousePollingManager
             }
         
             // This might be the beginning of a drag so we store it
-            dragStartData = new MouseEventData();
+            dragStartData.clear();
+            dragStart++;
             int tx = locator.getTranslatedX(x);
             int ty = locator.getTranslatedY(y);
             dragStartData.mousePressed(tx, ty, x, y, getButton(button));
@@ -463,7 +506,9 @@ public class MousePollingManager
                 // dragEnded, should use the new one
                 if (futureData.isMouseDragEnded())
                 {
+                    MouseEventData oldData = futureData;
                     futureData = potentialNewDragData;
+                    potentialNewDragData = oldData;
                 }
                 
                 if (!PriorityManager.isHigherPriority(MouseEvent.MOUSE_RELEASED, futureData))
@@ -476,9 +521,9 @@ public class MousePollingManager
 
                 futureData.mouseClicked(tx, ty, x, y, getButton(button), 1);
                 
-                futureData.mouseDragEnded(tx, ty, x, y, getButton(button), dragStartData);
+                futureData.mouseDragEnded(tx, ty, x, y, getButton(button), dragStartData, dragStart);
                 isDragging = false;
-                potentialNewDragData = new MouseEventData();
+                potentialNewDragData.clear();
             }
         }
     }
@@ -546,9 +591,9 @@ public class MousePollingManager
      * Called when the world starts running, to discard any
      * old mouse data that may have been accumulated while paused.
      */
-    public void startedRunning()
+    public synchronized void startedRunning()
     {
-        futureData = new MouseEventData();
+        futureData.clear();
     }
 }
 
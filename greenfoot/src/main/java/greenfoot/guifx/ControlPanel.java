@@ -25,6 +25,7 @@ import bluej.Config;
 import bluej.utility.javafx.JavaFXUtil;
 import greenfoot.core.Simulation;
 import greenfoot.guifx.GreenfootStage.State;
+import greenfoot.vmcomm.VMCommsMain;
 import javafx.beans.binding.BooleanBinding;
 import javafx.beans.property.BooleanProperty;
 import javafx.beans.property.SimpleBooleanProperty;
@@ -72,6 +73,9 @@ public class ControlPanel extends GridPane
     private static final String RUN_BUTTON_TEXT = Config.getString("controls.run.button");
     private static final String RUN_BUTTON_TOOLTIP_TEXT = Config.getString("controls.run.shortDescription");
     private static final String PAUSE_BUTTON_TOOLTIP_TEXT = Config.getString("controls.pause.shortDescription");
+    private static final String SPEED_SLIDER_TOOLTIP_TEXT = Config.getString("controls.speedSlider.tooltip");
+    private static final String ACT_RATE_LABEL = Config.getString("controls.actRate.label");
+    private static final String FRAME_RATE_LABEL = Config.getString("controls.frameRate.label");
     
     private final Node run_icon = makeRunIcon();
     private final Node pause_icon = makePauseIcon();
@@ -136,7 +140,7 @@ public class ControlPanel extends GridPane
         speedSlider.setMajorTickUnit( max / 2 );
         speedSlider.setMinorTickCount(1);
         speedSlider.setBlockIncrement(20);
-        speedSlider.setTooltip(new Tooltip(Config.getString("controls.speedSlider.tooltip")));
+        speedSlider.setTooltip(new Tooltip(SPEED_SLIDER_TOOLTIP_TEXT));
         speedSlider.setFocusTraversable(false);
         speedSlider.setMaxWidth(150.0);
         speedSlider.setDisable(true);
@@ -241,6 +245,31 @@ public class ControlPanel extends GridPane
         speedSlider.setValue(simSpeed);
     }
 
+    /**
+     * Show the measured rates of the running simulation in the speed slider's tooltip.
+     * If both are zero (the simulation is not running), only the usual tooltip is shown.
+     * The rates are capped at VMCommsMain.MAX_RATE when they are sent from the debug VM,
+     * so a rate at the cap is shown as a lower bound.
+     */
+    public void setRates(int actRate, int frameRate)
+    {
+        if (actRate == 0 && frameRate == 0)
+        {
+            speedSlider.getTooltip().setText(SPEED_SLIDER_TOOLTIP_TEXT);
+        }
+        else
+        {
+            speedSlider.getTooltip().setText(SPEED_SLIDER_TOOLTIP_TEXT
+                    + "\n" + ACT_RATE_LABEL + " " + formatRate(actRate)
+                    + "\n" + FRAME_RATE_LABEL + " " + formatRate(frameRate));
+        }
+    }
+
+    private static String formatRate(int rate)
+    {
+        return rate >= VMCommsMain.MAX_RATE ? "\u2265 " + VMCommsMain.MAX_RATE : Integer.toString(rate);
+    }
+
     /**
      * Locks the controls: hides the act button and the speed slider.
      */
@@ -117,6 +117,7 @@ import javafx.scene.effect.DropShadow;
 import javafx.scene.image.Image;
 import javafx.scene.image.ImageView;
 import javafx.scene.image.PixelFormat;
+import javafx.scene.image.PixelWriter;
 import javafx.scene.image.WritableImage;
 import javafx.scene.input.KeyCode;
 import javafx.scene.input.KeyCodeCombination;
@@ -145,6 +146,7 @@ import java.net.MalformedURLException;
 import java.net.URL;
 import java.nio.IntBuffer;
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.Collection;
 import java.util.LinkedList;
 import java.util.List;
@@ -250,6 +252,8 @@ public class GreenfootStage extends Stage implements FXCompileObserver,
 
     // World image
     private final WritableImage[] worldImg = new WritableImage[2];
+    // For each world image, the rows which are out of date relative to the latest received image:
+    private final BitSet[] worldImgStaleRows = {new BitSet(), new BitSet()};
     private int nextWorldImgToWrite = 0;
 
     // The scenario information that usually shipped with it when uploading
@@ -1671,14 +1675,30 @@ public class GreenfootStage extends Stage implements FXCompileObserver,
     }
 
     /**
-     * A world image has been received from the remote VM.
+     * A world image has been received from the remote VM.  The buffer always holds the complete
+     * image, but only the rows which are out of date in the image being written are copied.
      * 
      * @param width   The image width
      * @param height  The image height
      * @param buffer  The buffer containing the pixel data
+     * @param dirtyRows  The rows which changed since the previously received image, or null
+     *                   if the whole image should be considered changed.
      */
-    public void receivedWorldImage(int width, int height, IntBuffer buffer)
+    public void receivedWorldImage(int width, int height, IntBuffer buffer, BitSet dirtyRows)
     {
+        // Both images miss out on the changed rows until they are next written:
+        for (BitSet staleRows : worldImgStaleRows)
+        {
+            if (dirtyRows == null)
+            {
+                staleRows.set(0, height);
+            }
+            else
+            {
+                staleRows.or(dirtyRows);
+            }
+        }
+        
         // If we are closing a project but receive an image late on, ignore it:
         if (project == null)
         {
@@ -1688,6 +1708,7 @@ public class GreenfootStage extends Stage implements FXCompileObserver,
         if (worldImg[nextWorldImgToWrite] == null || worldImg[nextWorldImgToWrite].getWidth() != width || worldImg[nextWorldImgToWrite].getHeight() != height)
         {
             worldImg[nextWorldImgToWrite] = new WritableImage(width == 0 ? 1 : width, height == 0 ? 1 : height);
+            worldImgStaleRows[nextWorldImgToWrite].set(0, height);
 
             if (worldViewScroll.getWidth() < worldImg[nextWorldImgToWrite].getWidth() ||
                     worldViewScroll.getHeight() < worldImg[nextWorldImgToWrite].getHeight())
@@ -1700,8 +1721,19 @@ public class GreenfootStage extends Stage implements FXCompileObserver,
         }
         try
         {
-            worldImg[nextWorldImgToWrite].getPixelWriter().setPixels(0, 0, width, height, PixelFormat.getIntArgbInstance(),
-                    buffer, width);
+            // Copy each run of stale rows in one go:
+            BitSet staleRows = worldImgStaleRows[nextWorldImgToWrite];
+            PixelWriter pixelWriter = worldImg[nextWorldImgToWrite].getPixelWriter();
+            int pixelStart = buffer.position();
+            for (int row = staleRows.nextSetBit(0); row >= 0 && row < height; row = staleRows.nextSetBit(row))
+            {
+                int endRow = Math.min(staleRows.nextClearBit(row), height);
+                buffer.position(pixelStart + row * width);
+                pixelWriter.setPixels(0, row, width, endRow - row, PixelFormat.getIntArgbInstance(),
+                        buffer, width);
+                row = endRow;
+            }
+            staleRows.clear();
             worldDisplay.setImage(worldImg[nextWorldImgToWrite]);
             nextWorldImgToWrite = (nextWorldImgToWrite + 1) % worldImg.length;
             worldInstantiationError = false;
@@ -2926,6 +2958,16 @@ public class GreenfootStage extends Stage implements FXCompileObserver,
         settingSpeedFromSimulation = false;
     }
 
+    /**
+     * Called with the latest measured rates of the running simulation
+     * @param actRate The number of act rounds per second, or 0 if not running
+     * @param frameRate The number of frames painted per second, or 0 if not running
+     */
+    public void notifySimulationRates(int actRate, int frameRate)
+    {
+        controlPanel.setRates(actRate, frameRate);
+    }
+
     /**
      * Show the readme file for this project in an editor window.
      */
@@ -21,12 +21,25 @@
  */
 package greenfoot.guifx.images;
 
+import bluej.utility.Debug;
+import bluej.utility.javafx.JavaFXUtil;
 import greenfoot.util.GreenfootUtil;
 
 import java.io.File;
 import java.io.FilenameFilter;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
 import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
@@ -53,6 +66,8 @@ public class ImageLibList extends ListView<ImageListEntry>
     private File directory;
     private final String[] imageFileExtensions = new String[] { "jpg", "jpeg", "png", "gif" };
     private boolean projectList;
+    /** Watches the directory for changes, if watching is on; otherwise null. */
+    private WatchService watchService;
 
     /**
      * Construct an empty ImageLibList.
@@ -86,8 +101,19 @@ public class ImageLibList extends ListView<ImageListEntry>
      */
     public void setDirectory(File directory)
     {
+        boolean watching = watchService != null;
+        setWatching(false);
         this.directory = directory;
         loadImages();
+        setWatching(watching);
+    }
+
+    /**
+     * Check whether a file name is that of an image file.
+     */
+    private boolean isImageFileName(String name)
+    {
+        return Stream.of(imageFileExtensions).anyMatch(extension -> name.toLowerCase().endsWith(extension));
     }
 
     /**
@@ -101,7 +127,7 @@ public class ImageLibList extends ListView<ImageListEntry>
     private boolean loadImages()
     {
         // We accept only image files.
-        FilenameFilter filter = (dir, name) -> Stream.of(imageFileExtensions).anyMatch(extension -> name.toLowerCase().endsWith(extension));
+        FilenameFilter filter = (dir, name) -> isImageFileName(name);
         File[] imageFiles = directory.listFiles(filter);
         if (imageFiles == null)
         {
@@ -116,10 +142,193 @@ public class ImageLibList extends ListView<ImageListEntry>
         {
             return false;
         }
+        // Keep the entries which haven't changed, so that their thumbnails are kept:
+        Map<ImageListEntry, ImageListEntry> oldEntries = new HashMap<>();
+        for (ImageListEntry entry : getItems())
+        {
+            oldEntries.put(entry, entry);
+        }
+        newEntries.replaceAll(entry -> oldEntries.getOrDefault(entry, entry));
         setItems(FXCollections.observableArrayList(newEntries));
         return true;
     }
 
+    /**
+     * Update the entries for the given files in the directory, which may have been
+     * added, removed or modified. The other entries are left as they are.
+     *
+     * @param fileNames  The names of the files, in the directory.
+     */
+    private void updateImages(Set<String> fileNames)
+    {
+        boolean changed = false;
+        for (String fileName : fileNames)
+        {
+            if (!isImageFileName(fileName))
+            {
+                continue;
+            }
+            File file = new File(directory, fileName);
+            ImageListEntry newEntry = new ImageListEntry(file, projectList);
+            int index = -1;
+            for (int i = 0; i < getItems().size(); i++)
+            {
+                if (getItems().get(i).getImageFile().equals(file))
+                {
+                    index = i;
+                    break;
+                }
+            }
+
+            if (!file.isFile())
+            {
+                if (index != -1)
+                {
+                    getItems().remove(index);
+                    changed = true;
+                }
+            }
+            else if (index == -1)
+            {
+                // Insert it in sorted position:
+                int insertAt = 0;
+                while (insertAt < getItems().size() && getItems().get(insertAt).getImageFile().compareTo(file) < 0)
+                {
+                    insertAt++;
+                }
+                getItems().add(insertAt, newEntry);
+                changed = true;
+            }
+            else if (!getItems().get(index).equals(newEntry))
+            {
+                // Modified, so the thumbnail must be reloaded:
+                getItems().set(index, newEntry);
+                changed = true;
+            }
+        }
+        if (changed)
+        {
+            super.refresh();
+        }
+    }
+
+    /**
+     * Turn watching the directory for changes on or off. While it is on, the list is
+     * updated whenever image files in the directory are added, removed or modified.
+     * Only the changed files are re-read.
+     */
+    public void setWatching(boolean watching)
+    {
+        if (watching == (watchService != null))
+        {
+            return;
+        }
+
+        if (!watching)
+        {
+            try
+            {
+                watchService.close();
+            }
+            catch (IOException e)
+            {
+                Debug.reportError(e);
+            }
+            watchService = null;
+            return;
+        }
+
+        if (directory == null)
+        {
+            return;
+        }
+        WatchService newWatchService = null;
+        try
+        {
+            Path dir = directory.toPath();
+            newWatchService = dir.getFileSystem().newWatchService();
+            dir.register(newWatchService, StandardWatchEventKinds.ENTRY_CREATE,
+                    StandardWatchEventKinds.ENTRY_DELETE, StandardWatchEventKinds.ENTRY_MODIFY);
+        }
+        catch (IOException e)
+        {
+            Debug.message("Could not watch image directory " + directory + ": " + e.getMessage());
+            if (newWatchService != null)
+            {
+                try
+                {
+                    newWatchService.close();
+                }
+                catch (IOException e2)
+                {
+                }
+            }
+            return;
+        }
+        watchService = newWatchService;
+        // Catch any change made before we started watching:
+        refresh();
+
+        WatchService service = newWatchService;
+        Thread thread = new Thread(() -> watchDirectory(service), "Image directory watcher");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Wait for changes to the directory, and update the list when they happen. Runs
+     * until the watch service is closed.
+     */
+    @OnThread(Tag.Worker)
+    private void watchDirectory(WatchService service)
+    {
+        try
+        {
+            while (true)
+            {
+                WatchKey key = service.take();
+                Set<String> fileNames = new HashSet<>();
+                boolean overflow = false;
+                for (WatchEvent<?> event : key.pollEvents())
+                {
+                    if (event.kind() == StandardWatchEventKinds.OVERFLOW)
+                    {
+                        overflow = true;
+                    }
+                    else
+                    {
+                        fileNames.add(((Path) event.context()).toString());
+                    }
+                }
+                boolean stillValid = key.reset();
+
+                boolean rescan = overflow;
+                JavaFXUtil.runNowOrLater(() -> {
+                    // Ignore changes if we have stopped watching (or are watching another directory):
+                    if (watchService == service)
+                    {
+                        if (rescan)
+                        {
+                            refresh();
+                        }
+                        else
+                        {
+                            updateImages(fileNames);
+                        }
+                    }
+                });
+                if (!stillValid)
+                {
+                    return; // The directory is no longer there
+                }
+            }
+        }
+        catch (InterruptedException | ClosedWatchServiceException e)
+        {
+            // We have stopped watching
+        }
+    }
+
     /**
      * Get the current directory this list is pointing to.
      */
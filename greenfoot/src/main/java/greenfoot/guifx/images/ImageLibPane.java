@@ -27,7 +27,6 @@ import bluej.utility.Debug;
 import bluej.utility.DialogManager;
 import bluej.utility.FileUtility;
 import bluej.utility.javafx.FXConsumer;
-import bluej.utility.javafx.FXRunnable;
 import bluej.utility.javafx.JavaFXUtil;
 import greenfoot.guifx.PastedImageNameDialog;
 import greenfoot.guifx.classes.LocalGClassNode;
@@ -53,7 +52,6 @@ import javafx.scene.layout.VBox;
 import javafx.stage.FileChooser;
 import javafx.stage.FileChooser.ExtensionFilter;
 import javafx.stage.Window;
-import javafx.util.Duration;
 import threadchecker.OnThread;
 import threadchecker.Tag;
 
@@ -69,8 +67,6 @@ class ImageLibPane extends VBox
 {
     private final Project project;
     private final Window container;
-    // An action to stop regularly refreshing:
-    private FXRunnable cancelRefresh;
 
     private ImageLibList projImageList;
     private ImageLibList greenfootImageList;
@@ -129,16 +125,9 @@ class ImageLibPane extends VBox
         setItemButtons(projImageList.getSelectionModel().getSelectedItem() != null
                 && projImageList.getSelectionModel().getSelectedItem().getImageFile() != null);
         
-        container.setOnShown(e -> {
-            cancelRefresh = JavaFXUtil.runRegular(Duration.millis(1000), () -> projImageList.refresh());
-        });
-        container.setOnHidden(e -> {
-            if (cancelRefresh != null)
-            {
-                cancelRefresh.run();
-                cancelRefresh = null;
-            }
-        });
+        // Keep the project images up to date while we are showing:
+        container.setOnShown(e -> projImageList.setWatching(true));
+        container.setOnHidden(e -> projImageList.setWatching(false));
     }
 
     /**
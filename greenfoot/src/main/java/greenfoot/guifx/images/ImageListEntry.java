@@ -21,12 +21,13 @@
  */
 package greenfoot.guifx.images;
 
-import bluej.utility.Debug;
-
 import javafx.scene.image.Image;
 import javafx.scene.image.ImageView;
+import javafx.scene.image.WritableImage;
+import threadchecker.OnThread;
+import threadchecker.Tag;
+
 import java.io.File;
-import java.net.MalformedURLException;
 
 /**
  * An entry in a ListView of image files, which is used in the image lists' frames.
@@ -35,6 +36,12 @@ import java.net.MalformedURLException;
  */
 public class ImageListEntry
 {
+    /** Shown until the thumbnails have loaded; created when first needed. */
+    @OnThread(Tag.FXPlatform)
+    private static WritableImage projectPlaceholder;
+    @OnThread(Tag.FXPlatform)
+    private static WritableImage libraryPlaceholder;
+
     private final File imageFile;
     private final boolean inProjectList;
     private ImageView icon;
@@ -70,45 +77,47 @@ public class ImageListEntry
 
     /**
      * Return a thumbnail icon of the image. It checks its existence
-     * first to avoid reconstruction each time.
+     * first to avoid reconstruction each time. The thumbnail is loaded
+     * in the background; until it has loaded, the icon shows a blank
+     * placeholder.
      *
      * @return an Image view of the image file.
      */
+    @OnThread(Tag.FXPlatform)
     public ImageView getIcon()
     {
         if (icon == null && imageFile != null)
         {
-            icon = getImageView();
+            int maxWidth = inProjectList ? 40 : 60;
+            ImageView view = new ImageView(getPlaceholder(maxWidth));
+            ThumbnailCache.getInstance().loadThumbnail(imageFile, maxWidth, view::setImage);
+            icon = view;
         }
         return icon;
     }
 
     /**
-     * Loads the image file and construct an image view of it.
-     * This view is returned of the loading succeeded, otherwise
-     * an empty view is returned.
-     *
-     * @return an image view containing a thumbnail of the image.
+     * Get a blank square image of the given size, to show while a thumbnail is loading.
      */
-    private ImageView getImageView()
+    @OnThread(Tag.FXPlatform)
+    private Image getPlaceholder(int size)
     {
-        try
+        if (inProjectList)
         {
-            Image image = new Image(imageFile.toURI().toURL().toExternalForm());
-            ImageView view = new ImageView(image);
-            int maxWidth = inProjectList ? 40 : 60;
-            if (image.getWidth() > maxWidth)
+            if (projectPlaceholder == null)
             {
-                view.setFitWidth(maxWidth);
-                view.setPreserveRatio(true);
+                projectPlaceholder = new WritableImage(size, size);
             }
-            return view;
+            return projectPlaceholder;
         }
-        catch (MalformedURLException e)
+        else
         {
-            Debug.reportError(e);
+            if (libraryPlaceholder == null)
+            {
+                libraryPlaceholder = new WritableImage(size, size);
+            }
+            return libraryPlaceholder;
         }
-        return new ImageView();
     }
 
     /**
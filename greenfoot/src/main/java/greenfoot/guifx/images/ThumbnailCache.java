@@ -0,0 +1,308 @@
+/*
+ This file is part of the Greenfoot program. 
+ Copyright (C) 2026  Poul Henriksen and Michael Kolling
+ 
+ This program is free software; you can redistribute it and/or 
+ modify it under the terms of the GNU General Public License 
+ as published by the Free Software Foundation; either version 2 
+ of the License, or (at your option) any later version. 
+ 
+ This program is distributed in the hope that it will be useful, 
+ but WITHOUT ANY WARRANTY; without even the implied warranty of 
+ MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the 
+ GNU General Public License for more details. 
+ 
+ You should have received a copy of the GNU General Public License 
+ along with this program; if not, write to the Free Software 
+ Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA. 
+ 
+ This file is subject to the Classpath exception as provided in the  
+ LICENSE.txt file that accompanied this code.
+ */
+package greenfoot.guifx.images;
+
+import bluej.Config;
+import bluej.utility.Debug;
+import bluej.utility.javafx.FXPlatformConsumer;
+import bluej.utility.javafx.JavaFXUtil;
+
+import javafx.embed.swing.SwingFXUtils;
+import javafx.scene.image.Image;
+import threadchecker.OnThread;
+import threadchecker.Tag;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Loads thumbnails of image files for the image lists, in the background. Thumbnails
+ * are decoded at the size they are displayed at, rather than at full size, and are
+ * kept in a cache directory (in the user's configuration directory) so that they do
+ * not need decoding again. Cached thumbnails are found by a hash of the image file's
+ * contents, so a cached thumbnail is used even if the file is moved or copied.
+ *
+ * <p>The cache directory is pruned in the background when the cache is first used:
+ * thumbnails which have not been used for MAX_AGE_DAYS are removed, and then the
+ * least recently used are removed until the directory is within MAX_CACHE_BYTES.
+ */
+@OnThread(Tag.Any)
+public class ThumbnailCache
+{
+    /** The number of threads loading thumbnails. */
+    private static final int THREADS = 2;
+    /** The most space the cached thumbnails may take up, after pruning. */
+    static final long MAX_CACHE_BYTES = 32L * 1024 * 1024;
+    /** The number of days a cached thumbnail is kept without being used. */
+    static final int MAX_AGE_DAYS = 90;
+    /** The most file hashes which are remembered. */
+    private static final int MAX_HASHES = 1000;
+
+    private static ThumbnailCache instance;
+
+    /** The directory holding the cached thumbnails. */
+    private final File cacheDir;
+    private final ExecutorService executor;
+    /** The hash of each file's contents, by path, size and modification time. */
+    private final Map<String,String> hashes = new LinkedHashMap<String,String>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, String> eldest)
+        {
+            return size() > MAX_HASHES;
+        }
+    };
+
+    /**
+     * Get the thumbnail cache, which uses a "thumbnails" directory in the user's
+     * configuration directory.
+     */
+    public static synchronized ThumbnailCache getInstance()
+    {
+        if (instance == null)
+        {
+            instance = new ThumbnailCache(new File(Config.getUserConfigDir(), "thumbnails"));
+            ThumbnailCache cache = instance;
+            cache.executor.execute(() -> cache.prune(MAX_CACHE_BYTES, TimeUnit.DAYS.toMillis(MAX_AGE_DAYS)));
+        }
+        return instance;
+    }
+
+    /**
+     * Create a thumbnail cache using the given directory (which need not exist yet).
+     */
+    ThumbnailCache(File cacheDir)
+    {
+        this.cacheDir = cacheDir;
+        executor = Executors.newFixedThreadPool(THREADS, r -> {
+            Thread t = new Thread(r, "Thumbnail loader");
+            t.setDaemon(true);
+            t.setPriority(Thread.MIN_PRIORITY);
+            return t;
+        });
+    }
+
+    /**
+     * Load a thumbnail of an image file in the background.
+     *
+     * @param file      The image file.
+     * @param maxWidth  The largest width the thumbnail should be. Images which are
+     *                  wider are scaled down (keeping their aspect ratio); other
+     *                  images are loaded at their own size.
+     * @param whenLoaded  Called (on the FX thread) with the thumbnail once it has
+     *                  loaded. Not called if the image could not be loaded.
+     */
+    public void loadThumbnail(File file, int maxWidth, FXPlatformConsumer<Image> whenLoaded)
+    {
+        executor.execute(() -> {
+            Image thumbnail = getThumbnail(file, maxWidth);
+            if (thumbnail != null)
+            {
+                JavaFXUtil.runNowOrLater(() -> whenLoaded.accept(thumbnail));
+            }
+        });
+    }
+
+    /**
+     * Get a thumbnail of an image file, from the cache if it is there. Otherwise
+     * the thumbnail is decoded from the file, and stored in the cache.
+     *
+     * @return The thumbnail, or null if the image could not be loaded.
+     */
+    @OnThread(Tag.Worker)
+    Image getThumbnail(File file, int maxWidth)
+    {
+        try
+        {
+            File cacheFile = new File(cacheDir, getHash(file) + "-" + maxWidth + ".png");
+            if (cacheFile.isFile())
+            {
+                Image cached = new Image(cacheFile.toURI().toString());
+                if (!cached.isError())
+                {
+                    // Mark it as recently used, so that it is the last to be pruned:
+                    cacheFile.setLastModified(System.currentTimeMillis());
+                    return cached;
+                }
+            }
+
+            // Only scale the image down (not up) to the width:
+            int width = getImageWidth(file);
+            String url = file.toURI().toString();
+            Image thumbnail = (width == -1 || width <= maxWidth) ? new Image(url)
+                    : new Image(url, maxWidth, 0, true, true);
+            if (thumbnail.isError())
+            {
+                return null;
+            }
+
+            try
+            {
+                cacheDir.mkdirs();
+                // Write to a temporary file first, so that a half-written thumbnail is never used:
+                File tempFile = File.createTempFile("thumb", ".tmp", cacheDir);
+                ImageIO.write(SwingFXUtils.fromFXImage(thumbnail, null), "png", tempFile);
+                if (!tempFile.renameTo(cacheFile))
+                {
+                    tempFile.delete();
+                }
+            }
+            catch (IOException e)
+            {
+                // We still have the thumbnail, even if it couldn't be cached:
+                Debug.message("Could not cache thumbnail of " + file + ": " + e.getMessage());
+            }
+            return thumbnail;
+        }
+        catch (IOException e)
+        {
+            return null;
+        }
+    }
+
+    /**
+     * Remove old thumbnails from the cache directory. Thumbnails last used (or
+     * written) more than maxAge milliseconds ago are removed first, and then the
+     * least recently used until the directory holds at most maxBytes.
+     */
+    @OnThread(Tag.Worker)
+    void prune(long maxBytes, long maxAge)
+    {
+        File[] files = cacheDir.listFiles(File::isFile);
+        if (files == null)
+        {
+            return;
+        }
+        // Sort newest first. The times are read once, as a thumbnail may be used
+        // (changing its time) while we are sorting:
+        Map<File, Long> lastModified = new HashMap<>();
+        for (File file : files)
+        {
+            lastModified.put(file, file.lastModified());
+        }
+        Arrays.sort(files, Comparator.comparing(lastModified::get, Comparator.reverseOrder()));
+
+        long oldest = System.currentTimeMillis() - maxAge;
+        long totalBytes = 0;
+        for (File file : files)
+        {
+            totalBytes += file.length();
+            if (lastModified.get(file) < oldest || totalBytes > maxBytes)
+            {
+                file.delete();
+            }
+        }
+    }
+
+    /**
+     * Get the width of an image without decoding it, or -1 if it cannot be found.
+     */
+    @OnThread(Tag.Worker)
+    private static int getImageWidth(File file) throws IOException
+    {
+        try (ImageInputStream in = ImageIO.createImageInputStream(file))
+        {
+            if (in == null)
+            {
+                return -1;
+            }
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(in);
+            if (!readers.hasNext())
+            {
+                return -1;
+            }
+            ImageReader reader = readers.next();
+            try
+            {
+                reader.setInput(in);
+                return reader.getWidth(0);
+            }
+            finally
+            {
+                reader.dispose();
+            }
+        }
+    }
+
+    /**
+     * Get the hash of a file's contents, as a hex string. The hash is remembered
+     * until the file changes (or until MAX_HASHES other files have been hashed).
+     */
+    @OnThread(Tag.Worker)
+    String getHash(File file) throws IOException
+    {
+        String key = file.getAbsolutePath() + "|" + file.length() + "|" + file.lastModified();
+        synchronized (hashes)
+        {
+            String hash = hashes.get(key);
+            if (hash != null)
+            {
+                return hash;
+            }
+        }
+
+        MessageDigest digest;
+        try
+        {
+            digest = MessageDigest.getInstance("SHA-1");
+        }
+        catch (NoSuchAlgorithmException e)
+        {
+            throw new IOException(e);
+        }
+        try (InputStream in = new DigestInputStream(Files.newInputStream(file.toPath()), digest))
+        {
+            byte[] buffer = new byte[8192];
+            while (in.read(buffer) != -1)
+            {
+                // Just reading it updates the digest
+            }
+        }
+        StringBuilder hash = new StringBuilder();
+        for (byte b : digest.digest())
+        {
+            hash.append(String.format("%02x", b));
+        }
+
+        synchronized (hashes)
+        {
+            hashes.put(key, hash.toString());
+        }
+        return hash.toString();
+    }
+}
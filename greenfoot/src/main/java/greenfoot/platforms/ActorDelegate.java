@@ -38,4 +38,9 @@ public interface ActorDelegate
      */
     @OnThread(Tag.Simulation)
     public GreenfootImage getImage(String name);
+
+    /**
+     * Get the value of a project property. Returns null if the property is not present.
+     */
+    public String getProjectProperty(String key);
 }
@@ -53,4 +53,9 @@ public class ActorDelegateIDE implements ActorDelegate
     {
         return projectProperties.getImage(name);
     }
+
+    public String getProjectProperty(String key)
+    {
+        return projectProperties.getString(key);
+    }
 }
@@ -0,0 +1,365 @@
+/*
+ This file is part of the Greenfoot program. 
+ Copyright (C) 2026  Poul Henriksen and Michael Kolling
+ 
+ This program is free software; you can redistribute it and/or 
+ modify it under the terms of the GNU General Public License 
+ as published by the Free Software Foundation; either version 2 
+ of the License, or (at your option) any later version. 
+ 
+ This program is distributed in the hope that it will be useful, 
+ but WITHOUT ANY WARRANTY; without even the implied warranty of 
+ MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the 
+ GNU General Public License for more details. 
+ 
+ You should have received a copy of the GNU General Public License 
+ along with this program; if not, write to the Free Software 
+ Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA. 
+ 
+ This file is subject to the Classpath exception as provided in the  
+ LICENSE.txt file that accompanied this code.
+ */
+package greenfoot.platforms.ide;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import au.com.bytecode.opencsv.CSVReader;
+import au.com.bytecode.opencsv.CSVWriter;
+import bluej.utility.Debug;
+
+import threadchecker.OnThread;
+import threadchecker.Tag;
+
+/**
+ * The local storage for UserInfo data, used when running scenarios in the IDE.
+ *
+ * <p>The data is kept in a CSV file (storage.csv) with one row per user: the user name,
+ * the score, the ints and then the strings. The file is read once, and kept in memory
+ * both by user and sorted by score, so that queries do not touch the disk. Changes are
+ * appended to a journal next to the file (one row per change: a full row, or just the
+ * user name if the user's data was removed). The journal is merged back into the CSV
+ * file in the background, shortly after the last change or once it has grown large.
+ * The merge only holds the lock on the storage while it takes a copy of the rows (and
+ * moves the journal aside), so that it never holds up a query or a store while it
+ * writes the file.
+ *
+ * <p>The CSV file is read again if its modification time changes, so that edits made
+ * to it outside Greenfoot are seen. Any journal is replayed on top of the edited file.
+ */
+@OnThread(Tag.Any)
+public class UserInfoStorage
+{
+    /** The number of changes in the journal after which it is merged straight away */
+    private static final int MAX_JOURNAL_RECORDS = 100;
+    /** How long after the last change the journal is merged, in milliseconds */
+    private static final int MERGE_DELAY = 2000;
+
+    /** Sorts by score (highest first), then by position in the file. */
+    private static final Comparator<Entry> RANK_ORDER = new Comparator<Entry>() {
+        @Override
+        public int compare(Entry a, Entry b)
+        {
+            if (a.score != b.score) {
+                return a.score > b.score ? -1 : 1;
+            }
+            return Long.compare(a.sequence, b.sequence);
+        }
+    };
+
+    /** The data for one user */
+    private static class Entry
+    {
+        final String[] row;
+        final int score;
+        /** Increases with the position in the file, to keep the sort stable */
+        final long sequence;
+
+        Entry(String[] row, int score, long sequence)
+        {
+            this.row = row;
+            this.score = score;
+            this.sequence = sequence;
+        }
+    }
+
+    private final File storageFile;
+    private final File journalFile;
+    /** The journal which is being merged; changes made since then are in journalFile */
+    private final File mergingJournalFile;
+    /** Held for the whole of a merge, so that only one merge runs at a time */
+    private final Object mergeLock = new Object();
+
+    private boolean loaded = false;
+    /** The modification time of the CSV file when it was read (or last written by us) */
+    private long storageModified;
+    /** The entries by user name, in the order they are written to the file */
+    private final LinkedHashMap<String,Entry> entries = new LinkedHashMap<>();
+    /** The entries sorted by RANK_ORDER */
+    private final ArrayList<Entry> rankedEntries = new ArrayList<>();
+    private long nextSequence = 0;
+    private int journalRecords = 0;
+
+    private ScheduledExecutorService mergeExecutor;
+    private ScheduledFuture<?> pendingMerge;
+
+    /**
+     * Create a storage using the given CSV file. The journal is kept in a file
+     * with the same name plus ".journal".
+     */
+    public UserInfoStorage(File storageFile)
+    {
+        this.storageFile = storageFile;
+        this.journalFile = new File(storageFile.getPath() + ".journal");
+        this.mergingJournalFile = new File(storageFile.getPath() + ".journal.merging");
+    }
+
+    /**
+     * Read the CSV file and the journal, if they have not been read yet, or if the
+     * CSV file has been changed by something else since they were read. A journal
+     * which was being merged when a merge failed (or when the VM exited) is read
+     * before the current journal. Replaying a journal over a file it has already
+     * been merged into is harmless, as each row replaces the user's previous row.
+     */
+    private void ensureLoaded() throws IOException
+    {
+        long modified = storageFile.lastModified();
+        if (loaded && modified == storageModified) {
+            return;
+        }
+        entries.clear();
+        storageModified = modified;
+        readRows(storageFile);
+        journalRecords = readRows(mergingJournalFile) + readRows(journalFile);
+
+        rankedEntries.clear();
+        rankedEntries.addAll(entries.values());
+        Collections.sort(rankedEntries, RANK_ORDER);
+        loaded = true;
+    }
+
+    /**
+     * Read the rows of a CSV file (if it exists) into the entries map, and
+     * return the number of rows.
+     */
+    private int readRows(File file) throws IOException
+    {
+        List<String[]> rows;
+        try {
+            CSVReader csv = new CSVReader(new InputStreamReader(new FileInputStream(file), "UTF-8"));
+            try {
+                rows = csv.readAll();
+            }
+            finally {
+                csv.close();
+            }
+        }
+        catch (FileNotFoundException e) {
+            return 0;
+        }
+
+        for (String[] row : rows) {
+            if (row.length == 1) {
+                entries.remove(row[0]);
+            }
+            else {
+                Entry entry = makeEntry(row);
+                if (entry != null) {
+                    entries.remove(row[0]);
+                    entries.put(row[0], entry);
+                }
+            }
+        }
+        return rows.size();
+    }
+
+    /**
+     * Make an entry for a row, or return null if the row is not valid.
+     */
+    private Entry makeEntry(String[] row)
+    {
+        if (row.length < 2) {
+            return null;
+        }
+        try {
+            return new Entry(row, Integer.parseInt(row[1]), nextSequence++);
+        }
+        catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Get the number of users with stored data.
+     */
+    public synchronized int size() throws IOException
+    {
+        ensureLoaded();
+        return rankedEntries.size();
+    }
+
+    /**
+     * Get the index in the ranking (0 for the highest score) of the given user,
+     * or -1 if there is no data for the user.
+     */
+    public synchronized int indexOf(String userName) throws IOException
+    {
+        ensureLoaded();
+        Entry entry = entries.get(userName);
+        if (entry == null) {
+            return -1;
+        }
+        return Collections.binarySearch(rankedEntries, entry, RANK_ORDER);
+    }
+
+    /**
+     * Get the rows for the users from fromIndex (inclusive) to toIndex (exclusive)
+     * in the ranking. The rows must not be modified.
+     */
+    public synchronized List<String[]> getRows(int fromIndex, int toIndex) throws IOException
+    {
+        ensureLoaded();
+        List<String[]> rows = new ArrayList<>(toIndex - fromIndex);
+        for (Entry entry : rankedEntries.subList(fromIndex, toIndex)) {
+            rows.add(entry.row);
+        }
+        return rows;
+    }
+
+    /**
+     * Store the row for a user, replacing any previous row. The row is appended to
+     * the journal, rather than the whole file being written.
+     *
+     * @param userName  The user to store the data for.
+     * @param row       The row (with the user name first, then the score), or null
+     *                  to remove the user's data.
+     */
+    public synchronized void store(String userName, String[] row) throws IOException
+    {
+        ensureLoaded();
+
+        CSVWriter journal = new CSVWriter(new OutputStreamWriter(new FileOutputStream(journalFile, true), "UTF-8"));
+        try {
+            journal.writeNext(row != null ? row : new String[] {userName});
+        }
+        finally {
+            journal.close();
+        }
+        journalRecords++;
+
+        Entry old = entries.remove(userName);
+        if (old != null) {
+            rankedEntries.remove(Collections.binarySearch(rankedEntries, old, RANK_ORDER));
+        }
+        Entry entry = row == null ? null : makeEntry(row);
+        if (entry != null) {
+            entries.put(userName, entry);
+            int index = Collections.binarySearch(rankedEntries, entry, RANK_ORDER);
+            rankedEntries.add(-index - 1, entry);
+        }
+
+        scheduleMerge();
+    }
+
+    /**
+     * Schedule the journal to be merged into the CSV file: straight away if it has
+     * grown large, otherwise after a delay (which restarts with each change).
+     */
+    private void scheduleMerge()
+    {
+        if (mergeExecutor == null) {
+            mergeExecutor = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread t = new Thread(r, "UserInfo storage");
+                t.setDaemon(true);
+                return t;
+            });
+        }
+        if (pendingMerge != null) {
+            pendingMerge.cancel(false);
+        }
+        int delay = journalRecords >= MAX_JOURNAL_RECORDS ? 0 : MERGE_DELAY;
+        pendingMerge = mergeExecutor.schedule(() -> {
+            try {
+                merge();
+            }
+            catch (IOException e) {
+                Debug.message("Error storing user data: " + e.getMessage());
+            }
+        }, delay, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Write all the data to the CSV file, and remove the journal. The file is
+     * written to a temporary file first and then moved into place, so that it
+     * is never left half-written.
+     *
+     * <p>The rows are copied, and the journal moved aside, while holding the lock
+     * on the storage; the file is written without it. Changes stored meanwhile go
+     * into a new journal, to be merged next time.
+     */
+    public void merge() throws IOException
+    {
+        synchronized (mergeLock) {
+            List<String[]> rows;
+            synchronized (this) {
+                if (!loaded || journalRecords == 0) {
+                    return;
+                }
+                rows = new ArrayList<>(entries.size());
+                for (Entry entry : entries.values()) {
+                    rows.add(entry.row);
+                }
+                // If an earlier merge failed, its journal is still there. The current
+                // journal is then left in place, to be replayed over the merged file:
+                boolean earlierMergeFailed = mergingJournalFile.exists();
+                if (!earlierMergeFailed) {
+                    journalFile.renameTo(mergingJournalFile);
+                }
+                if (!earlierMergeFailed || !journalFile.exists()) {
+                    journalRecords = 0;
+                }
+            }
+
+            File tempFile = new File(storageFile.getPath() + ".tmp");
+            CSVWriter csvOut = new CSVWriter(new OutputStreamWriter(new FileOutputStream(tempFile), "UTF-8"));
+            try {
+                for (String[] row : rows) {
+                    csvOut.writeNext(row);
+                }
+            }
+            finally {
+                csvOut.close();
+            }
+
+            synchronized (this) {
+                try {
+                    Files.move(tempFile.toPath(), storageFile.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                            StandardCopyOption.ATOMIC_MOVE);
+                }
+                catch (AtomicMoveNotSupportedException e) {
+                    Files.move(tempFile.toPath(), storageFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+                }
+                // Our own change to the file doesn't mean it needs reading again:
+                storageModified = storageFile.lastModified();
+            }
+            Files.deleteIfExists(mergingJournalFile.toPath());
+        }
+    }
+}
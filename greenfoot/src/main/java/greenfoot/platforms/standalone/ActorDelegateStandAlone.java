@@ -57,4 +57,9 @@ public class ActorDelegateStandAlone
     {
         return properties.getImage(name);
     }
+
+    public String getProjectProperty(String key)
+    {
+        return properties.getString(key);
+    }
 }
@@ -127,6 +127,7 @@ public class AudioLine
     /** Whether the line has been started. */
     private boolean started;
     private int masterVolume;
+    private int pan;
     /**
      * Whether data is currently being written to the line (or blocked on
      * write).
@@ -355,4 +356,26 @@ public class AudioLine
     {
         return masterVolume;
     }
+
+    public synchronized void setPan(int pan)
+    {
+        this.pan = pan;
+        try {
+            open();
+            if (line != null) {
+                if (line.isControlSupported(FloatControl.Type.PAN)) {
+                    FloatControl panControl = (FloatControl) line.getControl(FloatControl.Type.PAN);
+                    panControl.setValue(pan / 100f);
+                }
+            }
+        }
+        catch (LineUnavailableException ex) {
+            SoundExceptionHandler.handleLineUnavailableException(ex);
+        }
+    }
+
+    public synchronized int getPan()
+    {
+        return pan;
+    }
 }
@@ -0,0 +1,82 @@
+/*
+ This file is part of the Greenfoot program. 
+ Copyright (C) 2026  Poul Henriksen and Michael Kolling
+ 
+ This program is free software; you can redistribute it and/or 
+ modify it under the terms of the GNU General Public License 
+ as published by the Free Software Foundation; either version 2 
+ of the License, or (at your option) any later version. 
+ 
+ This program is distributed in the hope that it will be useful, 
+ but WITHOUT ANY WARRANTY; without even the implied warranty of 
+ MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the 
+ GNU General Public License for more details. 
+ 
+ You should have received a copy of the GNU General Public License 
+ along with this program; if not, write to the Free Software 
+ Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA. 
+ 
+ This file is subject to the Classpath exception as provided in the  
+ LICENSE.txt file that accompanied this code.
+ */
+package greenfoot.sound;
+
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioSystem;
+import javax.sound.sampled.DataLine;
+import javax.sound.sampled.LineUnavailableException;
+import javax.sound.sampled.Mixer;
+import javax.sound.sampled.SourceDataLine;
+
+/**
+ * Plays the output of the SoundMixer through a line of the sound card.
+ */
+public class LineMixerOutput implements MixerOutput
+{
+    /**
+     * How much data the line should buffer, in seconds. Sounds start playing
+     * this long after they have been started (at most), so it is kept short.
+     */
+    private static final double BUFFER_TIME = 0.05;
+
+    private volatile SourceDataLine line;
+
+    @Override
+    public synchronized void open(AudioFormat format) throws LineUnavailableException
+    {
+        DataLine.Info info = new DataLine.Info(SourceDataLine.class, format);
+
+        // Use the specific mixer from the preferences if it is available (i.e. non-null):
+        // getLine throws illegal argument exception if it can't find a line.
+        Mixer mixer = SoundUtils.loadMixer(false);
+        SourceDataLine l = (SourceDataLine) (mixer == null ? AudioSystem.getLine(info) : mixer.getLine(info));
+        int bufferSize = SoundUtils.getBufferSizeToHold(format, BUFFER_TIME);
+        if (bufferSize == -1) {
+            l.open(format);
+        }
+        else {
+            l.open(format, bufferSize);
+        }
+        l.start();
+        line = l;
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len)
+    {
+        // Not synchronized, as this blocks until the line has room for the data.
+        SourceDataLine l = line;
+        if (l != null) {
+            l.write(b, off, len);
+        }
+    }
+
+    @Override
+    public synchronized void close()
+    {
+        if (line != null) {
+            line.close();
+            line = null;
+        }
+    }
+}
@@ -58,6 +58,7 @@ public class MidiFileSound implements Sound
     private Sequence sequence;
     private boolean pause = false;
     private int level;
+    private int pan;
     private Receiver receiver;
 
     public MidiFileSound(final URL url, SoundPlaybackListener listener)
@@ -245,4 +246,29 @@ public class MidiFileSound implements Sound
     {
         return level;
     }
+
+    @Override
+    public void setPan(int pan)
+    {
+        open();
+        this.pan = pan;
+        // The pan controller goes from 0 (left) to 127 (right), with 64 as the centre:
+        int value = Math.min(127, Math.max(0, 64 + pan * 64 / 100));
+        ShortMessage panMessage = new ShortMessage();
+        for (int i = 0; i < 16; i++) {
+            try {
+                panMessage.setMessage(ShortMessage.CONTROL_CHANGE, i, 10, value);
+            }
+            catch (InvalidMidiDataException e) {
+                e.printStackTrace();
+            }
+            receiver.send(panMessage, -1);
+        }
+    }
+
+    @Override
+    public int getPan()
+    {
+        return pan;
+    }
 }
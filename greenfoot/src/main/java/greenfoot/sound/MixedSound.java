@@ -0,0 +1,352 @@
+/*
+ This file is part of the Greenfoot program. 
+ Copyright (C) 2026  Poul Henriksen and Michael Kolling
+ 
+ This program is free software; you can redistribute it and/or 
+ modify it under the terms of the GNU General Public License 
+ as published by the Free Software Foundation; either version 2 
+ of the License, or (at your option) any later version. 
+ 
+ This program is distributed in the hope that it will be useful, 
+ but WITHOUT ANY WARRANTY; without even the implied warranty of 
+ MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the 
+ GNU General Public License for more details. 
+ 
+ You should have received a copy of the GNU General Public License 
+ along with this program; if not, write to the Free Software 
+ Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA. 
+ 
+ This file is subject to the Classpath exception as provided in the  
+ LICENSE.txt file that accompanied this code.
+ */
+package greenfoot.sound;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.net.URL;
+
+import javax.sound.sampled.UnsupportedAudioFileException;
+
+/**
+ * A sound which is decoded into memory and played through the SoundMixer. The
+ * decoded data comes from a PcmCache, so it is shared with other sounds playing
+ * the same file, and is only held on to by this sound while it is playing or
+ * paused.
+ *
+ * <p>The state of the sound is protected by the lock on the mixer, as the mixer
+ * thread reads and updates it while mixing.
+ *
+ * @see SoundMixer
+ */
+public class MixedSound implements Sound
+{
+    private enum MixState
+    {
+        STOPPED, PLAYING, PAUSED, CLOSED
+    }
+
+    private final URL url;
+    private final boolean mp3;
+    private final SoundMixer mixer;
+    private final PcmCache pcmCache;
+    private final SoundPlaybackListener playbackListener;
+
+    /** The decoded sound; only set while playing or paused. */
+    private PcmData data;
+    private MixState mixState = MixState.STOPPED;
+    private boolean looping;
+    /** The position in the data, in frames of the data (not of the output). */
+    private double position;
+    /** The mixer's frame count when the sound was started. */
+    private long startFrame;
+
+    private int volume = 100;
+    private float gain = 1f;
+    private int pan = 0;
+
+    /**
+     * Create a sound.
+     *
+     * @param url The sound file.
+     * @param mp3 Whether the sound file is an mp3 file.
+     * @param mixer The mixer to play the sound through.
+     * @param pcmCache The cache to get the decoded data from.
+     * @param playbackListener Listener for state changes.
+     */
+    public MixedSound(URL url, boolean mp3, SoundMixer mixer, PcmCache pcmCache,
+            SoundPlaybackListener playbackListener)
+    {
+        this.url = url;
+        this.mp3 = mp3;
+        this.mixer = mixer;
+        this.pcmCache = pcmCache;
+        this.playbackListener = playbackListener;
+    }
+
+    /**
+     * Decode the sound into the cache (if there is room), so that it starts
+     * quickly when played.
+     */
+    public void preLoad()
+    {
+        // Ignore all exceptions when pre-loading
+        try {
+            pcmCache.getPcmData(url, mp3);
+        }
+        catch (IOException e) {
+        }
+        catch (UnsupportedAudioFileException e) {
+        }
+    }
+
+    /**
+     * Get the decoded data, or null (after reporting the problem) if it can't be decoded.
+     */
+    private PcmData getPcmData()
+    {
+        try {
+            return pcmCache.getPcmData(url, mp3);
+        }
+        catch (FileNotFoundException e) {
+            SoundExceptionHandler.handleFileNotFoundException(e, url.toString());
+        }
+        catch (IOException e) {
+            SoundExceptionHandler.handleIOException(e, url.toString());
+        }
+        catch (UnsupportedAudioFileException e) {
+            SoundExceptionHandler.handleUnsupportedAudioFileException(e, url.toString());
+        }
+        return null;
+    }
+
+    @Override
+    public void play()
+    {
+        startPlayback(false);
+    }
+
+    @Override
+    public void loop()
+    {
+        startPlayback(true);
+    }
+
+    /**
+     * Start (or resume) playback, or change whether the sound is looping if it is
+     * already playing.
+     */
+    private void startPlayback(boolean loop)
+    {
+        PcmData pcmData = getPcmData();
+        if (pcmData == null) {
+            return;
+        }
+
+        MixedSound stolen;
+        synchronized (mixer) {
+            if (mixState == MixState.PLAYING) {
+                looping = loop;
+                return;
+            }
+            if (mixState != MixState.PAUSED) {
+                data = pcmData;
+                position = 0;
+            }
+            looping = loop;
+            mixState = MixState.PLAYING;
+            stolen = mixer.addVoice(this);
+        }
+
+        if (stolen != null) {
+            stolen.notifyFinished();
+        }
+        playbackListener.playbackStarted(this);
+    }
+
+    @Override
+    public void stop()
+    {
+        synchronized (mixer) {
+            if (mixState != MixState.PLAYING && mixState != MixState.PAUSED) {
+                return;
+            }
+            mixer.removeVoice(this);
+            voiceStopped();
+        }
+        playbackListener.playbackStopped(this);
+    }
+
+    @Override
+    public void pause()
+    {
+        synchronized (mixer) {
+            if (mixState != MixState.PLAYING) {
+                return;
+            }
+            mixer.removeVoice(this);
+            mixState = MixState.PAUSED;
+        }
+        playbackListener.playbackPaused(this);
+    }
+
+    @Override
+    public void close()
+    {
+        synchronized (mixer) {
+            if (mixState == MixState.CLOSED) {
+                return;
+            }
+            mixer.removeVoice(this);
+            voiceStopped();
+            mixState = MixState.CLOSED;
+        }
+        playbackListener.soundClosed(this);
+    }
+
+    @Override
+    public boolean isPlaying()
+    {
+        synchronized (mixer) {
+            return mixState == MixState.PLAYING;
+        }
+    }
+
+    @Override
+    public boolean isPaused()
+    {
+        synchronized (mixer) {
+            return mixState == MixState.PAUSED;
+        }
+    }
+
+    @Override
+    public boolean isStopped()
+    {
+        synchronized (mixer) {
+            return mixState == MixState.STOPPED || mixState == MixState.CLOSED;
+        }
+    }
+
+    @Override
+    public void setVolume(int level)
+    {
+        synchronized (mixer) {
+            volume = level;
+            gain = SoundUtils.levelToGain(level);
+        }
+    }
+
+    @Override
+    public int getVolume()
+    {
+        synchronized (mixer) {
+            return volume;
+        }
+    }
+
+    @Override
+    public void setPan(int pan)
+    {
+        synchronized (mixer) {
+            this.pan = Math.max(-100, Math.min(100, pan));
+        }
+    }
+
+    @Override
+    public int getPan()
+    {
+        synchronized (mixer) {
+            return pan;
+        }
+    }
+
+    @Override
+    public String toString()
+    {
+        return url + " " + super.toString();
+    }
+
+    // Methods called by the mixer, with the lock on the mixer held:
+
+    boolean isLooping()
+    {
+        return looping;
+    }
+
+    long getStartFrame()
+    {
+        return startFrame;
+    }
+
+    void setStartFrame(long startFrame)
+    {
+        this.startFrame = startFrame;
+    }
+
+    /**
+     * The sound has stopped playing: it has finished, or been stopped to make room
+     * for another sound. Release the data so that the memory can be reclaimed.
+     */
+    void voiceStopped()
+    {
+        mixState = MixState.STOPPED;
+        data = null;
+        position = 0;
+    }
+
+    /**
+     * Notify the listener that the sound has stopped, after voiceStopped() has
+     * been called. This is called without holding the lock on the mixer.
+     */
+    void notifyFinished()
+    {
+        playbackListener.playbackStopped(this);
+    }
+
+    /**
+     * Add the next frames of this sound into the mix buffer (which has interleaved
+     * left and right channels), resampling it to the output rate.
+     *
+     * @return true if the sound is still playing, false if it has finished.
+     */
+    boolean mixInto(float[] mix, int frames, float outputRate)
+    {
+        short[] samples = data.getSamples();
+        int length = data.getFrameLength();
+        boolean stereo = data.getChannels() == 2;
+        double step = data.getSampleRate() / outputRate;
+
+        // A simple balance control, which leaves the centre at full volume:
+        float leftGain = gain * Math.min(1f, 1f - pan / 100f);
+        float rightGain = gain * Math.min(1f, 1f + pan / 100f);
+
+        for (int i = 0; i < frames; i++) {
+            if (position >= length) {
+                if (!looping || length == 0) {
+                    return false;
+                }
+                position %= length;
+            }
+            int index = (int) position;
+            float fraction = (float) (position - index);
+            int next = index + 1;
+            if (next == length) {
+                next = looping ? 0 : index;
+            }
+
+            float left, right;
+            if (stereo) {
+                left = samples[index * 2] + (samples[next * 2] - samples[index * 2]) * fraction;
+                right = samples[index * 2 + 1] + (samples[next * 2 + 1] - samples[index * 2 + 1]) * fraction;
+            }
+            else {
+                left = samples[index] + (samples[next] - samples[index]) * fraction;
+                right = left;
+            }
+            mix[i * 2] += left * leftGain;
+            mix[i * 2 + 1] += right * rightGain;
+            position += step;
+        }
+        return position < length || (looping && length != 0);
+    }
+}
@@ -0,0 +1,53 @@
+/*
+ This file is part of the Greenfoot program. 
+ Copyright (C) 2026  Poul Henriksen and Michael Kolling
+ 
+ This program is free software; you can redistribute it and/or 
+ modify it under the terms of the GNU General Public License 
+ as published by the Free Software Foundation; either version 2 
+ of the License, or (at your option) any later version. 
+ 
+ This program is distributed in the hope that it will be useful, 
+ but WITHOUT ANY WARRANTY; without even the implied warranty of 
+ MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the 
+ GNU General Public License for more details. 
+ 
+ You should have received a copy of the GNU General Public License 
+ along with this program; if not, write to the Free Software 
+ Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA. 
+ 
+ This file is subject to the Classpath exception as provided in the  
+ LICENSE.txt file that accompanied this code.
+ */
+package greenfoot.sound;
+
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.LineUnavailableException;
+
+/**
+ * Where the SoundMixer writes the mixed sound to. Normally this is a line of
+ * the sound card (see LineMixerOutput), but it can be anything which consumes
+ * sample data.
+ *
+ * @see SoundMixer
+ */
+public interface MixerOutput
+{
+    /**
+     * Open the output, ready for writing data in the given format.
+     *
+     * @throws LineUnavailableException if there is no output available
+     */
+    public void open(AudioFormat format) throws LineUnavailableException;
+
+    /**
+     * Write data to the output. This should block until the data has been
+     * written, so that the mixer does not run ahead of the playback.
+     */
+    public void write(byte[] b, int off, int len);
+
+    /**
+     * Close the output, discarding any data which has not been played yet.
+     */
+    public void close();
+}
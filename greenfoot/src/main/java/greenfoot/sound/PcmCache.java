@@ -0,0 +1,117 @@
+/*
+ This file is part of the Greenfoot program. 
+ Copyright (C) 2026  Poul Henriksen and Michael Kolling
+ 
+ This program is free software; you can redistribute it and/or 
+ modify it under the terms of the GNU General Public License 
+ as published by the Free Software Foundation; either version 2 
+ of the License, or (at your option) any later version. 
+ 
+ This program is distributed in the hope that it will be useful, 
+ but WITHOUT ANY WARRANTY; without even the implied warranty of 
+ MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the 
+ GNU General Public License for more details. 
+ 
+ You should have received a copy of the GNU General Public License 
+ along with this program; if not, write to the Free Software 
+ Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA. 
+ 
+ This file is subject to the Classpath exception as provided in the  
+ LICENSE.txt file that accompanied this code.
+ */
+package greenfoot.sound;
+
+import java.io.IOException;
+import java.net.URL;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+
+import javax.sound.sampled.UnsupportedAudioFileException;
+
+/**
+ * A cache of decoded sounds, shared by all the sounds played through the
+ * SoundMixer. The cache is limited by the memory used by the samples rather
+ * than the number of sounds; when it is full the least recently used sounds are
+ * dropped. Sounds only hold on to their data while they are playing or paused,
+ * so the memory used by sounds which are not playing is limited too.
+ */
+public class PcmCache
+{
+    /** The default limit for the cached data: 32MB, about three minutes of CD-quality stereo. */
+    public static final long DEFAULT_MAX_BYTES = 32L * 1024 * 1024;
+
+    private final long maxBytes;
+
+    /** The cached data, by URL, in order of use (least recently used first). */
+    private final LinkedHashMap<String,PcmData> cachedData = new LinkedHashMap<String,PcmData>(16, 0.75f, true);
+    private long cachedBytes = 0;
+
+    public PcmCache()
+    {
+        this(DEFAULT_MAX_BYTES);
+    }
+
+    /**
+     * Create a cache which holds at most the given number of bytes of samples.
+     */
+    public PcmCache(long maxBytes)
+    {
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Get the decoded data for a sound file, decoding it if it is not in the cache.
+     *
+     * @param url The sound file.
+     * @param mp3 Whether the file is an mp3 file.
+     */
+    public PcmData getPcmData(URL url, boolean mp3)
+        throws IOException, UnsupportedAudioFileException
+    {
+        String urlStr = url.toString();
+        synchronized (this) {
+            PcmData data = cachedData.get(urlStr);
+            if (data != null) {
+                return data;
+            }
+        }
+
+        // Decode without holding the lock, so that sounds which are already
+        // cached can still be played meanwhile:
+        PcmData data = PcmData.decode(url, mp3);
+
+        synchronized (this) {
+            PcmData other = cachedData.get(urlStr);
+            if (other != null) {
+                // Decoded by another thread at the same time
+                return other;
+            }
+            if (data.getSizeInBytes() <= maxBytes) {
+                cachedData.put(urlStr, data);
+                cachedBytes += data.getSizeInBytes();
+                Iterator<PcmData> it = cachedData.values().iterator();
+                while (cachedBytes > maxBytes) {
+                    cachedBytes -= it.next().getSizeInBytes();
+                    it.remove();
+                }
+            }
+        }
+        return data;
+    }
+
+    /**
+     * Check whether the data for the given sound file is in the cache.
+     */
+    public synchronized boolean isCached(URL url)
+    {
+        return cachedData.containsKey(url.toString());
+    }
+
+    /**
+     * The memory used by the cached samples, in bytes.
+     */
+    public synchronized long getCachedBytes()
+    {
+        return cachedBytes;
+    }
+}
@@ -0,0 +1,163 @@
+/*
+ This file is part of the Greenfoot program. 
+ Copyright (C) 2026  Poul Henriksen and Michael Kolling
+ 
+ This program is free software; you can redistribute it and/or 
+ modify it under the terms of the GNU General Public License 
+ as published by the Free Software Foundation; either version 2 
+ of the License, or (at your option) any later version. 
+ 
+ This program is distributed in the hope that it will be useful, 
+ but WITHOUT ANY WARRANTY; without even the implied warranty of 
+ MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the 
+ GNU General Public License for more details. 
+ 
+ You should have received a copy of the GNU General Public License 
+ along with this program; if not, write to the Free Software 
+ Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA. 
+ 
+ This file is subject to the Classpath exception as provided in the  
+ LICENSE.txt file that accompanied this code.
+ */
+package greenfoot.sound;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.URL;
+
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioInputStream;
+import javax.sound.sampled.AudioSystem;
+import javax.sound.sampled.UnsupportedAudioFileException;
+
+/**
+ * A completely decoded sound, held in memory as 16-bit samples so that it can
+ * be mixed by the SoundMixer. The data is never modified once it has been
+ * decoded, so it can be shared between any number of sounds.
+ *
+ * @see PcmCache
+ */
+public class PcmData
+{
+    /** The samples, interleaved if there are two channels. */
+    private final short[] samples;
+    private final int channels;
+    private final float sampleRate;
+    private final int frameLength;
+
+    public PcmData(short[] samples, int channels, float sampleRate)
+    {
+        this.samples = samples;
+        this.channels = channels;
+        this.sampleRate = sampleRate;
+        this.frameLength = samples.length / channels;
+    }
+
+    /**
+     * Decode a sound file completely.
+     *
+     * @param url The file to decode.
+     * @param mp3 Whether the file is an mp3 file.
+     */
+    public static PcmData decode(URL url, boolean mp3)
+        throws IOException, UnsupportedAudioFileException
+    {
+        if (mp3) {
+            Mp3AudioInputStream stream = new Mp3AudioInputStream(url);
+            try {
+                ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+                byte[] buffer = new byte[64 * 1024];
+                int read;
+                while ((read = stream.read(buffer, 0, buffer.length)) != -1) {
+                    bytes.write(buffer, 0, read);
+                }
+                return fromBytes(bytes.toByteArray(), stream.getFormat(), url);
+            }
+            finally {
+                stream.close();
+            }
+        }
+
+        AudioInputStream stream = AudioSystem.getAudioInputStream(url);
+        try {
+            AudioFormat format = stream.getFormat();
+            if (!AudioFormat.Encoding.PCM_SIGNED.equals(format.getEncoding()) || format.getSampleSizeInBits() != 16) {
+                AudioFormat target = new AudioFormat(format.getSampleRate(), 16, format.getChannels(), true, false);
+                try {
+                    stream = AudioSystem.getAudioInputStream(target, stream);
+                }
+                catch (IllegalArgumentException e) {
+                    throw new UnsupportedAudioFileException("Cannot convert " + format + " in " + url);
+                }
+            }
+            return fromBytes(stream.readAllBytes(), stream.getFormat(), url);
+        }
+        finally {
+            stream.close();
+        }
+    }
+
+    /**
+     * Convert 16-bit signed sample data in the given format to PcmData.
+     */
+    private static PcmData fromBytes(byte[] bytes, AudioFormat format, URL url)
+        throws UnsupportedAudioFileException
+    {
+        int channels = format.getChannels();
+        if (channels != 1 && channels != 2) {
+            throw new UnsupportedAudioFileException("Only mono and stereo sounds are supported: " + url);
+        }
+
+        int frames = bytes.length / (2 * channels);
+        short[] samples = new short[frames * channels];
+        boolean bigEndian = format.isBigEndian();
+        for (int i = 0; i < samples.length; i++) {
+            int hi = bigEndian ? bytes[i * 2] : bytes[i * 2 + 1];
+            int lo = bigEndian ? bytes[i * 2 + 1] : bytes[i * 2];
+            samples[i] = (short) ((hi << 8) | (lo & 0xff));
+        }
+
+        float sampleRate = format.getSampleRate();
+        if (sampleRate == AudioSystem.NOT_SPECIFIED) {
+            sampleRate = SoundMixer.OUTPUT_FORMAT.getSampleRate();
+        }
+        return new PcmData(samples, channels, sampleRate);
+    }
+
+    /**
+     * The samples. If there are two channels they are interleaved, left channel first.
+     */
+    public short[] getSamples()
+    {
+        return samples;
+    }
+
+    /**
+     * The number of channels (1 or 2).
+     */
+    public int getChannels()
+    {
+        return channels;
+    }
+
+    public float getSampleRate()
+    {
+        return sampleRate;
+    }
+
+    /**
+     * The length of the sound in frames (one sample for each channel).
+     */
+    public int getFrameLength()
+    {
+        return frameLength;
+    }
+
+    /**
+     * The memory used by the samples, in bytes.
+     */
+    public long getSizeInBytes()
+    {
+        return samples.length * 2L;
+    }
+}
@@ -26,7 +26,7 @@ package greenfoot.sound;
  * 
  * @see SoundStream
  * @see MidiFileSound
- * @see SoundClip
+ * @see MixedSound
  * @author Poul Henriksen 
  *
  */
@@ -99,4 +99,16 @@ public interface Sound
      * @return the sound volume, between 0-100.
      */
     public abstract int getVolume();
+
+    /**
+     * Set the balance between the left and right speakers.
+     * @param pan the pan, between -100 (left only) and 100 (right only). 0 is the centre.
+     */
+    public abstract void setPan(int pan);
+
+    /**
+     * Get the current balance between the left and right speakers.
+     * @return the pan, between -100 (left only) and 100 (right only).
+     */
+    public abstract int getPan();
 }
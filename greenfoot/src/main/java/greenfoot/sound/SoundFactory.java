@@ -43,29 +43,35 @@ public class SoundFactory
      * sounds, for instance it can pause/resume all sounds.
      */
     private SoundCollection soundCollection;
+
+    /** The mixer which plays all the sounds that are loaded into memory. */
+    private SoundMixer soundMixer;
+
+    /** The decoded sounds, shared by all sounds played through the mixer. */
+    private PcmCache pcmCache;
     
     /**
-     * Only use clips when the size of the clip is below this value (size of the
-     * file in bytes). 
-     * TODO: make this user configurable for platforms where
-     * clips don't work so well. What about applets?
+     * Only load sounds into memory when the size of the file (in bytes) is
+     * below this value. Larger sounds are streamed.
      */
     private static final int maxClipSize = 500 * 1000;
 
     private SoundFactory()
     {
         soundCollection = new SoundCollection();
+        soundMixer = new SoundMixer(new LineMixerOutput());
+        pcmCache = new PcmCache();
         
         for (String soundFile : GreenfootUtil.getSoundFiles())
         {
-            // This loads the file, and if it's a SoundClip, puts it in
-            // the sound cache.  It also happens to make objects for
-            // non-SoundClip items, but since they are all streams,
+            // This decodes the file, and if it's a MixedSound, puts it in
+            // the PCM cache.  It also happens to make objects for
+            // non-MixedSound items, but since they are all streams,
             // that shouldn't cause a big slowdown or waste of resources.
             Sound s = createSound(soundFile, true);
             
-            if (s instanceof SoundClip)
-                ((SoundClip)s).preLoad();
+            if (s instanceof MixedSound)
+                ((MixedSound)s).preLoad();
             
             // if (!soundCache.hasFreeSpace())
             //    return; // No point continuing
@@ -105,15 +111,16 @@ public class SoundFactory
                 // This is an mp3 file but we don't have the mp3 library available.
                 SoundExceptionHandler.handleMp3LibNotAvailable();
             }   
-            else if(isMp3(url)) {
-                return new SoundStream(new Mp3AudioInputStream(url), soundCollection);
-            }            
-            else if (isJavaAudioStream(size)) {
+            else if (isStream(size)) {
+                if (isMp3(url)) {
+                    return new SoundStream(new Mp3AudioInputStream(url), soundCollection);
+                }
                 return new SoundStream(new JavaAudioInputStream(url), soundCollection);
             } 
             else {
-                // The sound is small enough to be loaded into memory as a clip.
-                return new SoundClip(url, soundCollection);
+                // The sound is small enough to be decoded into memory and
+                // played through the mixer.
+                return new MixedSound(url, isMp3(url), soundMixer, pcmCache, soundCollection);
             }
         } catch (IOException e) {
             if (! quiet) {
@@ -127,7 +134,7 @@ public class SoundFactory
         return null;
     }
     
-    private boolean isJavaAudioStream(int size)
+    private boolean isStream(int size)
     {
         // If we can not get the size, or if it is a big file we stream
         // it in a thread.
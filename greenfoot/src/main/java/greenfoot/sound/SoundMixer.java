@@ -0,0 +1,292 @@
+/*
+ This file is part of the Greenfoot program. 
+ Copyright (C) 2026  Poul Henriksen and Michael Kolling
+ 
+ This program is free software; you can redistribute it and/or 
+ modify it under the terms of the GNU General Public License 
+ as published by the Free Software Foundation; either version 2 
+ of the License, or (at your option) any later version. 
+ 
+ This program is distributed in the hope that it will be useful, 
+ but WITHOUT ANY WARRANTY; without even the implied warranty of 
+ MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the 
+ GNU General Public License for more details. 
+ 
+ You should have received a copy of the GNU General Public License 
+ along with this program; if not, write to the Free Software 
+ Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA. 
+ 
+ This file is subject to the Classpath exception as provided in the  
+ LICENSE.txt file that accompanied this code.
+ */
+package greenfoot.sound;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.LineUnavailableException;
+
+/**
+ * Mixes all the MixedSounds which are playing into a single output, using a
+ * single thread. Compared to giving each sound its own line and thread, this
+ * means that starting a sound is cheap, and any number of sounds can be played
+ * at once without running out of lines on the sound card.
+ *
+ * <p>At most MAX_VOICES sounds are mixed at once. If another sound is started
+ * when that many are playing, the one which has been playing longest (preferring
+ * sounds which are not looping) is stopped to make room for it.
+ *
+ * <p>The mixing thread is started when a sound starts playing, and stops (closing
+ * the output) once no sounds have been playing for a short while.
+ *
+ * @see MixedSound
+ */
+public class SoundMixer implements Runnable
+{
+    /** The format of the mixed output: 44.1 kHz, 16-bit, signed, stereo, little-endian. */
+    public static final AudioFormat OUTPUT_FORMAT = new AudioFormat(44100f, 16, 2, true, false);
+
+    /** The maximum number of sounds which are mixed at once. */
+    public static final int MAX_VOICES = 32;
+
+    /** The number of frames mixed at a time (about 12ms). */
+    static final int BLOCK_FRAMES = 512;
+
+    /**
+     * How long to wait until closing the output and stopping the mixing thread
+     * after the last sound has finished. In ms.
+     */
+    private static final int CLOSE_TIMEOUT = 1000;
+
+    private final MixerOutput output;
+    /** Whether to start a thread to do the mixing (otherwise mixBlock must be called). */
+    private final boolean threaded;
+
+    /** The sounds being mixed. The first numberVoices entries are in use. */
+    private final MixedSound[] voices = new MixedSound[MAX_VOICES];
+    private int numberVoices = 0;
+    /** The number of frames mixed so far, used to find the oldest sound. */
+    private long framesMixed = 0;
+
+    private final float[] mixBuffer = new float[BLOCK_FRAMES * 2];
+    /** Sounds which have finished in the last block, to be notified outside the lock. */
+    private final List<MixedSound> finishedVoices = new ArrayList<MixedSound>();
+
+    private Thread mixThread;
+
+    /**
+     * Create a mixer which plays through the given output.
+     */
+    public SoundMixer(MixerOutput output)
+    {
+        this(output, true);
+    }
+
+    /**
+     * Create a mixer. If threaded is false, no thread is started and the output
+     * is not used: mixBlock must be called to do the mixing.
+     */
+    SoundMixer(MixerOutput output, boolean threaded)
+    {
+        this.output = output;
+        this.threaded = threaded;
+    }
+
+    /**
+     * Start mixing a sound. If the maximum number of sounds are already being mixed,
+     * another sound is stopped and returned; the caller should notify its listener
+     * once it no longer holds the lock on this mixer.
+     */
+    synchronized MixedSound addVoice(MixedSound sound)
+    {
+        MixedSound stolen = null;
+        if (numberVoices == MAX_VOICES) {
+            int oldest = 0;
+            for (int i = 1; i < numberVoices; i++) {
+                if (isOlder(voices[i], voices[oldest])) {
+                    oldest = i;
+                }
+            }
+            stolen = voices[oldest];
+            removeVoiceAt(oldest);
+            stolen.voiceStopped();
+        }
+
+        sound.setStartFrame(framesMixed);
+        voices[numberVoices++] = sound;
+
+        if (threaded) {
+            if (mixThread == null) {
+                mixThread = new Thread(this, "SoundMixer");
+                mixThread.setDaemon(true);
+                mixThread.start();
+            }
+            else {
+                notifyAll();
+            }
+        }
+        return stolen;
+    }
+
+    /**
+     * Whether a should be stopped before b to make room for another sound: sounds
+     * which play once go before looping sounds, then the sound started earliest.
+     */
+    private static boolean isOlder(MixedSound a, MixedSound b)
+    {
+        if (a.isLooping() != b.isLooping()) {
+            return !a.isLooping();
+        }
+        return a.getStartFrame() < b.getStartFrame();
+    }
+
+    /**
+     * Stop mixing a sound (if it is being mixed).
+     */
+    synchronized void removeVoice(MixedSound sound)
+    {
+        for (int i = 0; i < numberVoices; i++) {
+            if (voices[i] == sound) {
+                removeVoiceAt(i);
+                return;
+            }
+        }
+    }
+
+    private void removeVoiceAt(int index)
+    {
+        numberVoices--;
+        voices[index] = voices[numberVoices];
+        voices[numberVoices] = null;
+    }
+
+    /**
+     * The number of sounds currently being mixed.
+     */
+    public synchronized int getNumberVoices()
+    {
+        return numberVoices;
+    }
+
+    /**
+     * Mix the next BLOCK_FRAMES frames of all the sounds into the given buffer,
+     * in OUTPUT_FORMAT, and notify the listeners of any sounds which finished.
+     */
+    void mixBlock(byte[] buffer)
+    {
+        MixedSound[] finished;
+        synchronized (this) {
+            mix(buffer);
+            if (finishedVoices.isEmpty()) {
+                return;
+            }
+            finished = finishedVoices.toArray(new MixedSound[finishedVoices.size()]);
+            finishedVoices.clear();
+        }
+
+        for (MixedSound sound : finished) {
+            sound.notifyFinished();
+        }
+    }
+
+    private void mix(byte[] buffer)
+    {
+        float outputRate = OUTPUT_FORMAT.getSampleRate();
+        Arrays.fill(mixBuffer, 0f);
+        for (int i = 0; i < numberVoices; ) {
+            MixedSound voice = voices[i];
+            if (voice.mixInto(mixBuffer, BLOCK_FRAMES, outputRate)) {
+                i++;
+            }
+            else {
+                removeVoiceAt(i);
+                voice.voiceStopped();
+                finishedVoices.add(voice);
+            }
+        }
+
+        for (int i = 0; i < mixBuffer.length; i++) {
+            int sample = Math.round(mixBuffer[i]);
+            if (sample > Short.MAX_VALUE) {
+                sample = Short.MAX_VALUE;
+            }
+            else if (sample < Short.MIN_VALUE) {
+                sample = Short.MIN_VALUE;
+            }
+            buffer[i * 2] = (byte) sample;
+            buffer[i * 2 + 1] = (byte) (sample >> 8);
+        }
+        framesMixed += BLOCK_FRAMES;
+    }
+
+    @Override
+    public void run()
+    {
+        byte[] buffer = new byte[BLOCK_FRAMES * OUTPUT_FORMAT.getFrameSize()];
+        try {
+            synchronized (this) {
+                output.open(OUTPUT_FORMAT);
+            }
+            while (waitForVoices()) {
+                mixBlock(buffer);
+                output.write(buffer, 0, buffer.length);
+            }
+        }
+        catch (IllegalArgumentException e) {
+            // Thrown by getLine()
+            SoundExceptionHandler.handleIllegalArgumentException(e, "sound mixer");
+            stopAll();
+        }
+        catch (LineUnavailableException e) {
+            SoundExceptionHandler.handleLineUnavailableException(e);
+            stopAll();
+        }
+    }
+
+    /**
+     * Wait until there is something to mix. If nothing has been playing for
+     * CLOSE_TIMEOUT, close the output and return false: the mixing thread should
+     * then finish.
+     */
+    private synchronized boolean waitForVoices()
+    {
+        if (numberVoices == 0) {
+            try {
+                wait(CLOSE_TIMEOUT);
+            }
+            catch (InterruptedException e) {
+            }
+            if (numberVoices == 0) {
+                // Close while holding the lock, so that a new mixing thread
+                // can't open the output before it has been closed:
+                output.close();
+                mixThread = null;
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Stop all the sounds, if the output can't be opened.
+     */
+    private void stopAll()
+    {
+        MixedSound[] stopped;
+        synchronized (this) {
+            output.close();
+            mixThread = null;
+            stopped = new MixedSound[numberVoices];
+            for (int i = numberVoices - 1; i >= 0; i--) {
+                stopped[i] = voices[i];
+                removeVoiceAt(i);
+                stopped[i].voiceStopped();
+            }
+        }
+        for (MixedSound sound : stopped) {
+            sound.notifyFinished();
+        }
+    }
+}
@@ -471,4 +471,16 @@ public class SoundStream implements Sound, Runnable
     {
         return line.getVolume();
     }
+
+    @Override
+    public void setPan(int pan)
+    {
+        line.setPan(pan);
+    }
+
+    @Override
+    public int getPan()
+    {
+        return line.getPan();
+    }
 }
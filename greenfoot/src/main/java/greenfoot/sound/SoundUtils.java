@@ -60,6 +60,22 @@ public class SoundUtils
         return (int) ((Math.log(level) / Math.log(100)) * 100);
     }
 
+    /**
+     * Convert a volume level between 0-100 to the factor to multiply samples by.
+     * The level is linear in decibels, from -50dB (at 1) up to 0dB (at 100),
+     * and 0 is silent.
+     * @param level the volume level.
+     * @return the gain, between 0 and 1.
+     */
+    public static float levelToGain(int level)
+    {
+        if (level <= 0) {
+            return 0f;
+        }
+        float decibels = convertMinMax(Math.min(level, 100), -50f, 0f);
+        return (float) Math.pow(10, decibels / 20);
+    }
+
     /**
      * Calculate how long it will take to play the given number of bytes.
      * 
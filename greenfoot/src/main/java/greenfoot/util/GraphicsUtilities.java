@@ -46,6 +46,7 @@ import java.awt.Graphics;
 import java.awt.GraphicsEnvironment;
 import java.awt.Graphics2D;
 import java.awt.RenderingHints;
+import java.awt.Rectangle;
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.net.URL;
@@ -82,12 +83,27 @@ public class GraphicsUtilities {
     private GraphicsUtilities() {
     }
 
-    // Returns the graphics configuration for the primary screen
+    // Returns the graphics configuration for the primary screen, or null when
+    // running headless (when there is no screen)
     private static GraphicsConfiguration getGraphicsConfiguration() {
+        if (GraphicsEnvironment.isHeadless()) {
+            return null;
+        }
         return GraphicsEnvironment.getLocalGraphicsEnvironment().
                     getDefaultScreenDevice().getDefaultConfiguration();
     }
 
+    // Creates an image with the given transparency, compatible with the primary
+    // screen if there is one
+    private static BufferedImage createImage(int width, int height, int transparency) {
+        GraphicsConfiguration config = getGraphicsConfiguration();
+        if (config == null) {
+            return new BufferedImage(width, height, transparency == Transparency.OPAQUE
+                    ? BufferedImage.TYPE_INT_RGB : BufferedImage.TYPE_INT_ARGB);
+        }
+        return config.createCompatibleImage(width, height, transparency);
+    }
+
     /**
      * <p>Returns a new <code>BufferedImage</code> using the same color model
      * as the image passed as a parameter. The returned image is only compatible
@@ -145,8 +161,7 @@ public class GraphicsUtilities {
      */
     public static BufferedImage createCompatibleImage(BufferedImage image,
                                                       int width, int height) {
-        return getGraphicsConfiguration().createCompatibleImage(width, height,
-                                                   image.getTransparency());
+        return createImage(width, height, image.getTransparency());
     }
 
     /**
@@ -164,7 +179,7 @@ public class GraphicsUtilities {
      *   specified width and height
      */
     public static BufferedImage createCompatibleImage(int width, int height) {
-        return getGraphicsConfiguration().createCompatibleImage(width, height);
+        return createImage(width, height, Transparency.OPAQUE);
     }
 
     /**
@@ -183,8 +198,7 @@ public class GraphicsUtilities {
      */
     public static BufferedImage createCompatibleTranslucentImage(int width,
                                                                  int height) {
-        return getGraphicsConfiguration().createCompatibleImage(width, height,
-                                                   Transparency.TRANSLUCENT);
+        return createImage(width, height, Transparency.TRANSLUCENT);
     }
 
     /**
@@ -261,13 +275,13 @@ public class GraphicsUtilities {
      *   same width and height and transparency and content, of <code>image</code>
      */
     public static BufferedImage toCompatibleImage(BufferedImage image) {
-        if (image.getColorModel().equals(
-                getGraphicsConfiguration().getColorModel())) {
+        GraphicsConfiguration config = getGraphicsConfiguration();
+        if (config == null || image.getColorModel().equals(config.getColorModel())) {
             return image;
         }
 
         BufferedImage compatibleImage =
-                getGraphicsConfiguration().createCompatibleImage(
+                config.createCompatibleImage(
                     image.getWidth(), image.getHeight(),
                     image.getTransparency());
         Graphics g = compatibleImage.getGraphics();
@@ -296,12 +310,13 @@ public class GraphicsUtilities {
      */
     public static BufferedImage toCompatibleTranslucentImage(BufferedImage image)
     {
-        if (image.getColorModel().equals(getGraphicsConfiguration().getColorModel())
-                && image.getColorModel().hasAlpha()) {
+        GraphicsConfiguration config = getGraphicsConfiguration();
+        if (image.getColorModel().hasAlpha()
+                && (config == null || image.getColorModel().equals(config.getColorModel()))) {
             return image;
         }
 
-        BufferedImage compatibleImage = getGraphicsConfiguration().createCompatibleImage(
+        BufferedImage compatibleImage = createImage(
                     image.getWidth(), image.getHeight(),
                     Transparency.TRANSLUCENT);
         Graphics g = compatibleImage.getGraphics();
@@ -441,5 +456,18 @@ public class GraphicsUtilities {
         {
             return overallBounds.height;
         }
+        
+        /**
+         * Get the bounds of the text outline, which may extend a little beyond
+         * the overall width and height.
+         */
+        public Rectangle getOutlineBounds()
+        {
+            Rectangle bounds = new Rectangle(overallBounds);
+            for (Shape lineShape : lineShapes) {
+                bounds.add(lineShape.getBounds());
+            }
+            return bounds;
+        }
     }
 }
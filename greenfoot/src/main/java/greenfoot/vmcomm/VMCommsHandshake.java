@@ -0,0 +1,224 @@
+/*
+ This file is part of the Greenfoot program. 
+ Copyright (C) 2026  Poul Henriksen and Michael Kolling
+ 
+ This program is free software; you can redistribute it and/or 
+ modify it under the terms of the GNU General Public License 
+ as published by the Free Software Foundation; either version 2 
+ of the License, or (at your option) any later version. 
+ 
+ This program is distributed in the hope that it will be useful, 
+ but WITHOUT ANY WARRANTY; without even the implied warranty of 
+ MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the 
+ GNU General Public License for more details. 
+ 
+ You should have received a copy of the GNU General Public License 
+ along with this program; if not, write to the Free Software 
+ Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA. 
+ 
+ This file is subject to the Classpath exception as provided in the  
+ LICENSE.txt file that accompanied this code.
+ */
+package greenfoot.vmcomm;
+
+import threadchecker.OnThread;
+import threadchecker.Tag;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * The lock-free handshake between the server VM and the debug VM. Rather than passing
+ * file locks back and forth (see VMCommsMain), each side publishes a sequence number
+ * in the shared memory once it has finished with the other side's area and written its
+ * own:
+ *
+ * <ul>
+ * <li>The server VM writes its area and then publishes a new server sequence number.
+ *     It does not touch either area again until the debug VM has published the same
+ *     number back; it never waits for that, but just checks on each exchange.
+ * <li>The debug VM waits for a new server sequence number, reads the server area,
+ *     writes its own area and then publishes the server sequence number as its own.
+ * </ul>
+ *
+ * <p>The sequence numbers are written with release semantics and read with acquire
+ * semantics, so the data written before a sequence number is published is visible to
+ * the other VM once it sees the number, without any system calls.
+ *
+ * <p>The handshake is only used if the server VM has written MODE_LOCK_FREE into the
+ * mode word (see {@link #choose(ByteBuffer, boolean)}). Otherwise (if the shared memory
+ * does not support atomic access, or the project asks for it with "shm.useFileLocks=true")
+ * the file locks are used.
+ */
+@OnThread(Tag.Worker)
+public class VMCommsHandshake
+{
+    // The control words live at the end of the server area (after the commands), each
+    // in its own cache line so that the two VMs do not contend for the same line.
+    // Positions are in ints, like the other shared memory positions:
+    public static final int MODE_POS = VMCommsMain.USER_AREA_OFFSET - 48;
+    public static final int SERVER_SEQ_POS = VMCommsMain.USER_AREA_OFFSET - 32;
+    public static final int DEBUG_SEQ_POS = VMCommsMain.USER_AREA_OFFSET - 16;
+
+    /** The end of the server area which is available for commands */
+    public static final int CONTROL_AREA_OFFSET = MODE_POS;
+
+    /** Value of the mode word when the file locks are used (also the value in a zeroed buffer) */
+    public static final int MODE_FILE_LOCKS = 0;
+    /** Value of the mode word when the lock-free handshake is used */
+    public static final int MODE_LOCK_FREE = 1;
+
+    // The number of times to spin waiting for the server VM before parking, and the
+    // range of park times. The server VM publishes about once per frame.
+    private static final int SPIN_LIMIT = 2000;
+    private static final long MIN_PARK_NANOS = 50_000L;
+    private static final long MAX_PARK_NANOS = 1_000_000L;
+
+    // Same byte order as the IntBuffer views used for the rest of the shared memory:
+    private static final VarHandle INTS = MethodHandles.byteBufferViewVarHandle(int[].class, ByteOrder.BIG_ENDIAN);
+
+    private final ByteBuffer sharedMemory;
+    /** Set once the handshake is no longer used, to stop any wait for the server VM */
+    private volatile boolean closed;
+
+    /**
+     * Create a handshake using the given shared memory buffer.
+     */
+    @OnThread(Tag.Any)
+    public VMCommsHandshake(ByteBuffer sharedMemory)
+    {
+        this.sharedMemory = sharedMemory;
+    }
+
+    /**
+     * Choose how the server VM and the debug VM will exchange data, and write the choice
+     * into the mode word. This is done by the server VM, before starting the debug VM.
+     *
+     * @param useFileLocks  Whether the project asks for the file locks to be used
+     * @return  The lock-free handshake, or null if the file locks are to be used
+     */
+    @OnThread(Tag.Any)
+    public static VMCommsHandshake choose(ByteBuffer sharedMemory, boolean useFileLocks)
+    {
+        if (!useFileLocks && isSupported(sharedMemory))
+        {
+            setMode(sharedMemory, MODE_LOCK_FREE);
+            return new VMCommsHandshake(sharedMemory);
+        }
+        setMode(sharedMemory, MODE_FILE_LOCKS);
+        return null;
+    }
+
+    /**
+     * Check whether the lock-free handshake can be used with the given buffer, that is,
+     * whether it supports atomic access.
+     */
+    @OnThread(Tag.Any)
+    public static boolean isSupported(ByteBuffer sharedMemory)
+    {
+        try
+        {
+            INTS.getAcquire(sharedMemory, SERVER_SEQ_POS * 4);
+            return true;
+        }
+        catch (UnsupportedOperationException | IllegalStateException e)
+        {
+            return false;
+        }
+    }
+
+    /**
+     * Get the handshake mode written by the server VM (MODE_FILE_LOCKS or MODE_LOCK_FREE).
+     */
+    @OnThread(Tag.Any)
+    public static int getMode(ByteBuffer sharedMemory)
+    {
+        return sharedMemory.getInt(MODE_POS * 4);
+    }
+
+    /**
+     * Set the handshake mode. Only the server VM sets the mode, before starting the debug VM.
+     */
+    @OnThread(Tag.Any)
+    public static void setMode(ByteBuffer sharedMemory, int mode)
+    {
+        sharedMemory.putInt(MODE_POS * 4, mode);
+    }
+
+    /**
+     * Publish a server sequence number, once the server area has been written.
+     */
+    public void publishServerSeq(int seq)
+    {
+        INTS.setRelease(sharedMemory, SERVER_SEQ_POS * 4, seq);
+    }
+
+    /**
+     * Get the last sequence number published by the debug VM. When it is equal to
+     * the last server sequence number, the debug VM has finished with the server area
+     * and written its own.
+     */
+    public int getDebugSeq()
+    {
+        return (int) INTS.getAcquire(sharedMemory, DEBUG_SEQ_POS * 4);
+    }
+
+    /**
+     * Publish a debug sequence number (the server sequence number being responded to),
+     * once the server area has been read and the debug area written.
+     */
+    public void publishDebugSeq(int seq)
+    {
+        INTS.setRelease(sharedMemory, DEBUG_SEQ_POS * 4, seq);
+    }
+
+    /**
+     * Stop using the handshake: any wait for the server VM (see {@link #awaitServerSeq(int)})
+     * ends, and so do any later waits.
+     */
+    @OnThread(Tag.Any)
+    public void close()
+    {
+        closed = true;
+    }
+
+    /**
+     * Wait until the server VM publishes a sequence number different to the given one
+     * (the last one seen), and return it. This spins briefly, and then parks for
+     * gradually longer periods.
+     *
+     * @throws InterruptedException  if the thread is interrupted, or the handshake is
+     *                               closed, while waiting.
+     */
+    public int awaitServerSeq(int lastSeen) throws InterruptedException
+    {
+        int spins = 0;
+        long parkNanos = MIN_PARK_NANOS;
+        while (true)
+        {
+            int seq = (int) INTS.getAcquire(sharedMemory, SERVER_SEQ_POS * 4);
+            if (seq != lastSeen)
+            {
+                return seq;
+            }
+            if (closed || Thread.interrupted())
+            {
+                throw new InterruptedException();
+            }
+
+            if (spins < SPIN_LIMIT)
+            {
+                spins++;
+                Thread.onSpinWait();
+            }
+            else
+            {
+                LockSupport.parkNanos(parkNanos);
+                parkNanos = Math.min(parkNanos * 2, MAX_PARK_NANOS);
+            }
+        }
+    }
+}
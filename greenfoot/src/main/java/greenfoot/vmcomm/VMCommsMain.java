@@ -31,8 +31,10 @@ import java.nio.channels.FileChannel;
 import java.nio.channels.FileLock;
 import java.nio.channels.FileChannel.MapMode;
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Properties;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import bluej.pkgmgr.Project;
@@ -79,6 +81,10 @@ public class VMCommsMain implements Closeable
     // The acquisition order is B-->A, A-->C, and C-->B. This ensures that there can never
     // be deadlock. No process holds all three locks at once and each process always holds at
     // least one lock.
+    //
+    // Each lock and release is a system call, so where the shared memory supports atomic access
+    // we instead use the lock-free handshake described in VMCommsHandshake, and the file locks
+    // are only used as a fallback (or if the project sets "shm.useFileLocks=true").
 
     public static final int DEFAULT_MAPPED_SIZE = 20_000_000;
     public static final int USER_AREA_OFFSET = 0x1000; // offset in 4-byte chunks; 16KB worth.
@@ -90,6 +96,15 @@ public class VMCommsMain implements Closeable
     public static final int SYNC_AREA_OFFSET_BYTES = 0;
     public static final int SYNC_AREA_SIZE_BYTES = 4;
     
+    // The maximum number of dirty row bands sent with a world image; see VMCommsSimulation.
+    public static final int MAX_DIRTY_BANDS = 64;
+    
+    // The speed field sent by the debug VM also holds the measured act and frame rates; see
+    // VMCommsSimulation.  The speed is in the lowest bits, then the act rate, then the frame rate:
+    public static final int SPEED_BITS = 8;
+    public static final int RATE_BITS = 12;
+    public static final int MAX_RATE = (1 << RATE_BITS) - 1;
+    
     private final int fileSize;
     private File shmFile;
     private FileChannel fc;
@@ -97,6 +112,10 @@ public class VMCommsMain implements Closeable
     private IntBuffer sharedMemory;
     private FileLock putLock;
     private FileLock syncLock;
+    // The lock-free handshake, or null if the file locks are used instead:
+    private final VMCommsHandshake handshake;
+    // The last sequence number we published (only used with the lock-free handshake):
+    private int serverSeq = 0;
 
     // Needs to be AtomicInteger because it's modified from multiple threads:
     private final AtomicInteger lastSeq = new AtomicInteger(0);
@@ -108,9 +127,15 @@ public class VMCommsMain implements Closeable
     private boolean checkingIO = false;
     
     private boolean haveUpdatedImage = false;
+    // The rows of the world image which changed since the image was last passed to the stage,
+    // or null if the whole image should be considered changed:
+    private BitSet dirtyImageRows = null;
     private boolean haveUpdatedErrorCount = false;
     private long lastExecStartTime;
     private int updatedSimulationSpeed = -1;
+    // The measured act rate and frame rate (in that order), or null if not changed:
+    private int[] updatedSimulationRates = null;
+    private int lastSimulationRates = -1;
     private boolean worldChanged = false;
     private boolean worldPresentAfterChange = false;
     private int[] promptCodepoints = null;
@@ -145,7 +170,9 @@ public class VMCommsMain implements Closeable
     @SuppressWarnings("resource")
     public VMCommsMain(Project project) throws IOException
     {
-        fileSize = Integer.parseInt(project.getUnnamedPackage().getLastSavedProperties().getProperty("shm.size", Integer.toString(DEFAULT_MAPPED_SIZE)));
+        Properties projectProperties = project.getUnnamedPackage().getLastSavedProperties();
+        fileSize = Integer.parseInt(projectProperties.getProperty("shm.size", Integer.toString(DEFAULT_MAPPED_SIZE)));
+        boolean useFileLocks = Boolean.parseBoolean(projectProperties.getProperty("shm.useFileLocks", "false"));
         
         shmFile = File.createTempFile("greenfoot", "shm");
         shmFile.deleteOnExit();
@@ -153,9 +180,13 @@ public class VMCommsMain implements Closeable
         sharedMemoryByte = fc.map(MapMode.READ_WRITE, 0, fileSize);
         sharedMemory = sharedMemoryByte.asIntBuffer();
         
-        // Obtain the put-area lock right from the start:
-        putLock = fc.lock(SERVER_AREA_OFFSET_BYTES, SERVER_AREA_SIZE_BYTES, false);
-        syncLock = fc.lock(SYNC_AREA_OFFSET_BYTES, SYNC_AREA_SIZE_BYTES, false);
+        handshake = VMCommsHandshake.choose(sharedMemoryByte, useFileLocks);
+        if (handshake == null)
+        {
+            // Obtain the put-area lock right from the start:
+            putLock = fc.lock(SERVER_AREA_OFFSET_BYTES, SERVER_AREA_SIZE_BYTES, false);
+            syncLock = fc.lock(SYNC_AREA_OFFSET_BYTES, SYNC_AREA_SIZE_BYTES, false);
+        }
         
         ioThread = new Thread("VMCommsMain") {
             @OnThread(Tag.Worker)
@@ -239,7 +270,7 @@ public class VMCommsMain implements Closeable
         {
             // sequence, type, extra info:
             int totalLength = pendingCommand.extraInfo.length + 2;
-            if (sharedMemory.position() + totalLength > USER_AREA_OFFSET)
+            if (sharedMemory.position() + totalLength > VMCommsHandshake.CONTROL_AREA_OFFSET)
             {
                 // We can't write all commands in the available buffer:
                 sharedMemory.put(pendingCountPos, numIssued);
@@ -302,8 +333,9 @@ public class VMCommsMain implements Closeable
             copy.position(USER_AREA_OFFSET + 2);
             int width = copy.get();
             int height = copy.get();
-            stage.receivedWorldImage(width, height, copy);
+            stage.receivedWorldImage(width, height, copy, dirtyImageRows);
             haveUpdatedImage = false;
+            dirtyImageRows = new BitSet();
             lastConsumedImg = lastPaintSeq;
         }
         
@@ -318,6 +350,12 @@ public class VMCommsMain implements Closeable
             stage.notifySimulationSpeed(updatedSimulationSpeed);
             updatedSimulationSpeed = -1;
         }        
+
+        if (updatedSimulationRates != null)
+        {
+            stage.notifySimulationRates(updatedSimulationRates[0], updatedSimulationRates[1]);
+            updatedSimulationRates = null;
+        }
         
         if (promptCodepoints != null && askId > lastAnswer)
         {
@@ -343,14 +381,74 @@ public class VMCommsMain implements Closeable
      */
     @OnThread(Tag.Worker)
     private boolean checkIO()
+    {
+        if (handshake != null)
+        {
+            exchangeLockFree();
+        }
+        else
+        {
+            exchangeWithFileLocks();
+        }
+        
+        // To avoid consuming close to 100% CPU, we wait on the animation timer:
+        synchronized (this)
+        {
+            try
+            {
+                workerWaiting = true;
+                wait();
+                workerWaiting = false;
+            }
+            catch (InterruptedException ie)
+            {
+                // Nothing needs to be done.
+            }
+            return shmFile != null;
+        }
+    }
+    
+    /**
+     * Exchange data with the debug VM using the lock-free handshake (see VMCommsHandshake).
+     * If the debug VM hasn't yet responded to the data we last sent (because it is busy, or
+     * not running), nothing is done.
+     */
+    @OnThread(Tag.Worker)
+    private void exchangeLockFree()
+    {
+        if (handshake.getDebugSeq() != serverSeq)
+        {
+            return;
+        }
+        
+        // The debug VM has finished with our area and written its own, and won't touch
+        // either until we publish a new sequence number:
+        try
+        {
+            readDebugArea();
+        }
+        catch (IllegalArgumentException ex)
+        {
+            // Happens when world size is too large: swallow quietly, as will happen repeatedly.
+            // The exception will be reported to the user from the debug VM side.
+        }
+        
+        writeServerArea();
+        serverSeq += 1;
+        handshake.publishServerSeq(serverSeq);
+    }
+    
+    /**
+     * Exchange data with the debug VM using the file locking protocol (described at the top
+     * of this class).
+     */
+    @OnThread(Tag.Worker)
+    private void exchangeWithFileLocks()
     {
         FileChannel sharedMemoryLock = this.fc;
 
         // We are holding the lock for the main put area:
-        sharedMemory.position(1);
-        sharedMemory.put(-lastSeq.get());
-        sharedMemory.put(lastConsumedImg);
-        writeCommands(pendingCommands);
+        writeServerArea();
         
         FileLock fileLock = null;
         
@@ -360,92 +458,7 @@ public class VMCommsMain implements Closeable
             fileLock = sharedMemoryLock.lock(USER_AREA_OFFSET_BYTES, fileSize - USER_AREA_OFFSET_BYTES, false);
             syncLock.release();
 
-            int seq = sharedMemory.get(USER_AREA_OFFSET);
-            if (seq > lastSeq.get())
-            {
-                // The client VM has painted a new frame for us:
-                lastSeq.set(seq);
-
-                synchronized (this)
-                {
-                    sharedMemory.position(USER_AREA_OFFSET + 1);
-                    int paintSeq = sharedMemory.get();
-                    int width = sharedMemory.get();
-                    int height = sharedMemory.get();
-                    if (width != 0 && height != 0 && paintSeq != lastPaintSeq)
-                    {
-                        lastPaintSeq = paintSeq;
-                        haveUpdatedImage = true;
-                    }
-                    sharedMemory.position(sharedMemory.position() + width * height);
-    
-                    // Get rid of all commands that the client has confirmed it has seen:
-                    int lastAckCommand = sharedMemory.get();
-                    if (lastAckCommand != -1)
-                    {
-                        for (Iterator<Command> iterator = pendingCommands.iterator(); iterator.hasNext(); )
-                        {
-                            Command pendingCommand = iterator.next();
-                            if (pendingCommand.commandSequence <= lastAckCommand)
-                            {
-                                if(pendingCommand.commandType == COMMAND_SET_SPEED)
-                                {
-                                    setSpeedCommandCount = setSpeedCommandCount - 1;
-                                }
-                                iterator.remove();
-                            }
-                        }
-                    }
-                    
-                    // If there's a new error, show the terminal at the front so that the user sees it: 
-                    int latestStoppedWithErrorCount = sharedMemory.get();
-                    if (latestStoppedWithErrorCount != previousStoppedWithErrorCount)
-                    {
-                        //stage.bringTerminalToFront();
-                        previousStoppedWithErrorCount = latestStoppedWithErrorCount;
-                        haveUpdatedErrorCount = true;
-                    }
-                    
-                    int highTime = sharedMemory.get();
-                    int lowTime = sharedMemory.get();
-                    lastExecStartTime = (((long)highTime) << 32) | ((long)lowTime & 0xFFFFFFFFL);
-    
-                    int simSpeed = sharedMemory.get();
-                    // Only send the new speed value if the pendingCommands does not include setSpeed commands
-                    if (setSpeedCommandCount == 0)
-                    {
-                        updatedSimulationSpeed = simSpeed;
-                    }
-    
-                    int worldCounter = sharedMemory.get();
-                    // If the new counter is different (zero/non-zero change, or incremented),
-                    // store that into our fields:
-                    if (worldCounter != prevWorldCounter)
-                    {
-                        worldChanged = true;
-                        worldPresentAfterChange = worldCounter != 0;
-                        prevWorldCounter = worldCounter;
-                    }
-                    
-                    worldCellSize = sharedMemory.get();
-                    
-                    int askId = sharedMemory.get();
-                    if (askId > 0)
-                    {
-                        if (askId > lastAnswer)
-                            this.askId = askId;
-                        // Length followed by codepoints for the prompt string:
-                        int askLength = sharedMemory.get();
-                        promptCodepoints = new int[askLength];
-                        sharedMemory.get(promptCodepoints);
-                    }
-
-                    int delayLoopStatus = sharedMemory.get();
-                    delayLoop = delayLoopStatus == 1;
-                    int vmReadyStatus = sharedMemory.get();
-                    vmReadyForInvocations = vmReadyStatus == 1;
-                }
-            }
+            readDebugArea();
         }
         catch (IOException ex)
         {
@@ -474,22 +487,137 @@ public class VMCommsMain implements Closeable
                 Debug.reportError(ex);
             }
         }
-        
-        
-        // To avoid consuming close to 100% CPU, we wait on the animation timer:
-        synchronized (this)
+    }
+    
+    /**
+     * Write our status and the pending commands into the server area.
+     */
+    @OnThread(Tag.Worker)
+    private void writeServerArea()
+    {
+        sharedMemory.position(1);
+        sharedMemory.put(-lastSeq.get());
+        sharedMemory.put(lastConsumedImg);
+        writeCommands(pendingCommands);
+    }
+    
+    /**
+     * Read the frame written by the debug VM into its area, if it is a new one.
+     */
+    @OnThread(Tag.Worker)
+    private void readDebugArea()
+    {
+        int seq = sharedMemory.get(USER_AREA_OFFSET);
+        if (seq > lastSeq.get())
         {
-            try
-            {
-                workerWaiting = true;
-                wait();
-                workerWaiting = false;
-            }
-            catch (InterruptedException ie)
+            // The client VM has painted a new frame for us:
+            lastSeq.set(seq);
+
+            synchronized (this)
             {
-                // Nothing needs to be done.
+                sharedMemory.position(USER_AREA_OFFSET + 1);
+                int paintSeq = sharedMemory.get();
+                int width = sharedMemory.get();
+                int height = sharedMemory.get();
+                sharedMemory.position(sharedMemory.position() + width * height);
+                int dirtyBandCount = sharedMemory.get();
+                if (width != 0 && height != 0 && paintSeq != lastPaintSeq)
+                {
+                    lastPaintSeq = paintSeq;
+                    haveUpdatedImage = true;
+                    // Accumulate the changed rows until the stage picks up the image:
+                    if (dirtyBandCount == -1)
+                    {
+                        dirtyImageRows = null;
+                    }
+                    for (int i = 0; i < dirtyBandCount; i++)
+                    {
+                        int firstRow = sharedMemory.get();
+                        int rowCount = sharedMemory.get();
+                        if (dirtyImageRows != null)
+                        {
+                            dirtyImageRows.set(firstRow, firstRow + rowCount);
+                        }
+                    }
+                }
+                else
+                {
+                    sharedMemory.position(sharedMemory.position() + 2 * Math.max(0, dirtyBandCount));
+                }
+
+                // Get rid of all commands that the client has confirmed it has seen:
+                int lastAckCommand = sharedMemory.get();
+                if (lastAckCommand != -1)
+                {
+                    for (Iterator<Command> iterator = pendingCommands.iterator(); iterator.hasNext(); )
+                    {
+                        Command pendingCommand = iterator.next();
+                        if (pendingCommand.commandSequence <= lastAckCommand)
+                        {
+                            if(pendingCommand.commandType == COMMAND_SET_SPEED)
+                            {
+                                setSpeedCommandCount = setSpeedCommandCount - 1;
+                            }
+                            iterator.remove();
+                        }
+                    }
+                }
+                
+                // If there's a new error, show the terminal at the front so that the user sees it: 
+                int latestStoppedWithErrorCount = sharedMemory.get();
+                if (latestStoppedWithErrorCount != previousStoppedWithErrorCount)
+                {
+                    //stage.bringTerminalToFront();
+                    previousStoppedWithErrorCount = latestStoppedWithErrorCount;
+                    haveUpdatedErrorCount = true;
+                }
+                
+                int highTime = sharedMemory.get();
+                int lowTime = sharedMemory.get();
+                lastExecStartTime = (((long)highTime) << 32) | ((long)lowTime & 0xFFFFFFFFL);
+
+                int speedAndRates = sharedMemory.get();
+                int simSpeed = speedAndRates & ((1 << SPEED_BITS) - 1);
+                int rates = speedAndRates >>> SPEED_BITS;
+                if (rates != lastSimulationRates)
+                {
+                    lastSimulationRates = rates;
+                    updatedSimulationRates = new int[] {rates & MAX_RATE, rates >>> RATE_BITS};
+                }
+                // Only send the new speed value if the pendingCommands does not include setSpeed commands
+                if (setSpeedCommandCount == 0)
+                {
+                    updatedSimulationSpeed = simSpeed;
+                }
+
+                int worldCounter = sharedMemory.get();
+                // If the new counter is different (zero/non-zero change, or incremented),
+                // store that into our fields:
+                if (worldCounter != prevWorldCounter)
+                {
+                    worldChanged = true;
+                    worldPresentAfterChange = worldCounter != 0;
+                    prevWorldCounter = worldCounter;
+                }
+                
+                worldCellSize = sharedMemory.get();
+                
+                int askId = sharedMemory.get();
+                if (askId > 0)
+                {
+                    if (askId > lastAnswer)
+                        this.askId = askId;
+                    // Length followed by codepoints for the prompt string:
+                    int askLength = sharedMemory.get();
+                    promptCodepoints = new int[askLength];
+                    sharedMemory.get(promptCodepoints);
+                }
+
+                int delayLoopStatus = sharedMemory.get();
+                delayLoop = delayLoopStatus == 1;
+                int vmReadyStatus = sharedMemory.get();
+                vmReadyForInvocations = vmReadyStatus == 1;
             }
-            return shmFile != null;
         }
     }
     
@@ -600,7 +728,10 @@ public class VMCommsMain implements Closeable
     }
     
     /**
-     * Send a mouse event.
+     * Send a mouse event.  A move or drag which directly follows another of the same
+     * kind (with no other event in between) replaces it, since the debug VM only
+     * reports the latest position; this stops fast mouse movement from filling up
+     * the command area.
      * 
      * @param eventType   The event type
      * @param x           The mouse x-coordinate (in pixels)
@@ -610,6 +741,16 @@ public class VMCommsMain implements Closeable
      */
     public synchronized void sendMouseEvent(int eventType, int x, int y, int button, int clickCount)
     {
+        if ((eventType == MOUSE_MOVED || eventType == MOUSE_DRAGGED) && !pendingCommands.isEmpty())
+        {
+            Command last = pendingCommands.get(pendingCommands.size() - 1);
+            if (last.commandType == eventType && last.extraInfo[2] == button)
+            {
+                // The replacement has a later sequence number, so will still be sent even if
+                // the debug VM has already seen the command it replaces:
+                pendingCommands.remove(pendingCommands.size() - 1);
+            }
+        }
         pendingCommands.add(new Command(eventType, x, y, button, clickCount));
     }
 
@@ -650,10 +791,17 @@ public class VMCommsMain implements Closeable
         lastAnswer = -1;
         previousStoppedWithErrorCount = 0;
         prevWorldCounter = 0;
+        dirtyImageRows = null;
         
         // Zero the buffer:
         sharedMemoryByte.position(0);
         sharedMemoryByte.put(new byte[fileSize], 0, fileSize);
+        if (handshake != null)
+        {
+            // The new debug VM will start the handshake sequence from zero:
+            serverSeq = 0;
+            VMCommsHandshake.setMode(sharedMemoryByte, VMCommsHandshake.MODE_LOCK_FREE);
+        }
         vmReadyForInvocations = false;
     }
 
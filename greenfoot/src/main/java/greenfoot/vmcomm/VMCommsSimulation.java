@@ -27,6 +27,7 @@ import greenfoot.WorldVisitor;
 import greenfoot.core.ShadowProjectProperties;
 import greenfoot.core.Simulation;
 import greenfoot.core.WorldHandler;
+import greenfoot.gui.DamageRegion;
 import greenfoot.gui.WorldRenderer;
 import greenfoot.gui.input.KeyboardManager;
 import greenfoot.gui.input.mouse.MousePollingManager;
@@ -35,6 +36,7 @@ import javafx.scene.input.MouseButton;
 import threadchecker.OnThread;
 import threadchecker.Tag;
 
+import java.awt.Rectangle;
 import java.awt.image.BufferedImage;
 import java.awt.image.DataBufferInt;
 import java.io.IOException;
@@ -44,6 +46,8 @@ import java.nio.IntBuffer;
 import java.nio.MappedByteBuffer;
 import java.nio.channels.FileChannel;
 import java.nio.channels.FileLock;
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.atomic.AtomicBoolean;
@@ -82,10 +86,11 @@ public class VMCommsSimulation
      * Shared memory documentation (this comment may get moved to somewhere more appropriate later).
      *
      * The shared memory consists of two successive lumps of memory. One is used by the server VM to
-     * transmit data, and the other is used by the debug VM for the same purpose. File locks protect
-     * both regions to prevent (in cases where it matters) either side from reading a potentially
-     * incomplete data frame while the other side is still writing it. The locking protocol is
-     * described in VMCommsMain.
+     * transmit data, and the other is used by the debug VM for the same purpose. A handshake
+     * protects both regions to prevent (in cases where it matters) either side from reading a
+     * potentially incomplete data frame while the other side is still writing it. Normally this
+     * is the lock-free handshake described in VMCommsHandshake, using the control words at the end
+     * of the server area; otherwise it is the file locking protocol described in VMCommsMain.
      * 
      * Its format is as follows, where each position is an integer position (i.e. bytes times four):
      * 
@@ -106,37 +111,72 @@ public class VMCommsSimulation
      *        command type, and the amount of other integers depend on the command.  For example,
      *        GreenfootStage.COMMAND_RUN just has the command type integer and no more, whereas
      *        mouse events have four integers.
+     * VMCommsHandshake.MODE_POS, SERVER_SEQ_POS and DEBUG_SEQ_POS (after the commands):
+     *        The handshake mode, and the sequence numbers used by the lock-free handshake.
      *
      * Debug VM area (10M - 16kb): [Positions relative to beginning]
      * 
-     * Pos 0: Sequence index when the current (included) image was painted (the image is included
+     * Pos 0: Frame sequence index.
+     * Pos 1: Sequence index when the current (included) image was painted (the image is included
      *        unchanged in subsequent frames).
-     * Pos 1: Width of world image in pixels (W)
-     * Pos 2: Height of world image in pixels (H)
-     * Pos 3 incl to 3+(W*H) excl, if W and H are both greater than zero:
+     * Pos 2: Width of world image in pixels (W)
+     * Pos 3: Height of world image in pixels (H)
+     * Pos 4 incl to 4+(W*H) excl, if W and H are both greater than zero:
      *        W * H pixels one row at a time with no gaps, each pixel is one
      *        integer, in BGRA form, i.e. blue is highest 8 bits, alpha is lowest.
-     * Pos 3+(W*H): Sequence ID of most recently processed command, or -1 if N/A.
-     * Pos 4+(W*H): Stopped-with-error count.  (If this goes up, server VM will bring terminal to front)
-     * Pos 5+(W*H) and 6+(W*H): Two ints (highest bits first) with value of System.currentTimeMillis()
-     *                          at the point when some execution that may contain user code last started on
-     *                          the simulation thread, or 0L if user code is not currently running.
-     * Pos 7+(W*H): The current simulation speed (1 to 100)
-     * Pos 8+(W*H): world counter if a world is currently installed, or 0 if there is no world.
-     * Pos 9+(W*H): The world cell size in pixels
-     * Pos 10+(W*H): -1 if not currently awaiting a Greenfoot.ask() answer.
-     *              If awaiting, it is count (P) of following codepoints which make up prompt.
-     * Pos 11+(W*H) to 11+(W*H)+P excl: codepoints making up ask prompt.
-     * Pos 11+(W*H)+P: 1 if the the delay loop is currently running, or 0 otherwise.
+     *        The pixel area always holds the complete current image, but only the rows which
+     *        changed since the previous image are rewritten (see the dirty band list below).
+     * Pos 4+(W*H): Dirty band count (D).  -1 if the whole image should be considered changed
+     *              (a "keyframe"); 0 if no new image was painted in this frame.
+     * Pos 5+(W*H) to 5+(W*H)+2D excl: D pairs of (first row, row count) describing the rows
+     *              of the image which changed since the previously painted image.
+     * Then, with (X) = 5+(W*H)+2*max(D,0):
+     * Pos X: Sequence ID of most recently processed command, or -1 if N/A.
+     * Pos X+1: Stopped-with-error count.  (If this goes up, server VM will bring terminal to front)
+     * Pos X+2 and X+3: Two ints (highest bits first) with value of System.currentTimeMillis()
+     *                  at the point when some execution that may contain user code last started on
+     *                  the simulation thread, or 0L if user code is not currently running.
+     * Pos X+4: The current simulation speed (1 to 100) in the lowest SPEED_BITS bits,
+     *          followed by the measured act rounds per second and then the measured frames
+     *          per second while running (each RATE_BITS bits, capped at MAX_RATE, and 0 if not
+     *          running).  See VMCommsMain for the constants.
+     * Pos X+5: world counter if a world is currently installed, or 0 if there is no world.
+     * Pos X+6: The world cell size in pixels
+     * Pos X+7: -1 if not currently awaiting a Greenfoot.ask() answer.
+     *          If awaiting, it is the ask ID, followed by the count (P) of following codepoints
+     *          which make up prompt.
+     * Pos X+9 to X+9+P excl: codepoints making up ask prompt.
+     * Pos X+9+P: 1 if the the delay loop is currently running, or 0 otherwise.
+     * Pos X+10+P: 1 if the VM is ready for invocations, or 0 otherwise.
      */
     private final IntBuffer sharedMemory;
     private int seq = 1;
     private final FileChannel shmFileChannel;
     private FileLock putLock;
+    // The lock-free handshake, or null if the file locks are used instead:
+    private final VMCommsHandshake handshake;
+    // The last sequence number published by the server VM (only used with the lock-free handshake):
+    private int lastServerSeq = 0;
     private long lastPaintNanos = System.nanoTime();
     private int lastAckCommand = -1;
     private int lastPaintSeq = -1; // last paint sequence
     private int lastPaintSize; // number of ints last transmitted as image
+    private int lastPaintWidth; // width of the image currently held in shared memory
+    private int lastPaintHeight; // height of the image currently held in shared memory
+    // Whether the next image should be sent as a keyframe (i.e. all rows, without comparison):
+    private final AtomicBoolean keyframeRequested = new AtomicBoolean(true);
+    // Scratch row used when comparing the new image against the one in shared memory:
+    private int[] rowBuffer = new int[0];
+    // (first row, row count) pairs for the image currently being sent:
+    private final int[] dirtyBands = new int[VMCommsMain.MAX_DIRTY_BANDS * 2];
+    // The rows which the renderer has changed since the last image was sent.  Only these
+    // rows need to be compared against shared memory when sending the next image.
+    // Guarded by this; swapped with rowsToSend when an image is taken for sending:
+    private BitSet pendingDirtyRows = new BitSet();
+    private boolean pendingAllRowsDirty = true;
+    // The rows which may have changed in the image currently being sent:
+    private BitSet rowsToSend = new BitSet();
+    private boolean allRowsToSend;
     
     // How many times have we stopped with an error?  We continuously send the count to the
     // server VM, so that the server VM can observe changes in the count (only ever increases).
@@ -149,6 +189,12 @@ public class VMCommsSimulation
     // Size of the shared memory file
     private final int fileSize;
     private final AtomicBoolean userVMReadyForInvocations = new AtomicBoolean(false);
+    
+    // Buffer for reading each command (grown as needed), so that reading commands doesn't allocate:
+    private int[] commandData = new int[16];
+    // values() copies the array each time, so we keep our own copies:
+    private static final KeyCode[] KEY_CODES = KeyCode.values();
+    private static final MouseButton[] MOUSE_BUTTONS = MouseButton.values();
 
     /**
      * Construct a VMCommsSimulation.
@@ -169,19 +215,33 @@ public class VMCommsSimulation
             this.fileSize = fileSize;
             MappedByteBuffer mbb = shmFileChannel.map(FileChannel.MapMode.READ_WRITE, 0, fileSize);
             sharedMemory = mbb.asIntBuffer();
-            putLock = shmFileChannel.lock(VMCommsMain.USER_AREA_OFFSET_BYTES,
-                    fileSize - VMCommsMain.USER_AREA_OFFSET_BYTES, false);
+            // The server VM decides which handshake to use, before starting this VM:
+            if (VMCommsHandshake.getMode(mbb) == VMCommsHandshake.MODE_LOCK_FREE)
+            {
+                handshake = new VMCommsHandshake(mbb);
+            }
+            else
+            {
+                handshake = null;
+                putLock = shmFileChannel.lock(VMCommsMain.USER_AREA_OFFSET_BYTES,
+                        fileSize - VMCommsMain.USER_AREA_OFFSET_BYTES, false);
+            }
             
             new Thread("VMCommsSimulation") {
                 @OnThread(value = Tag.Worker,ignoreParent = true)
                 public void run()
                 {
-                    while (true)
+                    while (!isInterrupted())
                     {
                         doInterVMComms();
                     }
                 }
             }.start();
+            if (handshake != null)
+            {
+                // Don't keep waiting for the server VM while this VM shuts down:
+                Runtime.getRuntime().addShutdownHook(new Thread(handshake::close));
+            }
         }
         catch (IOException e)
         {
@@ -200,9 +260,21 @@ public class VMCommsSimulation
         {
             this.worldCounter += 1;
             this.world = world;
+            requestKeyframe();
         }
     }
 
+    /**
+     * Request that the next image sent to the server VM is sent in full, rather than
+     * as the set of rows which changed since the previous image.
+     * Can be called from any thread.
+     */
+    @OnThread(Tag.Any)
+    public void requestKeyframe()
+    {
+        keyframeRequested.set(true);
+    }
+
     public void markVMReady()
     {
         userVMReadyForInvocations.set(true);
@@ -243,8 +315,26 @@ public class VMCommsSimulation
             }
             
             worldRenderer.renderWorld(world, worldImage);
+            DamageRegion damage = worldRenderer.getFrameDamage();
             
-            BufferedImage oldImage = worldImageForSending.getAndSet(worldImage);
+            BufferedImage oldImage;
+            synchronized (this)
+            {
+                oldImage = worldImageForSending.getAndSet(worldImage);
+                // Whether or not the previous image got sent, the rows changed in this
+                // frame will need sending:
+                if (damage.isFull())
+                {
+                    pendingAllRowsDirty = true;
+                }
+                else
+                {
+                    for (Rectangle r : damage.getRectangles())
+                    {
+                        pendingDirtyRows.set(r.y, r.y + r.height);
+                    }
+                }
+            }
             // If there was an old image waiting which we've overwritten, put it back in our queue of old images:
             if (oldImage != null)
             {
@@ -286,6 +376,63 @@ public class VMCommsSimulation
         // One element array to allow a reference to be set by readCommands:
         String[] answer = new String[] {null};
         
+        if (handshake != null)
+        {
+            doInterVMCommsLockFree(answer);
+        }
+        else
+        {
+            doInterVMCommsWithFileLocks(answer);
+        }
+            
+        if (answer[0] != null)
+        {
+            gotAskAnswer(answer[0]);
+        }
+    }
+    
+    /**
+     * Perform communications exchange with the other VM, using the lock-free handshake
+     * (see VMCommsHandshake).
+     */
+    @OnThread(Tag.Worker)
+    private void doInterVMCommsLockFree(String[] answer)
+    {
+        // Wait until the server has written its area, and finished reading ours:
+        int serverSeq;
+        try
+        {
+            serverSeq = handshake.awaitServerSeq(lastServerSeq);
+        }
+        catch (InterruptedException e)
+        {
+            // Leave the thread interrupted, so that the communication loop stops:
+            Thread.currentThread().interrupt();
+            return;
+        }
+        lastServerSeq = serverSeq;
+        
+        try
+        {
+            exchangeData(answer);
+        }
+        catch (BufferOverflowException ex)
+        {
+            // Make sure the server doesn't read the incomplete frame:
+            sharedMemory.put(VMCommsMain.USER_AREA_OFFSET, 0);
+            worldTooLarge();
+        }
+        
+        handshake.publishDebugSeq(serverSeq);
+    }
+    
+    /**
+     * Perform communications exchange with the other VM, using the file locking
+     * protocol described in VMCommsMain.
+     */
+    @OnThread(Tag.Worker)
+    private void doInterVMCommsWithFileLocks(String[] answer)
+    {
         FileLock fileLock = null;
         FileLock syncLock = null;
         
@@ -295,102 +442,7 @@ public class VMCommsSimulation
             fileLock = shmFileChannel.lock(VMCommsMain.SERVER_AREA_OFFSET_BYTES,
                     VMCommsMain.SERVER_AREA_SIZE_BYTES, false);
 
-            boolean doUpdateImage;
-            World curWorld;
-            int curWorldCounter;
-            synchronized (this)
-            {
-                // Don't send double-buffered image if world has since disappeared:
-                doUpdateImage = world != null;
-                curWorld = this.world;
-                curWorldCounter = this.worldCounter;
-            }
-            
-            sharedMemory.position(1);
-            int recvSeq = sharedMemory.get();
-            if (recvSeq < 0 && Simulation.getInstance() != null)
-            {
-                int lastConsumedImg = sharedMemory.get();
-                // Only update the image if the previous one was consumed:
-                doUpdateImage &= (lastConsumedImg >= lastPaintSeq);
-                int latest = readCommands(answer);
-                if (latest != -1)
-                {
-                    lastAckCommand = latest;
-                }
-            }
-            
-            BufferedImage img = doUpdateImage ? worldImageForSending.getAndSet(null) : null;
-            int [] raw = (img == null) ? null : ((DataBufferInt) img.getData().getDataBuffer()).getData();
-
-            int imageWidth = 0;
-            int imageHeight = 0;
-            if (img != null)
-            {
-                imageWidth = img.getWidth();
-                imageHeight = img.getHeight();
-            }
-            
-            sharedMemory.position(VMCommsMain.USER_AREA_OFFSET);
-            sharedMemory.put(this.seq++);
-            if (img == null)
-            {
-                sharedMemory.put(lastPaintSeq);
-                sharedMemory.get(); // skip width
-                sharedMemory.get(); // skip height
-                sharedMemory.position(sharedMemory.position() + lastPaintSize);
-            }
-            else
-            {
-                lastPaintSeq = (seq - 1);
-                sharedMemory.put(lastPaintSeq);
-                sharedMemory.put(imageWidth);
-                sharedMemory.put(imageHeight);
-                for (int i = 0; i < raw.length; i++)
-                {
-                    sharedMemory.put(raw[i]);
-                }
-                lastPaintSize = raw.length;
-                
-                // Now that we've rendered from it, put it back into the old images for re-use:
-                worldImagesForPainting.offer(img);
-                // If it doesn't fit, just let it get GCed.
-            }
-            sharedMemory.put(lastAckCommand);
-            sharedMemory.put(stoppedWithErrorCount);
-            sharedMemory.put((int)(startOfCurExecution >> 32));
-            sharedMemory.put((int)(startOfCurExecution & 0xFFFFFFFFL));
-            if (Simulation.getInstance() != null)
-            {
-                sharedMemory.put(Simulation.getInstance().getSpeed());
-            }
-            else
-            {
-                sharedMemory.put(0);
-            }
-            sharedMemory.put(curWorld == null ? 0 : curWorldCounter);
-            sharedMemory.put(curWorld == null ? 0 : WorldVisitor.getCellSize(curWorld));
-            
-            // If not asking, put -1
-            synchronized (this)
-            {
-                if (pAskPrompt == null || answer[0] != null)
-                {
-                    sharedMemory.put(-1);
-                }
-                else
-                {
-                    // Asking, so put the ask ID, and the prompt string:
-                    int[] codepoints = pAskPrompt.codePoints().toArray();
-                    sharedMemory.put(pAskId);
-                    sharedMemory.put(codepoints.length);
-                    sharedMemory.put(codepoints);
-                }
-
-                // Write the status of the delay loop
-                sharedMemory.put(delayLoopEntered ? 1 : 0);
-                sharedMemory.put(userVMReadyForInvocations.get() ? 1 : 0);
-            }
+            exchangeData(answer);
 
             putLock.release();
 
@@ -427,19 +479,239 @@ public class VMCommsSimulation
                 }
             }
             catch (Exception e) {}
-            // Note: the user will see this message in the terminal, so it should be helpful:
-            Debug.message("World size is too large.  If your world contains more than around 2.5 million pixels you will need to do the following.\n"
-                + "Close your project, then edit project.greenfoot in a text editor to add the following line:\n"
-                + "shm.size=40000000\n"
-                + "(The default is 20000000, keep increasing if needed.)  Save the file and re-open the project in Greenfoot.");
+            worldTooLarge();
         }
+    }
+    
+    /**
+     * Read the commands from the server area, and write our frame (including the world
+     * image, if there is a new one) into the debug VM area. The caller must have
+     * exclusive access to both areas.
+     * 
+     * @param answer  A one element array, into which the answer to an ask is put (if received)
+     */
+    @OnThread(Tag.Worker)
+    private void exchangeData(String[] answer)
+    {
+        boolean doUpdateImage;
+        World curWorld;
+        int curWorldCounter;
+        synchronized (this)
+        {
+            // Don't send double-buffered image if world has since disappeared:
+            doUpdateImage = world != null;
+            curWorld = this.world;
+            curWorldCounter = this.worldCounter;
+        }
+        
+        sharedMemory.position(1);
+        int recvSeq = sharedMemory.get();
+        if (recvSeq < 0 && Simulation.getInstance() != null)
+        {
+            int lastConsumedImg = sharedMemory.get();
+            // Only update the image if the previous one was consumed:
+            doUpdateImage &= (lastConsumedImg >= lastPaintSeq);
+            int latest = readCommands(answer);
+            if (latest != -1)
+            {
+                lastAckCommand = latest;
+            }
+        }
+        
+        BufferedImage img = null;
+        if (doUpdateImage)
+        {
+            synchronized (this)
+            {
+                img = worldImageForSending.getAndSet(null);
+                if (img != null)
+                {
+                    // Take the rows changed up to this image, ready for the next image:
+                    BitSet rows = rowsToSend;
+                    rowsToSend = pendingDirtyRows;
+                    allRowsToSend = pendingAllRowsDirty;
+                    pendingDirtyRows = rows;
+                    pendingDirtyRows.clear();
+                    pendingAllRowsDirty = false;
+                }
+            }
+        }
+        
+        sharedMemory.position(VMCommsMain.USER_AREA_OFFSET);
+        sharedMemory.put(this.seq++);
+        if (img == null)
+        {
+            sharedMemory.put(lastPaintSeq);
+            sharedMemory.get(); // skip width
+            sharedMemory.get(); // skip height
+            sharedMemory.position(sharedMemory.position() + lastPaintSize);
+            sharedMemory.put(0); // no dirty bands, as no new image
+        }
+        else
+        {
+            lastPaintSeq = (seq - 1);
+            sharedMemory.put(lastPaintSeq);
+            // Clear the request before writing, so that a request made during the
+            // write is kept for the next image:
+            writeWorldImage(img, keyframeRequested.getAndSet(false));
             
-        if (answer[0] != null)
+            // Now that we've rendered from it, put it back into the old images for re-use:
+            worldImagesForPainting.offer(img);
+            // If it doesn't fit, just let it get GCed.
+        }
+        sharedMemory.put(lastAckCommand);
+        sharedMemory.put(stoppedWithErrorCount);
+        sharedMemory.put((int)(startOfCurExecution >> 32));
+        sharedMemory.put((int)(startOfCurExecution & 0xFFFFFFFFL));
+        if (Simulation.getInstance() != null)
         {
-            gotAskAnswer(answer[0]);
+            Simulation simulation = Simulation.getInstance();
+            int actRate = Math.min(simulation.getActRate(), VMCommsMain.MAX_RATE);
+            int frameRate = Math.min(simulation.getFrameRate(), VMCommsMain.MAX_RATE);
+            sharedMemory.put(simulation.getSpeed()
+                    | (actRate << VMCommsMain.SPEED_BITS)
+                    | (frameRate << (VMCommsMain.SPEED_BITS + VMCommsMain.RATE_BITS)));
+        }
+        else
+        {
+            sharedMemory.put(0);
+        }
+        sharedMemory.put(curWorld == null ? 0 : curWorldCounter);
+        sharedMemory.put(curWorld == null ? 0 : WorldVisitor.getCellSize(curWorld));
+        
+        // If not asking, put -1
+        synchronized (this)
+        {
+            if (pAskPrompt == null || answer[0] != null)
+            {
+                sharedMemory.put(-1);
+            }
+            else
+            {
+                // Asking, so put the ask ID, and the prompt string:
+                int[] codepoints = pAskPrompt.codePoints().toArray();
+                sharedMemory.put(pAskId);
+                sharedMemory.put(codepoints.length);
+                sharedMemory.put(codepoints);
+            }
+
+            // Write the status of the delay loop
+            sharedMemory.put(delayLoopEntered ? 1 : 0);
+            sharedMemory.put(userVMReadyForInvocations.get() ? 1 : 0);
         }
     }
     
+    /**
+     * The world image didn't fit into the shared memory.  Make sure that the next image
+     * is sent whole, and tell the user what to do.
+     */
+    @OnThread(Tag.Worker)
+    private void worldTooLarge()
+    {
+        // Part of the image may have been written; make sure the next image is sent whole:
+        lastPaintSize = 0;
+        lastPaintWidth = 0;
+        lastPaintHeight = 0;
+        requestKeyframe();
+        // Note: the user will see this message in the terminal, so it should be helpful:
+        Debug.message("World size is too large.  If your world contains more than around 2.5 million pixels you will need to do the following.\n"
+            + "Close your project, then edit project.greenfoot in a text editor to add the following line:\n"
+            + "shm.size=40000000\n"
+            + "(The default is 20000000, keep increasing if needed.)  Save the file and re-open the project in Greenfoot.");
+    }
+    
+    /**
+     * Write the world image into the shared memory pixel area, which is positioned at the width
+     * field of the image frame.  Only the rows which differ from the image already held in
+     * shared memory are written, and the dirty band list following the pixel area describes
+     * which rows those are.  Rows which the renderer reports as unchanged since the last
+     * image was sent (see rowsToSend) are not even compared.  On return the shared memory
+     * is positioned after the band list.
+     * 
+     * @param img       The image to send
+     * @param keyframe  Whether to send all rows regardless of whether they have changed
+     */
+    @OnThread(Tag.Worker)
+    private void writeWorldImage(BufferedImage img, boolean keyframe)
+    {
+        int width = img.getWidth();
+        int height = img.getHeight();
+        // Access the raster directly; getData() would copy the whole image:
+        int[] raw = ((DataBufferInt) img.getRaster().getDataBuffer()).getData();
+        
+        int widthPos = sharedMemory.position();
+        int pixelPos = widthPos + 2;
+        int bandListPos = pixelPos + raw.length;
+        if (bandListPos + 1 + dirtyBands.length > sharedMemory.limit())
+        {
+            throw new BufferOverflowException();
+        }
+        
+        // The pixels in shared memory are only useful as a base if they are the same size:
+        keyframe |= width != lastPaintWidth || height != lastPaintHeight;
+        
+        sharedMemory.put(widthPos, width);
+        sharedMemory.put(widthPos + 1, height);
+        
+        int bandCount = 0;
+        if (keyframe)
+        {
+            sharedMemory.put(pixelPos, raw, 0, raw.length);
+        }
+        else
+        {
+            if (rowBuffer.length < width)
+            {
+                rowBuffer = new int[width];
+            }
+            int bandStart = -1;
+            for (int y = 0; y <= height; y++)
+            {
+                boolean rowDirty = false;
+                if (y < height && (allRowsToSend || rowsToSend.get(y)))
+                {
+                    int rowOffset = y * width;
+                    sharedMemory.get(pixelPos + rowOffset, rowBuffer, 0, width);
+                    rowDirty = Arrays.mismatch(raw, rowOffset, rowOffset + width, rowBuffer, 0, width) != -1;
+                }
+                
+                if (rowDirty && bandStart == -1)
+                {
+                    bandStart = y;
+                }
+                else if (!rowDirty && bandStart != -1)
+                {
+                    // Send the band of changed rows in one bulk copy:
+                    sharedMemory.put(pixelPos + bandStart * width, raw, bandStart * width, (y - bandStart) * width);
+                    if (bandCount < VMCommsMain.MAX_DIRTY_BANDS)
+                    {
+                        dirtyBands[bandCount * 2] = bandStart;
+                        bandCount += 1;
+                    }
+                    // If we have run out of bands, we extend the last one to cover this band too.
+                    // That includes some unchanged rows, which is harmless:
+                    dirtyBands[bandCount * 2 - 1] = y - dirtyBands[bandCount * 2 - 2];
+                    bandStart = -1;
+                }
+            }
+        }
+        
+        sharedMemory.position(bandListPos);
+        if (keyframe)
+        {
+            sharedMemory.put(-1);
+        }
+        else
+        {
+            sharedMemory.put(bandCount);
+            sharedMemory.put(dirtyBands, 0, bandCount * 2);
+        }
+        
+        lastPaintSize = raw.length;
+        lastPaintWidth = width;
+        lastPaintHeight = height;
+    }
+
     /**
      * An "ask" answer has been received from the other VM; record it and signal the simulation
      * thread.
@@ -465,13 +737,17 @@ public class VMCommsSimulation
         {
             lastSeqID = sharedMemory.get();
             int commandLength = sharedMemory.get();
-            int data[] = new int[commandLength];
-            sharedMemory.get(data);
+            if (commandData.length < commandLength)
+            {
+                commandData = new int[Math.max(commandLength, commandData.length * 2)];
+            }
+            int[] data = commandData;
+            sharedMemory.get(data, 0, commandLength);
             if (Command.isKeyEvent(data[0]))
             {
                 KeyboardManager keyboardManager = WorldHandler.getInstance().getKeyboardManager();
-                KeyCode keyCode = KeyCode.values()[data[1]];
-                String keyText = new String(data, 2, data.length - 2);
+                KeyCode keyCode = KEY_CODES[data[1]];
+                String keyText = new String(data, 2, commandLength - 2);
                 switch(data[0])
                 {
                     case Command.KEY_DOWN:
@@ -495,16 +771,16 @@ public class VMCommsSimulation
                 switch (data[0])
                 {
                     case Command.MOUSE_CLICKED:
-                        mouseManager.mouseClicked(x, y, MouseButton.values()[button], clickCount);
+                        mouseManager.mouseClicked(x, y, MOUSE_BUTTONS[button], clickCount);
                         break;
                     case Command.MOUSE_PRESSED:
-                        mouseManager.mousePressed(x, y, MouseButton.values()[button]);
+                        mouseManager.mousePressed(x, y, MOUSE_BUTTONS[button]);
                         break;
                     case Command.MOUSE_RELEASED:
-                        mouseManager.mouseReleased(x, y, MouseButton.values()[button]);
+                        mouseManager.mouseReleased(x, y, MOUSE_BUTTONS[button]);
                         break;
                     case Command.MOUSE_DRAGGED:
-                        mouseManager.mouseDragged(x, y, MouseButton.values()[button]);
+                        mouseManager.mouseDragged(x, y, MOUSE_BUTTONS[button]);
                         break;
                     case Command.MOUSE_MOVED:
                         mouseManager.mouseMoved(x, y);
@@ -529,7 +805,7 @@ public class VMCommsSimulation
                         Simulation.getInstance().runOnce();
                         break;
                     case Command.COMMAND_INSTANTIATE_WORLD:
-                        String className = new String(data, 1, data.length - 1);
+                        String className = new String(data, 1, commandLength - 1);
                         WorldHandler.getInstance().instantiateNewWorld(className);
                         break;
                     case Command.COMMAND_DISCARD_WORLD:
@@ -545,7 +821,7 @@ public class VMCommsSimulation
                         break;
                     case Command.COMMAND_ANSWERED:
                         // Store the codepoints we received:
-                        answer[0] = new String(data, 1, data.length - 1);
+                        answer[0] = new String(data, 1, commandLength - 1);
                         break;
                     case Command.COMMAND_PROPERTY_CHANGED:
                         int keyLength = data[1];
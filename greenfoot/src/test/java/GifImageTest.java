@@ -0,0 +1,155 @@
+/*
+ This file is part of the Greenfoot program.
+ Copyright (C) 2026  Poul Henriksen and Michael Kolling
+
+ This program is free software; you can redistribute it and/or
+ modify it under the terms of the GNU General Public License
+ as published by the Free Software Foundation; either version 2
+ of the License, or (at your option) any later version.
+
+ This program is distributed in the hope that it will be useful,
+ but WITHOUT ANY WARRANTY; without even the implied warranty of
+ MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ GNU General Public License for more details.
+
+ You should have received a copy of the GNU General Public License
+ along with this program; if not, write to the Free Software
+ Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+
+ This file is subject to the Classpath exception as provided in the
+ LICENSE.txt file that accompanied this code.
+ */
+import greenfoot.Color;
+import greenfoot.GreenfootImage;
+import greenfoot.ImageVisitor;
+import greenfoot.TestUtilDelegate;
+import greenfoot.core.Simulation;
+import greenfoot.util.GreenfootUtil;
+
+import java.lang.reflect.Field;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests for the GifImage helper class (from the common classes given to scenarios).
+ *
+ * <p>The test file, gifimagetest.gif, is 8x4 pixels with four frames, using a
+ * black (opaque) background colour:
+ * <ol>
+ * <li>Red over the whole image, left in place; 100ms.
+ * <li>Blue over the left half, restored to background; 200ms.
+ * <li>Green over the right half, restored to previous; no delay given.
+ * <li>Blue over the top-left 2x2 pixels, left in place; 50ms.
+ * </ol>
+ */
+public class GifImageTest extends TestCase
+{
+    private static final String FILE = "gifimagetest.gif";
+
+    @Override
+    protected void setUp()
+        throws Exception
+    {
+        GreenfootUtil.initialise(new TestUtilDelegate());
+        Simulation.initialize();
+    }
+
+    private static void assertColor(Color expected, GreenfootImage image, int x, int y)
+    {
+        Color actual = image.getColorAt(x, y);
+        String at = " at " + x + "," + y;
+        assertEquals("red" + at, expected.getRed(), actual.getRed());
+        assertEquals("green" + at, expected.getGreen(), actual.getGreen());
+        assertEquals("blue" + at, expected.getBlue(), actual.getBlue());
+        assertEquals("alpha" + at, expected.getAlpha(), actual.getAlpha());
+    }
+
+    /**
+     * Check that the left half (4x4) and right half of an image are each all one colour.
+     */
+    private static void assertHalves(Color left, Color right, GreenfootImage image)
+    {
+        for (int y = 0; y < 4; y++) {
+            for (int x = 0; x < 4; x++) {
+                assertColor(left, image, x, y);
+                assertColor(right, image, x + 4, y);
+            }
+        }
+    }
+
+    public void testDisposal()
+    {
+        List<GreenfootImage> frames = new GifImage(FILE).getImages();
+        assertEquals(4, frames.size());
+        assertHalves(Color.RED, Color.RED, frames.get(0));
+        assertHalves(Color.BLUE, Color.RED, frames.get(1));
+        // The second frame is restored to the background before the third is drawn:
+        assertHalves(Color.BLACK, Color.GREEN, frames.get(2));
+        // The third frame is restored to the previous image before the fourth is drawn:
+        GreenfootImage last = frames.get(3);
+        for (int y = 0; y < 4; y++) {
+            for (int x = 0; x < 4; x++) {
+                assertColor(x < 2 && y < 2 ? Color.BLUE : Color.BLACK, last, x, y);
+                assertColor(Color.RED, last, x + 4, y);
+            }
+        }
+    }
+
+    public void testDelays()
+        throws Exception
+    {
+        Field delayField = GifImage.class.getDeclaredField("delay");
+        delayField.setAccessible(true);
+        int[] delays = (int[]) delayField.get(new GifImage(FILE));
+        // A frame with no delay is shown for 100ms, as browsers do:
+        assertEquals(4, delays.length);
+        assertEquals(100, delays[0]);
+        assertEquals(200, delays[1]);
+        assertEquals(100, delays[2]);
+        assertEquals(50, delays[3]);
+    }
+
+    public void testFramesShared()
+    {
+        List<GreenfootImage> frames1 = new GifImage(FILE).getImages();
+        List<GreenfootImage> frames2 = new GifImage(FILE).getImages();
+        for (int i = 0; i < frames1.size(); i++) {
+            // Each GifImage has its own images, but the pixels are not copied:
+            assertNotSame(frames1.get(i), frames2.get(i));
+            assertSame(ImageVisitor.getCacheableImage(frames1.get(i)),
+                    ImageVisitor.getCacheableImage(frames2.get(i)));
+        }
+    }
+
+    public void testWritesNotShared()
+    {
+        GifImage gif1 = new GifImage(FILE);
+        GifImage gif2 = new GifImage(FILE);
+        GreenfootImage frame1 = gif1.getImages().get(0);
+        GreenfootImage frame2 = gif2.getImages().get(0);
+
+        frame1.setColor(Color.WHITE);
+        frame1.fillRect(0, 0, 2, 2);
+        frame1.setColorAt(7, 3, Color.WHITE);
+        assertColor(Color.WHITE, frame1, 0, 0);
+        assertColor(Color.WHITE, frame1, 7, 3);
+        assertHalves(Color.RED, Color.RED, frame2);
+        assertHalves(Color.RED, Color.RED, new GifImage(FILE).getImages().get(0));
+
+        // Changing the other image after the first has been changed is not shared either:
+        frame2.scale(4, 2);
+        assertEquals(8, frame1.getWidth());
+        assertHalves(Color.RED, Color.RED, new GifImage(FILE).getImages().get(0));
+    }
+
+    public void testCopyShares()
+    {
+        // A copied GifImage shares its images with the original:
+        GifImage gif = new GifImage(FILE);
+        GifImage copy = new GifImage(gif);
+        gif.getImages().get(1).setColorAt(0, 0, Color.WHITE);
+        assertSame(gif.getImages().get(1), copy.getImages().get(1));
+        assertColor(Color.WHITE, copy.getImages().get(1), 0, 0);
+    }
+}
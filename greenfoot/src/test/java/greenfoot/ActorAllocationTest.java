@@ -0,0 +1,103 @@
+/*
+ This file is part of the Greenfoot program. 
+ Copyright (C) 2026  Poul Henriksen and Michael Kolling
+ 
+ This program is free software; you can redistribute it and/or 
+ modify it under the terms of the GNU General Public License 
+ as published by the Free Software Foundation; either version 2 
+ of the License, or (at your option) any later version. 
+ 
+ This program is distributed in the hope that it will be useful, 
+ but WITHOUT ANY WARRANTY; without even the implied warranty of 
+ MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the 
+ GNU General Public License for more details. 
+ 
+ You should have received a copy of the GNU General Public License 
+ along with this program; if not, write to the Free Software 
+ Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA. 
+ 
+ This file is subject to the Classpath exception as provided in the  
+ LICENSE.txt file that accompanied this code.
+ */
+package greenfoot;
+
+import greenfoot.core.Simulation;
+import greenfoot.util.GreenfootUtil;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests that moving and turning actors, once the world has reached a steady
+ * state, does not create any objects (and so does not cause garbage collection).
+ */
+public class ActorAllocationTest extends TestCase
+{
+    private World world;
+    private TestObject[] actors;
+
+    @Override
+    protected void setUp()
+        throws Exception
+    {
+        GreenfootUtil.initialise(new TestUtilDelegate());
+        Simulation.initialize();
+
+        world = WorldCreator.createWorld(600, 400, 1);
+        actors = new TestObject[50];
+        for (int i = 0; i < actors.length; i++) {
+            actors[i] = new TestObject(10 + i % 20, 30 - i % 20);
+            world.addObject(actors[i], 50 + (i % 10) * 50, 50 + (i / 10) * 70);
+        }
+        // Make sure the actors are in the collision checker:
+        actors[0].getIntersectingObjectsP(TestObject.class);
+    }
+
+    /**
+     * Move each actor around a circle, which takes 72 steps.
+     */
+    private void moveActors(int steps)
+    {
+        for (int s = 0; s < steps; s++) {
+            for (int i = 0; i < actors.length; i++) {
+                actors[i].move(2);
+                actors[i].turn(5);
+            }
+        }
+    }
+
+    public void testMoveAndTurn()
+    {
+        ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (! (bean instanceof com.sun.management.ThreadMXBean)) {
+            return;
+        }
+        com.sun.management.ThreadMXBean threadBean = (com.sun.management.ThreadMXBean) bean;
+        if (! threadBean.isThreadAllocatedMemorySupported()) {
+            return;
+        }
+        threadBean.setThreadAllocatedMemoryEnabled(true);
+        long threadId = Thread.currentThread().getId();
+
+        // Go round the circles a few times, so that the collision checker has
+        // all the nodes it needs:
+        moveActors(72 * 20);
+        threadBean.getThreadAllocatedBytes(threadId);
+
+        // The code may still be being compiled (and interpreted code allocates
+        // objects which compiled code doesn't), so allow a few attempts to reach
+        // a steady state:
+        long allocated = 0;
+        for (int attempt = 0; attempt < 5; attempt++) {
+            long before = threadBean.getThreadAllocatedBytes(threadId);
+            moveActors(72 * 10);
+            allocated = threadBean.getThreadAllocatedBytes(threadId) - before;
+            if (allocated == 0) {
+                break;
+            }
+        }
+        assertEquals("Bytes allocated while moving actors", 0L, allocated);
+    }
+}
@@ -109,5 +109,90 @@ public class ActorTest extends TestCase
         assertEquals(2 , rect.getRight());        
     }
     
+    public void testExactLocation()
+    {
+        world = WorldCreator.createWorld(100, 100, 1);
+        TestObject o = new TestObject(10, 10);
+        world.addObject(o, 10, 20);
+        assertEquals(10.0, o.getExactX(), 1e-9);
+        assertEquals(20.0, o.getExactY(), 1e-9);
+        
+        o.setLocation(10.4, 20.6);
+        assertEquals(10, o.getX());
+        assertEquals(21, o.getY());
+        assertEquals(10.4, o.getExactX(), 1e-9);
+        assertEquals(20.6, o.getExactY(), 1e-9);
+        
+        // Small movements accumulate:
+        o.setRotation(0);
+        for (int i = 0; i < 4; i++) {
+            o.move(0.25);
+        }
+        assertEquals(11.4, o.getExactX(), 1e-9);
+        assertEquals(11, o.getX());
+        
+        // The bounding rect follows the cell:
+        Rect rect = o.getBoundingRect();
+        assertEquals(6, rect.getX());
+        assertEquals(16, rect.getY());
+        
+        // Setting an integer location resets the exact location:
+        o.setLocation(30, 40);
+        assertEquals(30.0, o.getExactX(), 1e-9);
+        assertEquals(40.0, o.getExactY(), 1e-9);
+        
+        // Exact locations are limited to the world bounds:
+        o.setLocation(-5.5, 120.2);
+        assertEquals(0, o.getX());
+        assertEquals(99, o.getY());
+        assertEquals(0.0, o.getExactX(), 1e-9);
+        assertEquals(99.0, o.getExactY(), 1e-9);
+    }
+    
+    /**
+     * An actor which wraps around the edges of the world by overriding setLocation(int, int).
+     */
+    private static class WrappingObject extends TestObject
+    {
+        private int setLocationCalls;
+        
+        public WrappingObject()
+        {
+            super(10, 10);
+        }
+        
+        @Override
+        public void setLocation(int x, int y)
+        {
+            setLocationCalls++;
+            super.setLocation((x + 100) % 100, y);
+        }
+    }
+    
+    public void testExactLocationOverride()
+    {
+        // An unbounded world, so that it is the override that wraps:
+        world = new World(100, 100, 1, false) {};
+        WrappingObject o = new WrappingObject();
+        world.addObject(o, 98, 20);
+        o.setLocationCalls = 0;
+        
+        // Exact movement goes through the overridden setLocation(int, int):
+        o.setRotation(0);
+        o.move(0.75);
+        assertEquals(1, o.setLocationCalls);
+        assertEquals(99, o.getX());
+        assertEquals(98.75, o.getExactX(), 1e-9);
+        
+        // The override changes the cell, and the fraction of the exact location is kept:
+        o.move(1.5);
+        assertEquals(2, o.setLocationCalls);
+        assertEquals(0, o.getX());
+        assertEquals(0.25, o.getExactX(), 1e-9);
+        assertEquals(20.0, o.getExactY(), 1e-9);
+        
+        // An integer location still resets the exact location:
+        o.setLocation(50, 50);
+        assertEquals(50.0, o.getExactX(), 1e-9);
+    }
 }
-  
\ No newline at end of file
@@ -0,0 +1,150 @@
+/*
+ This file is part of the Greenfoot program. 
+ Copyright (C) 2026  Poul Henriksen and Michael Kolling
+ 
+ This program is free software; you can redistribute it and/or 
+ modify it under the terms of the GNU General Public License 
+ as published by the Free Software Foundation; either version 2 
+ of the License, or (at your option) any later version. 
+ 
+ This program is distributed in the hope that it will be useful, 
+ but WITHOUT ANY WARRANTY; without even the implied warranty of 
+ MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the 
+ GNU General Public License for more details. 
+ 
+ You should have received a copy of the GNU General Public License 
+ along with this program; if not, write to the Free Software 
+ Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA. 
+ 
+ This file is subject to the Classpath exception as provided in the  
+ LICENSE.txt file that accompanied this code.
+ */
+package greenfoot;
+
+import greenfoot.core.Simulation;
+import greenfoot.util.GreenfootUtil;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests that the drawing methods of GreenfootImage, which share a graphics
+ * context between calls, follow changes of colour and of the underlying image.
+ */
+public class GreenfootImageDrawingTest extends TestCase
+{
+    @Override
+    protected void setUp()
+        throws Exception
+    {
+        GreenfootUtil.initialise(new TestUtilDelegate());
+        Simulation.initialize();
+    }
+
+    private static void assertColor(Color expected, Color actual)
+    {
+        assertEquals(expected.getRed(), actual.getRed());
+        assertEquals(expected.getGreen(), actual.getGreen());
+        assertEquals(expected.getBlue(), actual.getBlue());
+        assertEquals(expected.getAlpha(), actual.getAlpha());
+    }
+
+    public void testColorChanges()
+    {
+        GreenfootImage image = new GreenfootImage(20, 20);
+        image.setColor(Color.RED);
+        image.fillRect(0, 0, 10, 10);
+        image.setColor(Color.BLUE);
+        image.fillRect(10, 0, 10, 10);
+        image.drawLine(0, 15, 19, 15);
+        assertColor(Color.RED, image.getColorAt(5, 5));
+        assertColor(Color.BLUE, image.getColorAt(15, 5));
+        assertColor(Color.BLUE, image.getColorAt(5, 15));
+    }
+
+    public void testCopyOnWrite()
+    {
+        GreenfootImage image = new GreenfootImage(20, 20);
+        image.setColor(Color.RED);
+        image.fill();
+        GreenfootImage clone = image.getCopyOnWriteClone();
+        
+        // The clone shares the pixels until it is drawn on:
+        clone.setColor(Color.BLUE);
+        clone.fillRect(5, 5, 5, 5);
+        clone.fillRect(0, 0, 5, 5);
+        assertColor(Color.RED, image.getColorAt(2, 2));
+        assertColor(Color.RED, image.getColorAt(7, 7));
+        assertColor(Color.BLUE, clone.getColorAt(2, 2));
+        assertColor(Color.BLUE, clone.getColorAt(7, 7));
+    }
+
+    public void testCopyConstructor()
+    {
+        GreenfootImage image = new GreenfootImage(20, 20);
+        image.setColor(Color.RED);
+        image.fill();
+        GreenfootImage copy = new GreenfootImage(image);
+        assertSame(image.getCacheableImage(), copy.getCacheableImage());
+        
+        // Drawing on either image does not change the other:
+        image.setColor(Color.BLUE);
+        image.fillRect(0, 0, 5, 5);
+        copy.setColorAt(10, 10, Color.GREEN);
+        assertColor(Color.BLUE, image.getColorAt(2, 2));
+        assertColor(Color.RED, image.getColorAt(10, 10));
+        assertColor(Color.RED, copy.getColorAt(2, 2));
+        assertColor(Color.GREEN, copy.getColorAt(10, 10));
+        
+        // An image whose AWT image has been given out is copied straight away:
+        image.getAwtImage();
+        copy = new GreenfootImage(image);
+        assertNotSame(image.getAwtImage(), copy.getAwtImage());
+    }
+
+    public void testImageReplaced()
+    {
+        GreenfootImage image = new GreenfootImage(20, 20);
+        image.setColor(Color.RED);
+        image.fillRect(0, 0, 5, 5);
+        
+        // Scaling replaces the underlying image; drawing must go to the new one:
+        image.scale(40, 40);
+        image.fillRect(30, 30, 5, 5);
+        assertColor(Color.RED, image.getColorAt(32, 32));
+        
+        image.mirrorHorizontally();
+        image.setColor(Color.GREEN);
+        image.fillRect(20, 20, 5, 5);
+        assertColor(Color.GREEN, image.getColorAt(22, 22));
+    }
+
+    public void testDrawBatch()
+    {
+        GreenfootImage image = new GreenfootImage(20, 20);
+        image.setColor(Color.RED);
+        int modCount = image.getModCount();
+        image.drawBatch(g -> {
+            g.fillRect(0, 0, 5, 5);
+            g.setColor(java.awt.Color.BLUE);
+            g.fillRect(5, 5, 5, 5);
+        });
+        assertTrue(image.getModCount() != modCount);
+        assertColor(Color.RED, image.getColorAt(2, 2));
+        assertColor(Color.BLUE, image.getColorAt(7, 7));
+        
+        // The colour set in the batch does not affect later drawing:
+        image.fillRect(10, 10, 5, 5);
+        assertColor(Color.RED, image.getColorAt(12, 12));
+    }
+
+    public void testModCount()
+    {
+        GreenfootImage image = new GreenfootImage(20, 20);
+        int modCount = image.getModCount();
+        image.fillOval(0, 0, 10, 10);
+        assertTrue(image.getModCount() != modCount);
+        modCount = image.getModCount();
+        image.drawString("x", 2, 10);
+        assertTrue(image.getModCount() != modCount);
+    }
+}
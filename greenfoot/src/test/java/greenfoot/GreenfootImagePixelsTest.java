@@ -0,0 +1,135 @@
+/*
+ This file is part of the Greenfoot program. 
+ Copyright (C) 2026  Poul Henriksen and Michael Kolling
+ 
+ This program is free software; you can redistribute it and/or 
+ modify it under the terms of the GNU General Public License 
+ as published by the Free Software Foundation; either version 2 
+ of the License, or (at your option) any later version. 
+ 
+ This program is distributed in the hope that it will be useful, 
+ but WITHOUT ANY WARRANTY; without even the implied warranty of 
+ MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the 
+ GNU General Public License for more details. 
+ 
+ You should have received a copy of the GNU General Public License 
+ along with this program; if not, write to the Free Software 
+ Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA. 
+ 
+ This file is subject to the Classpath exception as provided in the  
+ LICENSE.txt file that accompanied this code.
+ */
+package greenfoot;
+
+import greenfoot.core.Simulation;
+import greenfoot.util.GreenfootUtil;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests the bulk pixel methods of GreenfootImage (getPixels, setPixels and
+ * editPixels) against the per-pixel methods.
+ */
+public class GreenfootImagePixelsTest extends TestCase
+{
+    @Override
+    protected void setUp()
+        throws Exception
+    {
+        GreenfootUtil.initialise(new TestUtilDelegate());
+        Simulation.initialize();
+    }
+
+    private static int argb(Color c)
+    {
+        return (c.getAlpha() << 24) | (c.getRed() << 16) | (c.getGreen() << 8) | c.getBlue();
+    }
+
+    private GreenfootImage createImage()
+    {
+        GreenfootImage image = new GreenfootImage(30, 20);
+        image.setColor(Color.RED);
+        image.fillRect(5, 5, 10, 10);
+        image.setColor(new Color(0, 0, 255, 128));
+        image.fillOval(10, 2, 15, 15);
+        return image;
+    }
+
+    public void testGetPixels()
+    {
+        GreenfootImage image = createImage();
+        int[] pixels = new int[12 * 8];
+        image.getPixels(pixels, 4, 3, 12, 8);
+        for (int y = 0; y < 8; y++) {
+            for (int x = 0; x < 12; x++) {
+                assertEquals(argb(image.getColorAt(x + 4, y + 3)), pixels[y * 12 + x]);
+            }
+        }
+    }
+
+    public void testSetPixels()
+    {
+        GreenfootImage image = createImage();
+        int[] pixels = new int[5 * 6];
+        for (int i = 0; i < pixels.length; i++) {
+            pixels[i] = 0xFF000000 | (i * 8);
+        }
+        image.setPixels(pixels, 20, 10, 5, 6);
+        for (int y = 0; y < 6; y++) {
+            for (int x = 0; x < 5; x++) {
+                assertEquals(pixels[y * 5 + x], argb(image.getColorAt(x + 20, y + 10)));
+            }
+        }
+        // Outside the rectangle is unchanged:
+        assertEquals(argb(Color.RED), argb(image.getColorAt(5, 5)));
+    }
+
+    public void testEditPixels()
+    {
+        GreenfootImage image = createImage();
+        GreenfootImage expected = createImage();
+        image.editPixels((pixels, width, height) -> {
+            assertEquals(30, width);
+            assertEquals(20, height);
+            for (int i = 0; i < pixels.length; i++) {
+                pixels[i] ^= 0x00FFFFFF;
+            }
+        });
+        for (int y = 0; y < 20; y++) {
+            for (int x = 0; x < 30; x++) {
+                int before = argb(expected.getColorAt(x, y));
+                assertEquals(before ^ 0x00FFFFFF, argb(image.getColorAt(x, y)));
+            }
+        }
+    }
+
+    public void testCopyOnWrite()
+    {
+        GreenfootImage image = createImage();
+        GreenfootImage clone = image.getCopyOnWriteClone();
+        clone.editPixels((pixels, width, height) -> java.util.Arrays.fill(pixels, 0xFF00FF00));
+        clone.setPixels(new int[] {0xFF123456}, 0, 0, 1, 1);
+        assertEquals(argb(Color.RED), argb(image.getColorAt(5, 5)));
+        assertEquals(0xFF00FF00, argb(clone.getColorAt(5, 5)));
+        assertEquals(0xFF123456, argb(clone.getColorAt(0, 0)));
+    }
+
+    public void testBounds()
+    {
+        GreenfootImage image = createImage();
+        try {
+            image.getPixels(new int[100], 25, 0, 10, 10);
+            fail();
+        }
+        catch (IndexOutOfBoundsException e) {
+            // expected
+        }
+        try {
+            image.setPixels(new int[10], 0, 0, 10, 10);
+            fail();
+        }
+        catch (IndexOutOfBoundsException e) {
+            // expected
+        }
+    }
+}
@@ -0,0 +1,161 @@
+/*
+ This file is part of the Greenfoot program. 
+ Copyright (C) 2026  Poul Henriksen and Michael Kolling
+ 
+ This program is free software; you can redistribute it and/or 
+ modify it under the terms of the GNU General Public License 
+ as published by the Free Software Foundation; either version 2 
+ of the License, or (at your option) any later version. 
+ 
+ This program is distributed in the hope that it will be useful, 
+ but WITHOUT ANY WARRANTY; without even the implied warranty of 
+ MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the 
+ GNU General Public License for more details. 
+ 
+ You should have received a copy of the GNU General Public License 
+ along with this program; if not, write to the Free Software 
+ Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA. 
+ 
+ This file is subject to the Classpath exception as provided in the  
+ LICENSE.txt file that accompanied this code.
+ */
+package greenfoot;
+
+import greenfoot.core.ImageCache;
+import greenfoot.util.GreenfootUtil;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.imageio.ImageIO;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests for the image cache, and the sharing of cached images.
+ */
+public class ImageCacheTest extends TestCase
+{
+    private ImageCache cache;
+    private List<File> files = new ArrayList<File>();
+
+    @Override
+    protected void setUp()
+        throws Exception
+    {
+        GreenfootUtil.initialise(new TestUtilDelegate());
+        cache = ImageCache.getInstance();
+        cache.clearImageCache();
+    }
+
+    @Override
+    protected void tearDown()
+        throws Exception
+    {
+        cache.setProjectProperties(null);
+        cache.clearImageCache();
+        for (File file : files) {
+            file.delete();
+        }
+    }
+
+    /**
+     * Write a PNG file filled with the given colour, and return its path.
+     */
+    private String createImageFile(int width, int height, int argb)
+        throws Exception
+    {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                image.setRGB(x, y, argb);
+            }
+        }
+        File file = File.createTempFile("greenfoot", ".png");
+        files.add(file);
+        ImageIO.write(image, "png", file);
+        return file.getAbsolutePath();
+    }
+
+    public void testHitsAndMisses()
+        throws Exception
+    {
+        String name = createImageFile(10, 10, 0xff0000ff);
+        long hits = cache.getHits();
+        long misses = cache.getMisses();
+
+        GreenfootImage first = new GreenfootImage(name);
+        assertEquals(misses + 1, cache.getMisses());
+        assertEquals(400, cache.getCachedBytes());
+
+        GreenfootImage second = new GreenfootImage(name);
+        assertEquals(hits + 1, cache.getHits());
+        assertEquals(misses + 1, cache.getMisses());
+        assertEquals(400, cache.getCachedBytes());
+        assertEquals(first.getColorAt(5, 5), second.getColorAt(5, 5));
+    }
+
+    public void testCopyOnWrite()
+        throws Exception
+    {
+        String name = createImageFile(10, 10, 0xff0000ff);
+        GreenfootImage first = new GreenfootImage(name);
+        GreenfootImage second = new GreenfootImage(name);
+
+        // Changing an image must not change the cached image, or other images
+        // loaded from the same file:
+        first.setColor(Color.RED);
+        first.fill();
+        second.setColorAt(0, 0, Color.GREEN);
+        GreenfootImage third = new GreenfootImage(name);
+        assertEquals(Color.RED, first.getColorAt(5, 5));
+        assertEquals(Color.GREEN, second.getColorAt(0, 0));
+        assertEquals(Color.BLUE, second.getColorAt(5, 5));
+        assertEquals(Color.BLUE, third.getColorAt(0, 0));
+    }
+
+    public void testSizeLimit()
+        throws Exception
+    {
+        // 1MB holds two 300x300 images (360000 bytes each), but not three:
+        cache.setProjectProperties((key, defaultValue) -> ImageCache.SIZE_PROPERTY.equals(key) ? "1" : defaultValue);
+        String a = createImageFile(300, 300, 0xff0000ff);
+        String b = createImageFile(300, 300, 0xff00ff00);
+        String c = createImageFile(300, 300, 0xffff0000);
+        long evictions = cache.getEvictions();
+
+        new GreenfootImage(a);
+        new GreenfootImage(b);
+        new GreenfootImage(a);
+        new GreenfootImage(c);
+
+        // b was the least recently used:
+        assertEquals(evictions + 1, cache.getEvictions());
+        assertNotNull(cache.getCachedImage(a));
+        assertNull(cache.getCachedImage(b));
+        assertNotNull(cache.getCachedImage(c));
+        assertEquals(720000, cache.getCachedBytes());
+
+        // Too big to be cached at all, but still loaded:
+        String big = createImageFile(600, 600, 0xff0000ff);
+        GreenfootImage image = new GreenfootImage(big);
+        assertEquals(600, image.getWidth());
+        assertNull(cache.getCachedImage(big));
+        assertEquals(720000, cache.getCachedBytes());
+    }
+
+    public void testMissingImage()
+    {
+        String name = new File("no-such-image-file.png").getAbsolutePath();
+        try {
+            new GreenfootImage(name);
+            fail();
+        }
+        catch (IllegalArgumentException e) {
+            // Expected
+        }
+        assertTrue(GreenfootUtil.isInvalidImageFilename(name));
+    }
+}
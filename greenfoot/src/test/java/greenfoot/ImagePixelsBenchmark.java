@@ -0,0 +1,96 @@
+/*
+ This file is part of the Greenfoot program. 
+ Copyright (C) 2026  Poul Henriksen and Michael Kolling
+ 
+ This program is free software; you can redistribute it and/or 
+ modify it under the terms of the GNU General Public License 
+ as published by the Free Software Foundation; either version 2 
+ of the License, or (at your option) any later version. 
+ 
+ This program is distributed in the hope that it will be useful, 
+ but WITHOUT ANY WARRANTY; without even the implied warranty of 
+ MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the 
+ GNU General Public License for more details. 
+ 
+ You should have received a copy of the GNU General Public License 
+ along with this program; if not, write to the Free Software 
+ Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA. 
+ 
+ This file is subject to the Classpath exception as provided in the  
+ LICENSE.txt file that accompanied this code.
+ */
+package greenfoot;
+
+import greenfoot.util.GreenfootUtil;
+
+/**
+ * A micro-benchmark comparing the ways of processing every pixel of a large image:
+ * getColorAt/setColorAt for each pixel, getPixels/setPixels, and editPixels. Each
+ * pass inverts the colour of every pixel. Run it with the benchmarkImagePixels
+ * Gradle task; the optional arguments are the image width and height, and the
+ * number of passes.
+ */
+public class ImagePixelsBenchmark
+{
+    private static final int WARMUP_PASSES = 5;
+
+    public static void main(String[] args)
+    {
+        int width = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+        int height = args.length > 1 ? Integer.parseInt(args[1]) : 800;
+        int passes = args.length > 2 ? Integer.parseInt(args[2]) : 20;
+
+        GreenfootUtil.initialise(new TestUtilDelegate());
+        GreenfootImage image = new GreenfootImage(width, height);
+        image.setColor(Color.ORANGE);
+        image.fill();
+
+        System.out.println("Image " + width + "x" + height + ", " + passes + " passes; ms per pass:");
+        report("getColorAt/setColorAt", time(passes, () -> {
+            for (int y = 0; y < height; y++) {
+                for (int x = 0; x < width; x++) {
+                    Color c = image.getColorAt(x, y);
+                    image.setColorAt(x, y, new Color(255 - c.getRed(), 255 - c.getGreen(), 255 - c.getBlue(), c.getAlpha()));
+                }
+            }
+        }));
+
+        int[] pixels = new int[width * height];
+        report("getPixels/setPixels", time(passes, () -> {
+            image.getPixels(pixels, 0, 0, width, height);
+            for (int i = 0; i < pixels.length; i++) {
+                pixels[i] ^= 0x00FFFFFF;
+            }
+            image.setPixels(pixels, 0, 0, width, height);
+        }));
+
+        report("editPixels", time(passes, () -> {
+            image.editPixels((data, w, h) -> {
+                for (int i = 0; i < data.length; i++) {
+                    data[i] ^= 0x00FFFFFF;
+                }
+            });
+        }));
+    }
+
+    /**
+     * Run a pass a number of times (after some warm-up passes), and return the
+     * average time per pass in milliseconds.
+     */
+    private static double time(int passes, Runnable pass)
+    {
+        for (int i = 0; i < WARMUP_PASSES; i++) {
+            pass.run();
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < passes; i++) {
+            pass.run();
+        }
+        return (System.nanoTime() - start) / 1e6 / passes;
+    }
+
+    private static void report(String name, double millis)
+    {
+        System.out.println(String.format("  %-24s %10.3f", name, millis));
+    }
+}
@@ -0,0 +1,279 @@
+/*
+ This file is part of the Greenfoot program. 
+ Copyright (C) 2026  Poul Henriksen and Michael Kolling
+ 
+ This program is free software; you can redistribute it and/or 
+ modify it under the terms of the GNU General Public License 
+ as published by the Free Software Foundation; either version 2 
+ of the License, or (at your option) any later version. 
+ 
+ This program is distributed in the hope that it will be useful, 
+ but WITHOUT ANY WARRANTY; without even the implied warranty of 
+ MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the 
+ GNU General Public License for more details. 
+ 
+ You should have received a copy of the GNU General Public License 
+ along with this program; if not, write to the Free Software 
+ Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA. 
+ 
+ This file is subject to the Classpath exception as provided in the  
+ LICENSE.txt file that accompanied this code.
+ */
+package greenfoot;
+
+import greenfoot.core.ActInterruptedException;
+import greenfoot.core.Simulation;
+import greenfoot.core.WorldHandler;
+import greenfoot.util.GreenfootUtil;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests for actors acting in parallel (see World.setParallelAct).
+ */
+public class ParallelActTest extends TestCase
+{
+    private World world;
+    private Simulation sim;
+
+    /** An actor which acts in parallel, running the given action when it acts. */
+    private static class ParallelObject extends TestObject
+    {
+        private final Runnable action;
+
+        public ParallelObject(Runnable action)
+        {
+            this.action = action;
+        }
+
+        @Override
+        public void act()
+        {
+            action.run();
+        }
+    }
+
+    /** An actor which is added by the parallel actors, recording which one added it. */
+    private static class Marker extends TestObject
+    {
+        private final int index;
+
+        public Marker(int index)
+        {
+            this.index = index;
+        }
+    }
+
+    @Override
+    protected void setUp()
+        throws Exception
+    {
+        GreenfootUtil.initialise(new TestUtilDelegate());
+        Simulation.initialize();
+        world = WorldCreator.createWorld(400, 200, 1);
+        world.setParallelAct(ParallelObject.class);
+        sim = Simulation.getInstance();
+        sim.attachWorldHandlerHeadless(WorldHandler.getInstance());
+        sim.setEnabled(true);
+    }
+
+    /**
+     * Add the given number of parallel actors, each of which runs the given action
+     * (which is passed the actor's index) when it acts.
+     */
+    private List<ParallelObject> addActors(int count, ActAction action)
+    {
+        List<ParallelObject> actors = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            int index = i;
+            ParallelObject actor = new ParallelObject(() -> action.act(index));
+            actors.add(actor);
+            world.addObject(actor, 10 + i, 10);
+        }
+        return actors;
+    }
+
+    private interface ActAction
+    {
+        void act(int index);
+    }
+
+    /**
+     * Changes made while acting in parallel are not seen until all the actors have
+     * acted, and are then made in act order.
+     */
+    public void testDeferredChanges()
+    {
+        int count = 32;
+        List<TestObject> victims = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            TestObject victim = new TestObject();
+            victims.add(victim);
+            world.addObject(victim, 100 + i, 100);
+        }
+
+        List<String> problems = Collections.synchronizedList(new ArrayList<>());
+        List<ParallelObject> actors = new ArrayList<>();
+        actors.addAll(addActors(count, i -> {
+            ParallelObject self = actors.get(i);
+            world.addObject(new Marker(i), 150, 150);
+            world.removeObject(victims.get(i));
+            self.setLocation(10 + 10 * i, 50);
+            if (! world.getObjects(Marker.class).isEmpty()) {
+                problems.add("A marker was added while acting");
+            }
+            if (victims.get(i).getWorld() == null) {
+                problems.add("A victim was removed while acting");
+            }
+        }));
+
+        assertTrue(sim.runRound());
+        assertEquals(Collections.emptyList(), problems);
+
+        List<Marker> markers = world.getObjects(Marker.class);
+        assertEquals(count, markers.size());
+        for (int i = 0; i < count; i++) {
+            assertEquals(i, markers.get(i).index);
+            assertNull(victims.get(i).getWorld());
+            assertEquals(Collections.singletonList(actors.get(i)),
+                    world.getObjectsAt(10 + 10 * i, 50, ParallelObject.class));
+        }
+    }
+
+    /**
+     * The first exception (in act order) is thrown once all the actors have acted,
+     * and after their changes have been made.
+     */
+    public void testExceptionOrder()
+    {
+        int count = 32;
+        addActors(count, i -> {
+            world.addObject(new Marker(i), 150, 150);
+            if (i == 7 || i == 20) {
+                throw new IllegalStateException("Actor " + i);
+            }
+            if (i == 3) {
+                throw new ActInterruptedException();
+            }
+        });
+
+        try {
+            sim.runRound();
+            fail("Expected an exception");
+        }
+        catch (IllegalStateException e) {
+            // The interruption comes first, but other exceptions take precedence:
+            assertEquals("Actor 7", e.getMessage());
+        }
+        assertEquals(count, world.numberOfObjects(Marker.class));
+    }
+
+    /**
+     * An actor interrupted while acting in parallel doesn't stop the others acting,
+     * and the interruption is thrown at the end of the round.
+     */
+    public void testActInterrupted()
+    {
+        int count = 32;
+        addActors(count, i -> {
+            world.addObject(new Marker(i), 150, 150);
+            if (i == 5) {
+                throw new ActInterruptedException();
+            }
+        });
+
+        try {
+            sim.runRound();
+            fail("Expected an ActInterruptedException");
+        }
+        catch (ActInterruptedException e) {
+            // expected
+        }
+        assertEquals(count, world.numberOfObjects(Marker.class));
+    }
+
+    /**
+     * While actors act in parallel, each sees its own changes at once, but other
+     * actors and the collision queries see every actor as it was when the run
+     * began. The changes are made once the run has finished.
+     */
+    public void testQueriesSeeSnapshot()
+    {
+        checkQueriesSeeSnapshot();
+    }
+
+    public void testQueriesSeeSnapshotWithGrid()
+    {
+        world.setCollisionGridSize(16);
+        checkQueriesSeeSnapshot();
+    }
+
+    private void checkQueriesSeeSnapshot()
+    {
+        int count = 32;
+        List<String> problems = Collections.synchronizedList(new ArrayList<>());
+        List<ParallelObject> actors = new ArrayList<>();
+        actors.addAll(addActors(count, i -> {
+            ParallelObject self = actors.get(i);
+            ParallelObject other = actors.get((i + 1) % count);
+            self.setLocation(10 + 10 * i, 100);
+            self.turn(90);
+            self.setImage(new GreenfootImage(3, 3));
+            if (self.getY() != 100 || self.getRotation() != 90 || self.getImage().getWidth() != 3) {
+                problems.add("Actor " + i + " does not see its own changes");
+            }
+            if (other.getY() != 10 || other.getRotation() != 0 || other.getImage().getWidth() != 7) {
+                problems.add("Actor " + i + " sees another actor's changes");
+            }
+            if (! world.getObjectsAt(10 + i, 10, ParallelObject.class).contains(self)) {
+                problems.add("Actor " + i + " is not found where the run began");
+            }
+            if (! world.getObjectsAt(10 + 10 * i, 100, ParallelObject.class).isEmpty()) {
+                problems.add("Actor " + i + " is found where it moved to");
+            }
+        }));
+
+        assertTrue(sim.runRound());
+        assertEquals(Collections.emptyList(), problems);
+        for (int i = 0; i < count; i++) {
+            ParallelObject actor = actors.get(i);
+            assertEquals(100, actor.getY());
+            assertEquals(90, actor.getRotation());
+            assertEquals(3, actor.getImage().getWidth());
+            assertEquals(Collections.singletonList(actor),
+                    world.getObjectsAt(10 + 10 * i, 100, ParallelObject.class));
+        }
+        assertEquals(Collections.emptyList(), world.getObjectsAt(20, 10, ParallelObject.class));
+    }
+
+    /**
+     * Changes an actor makes to another actor while acting in parallel are not
+     * seen until the run has finished, and are then made in act order.
+     */
+    public void testChangesToOtherActors()
+    {
+        TestObject target = new TestObject();
+        world.addObject(target, 300, 150);
+
+        int count = 32;
+        List<String> problems = Collections.synchronizedList(new ArrayList<>());
+        addActors(count, i -> {
+            target.setRotation(i);
+            target.setLocation(200 + i, 150);
+            if (target.getRotation() != 0 || target.getX() != 300) {
+                problems.add("Actor " + i + " changed another actor while acting");
+            }
+        });
+
+        assertTrue(sim.runRound());
+        assertEquals(Collections.emptyList(), problems);
+        assertEquals(count - 1, target.getRotation());
+        assertEquals(200 + count - 1, target.getX());
+        assertEquals(Collections.singletonList(target),
+                world.getObjectsAt(200 + count - 1, 150, TestObject.class));
+    }
+}
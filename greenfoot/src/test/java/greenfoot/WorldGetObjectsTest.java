@@ -0,0 +1,186 @@
+/*
+ This file is part of the Greenfoot program. 
+ Copyright (C) 2026  Poul Henriksen and Michael Kolling
+ 
+ This program is free software; you can redistribute it and/or 
+ modify it under the terms of the GNU General Public License 
+ as published by the Free Software Foundation; either version 2 
+ of the License, or (at your option) any later version. 
+ 
+ This program is distributed in the hope that it will be useful, 
+ but WITHOUT ANY WARRANTY; without even the implied warranty of 
+ MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the 
+ GNU General Public License for more details. 
+ 
+ You should have received a copy of the GNU General Public License 
+ along with this program; if not, write to the Free Software 
+ Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA. 
+ 
+ This file is subject to the Classpath exception as provided in the  
+ LICENSE.txt file that accompanied this code.
+ */
+package greenfoot;
+
+import greenfoot.core.Simulation;
+import greenfoot.util.GreenfootUtil;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests World.getObjects and World.numberOfObjects when querying by class.
+ */
+public class WorldGetObjectsTest extends TestCase
+{
+    private World world;
+
+    /** A subclass of the test actor, to check subclass instances are found */
+    public static class SubTestObject extends TestObject
+    {
+    }
+
+    /** An unrelated actor class */
+    public static class OtherObject extends Actor
+    {
+    }
+
+    @Override
+    protected void setUp()
+        throws Exception
+    {
+        GreenfootUtil.initialise(new TestUtilDelegate());
+        Simulation.initialize();
+        world = WorldCreator.createWorld(10, 10, 10);
+    }
+
+    private void checkCounts(int testObjects, int subTestObjects, int otherObjects)
+    {
+        assertEquals(testObjects, world.getObjects(TestObject.class).size());
+        assertEquals(testObjects, world.numberOfObjects(TestObject.class));
+        assertEquals(subTestObjects, world.getObjects(SubTestObject.class).size());
+        assertEquals(subTestObjects, world.numberOfObjects(SubTestObject.class));
+        assertEquals(otherObjects, world.getObjects(OtherObject.class).size());
+        assertEquals(otherObjects, world.numberOfObjects(OtherObject.class));
+        assertEquals(testObjects + otherObjects, world.getObjects(Actor.class).size());
+        assertEquals(testObjects + otherObjects, world.getObjects(null).size());
+        assertEquals(testObjects + otherObjects, world.numberOfObjects(null));
+    }
+
+    public void testAddAndRemove()
+    {
+        TestObject a = new TestObject();
+        SubTestObject b = new SubTestObject();
+        world.addObject(a, 1, 1);
+        world.addObject(b, 2, 2);
+        checkCounts(2, 1, 0);
+
+        // Classes first seen after the index has been built
+        OtherObject c = new OtherObject();
+        world.addObject(c, 3, 3);
+        world.addObject(new SubTestObject(), 4, 4);
+        checkCounts(3, 2, 1);
+
+        List<SubTestObject> subs = world.getObjects(SubTestObject.class);
+        assertTrue(subs.contains(b));
+        assertFalse(subs.contains(a));
+
+        world.removeObject(b);
+        world.removeObject(c);
+        checkCounts(2, 1, 0);
+        assertFalse(world.getObjects(TestObject.class).contains(b));
+
+        world.removeObjects(world.getObjects(null));
+        checkCounts(0, 0, 0);
+    }
+
+    public void testOrderChange()
+    {
+        world.addObject(new TestObject(), 1, 1);
+        world.addObject(new OtherObject(), 2, 2);
+        checkCounts(1, 0, 1);
+
+        world.setPaintOrder(OtherObject.class, TestObject.class);
+        world.setActOrder(TestObject.class);
+        world.addObject(new SubTestObject(), 3, 3);
+        checkCounts(2, 1, 1);
+
+        world.setPaintOrder();
+        world.setActOrder();
+        checkCounts(2, 1, 1);
+    }
+
+    /** A second subclass of the test actor */
+    public static class SubTestObject2 extends TestObject
+    {
+    }
+
+    public void testInterleavedSubclassOrder()
+    {
+        // Build the class index before adding, so the subclasses get their own sets
+        assertEquals(0, world.getObjects(TestObject.class).size());
+
+        TestObject a = new SubTestObject();
+        TestObject b = new SubTestObject2();
+        TestObject c = new SubTestObject();
+        TestObject d = new SubTestObject2();
+        world.addObject(a, 1, 1);
+        world.addObject(b, 2, 2);
+        world.addObject(c, 3, 3);
+        world.addObject(d, 4, 4);
+
+        // Instances of several classes come out in the order they were added,
+        // the same as when getting all objects:
+        assertEquals(List.of(a, b, c, d), world.getObjects(TestObject.class));
+        assertEquals(world.getObjects(null), world.getObjects(Actor.class));
+        assertEquals(List.of(a, c), world.getObjects(SubTestObject.class));
+        assertEquals(List.of(b, d), world.getObjects(SubTestObject2.class));
+
+        world.removeObject(a);
+        world.addObject(a, 1, 1);
+        assertEquals(List.of(b, c, d, a), world.getObjects(TestObject.class));
+        assertEquals(List.of(c, a), world.getObjects(SubTestObject.class));
+    }
+
+    public void testOrderAcrossSubsets()
+    {
+        TestObject a = new SubTestObject();
+        OtherObject b = new OtherObject();
+        TestObject c = new SubTestObject2();
+        TestObject d = new SubTestObject();
+        world.addObject(a, 1, 1);
+        world.addObject(b, 2, 2);
+        world.addObject(c, 3, 3);
+        world.addObject(d, 4, 4);
+        checkOrder();
+
+        // Moves actors between subsets after the index has been built:
+        world.setPaintOrder(SubTestObject2.class, OtherObject.class);
+        world.setActOrder(SubTestObject.class);
+        checkOrder();
+        world.addObject(new SubTestObject2(), 5, 5);
+        world.addObject(new SubTestObject(), 6, 6);
+        checkOrder();
+        world.removeObject(d);
+        checkOrder();
+    }
+
+    /**
+     * Check that querying by class gives the same order as filtering all objects.
+     */
+    private void checkOrder()
+    {
+        List<Actor> all = world.getObjects(null);
+        assertEquals(all, world.getObjects(Actor.class));
+        for (Class<?> cls : List.of(TestObject.class, SubTestObject.class, SubTestObject2.class, OtherObject.class)) {
+            List<Actor> expected = new ArrayList<Actor>();
+            for (Actor actor : all) {
+                if (cls.isInstance(actor)) {
+                    expected.add(actor);
+                }
+            }
+            assertEquals(expected, world.getObjects(cls));
+        }
+    }
+}
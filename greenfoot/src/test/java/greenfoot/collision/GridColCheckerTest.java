@@ -0,0 +1,189 @@
+/*
+ This file is part of the Greenfoot program. 
+ Copyright (C) 2026  Poul Henriksen and Michael Kolling
+ 
+ This program is free software; you can redistribute it and/or 
+ modify it under the terms of the GNU General Public License 
+ as published by the Free Software Foundation; either version 2 
+ of the License, or (at your option) any later version. 
+ 
+ This program is distributed in the hope that it will be useful, 
+ but WITHOUT ANY WARRANTY; without even the implied warranty of 
+ MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the 
+ GNU General Public License for more details. 
+ 
+ You should have received a copy of the GNU General Public License 
+ along with this program; if not, write to the Free Software 
+ Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA. 
+ 
+ This file is subject to the Classpath exception as provided in the  
+ LICENSE.txt file that accompanied this code.
+ */
+package greenfoot.collision;
+
+import greenfoot.TestObject;
+import greenfoot.TestUtilDelegate;
+import greenfoot.World;
+import greenfoot.WorldCreator;
+import greenfoot.core.Simulation;
+import greenfoot.util.GreenfootUtil;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests that the grid collision checker finds the same actors as the default
+ * collision checker.
+ */
+public class GridColCheckerTest extends TestCase
+{
+    private static final int ACTOR_COUNT = 200;
+
+    private World defaultWorld;
+    private World gridWorld;
+    private List<TestObject> defaultActors;
+    private List<TestObject> gridActors;
+
+    @Override
+    protected void setUp()
+        throws Exception
+    {
+        GreenfootUtil.initialise(new TestUtilDelegate());
+        Simulation.initialize();
+    }
+
+    /**
+     * Put the same (random) set of actors into a world using the default collision
+     * checker and a world using the grid collision checker.
+     */
+    private void createWorlds(int cellSize, int gridSize, long seed)
+    {
+        int size = 400 / cellSize;
+        defaultWorld = WorldCreator.createWorld(size, size, cellSize);
+        gridWorld = WorldCreator.createWorld(size, size, cellSize);
+        gridWorld.setCollisionGridSize(gridSize);
+        defaultActors = new ArrayList<TestObject>();
+        gridActors = new ArrayList<TestObject>();
+
+        Random random = new Random(seed);
+        for (int i = 0; i < ACTOR_COUNT; i++) {
+            int width = 1 + random.nextInt(30);
+            int height = 1 + random.nextInt(30);
+            int x = random.nextInt(size);
+            int y = random.nextInt(size);
+            int rotation = random.nextInt(360);
+
+            TestObject a = new TestObject(width, height);
+            a.setRotation(rotation);
+            defaultWorld.addObject(a, x, y);
+            defaultActors.add(a);
+
+            TestObject b = new TestObject(width, height);
+            b.setRotation(rotation);
+            gridWorld.addObject(b, x, y);
+            gridActors.add(b);
+        }
+    }
+
+    /**
+     * Check that every query gives equivalent results in both worlds.
+     */
+    @SuppressWarnings("unchecked")
+    private void checkSameResults()
+    {
+        for (int i = 0; i < ACTOR_COUNT; i++) {
+            TestObject a = defaultActors.get(i);
+            TestObject b = gridActors.get(i);
+            if (a.getWorld() == null) {
+                continue;
+            }
+
+            assertEquals(indexes(defaultActors, a.getIntersectingObjectsP(TestObject.class)),
+                    indexes(gridActors, b.getIntersectingObjectsP(TestObject.class)));
+            assertEquals(indexes(defaultActors, a.getNeighboursP(2, true, null)),
+                    indexes(gridActors, b.getNeighboursP(2, true, null)));
+            assertEquals(indexes(defaultActors, a.getNeighboursP(3, false, TestObject.class)),
+                    indexes(gridActors, b.getNeighboursP(3, false, TestObject.class)));
+            assertEquals(indexes(defaultActors, a.getObjectsInRangeP(20 / defaultWorld.getCellSize(), TestObject.class)),
+                    indexes(gridActors, b.getObjectsInRangeP(20 / gridWorld.getCellSize(), TestObject.class)));
+            assertEquals(indexes(defaultActors, a.getObjectsAtP(1, 0, null)),
+                    indexes(gridActors, b.getObjectsAtP(1, 0, null)));
+            assertEquals(a.isTouchingP(TestObject.class), b.isTouchingP(TestObject.class));
+            assertEquals(a.getOneObjectAtP(0, 1, TestObject.class) == null,
+                    b.getOneObjectAtP(0, 1, TestObject.class) == null);
+        }
+    }
+
+    /**
+     * Get the set of indexes (in the given list) of the given actors.
+     */
+    private static HashSet<Integer> indexes(List<TestObject> all, List<?> found)
+    {
+        HashSet<Integer> result = new HashSet<Integer>();
+        for (Object o : found) {
+            result.add(all.indexOf(o));
+        }
+        return result;
+    }
+
+    /**
+     * Move, turn and remove some actors identically in both worlds.
+     */
+    private void shuffleWorlds(long seed)
+    {
+        Random random = new Random(seed);
+        for (int i = 0; i < ACTOR_COUNT; i++) {
+            TestObject a = defaultActors.get(i);
+            TestObject b = gridActors.get(i);
+            if (a.getWorld() == null) {
+                continue;
+            }
+            int dx = random.nextInt(21) - 10;
+            int dy = random.nextInt(21) - 10;
+            int turn = random.nextInt(90);
+            a.setLocation(a.getX() + dx, a.getY() + dy);
+            b.setLocation(b.getX() + dx, b.getY() + dy);
+            a.turn(turn);
+            b.turn(turn);
+            if (random.nextInt(20) == 0) {
+                defaultWorld.removeObject(a);
+                gridWorld.removeObject(b);
+            }
+        }
+    }
+
+    public void testPixelWorld()
+    {
+        createWorlds(1, 16, 1);
+        checkSameResults();
+        for (int i = 0; i < 5; i++) {
+            shuffleWorlds(i);
+            checkSameResults();
+        }
+    }
+
+    public void testCellWorld()
+    {
+        createWorlds(10, 32, 2);
+        checkSameResults();
+        for (int i = 0; i < 5; i++) {
+            shuffleWorlds(i + 10);
+            checkSameResults();
+        }
+    }
+
+    public void testSwitchBackToDefault()
+    {
+        createWorlds(1, 8, 3);
+        shuffleWorlds(4);
+        gridWorld.setCollisionGridSize(0);
+        checkSameResults();
+        gridWorld.setCollisionGridSize(50);
+        shuffleWorlds(5);
+        checkSameResults();
+    }
+}
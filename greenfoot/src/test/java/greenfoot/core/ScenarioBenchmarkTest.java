@@ -0,0 +1,185 @@
+/*
+ This file is part of the Greenfoot program. 
+ Copyright (C) 2026  Poul Henriksen and Michael Kolling
+ 
+ This program is free software; you can redistribute it and/or 
+ modify it under the terms of the GNU General Public License 
+ as published by the Free Software Foundation; either version 2 
+ of the License, or (at your option) any later version. 
+ 
+ This program is distributed in the hope that it will be useful, 
+ but WITHOUT ANY WARRANTY; without even the implied warranty of 
+ MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the 
+ GNU General Public License for more details. 
+ 
+ You should have received a copy of the GNU General Public License 
+ along with this program; if not, write to the Free Software 
+ Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA. 
+ 
+ This file is subject to the Classpath exception as provided in the  
+ LICENSE.txt file that accompanied this code.
+ */
+package greenfoot.core;
+
+import greenfoot.Actor;
+import greenfoot.GreenfootImage;
+import greenfoot.World;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.Properties;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests for the ScenarioBenchmark's arguments and results, running a small
+ * world (from the test classes, so that no scenario need be compiled) headless.
+ */
+public class ScenarioBenchmarkTest extends TestCase
+{
+    private File scenarioDir;
+
+    /** A world with some actors which move and turn, for the benchmark to run */
+    public static class BenchmarkWorld extends World
+    {
+        public BenchmarkWorld()
+        {
+            super(200, 100, 1);
+            for (int i = 0; i < 20; i++) {
+                addObject(new Mover(), 10 * i, 50);
+            }
+        }
+    }
+
+    public static class Mover extends Actor
+    {
+        public Mover()
+        {
+            setImage(new GreenfootImage(10, 5));
+        }
+
+        @Override
+        public void act()
+        {
+            move(3);
+            turn(7);
+            getIntersectingObjects(Mover.class);
+        }
+    }
+
+    @Override
+    protected void setUp()
+        throws Exception
+    {
+        scenarioDir = Files.createTempDirectory("greenfoot-benchmark-test").toFile();
+    }
+
+    @Override
+    protected void tearDown()
+        throws Exception
+    {
+        scenarioDir.delete();
+    }
+
+    public void testArguments()
+    {
+        assertInvalid();
+        assertInvalid("--rounds", "10");
+        assertInvalid(new File(scenarioDir, "missing").getPath());
+        assertInvalid(scenarioDir.getPath(), "other");
+        assertInvalid(scenarioDir.getPath(), "--rounds");
+        assertInvalid(scenarioDir.getPath(), "--rounds", "0");
+        assertInvalid(scenarioDir.getPath(), "--warmup", "-1");
+        assertInvalid(scenarioDir.getPath(), "--render-every", "often");
+        assertInvalid(scenarioDir.getPath(), "--speed", "1");
+
+        new ScenarioBenchmark().parseArgs(new String[] {scenarioDir.getPath(), "--warmup", "0",
+                "--render-every", "0", "--world", "World", "--output", "out.json"});
+    }
+
+    private void assertInvalid(String... args)
+    {
+        try {
+            new ScenarioBenchmark().parseArgs(args);
+            fail("Expected the arguments to be rejected");
+        }
+        catch (IllegalArgumentException e) {
+            // expected
+        }
+    }
+
+    public void testJsonWriter()
+    {
+        ScenarioBenchmark.JsonWriter json = new ScenarioBenchmark.JsonWriter();
+        json.field("name", "a \"quoted\"\\path\n");
+        json.field("count", 3);
+        json.field("rate", 1.5);
+        json.startObject("times");
+        json.field("mean", 0.25);
+        json.endObject();
+        json.startArray("buckets");
+        json.startObject(null);
+        json.field("count", 1);
+        json.endObject();
+        json.endArray();
+        json.startArray("empty");
+        json.endArray();
+
+        assertEquals("{\n"
+                + "  \"name\": \"a \\\"quoted\\\"\\\\path\\u000a\",\n"
+                + "  \"count\": 3,\n"
+                + "  \"rate\": 1.500,\n"
+                + "  \"times\": {\n"
+                + "    \"mean\": 0.250\n"
+                + "  },\n"
+                + "  \"buckets\": [\n"
+                + "    {\n"
+                + "      \"count\": 1\n"
+                + "    }\n"
+                + "  ],\n"
+                + "  \"empty\": [\n"
+                + "  ]\n"
+                + "}", json.finish());
+    }
+
+    public void testRunRounds()
+        throws Exception
+    {
+        ScenarioBenchmark benchmark = new ScenarioBenchmark();
+        benchmark.parseArgs(new String[] {scenarioDir.getPath(), "--world", BenchmarkWorld.class.getName(),
+                "--rounds", "30", "--warmup", "5", "--render-every", "10"});
+        String results = benchmark.runScenario(getClass().getClassLoader(), new Properties());
+
+        assertEquals(BenchmarkWorld.class.getName(), stringField(results, "world"));
+        assertEquals(30, longField(results, "rounds"));
+        assertEquals(5, longField(results, "warmupRounds"));
+        assertEquals(20, longField(results, "actors"));
+        // One paint per round, and every tenth is rendered:
+        assertEquals(3, longField(results, "framesRendered"));
+        // Every actor queries once per round:
+        assertEquals(30 * 20, longField(results, "collisionQueries"));
+
+        long histogramTotal = 0;
+        Matcher counts = Pattern.compile("\"belowMicros\": -?\\d+,\\s*\"count\": (\\d+)").matcher(results);
+        while (counts.find()) {
+            histogramTotal += Long.parseLong(counts.group(1));
+        }
+        assertEquals(30, histogramTotal);
+    }
+
+    private static String stringField(String json, String name)
+    {
+        Matcher m = Pattern.compile("\"" + name + "\": \"([^\"]*)\"").matcher(json);
+        assertTrue("No field " + name + " in " + json, m.find());
+        return m.group(1);
+    }
+
+    private static long longField(String json, String name)
+    {
+        Matcher m = Pattern.compile("\"" + name + "\": (-?\\d+)[,\\n]").matcher(json);
+        assertTrue("No field " + name + " in " + json, m.find());
+        return Long.parseLong(m.group(1));
+    }
+}
@@ -0,0 +1,127 @@
+/*
+ This file is part of the Greenfoot program. 
+ Copyright (C) 2026  Poul Henriksen and Michael Kolling
+ 
+ This program is free software; you can redistribute it and/or 
+ modify it under the terms of the GNU General Public License 
+ as published by the Free Software Foundation; either version 2 
+ of the License, or (at your option) any later version. 
+ 
+ This program is distributed in the hope that it will be useful, 
+ but WITHOUT ANY WARRANTY; without even the implied warranty of 
+ MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the 
+ GNU General Public License for more details. 
+ 
+ You should have received a copy of the GNU General Public License 
+ along with this program; if not, write to the Free Software 
+ Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA. 
+ 
+ This file is subject to the Classpath exception as provided in the  
+ LICENSE.txt file that accompanied this code.
+ */
+package greenfoot.core;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests for the TickScheduler, using made-up times rather than the clock.
+ */
+public class TickSchedulerTest extends TestCase
+{
+    private static final long MS = 1_000_000L;
+
+    public void testFixedPeriod()
+    {
+        TickScheduler scheduler = new TickScheduler(10 * MS, 20 * MS);
+        scheduler.start(0);
+        assertTrue(scheduler.getTimeToNextTick(0) <= 0);
+
+        scheduler.tickStarted(0);
+        assertEquals(10 * MS, scheduler.getTimeToNextTick(0));
+        assertEquals(7 * MS, scheduler.getTimeToNextTick(3 * MS));
+
+        // Without catching up, a late tick pushes the following ones back:
+        scheduler.tickStarted(25 * MS);
+        assertEquals(10 * MS, scheduler.getTimeToNextTick(25 * MS));
+    }
+
+    public void testCatchUp()
+    {
+        TickScheduler scheduler = new TickScheduler(10 * MS, 20 * MS);
+        scheduler.setCatchUp(true);
+        scheduler.start(0);
+        scheduler.tickStarted(0);
+
+        // The tick took 35ms, so the ticks due at 10, 20 and 30ms are run straight away:
+        scheduler.tickStarted(35 * MS);
+        assertTrue(scheduler.getTimeToNextTick(35 * MS) <= 0);
+        scheduler.tickStarted(36 * MS);
+        assertTrue(scheduler.getTimeToNextTick(36 * MS) <= 0);
+        scheduler.tickStarted(37 * MS);
+        assertEquals(3 * MS, scheduler.getTimeToNextTick(37 * MS));
+        assertEquals(0, scheduler.getDroppedTicks());
+    }
+
+    public void testCatchUpLimit()
+    {
+        TickScheduler scheduler = new TickScheduler(10 * MS, 20 * MS);
+        scheduler.setCatchUp(true);
+        scheduler.start(0);
+        scheduler.tickStarted(0);
+
+        // A one second stall: the late tick is followed by only MAX_CATCH_UP_TICKS more.
+        long now = 1000 * MS;
+        int immediateTicks = 0;
+        while (scheduler.getTimeToNextTick(now) <= 0) {
+            scheduler.tickStarted(now);
+            immediateTicks++;
+            assertTrue(immediateTicks <= TickScheduler.MAX_CATCH_UP_TICKS + 1);
+        }
+        assertEquals(TickScheduler.MAX_CATCH_UP_TICKS + 1, immediateTicks);
+        assertTrue(scheduler.getDroppedTicks() > 0);
+    }
+
+    public void testPaintCadence()
+    {
+        TickScheduler scheduler = new TickScheduler(5 * MS, 20 * MS);
+        scheduler.start(0);
+
+        scheduler.tickStarted(0);
+        assertTrue(scheduler.tickCompleted(1 * MS));
+        scheduler.painted(2 * MS);
+
+        // Ticks within the paint period leave a paint pending, but don't paint:
+        scheduler.tickStarted(5 * MS);
+        assertFalse(scheduler.tickCompleted(6 * MS));
+        scheduler.tickStarted(10 * MS);
+        assertFalse(scheduler.tickCompleted(11 * MS));
+        assertFalse(scheduler.isPaintDue(19 * MS));
+
+        // The pending paint is due at 20ms, even though the next tick is not:
+        assertEquals(4 * MS, scheduler.getTimeToNextEvent(11 * MS));
+        scheduler.setTickPeriod(50 * MS);
+        assertEquals(9 * MS, scheduler.getTimeToNextEvent(11 * MS));
+        assertTrue(scheduler.isPaintDue(20 * MS));
+        scheduler.painted(20 * MS);
+        assertFalse(scheduler.isPaintDue(45 * MS));
+        assertEquals(40 * MS, scheduler.getTimeToNextEvent(20 * MS));
+    }
+
+    public void testRates()
+    {
+        TickScheduler scheduler = new TickScheduler(10 * MS, 20 * MS);
+        scheduler.start(0);
+        for (long t = 0; t <= 1000 * MS; t += 10 * MS) {
+            scheduler.tickStarted(t);
+            if (scheduler.tickCompleted(t)) {
+                scheduler.painted(t);
+            }
+        }
+        assertEquals(101, scheduler.getTickRate());
+        assertEquals(50, scheduler.getPaintRate());
+
+        scheduler.stop();
+        assertEquals(0, scheduler.getTickRate());
+        assertEquals(0, scheduler.getPaintRate());
+    }
+}
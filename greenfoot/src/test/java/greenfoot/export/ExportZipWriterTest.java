@@ -0,0 +1,322 @@
+/*
+ This file is part of the Greenfoot program. 
+ Copyright (C) 2026  Poul Henriksen and Michael Kolling
+ 
+ This program is free software; you can redistribute it and/or 
+ modify it under the terms of the GNU General Public License 
+ as published by the Free Software Foundation; either version 2 
+ of the License, or (at your option) any later version. 
+ 
+ This program is distributed in the hope that it will be useful, 
+ but WITHOUT ANY WARRANTY; without even the implied warranty of 
+ MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the 
+ GNU General Public License for more details. 
+ 
+ You should have received a copy of the GNU General Public License 
+ along with this program; if not, write to the Free Software 
+ Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA. 
+ 
+ This file is subject to the Classpath exception as provided in the  
+ LICENSE.txt file that accompanied this code.
+ */
+package greenfoot.export;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.jar.Attributes;
+import java.util.jar.JarFile;
+import java.util.jar.Manifest;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipInputStream;
+import java.util.zip.ZipOutputStream;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests for ExportZipWriter: the files it writes are read back using ZipFile.
+ */
+public class ExportZipWriterTest extends TestCase
+{
+    private List<File> files = new ArrayList<File>();
+    private ExecutorService executor;
+
+    @Override
+    protected void setUp()
+        throws Exception
+    {
+        executor = Executors.newFixedThreadPool(2);
+        ExportZipWriter.clearCache();
+    }
+
+    @Override
+    protected void tearDown()
+        throws Exception
+    {
+        executor.shutdownNow();
+        for (File file : files) {
+            file.delete();
+        }
+    }
+
+    private File createFile(String suffix, byte[] contents)
+        throws IOException
+    {
+        File file = File.createTempFile("greenfoot", suffix);
+        files.add(file);
+        Files.write(file.toPath(), contents);
+        return file;
+    }
+
+    private static byte[] makeContents(int length, int seed)
+    {
+        byte[] contents = new byte[length];
+        for (int i = 0; i < length; i++) {
+            contents[i] = (byte) ("abcdefgh".charAt((i / 7 + seed) % 8));
+        }
+        return contents;
+    }
+
+    private static byte[] read(ZipFile zip, String name)
+        throws IOException
+    {
+        ZipEntry entry = zip.getEntry(name);
+        assertNotNull(entry);
+        try (InputStream in = zip.getInputStream(entry)) {
+            return in.readAllBytes();
+        }
+    }
+
+    private static void assertBytesEqual(byte[] expected, byte[] actual)
+    {
+        assertEquals(expected.length, actual.length);
+        for (int i = 0; i < expected.length; i++) {
+            assertEquals(expected[i], actual[i]);
+        }
+    }
+
+    public void testFilesAndManifest()
+        throws Exception
+    {
+        byte[] text = makeContents(100000, 0);
+        byte[] image = makeContents(5000, 3);
+        File textFile = createFile(".txt", text);
+        File imageFile = createFile(".png", image);
+
+        Manifest manifest = new Manifest();
+        manifest.getMainAttributes().put(Attributes.Name.MANIFEST_VERSION, "1.0");
+        manifest.getMainAttributes().put(Attributes.Name.MAIN_CLASS, "Main");
+
+        File out = createFile(".jar", new byte[0]);
+        ExportZipWriter writer = new ExportZipWriter(new FileOutputStream(out), executor, 2);
+        writer.addManifest(manifest);
+        for (int i = 0; i < 20; i++) {
+            writer.addFile(textFile, "dir/text" + i + ".txt");
+        }
+        writer.addFile(imageFile, "images/image.png");
+        writer.addFile(textFile, "dir/text0.txt"); // duplicate, skipped
+        writer.close();
+
+        try (JarFile jar = new JarFile(out)) {
+            assertEquals("Main", jar.getManifest().getMainAttributes().getValue(Attributes.Name.MAIN_CLASS));
+            assertEquals(22, jar.size());
+            for (int i = 0; i < 20; i++) {
+                assertBytesEqual(text, read(jar, "dir/text" + i + ".txt"));
+            }
+            ZipEntry textEntry = jar.getEntry("dir/text5.txt");
+            assertEquals(ZipEntry.DEFLATED, textEntry.getMethod());
+            assertTrue(textEntry.getCompressedSize() < text.length / 10);
+
+            // Images are already compressed, so are stored:
+            assertEquals(ZipEntry.STORED, jar.getEntry("images/image.png").getMethod());
+            assertBytesEqual(image, read(jar, "images/image.png"));
+        }
+
+        // The text file's deflated data is cached:
+        assertEquals(1, ExportZipWriter.getCacheSize());
+    }
+
+    public void testCopyZip()
+        throws Exception
+    {
+        byte[] a = makeContents(30000, 1);
+        byte[] b = makeContents(10, 2);
+        File lib = createFile(".jar", new byte[0]);
+        ZipOutputStream zipOut = new ZipOutputStream(new FileOutputStream(lib));
+        zipOut.putNextEntry(new ZipEntry(JarFile.MANIFEST_NAME));
+        zipOut.write("Manifest-Version: 1.0\r\n\r\n".getBytes("UTF-8"));
+        zipOut.putNextEntry(new ZipEntry("lib/"));
+        zipOut.putNextEntry(new ZipEntry("lib/A.class"));
+        zipOut.write(a);
+        ZipEntry storedEntry = new ZipEntry("lib/B.txt");
+        storedEntry.setMethod(ZipEntry.STORED);
+        storedEntry.setSize(b.length);
+        CRC32 crc = new CRC32();
+        crc.update(b);
+        storedEntry.setCrc(crc.getValue());
+        zipOut.putNextEntry(storedEntry);
+        zipOut.write(b);
+        zipOut.close();
+
+        long compressedSize;
+        try (ZipFile zip = new ZipFile(lib)) {
+            compressedSize = zip.getEntry("lib/A.class").getCompressedSize();
+        }
+
+        File out = createFile(".jar", new byte[0]);
+        ExportZipWriter writer = new ExportZipWriter(new FileOutputStream(out), executor, 2);
+        writer.addFile(createFile(".txt", b), "first.txt");
+        writer.addZipContents(lib);
+        writer.addZipContents(lib); // all duplicates
+        writer.close();
+
+        try (ZipFile zip = new ZipFile(out)) {
+            // The manifest of the library is not copied:
+            assertNull(zip.getEntry(JarFile.MANIFEST_NAME));
+            assertEquals(4, zip.size());
+            assertBytesEqual(b, read(zip, "first.txt"));
+            assertBytesEqual(a, read(zip, "lib/A.class"));
+            assertBytesEqual(b, read(zip, "lib/B.txt"));
+            // The deflated data was copied as it was:
+            assertEquals(compressedSize, zip.getEntry("lib/A.class").getCompressedSize());
+            assertEquals(ZipEntry.STORED, zip.getEntry("lib/B.txt").getMethod());
+        }
+    }
+
+    public void testCacheKey()
+        throws Exception
+    {
+        File file = createFile(".txt", makeContents(1000, 0));
+        File out = createFile(".zip", new byte[0]);
+        ExportZipWriter writer = new ExportZipWriter(new FileOutputStream(out), executor, 2);
+        writer.addFile(file, "a.txt");
+        writer.close();
+        assertEquals(1, ExportZipWriter.getCacheSize());
+
+        // Changing the file means it is compressed again:
+        byte[] changed = makeContents(1000, 5);
+        Files.write(file.toPath(), changed);
+        file.setLastModified(file.lastModified() + 2000);
+        writer = new ExportZipWriter(new FileOutputStream(out), executor, 2);
+        writer.addFile(file, "a.txt");
+        writer.close();
+        assertEquals(2, ExportZipWriter.getCacheSize());
+        try (ZipFile zip = new ZipFile(out)) {
+            assertBytesEqual(changed, read(zip, "a.txt"));
+        }
+    }
+
+    public void testRewrittenFile()
+        throws Exception
+    {
+        // A generated file can be rewritten with the same size and modification time:
+        File file = createFile(".txt", makeContents(1000, 0));
+        long lastModified = file.lastModified();
+        File out = createFile(".zip", new byte[0]);
+        ExportZipWriter writer = new ExportZipWriter(new FileOutputStream(out), executor, 2);
+        writer.addFile(file, "a.txt");
+        writer.close();
+
+        byte[] changed = makeContents(1000, 5);
+        Files.write(file.toPath(), changed);
+        file.setLastModified(lastModified);
+        writer = new ExportZipWriter(new FileOutputStream(out), executor, 2);
+        writer.addFile(file, "a.txt");
+        writer.close();
+        try (ZipFile zip = new ZipFile(out)) {
+            assertBytesEqual(changed, read(zip, "a.txt"));
+        }
+    }
+
+    public void testLargeEntries()
+        throws Exception
+    {
+        byte[] small = makeContents(100, 0);
+        byte[] text = makeContents(10000, 1);
+        byte[] image = makeContents(5000, 2);
+        byte[] libEntry = makeContents(20000, 3);
+        File lib = createFile(".jar", new byte[0]);
+        try (ZipOutputStream zipOut = new ZipOutputStream(new FileOutputStream(lib))) {
+            zipOut.putNextEntry(new ZipEntry("lib/A.class"));
+            zipOut.write(libEntry);
+        }
+
+        // Entries of more than 1000 bytes are read as they are written:
+        File out = createFile(".jar", new byte[0]);
+        ExportZipWriter writer = new ExportZipWriter(new FileOutputStream(out), executor, 2, 4000);
+        writer.addFile(createFile(".txt", small), "small.txt");
+        writer.addFile(createFile(".txt", text), "text.txt");
+        writer.addFile(createFile(".png", image), "image.png");
+        writer.addZipContents(lib);
+        writer.close();
+
+        try (ZipFile zip = new ZipFile(out)) {
+            assertEquals(4, zip.size());
+            assertBytesEqual(small, read(zip, "small.txt"));
+            assertBytesEqual(text, read(zip, "text.txt"));
+            assertEquals(ZipEntry.DEFLATED, zip.getEntry("text.txt").getMethod());
+            assertBytesEqual(image, read(zip, "image.png"));
+            assertEquals(ZipEntry.STORED, zip.getEntry("image.png").getMethod());
+            assertBytesEqual(libEntry, read(zip, "lib/A.class"));
+        }
+
+        // The local headers (and data descriptors) must be right too:
+        int count = 0;
+        try (ZipInputStream in = new ZipInputStream(Files.newInputStream(out.toPath()))) {
+            for (ZipEntry entry = in.getNextEntry(); entry != null; entry = in.getNextEntry()) {
+                byte[] contents = in.readAllBytes();
+                switch (entry.getName()) {
+                    case "small.txt": assertBytesEqual(small, contents); break;
+                    case "text.txt": assertBytesEqual(text, contents); break;
+                    case "image.png": assertBytesEqual(image, contents); break;
+                    default: assertBytesEqual(libEntry, contents); break;
+                }
+                count++;
+            }
+        }
+        assertEquals(4, count);
+    }
+
+    public void testTooManyEntries()
+        throws Exception
+    {
+        File lib = createFile(".jar", new byte[0]);
+        try (ZipOutputStream zipOut = new ZipOutputStream(new FileOutputStream(lib))) {
+            for (int i = 0; i < 0xffff; i++) {
+                zipOut.putNextEntry(new ZipEntry("dir/" + i + ".txt"));
+            }
+        }
+
+        File out = createFile(".jar", new byte[0]);
+        ExportZipWriter writer = new ExportZipWriter(new FileOutputStream(out), executor, 2);
+        try {
+            writer.addZipContents(lib);
+            fail("Too many entries were exported");
+        }
+        catch (ZipException e) {
+            // Expected
+        }
+        finally {
+            writer.close();
+        }
+    }
+
+    public void testCompressedMedia()
+    {
+        assertTrue(ExportZipWriter.isCompressedMedia("background.PNG"));
+        assertTrue(ExportZipWriter.isCompressedMedia("sound.mp3"));
+        assertTrue(ExportZipWriter.isCompressedMedia("music.ogg"));
+        assertFalse(ExportZipWriter.isCompressedMedia("sound.wav"));
+        assertFalse(ExportZipWriter.isCompressedMedia("Crab.class"));
+    }
+}
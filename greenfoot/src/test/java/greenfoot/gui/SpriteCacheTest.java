@@ -0,0 +1,105 @@
+/*
+ This file is part of the Greenfoot program. 
+ Copyright (C) 2026  Poul Henriksen and Michael Kolling
+ 
+ This program is free software; you can redistribute it and/or 
+ modify it under the terms of the GNU General Public License 
+ as published by the Free Software Foundation; either version 2 
+ of the License, or (at your option) any later version. 
+ 
+ This program is distributed in the hope that it will be useful, 
+ but WITHOUT ANY WARRANTY; without even the implied warranty of 
+ MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the 
+ GNU General Public License for more details. 
+ 
+ You should have received a copy of the GNU General Public License 
+ along with this program; if not, write to the Free Software 
+ Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA. 
+ 
+ This file is subject to the Classpath exception as provided in the  
+ LICENSE.txt file that accompanied this code.
+ */
+package greenfoot.gui;
+
+import java.awt.image.BufferedImage;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests for the cache of rotated actor images.
+ */
+public class SpriteCacheTest extends TestCase
+{
+    public void testSharedSprite()
+    {
+        SpriteCache cache = new SpriteCache();
+        BufferedImage source = new BufferedImage(20, 10, BufferedImage.TYPE_INT_ARGB);
+        SpriteCache.Sprite sprite = cache.getSprite(source, 0, 90, false, false);
+        assertNotNull(sprite);
+        assertEquals(10, sprite.getImage().getWidth());
+        assertEquals(20, sprite.getImage().getHeight());
+        assertSame(sprite, cache.getSprite(source, 0, 90, false, false));
+        assertNotSame(sprite, cache.getSprite(source, 0, 45, false, false));
+    }
+
+    public void testModifiedImage()
+    {
+        SpriteCache cache = new SpriteCache();
+        BufferedImage source = new BufferedImage(20, 10, BufferedImage.TYPE_INT_ARGB);
+        assertNotNull(cache.getSprite(source, 0, 90, false, false));
+
+        // An image which changes between frames is not cached:
+        assertNull(cache.getSprite(source, 1, 90, false, false));
+        assertNull(cache.getSprite(source, 2, 90, false, false));
+
+        // Until it stops changing:
+        SpriteCache.Sprite sprite = cache.getSprite(source, 2, 90, false, false);
+        assertNotNull(sprite);
+        assertSame(sprite, cache.getSprite(source, 2, 90, false, false));
+    }
+
+    public void testUncachedSprite()
+    {
+        SpriteCache cache = new SpriteCache();
+        BufferedImage source = new BufferedImage(20, 10, BufferedImage.TYPE_INT_ARGB);
+        source.setRGB(0, 0, 0xff00ff00);
+        SpriteCache.Sprite cached = cache.getSprite(source, 0, 90, false, false);
+
+        // An uncached sprite is drawn just like a cached one:
+        SpriteCache.Sprite sprite = cache.getUncachedSprite(source, 0, 90, false, false);
+        BufferedImage image = sprite.getImage();
+        assertEquals(cached.getOffsetX(), sprite.getOffsetX());
+        assertEquals(cached.getOffsetY(), sprite.getOffsetY());
+        assertEquals(10, image.getWidth());
+        assertEquals(20, image.getHeight());
+        for (int y = 0; y < 20; y++) {
+            for (int x = 0; x < 10; x++) {
+                assertEquals(cached.getImage().getRGB(x, y), image.getRGB(x, y));
+            }
+        }
+        assertEquals(0xff00ff00, image.getRGB(9, 0));
+
+        // Its image is reused, and cleared, for the next image of the same size:
+        BufferedImage other = new BufferedImage(20, 10, BufferedImage.TYPE_INT_ARGB);
+        assertSame(image, cache.getUncachedSprite(other, 0, 90, false, false).getImage());
+        assertEquals(0, image.getRGB(9, 0));
+
+        // And its buffer is reused for a smaller one:
+        BufferedImage smaller = new BufferedImage(10, 10, BufferedImage.TYPE_INT_ARGB);
+        image = cache.getUncachedSprite(smaller, 0, 90, false, false).getImage();
+        assertEquals(10, image.getWidth());
+        assertEquals(10, image.getHeight());
+        assertSame(sprite, cache.getUncachedSprite(source, 0, 90, false, false));
+    }
+
+    public void testEviction()
+    {
+        // Room for a single 10x10 sprite:
+        SpriteCache cache = new SpriteCache(4 * 10 * 10);
+        BufferedImage source = new BufferedImage(10, 10, BufferedImage.TYPE_INT_ARGB);
+        SpriteCache.Sprite sprite = cache.getSprite(source, 0, 90, false, false);
+        assertSame(sprite, cache.getSprite(source, 0, 90, false, false));
+        cache.getSprite(source, 0, 180, false, false);
+        assertNotSame(sprite, cache.getSprite(source, 0, 90, false, false));
+    }
+}
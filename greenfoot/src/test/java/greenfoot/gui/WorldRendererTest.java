@@ -0,0 +1,195 @@
+/*
+ This file is part of the Greenfoot program. 
+ Copyright (C) 2026  Poul Henriksen and Michael Kolling
+ 
+ This program is free software; you can redistribute it and/or 
+ modify it under the terms of the GNU General Public License 
+ as published by the Free Software Foundation; either version 2 
+ of the License, or (at your option) any later version. 
+ 
+ This program is distributed in the hope that it will be useful, 
+ but WITHOUT ANY WARRANTY; without even the implied warranty of 
+ MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the 
+ GNU General Public License for more details. 
+ 
+ You should have received a copy of the GNU General Public License 
+ along with this program; if not, write to the Free Software 
+ Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA. 
+ 
+ This file is subject to the Classpath exception as provided in the  
+ LICENSE.txt file that accompanied this code.
+ */
+package greenfoot.gui;
+
+import greenfoot.Color;
+import greenfoot.GreenfootImage;
+import greenfoot.TestObject;
+import greenfoot.TestUtilDelegate;
+import greenfoot.World;
+import greenfoot.WorldCreator;
+import greenfoot.core.Simulation;
+import greenfoot.util.GreenfootUtil;
+
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests that incremental rendering of a world (repainting only the areas which
+ * have changed) gives the same image as rendering it from scratch.
+ */
+public class WorldRendererTest extends TestCase
+{
+    private World world;
+    private List<TestObject> actors;
+    private Random random;
+
+    @Override
+    protected void setUp()
+        throws Exception
+    {
+        GreenfootUtil.initialise(new TestUtilDelegate());
+        Simulation.initialize();
+    }
+
+    private void createWorld(int cellSize, long seed)
+    {
+        random = new Random(seed);
+        world = WorldCreator.createWorld(200 / cellSize, 150 / cellSize, cellSize);
+        world.getBackground().setColor(Color.GRAY);
+        world.getBackground().fillRect(20, 20, 60, 60);
+        actors = new ArrayList<TestObject>();
+        for (int i = 0; i < 30; i++) {
+            addActor();
+        }
+    }
+
+    private void addActor()
+    {
+        TestObject actor = new TestObject(1 + random.nextInt(25), 1 + random.nextInt(25));
+        actor.getImage().setColor(new Color(random.nextInt(256), random.nextInt(256), random.nextInt(256), 128 + random.nextInt(128)));
+        actor.getImage().fill();
+        actor.setRotation(random.nextInt(4) == 0 ? 0 : random.nextInt(360));
+        world.addObject(actor, random.nextInt(world.getWidth()), random.nextInt(world.getHeight()));
+        actors.add(actor);
+    }
+
+    /**
+     * Make some random changes to the world.
+     */
+    private void changeWorld()
+    {
+        for (int i = 0; i < 3; i++) {
+            TestObject actor = actors.get(random.nextInt(actors.size()));
+            switch (random.nextInt(8)) {
+                case 0:
+                    actor.setLocation(random.nextInt(world.getWidth()), random.nextInt(world.getHeight()));
+                    break;
+                case 1:
+                    actor.turn(random.nextInt(90));
+                    break;
+                case 2:
+                    actor.setImage(new GreenfootImage(1 + random.nextInt(25), 1 + random.nextInt(25)));
+                    actor.getImage().setColor(Color.BLUE);
+                    actor.getImage().fillOval(0, 0, actor.getImage().getWidth(), actor.getImage().getHeight());
+                    break;
+                case 3:
+                    actor.getImage().setColor(Color.RED);
+                    actor.getImage().drawLine(0, 0, actor.getImage().getWidth(), actor.getImage().getHeight());
+                    break;
+                case 4:
+                    actor.getImage().setTransparency(random.nextInt(256));
+                    break;
+                case 5:
+                    if (actor.getWorld() != null) {
+                        world.removeObject(actor);
+                    }
+                    else {
+                        world.addObject(actor, random.nextInt(world.getWidth()), random.nextInt(world.getHeight()));
+                    }
+                    break;
+                case 6:
+                    world.showText(random.nextBoolean() ? "Score: " + random.nextInt(100) : null, 2, 2);
+                    break;
+                default:
+                    addActor();
+                    break;
+            }
+        }
+    }
+
+    /**
+     * Render the world from scratch, and check that the given image is the same.
+     */
+    private void checkSameAsFullRender(BufferedImage image)
+    {
+        BufferedImage full = new BufferedImage(image.getWidth(), image.getHeight(), BufferedImage.TYPE_INT_ARGB);
+        new WorldRenderer().renderWorld(world, full);
+        for (int y = 0; y < image.getHeight(); y++) {
+            for (int x = 0; x < image.getWidth(); x++) {
+                if (image.getRGB(x, y) != full.getRGB(x, y)) {
+                    fail("Pixel differs at " + x + "," + y);
+                }
+            }
+        }
+    }
+
+    private void checkIncrementalRendering(int cellSize, long seed, int imageCount)
+    {
+        createWorld(cellSize, seed);
+        WorldRenderer renderer = new WorldRenderer();
+        BufferedImage[] images = new BufferedImage[imageCount];
+        for (int i = 0; i < imageCount; i++) {
+            images[i] = new BufferedImage(world.getWidth() * cellSize, world.getHeight() * cellSize, BufferedImage.TYPE_INT_ARGB);
+        }
+
+        for (int frame = 0; frame < 50; frame++) {
+            changeWorld();
+            // Cycle through the images, as the VM comms does:
+            BufferedImage image = images[frame % imageCount];
+            renderer.renderWorld(world, image);
+            checkSameAsFullRender(image);
+        }
+    }
+
+    public void testSingleImage()
+    {
+        checkIncrementalRendering(1, 1, 1);
+    }
+
+    public void testImagePool()
+    {
+        checkIncrementalRendering(1, 2, 3);
+    }
+
+    public void testCellWorld()
+    {
+        checkIncrementalRendering(10, 3, 2);
+    }
+
+    public void testFrameDamage()
+    {
+        createWorld(1, 4);
+        WorldRenderer renderer = new WorldRenderer();
+        BufferedImage image = new BufferedImage(200, 150, BufferedImage.TYPE_INT_ARGB);
+        renderer.renderWorld(world, image);
+        assertTrue(renderer.getFrameDamage().isFull());
+
+        // Nothing has changed:
+        renderer.renderWorld(world, image);
+        assertTrue(renderer.getFrameDamage().isEmpty());
+
+        TestObject actor = actors.get(0);
+        actor.setLocation(actor.getX() == 100 ? 50 : 100, 100);
+        renderer.renderWorld(world, image);
+        assertFalse(renderer.getFrameDamage().isFull());
+        assertFalse(renderer.getFrameDamage().isEmpty());
+
+        world.getBackground().fill();
+        renderer.renderWorld(world, image);
+        assertTrue(renderer.getFrameDamage().isFull());
+    }
+}
@@ -0,0 +1,167 @@
+/*
+ This file is part of the Greenfoot program. 
+ Copyright (C) 2026  Poul Henriksen and Michael Kolling
+ 
+ This program is free software; you can redistribute it and/or 
+ modify it under the terms of the GNU General Public License 
+ as published by the Free Software Foundation; either version 2 
+ of the License, or (at your option) any later version. 
+ 
+ This program is distributed in the hope that it will be useful, 
+ but WITHOUT ANY WARRANTY; without even the implied warranty of 
+ MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the 
+ GNU General Public License for more details. 
+ 
+ You should have received a copy of the GNU General Public License 
+ along with this program; if not, write to the Free Software 
+ Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA. 
+ 
+ This file is subject to the Classpath exception as provided in the  
+ LICENSE.txt file that accompanied this code.
+ */
+package greenfoot.guifx.images;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import javafx.scene.image.Image;
+import javax.imageio.ImageIO;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests for the cache of image library thumbnails.
+ */
+public class ThumbnailCacheTest extends TestCase
+{
+    private File dir;
+    private File cacheDir;
+    private ThumbnailCache cache;
+
+    @Override
+    protected void setUp()
+        throws Exception
+    {
+        dir = Files.createTempDirectory("thumbtest").toFile();
+        cacheDir = new File(dir, "thumbnails");
+        cache = new ThumbnailCache(cacheDir);
+    }
+
+    @Override
+    protected void tearDown()
+        throws Exception
+    {
+        deleteAll(dir);
+    }
+
+    private static void deleteAll(File file)
+    {
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                deleteAll(child);
+            }
+        }
+        file.delete();
+    }
+
+    private File writeImage(String name, int width, int height)
+        throws IOException
+    {
+        File file = new File(dir, name);
+        ImageIO.write(new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB), "png", file);
+        return file;
+    }
+
+    public void testHash()
+        throws IOException
+    {
+        File a = writeImage("a.png", 10, 10);
+        File b = writeImage("b.png", 10, 10);
+        File c = writeImage("c.png", 20, 10);
+
+        // The hash depends on the contents, not the name:
+        assertEquals(cache.getHash(a), cache.getHash(b));
+        assertFalse(cache.getHash(a).equals(cache.getHash(c)));
+
+        // A changed file gets a new hash:
+        String oldHash = cache.getHash(a);
+        writeImage("a.png", 30, 10);
+        a.setLastModified(a.lastModified() + 2000);
+        assertFalse(oldHash.equals(cache.getHash(a)));
+        assertEquals(cache.getHash(a), new ThumbnailCache(cacheDir).getHash(a));
+    }
+
+    public void testThumbnailWritten()
+        throws IOException
+    {
+        File file = writeImage("big.png", 200, 100);
+        Image thumbnail = cache.getThumbnail(file, 50);
+        assertNotNull(thumbnail);
+        assertEquals(50.0, thumbnail.getWidth());
+        assertEquals(25.0, thumbnail.getHeight());
+
+        // Only the finished thumbnail is left, not the temporary file it was written to:
+        String[] cached = cacheDir.list();
+        assertEquals(Arrays.asList(cache.getHash(file) + "-50.png"), Arrays.asList(cached));
+
+        // Small images are not scaled up:
+        File small = writeImage("small.png", 20, 10);
+        assertEquals(20.0, cache.getThumbnail(small, 50).getWidth());
+    }
+
+    public void testCacheHit()
+        throws IOException
+    {
+        File file = writeImage("image.png", 200, 100);
+        File cacheFile = new File(cacheDir, cache.getHash(file) + "-50.png");
+        cacheDir.mkdirs();
+        // A different image in the cache shows that the cache was used:
+        ImageIO.write(new BufferedImage(7, 3, BufferedImage.TYPE_INT_ARGB), "png", cacheFile);
+        cacheFile.setLastModified(0);
+
+        Image thumbnail = cache.getThumbnail(file, 50);
+        assertEquals(7.0, thumbnail.getWidth());
+        // Using it marks it as recently used:
+        assertTrue(cacheFile.lastModified() > 0);
+
+        // A copy of the file uses the same thumbnail:
+        File copy = new File(dir, "copy.png");
+        Files.copy(file.toPath(), copy.toPath());
+        assertEquals(7.0, cache.getThumbnail(copy, 50).getWidth());
+    }
+
+    public void testPrune()
+        throws IOException
+    {
+        cacheDir.mkdirs();
+        long now = System.currentTimeMillis();
+        File[] files = new File[5];
+        for (int i = 0; i < files.length; i++) {
+            files[i] = new File(cacheDir, "thumb" + i + ".png");
+            Files.write(files[i].toPath(), new byte[100]);
+            // Each is a day older than the last:
+            files[i].setLastModified(now - TimeUnit.DAYS.toMillis(i));
+        }
+
+        // Nothing is too old or too big:
+        cache.prune(1000, TimeUnit.DAYS.toMillis(10));
+        assertEquals(5, cacheDir.list().length);
+
+        // Remove those over two and a half days old:
+        cache.prune(1000, TimeUnit.HOURS.toMillis(60));
+        assertTrue(files[2].exists());
+        assertFalse(files[3].exists());
+        assertFalse(files[4].exists());
+
+        // Keep the two most recently used:
+        cache.prune(250, TimeUnit.DAYS.toMillis(10));
+        assertTrue(files[0].exists());
+        assertTrue(files[1].exists());
+        assertFalse(files[2].exists());
+    }
+}
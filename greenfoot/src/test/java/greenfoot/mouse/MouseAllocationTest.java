@@ -0,0 +1,191 @@
+/*
+ This file is part of the Greenfoot program. 
+ Copyright (C) 2026  Poul Henriksen and Michael Kolling
+ 
+ This program is free software; you can redistribute it and/or 
+ modify it under the terms of the GNU General Public License 
+ as published by the Free Software Foundation; either version 2 
+ of the License, or (at your option) any later version. 
+ 
+ This program is distributed in the hope that it will be useful, 
+ but WITHOUT ANY WARRANTY; without even the implied warranty of 
+ MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the 
+ GNU General Public License for more details. 
+ 
+ You should have received a copy of the GNU General Public License 
+ along with this program; if not, write to the Free Software 
+ Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA. 
+ 
+ This file is subject to the Classpath exception as provided in the  
+ LICENSE.txt file that accompanied this code.
+ */
+package greenfoot.mouse;
+
+import greenfoot.Actor;
+import greenfoot.MouseInfo;
+import greenfoot.TestObject;
+import greenfoot.gui.input.mouse.MousePollingManager;
+import greenfoot.gui.input.mouse.WorldLocator;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+import javafx.scene.input.MouseButton;
+import junit.framework.TestCase;
+
+/**
+ * Tests that collecting and polling mouse events does not create any objects
+ * (and so does not cause garbage collection). Getting the mouse info only
+ * creates an object when the info has changed, since the user may keep it.
+ */
+public class MouseAllocationTest extends TestCase
+{
+    private MousePollingManager mouseMan;
+    private Actor actor;
+    // Use the results, so that the polling can't be optimised away:
+    private int total;
+
+    @Override
+    protected void setUp()
+    {
+        actor = new TestObject(10, 10);
+        // A locator which doesn't allocate, unlike a real world:
+        mouseMan = new MousePollingManager(new WorldLocator() {
+            public Actor getTopMostActorAt(int x, int y)
+            {
+                return x < 50 ? actor : null;
+            }
+
+            public int getTranslatedX(int x)
+            {
+                return x;
+            }
+
+            public int getTranslatedY(int y)
+            {
+                return y;
+            }
+        });
+    }
+
+    /**
+     * Run some frames of mouse events, polling the mouse each frame as a scenario would.
+     * 
+     * @param getInfo  Whether to get the mouse info as well
+     */
+    private void runFrames(int frames, boolean getInfo)
+    {
+        for (int f = 0; f < frames; f++) {
+            int x = f % 100;
+            switch (f % 4) {
+                case 0:
+                    for (int i = 0; i < 20; i++) {
+                        mouseMan.mouseMoved(x + i, 10);
+                    }
+                    break;
+                case 1:
+                    mouseMan.mousePressed(x, 10, MouseButton.PRIMARY);
+                    mouseMan.mouseDragged(x + 5, 10, MouseButton.PRIMARY);
+                    break;
+                case 2:
+                    mouseMan.mouseReleased(x + 5, 10, MouseButton.PRIMARY);
+                    mouseMan.mouseClicked(x + 5, 10, MouseButton.PRIMARY, 1);
+                    break;
+                default:
+                    // No events this frame
+                    break;
+            }
+            mouseMan.newActStarted();
+
+            if (getInfo) {
+                MouseInfo info = mouseMan.getMouseInfo();
+                if (info != null) {
+                    total += info.getX() + info.getButton();
+                }
+            }
+            if (mouseMan.isMouseClicked(actor) || mouseMan.isMouseDragEnded(null)
+                    || mouseMan.isMouseMoved(null)) {
+                total++;
+            }
+        }
+    }
+
+    /**
+     * Get the bean for measuring the memory allocated by a thread, or null if
+     * it is not supported.
+     */
+    private static com.sun.management.ThreadMXBean getThreadBean()
+    {
+        ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (! (bean instanceof com.sun.management.ThreadMXBean)) {
+            return null;
+        }
+        com.sun.management.ThreadMXBean threadBean = (com.sun.management.ThreadMXBean) bean;
+        if (! threadBean.isThreadAllocatedMemorySupported()) {
+            return null;
+        }
+        threadBean.setThreadAllocatedMemoryEnabled(true);
+        return threadBean;
+    }
+
+    public void testPolling()
+    {
+        com.sun.management.ThreadMXBean threadBean = getThreadBean();
+        if (threadBean == null) {
+            return;
+        }
+        long threadId = Thread.currentThread().getId();
+
+        runFrames(1000, false);
+        threadBean.getThreadAllocatedBytes(threadId);
+
+        // The code may still be being compiled (and interpreted code allocates
+        // objects which compiled code doesn't), so allow a few attempts to reach
+        // a steady state:
+        long allocated = 0;
+        for (int attempt = 0; attempt < 5; attempt++) {
+            long before = threadBean.getThreadAllocatedBytes(threadId);
+            runFrames(1000, false);
+            allocated = threadBean.getThreadAllocatedBytes(threadId) - before;
+            if (allocated == 0) {
+                break;
+            }
+        }
+        assertEquals("Bytes allocated while polling the mouse", 0L, allocated);
+        assertTrue(total > 0);
+    }
+
+    public void testUnchangedMouseInfo()
+    {
+        com.sun.management.ThreadMXBean threadBean = getThreadBean();
+        if (threadBean == null) {
+            return;
+        }
+        long threadId = Thread.currentThread().getId();
+
+        runFrames(1000, true);
+        mouseMan.newActStarted();
+        MouseInfo info = mouseMan.getMouseInfo();
+        threadBean.getThreadAllocatedBytes(threadId);
+
+        // With no new events, the same info is returned each frame (with a few
+        // attempts at measuring the allocation, as in testPolling):
+        int changes = 0;
+        long allocated = 0;
+        for (int attempt = 0; attempt < 5; attempt++) {
+            long before = threadBean.getThreadAllocatedBytes(threadId);
+            for (int f = 0; f < 1000; f++) {
+                mouseMan.newActStarted();
+                if (mouseMan.getMouseInfo() != info) {
+                    changes++;
+                }
+            }
+            allocated = threadBean.getThreadAllocatedBytes(threadId) - before;
+            if (allocated == 0) {
+                break;
+            }
+        }
+        assertEquals("Bytes allocated while polling the mouse", 0L, allocated);
+        assertEquals(0, changes);
+    }
+}
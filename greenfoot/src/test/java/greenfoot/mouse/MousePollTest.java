@@ -805,4 +805,38 @@ public class MousePollTest extends TestCase
         assertFalse(mouseMan.isMouseClicked(actorAtClick));    
         assertFalse(mouseMan.isMousePressed(actorAtClick)); 
     }
+    
+    /**
+     * Test that a MouseInfo which has been returned does not change in later
+     * act rounds, even though the manager re-uses its own objects.
+     */
+    public void testKeptMouseInfoUnchanged()
+    {
+        MouseEvent event = new MouseEvent(panel, MouseEvent.MOUSE_PRESSED,  System.currentTimeMillis(), 0, 5, 5, 1, false, MouseEvent.BUTTON1);
+        dispatch(event);
+        mouseMan.newActStarted();
+        MouseInfo pressInfo = mouseMan.getMouseInfo();
+        assertSame(pressInfo, mouseMan.getMouseInfo());
+        assertEquals(1, pressInfo.getButton());
+        assertSame(actorAtClick, pressInfo.getActor());
+        
+        // Enough rounds of events for every internal object to have been re-used:
+        for (int i = 0; i < 5; i++)
+        {
+            event = new MouseEvent(panel, MouseEvent.MOUSE_RELEASED,  System.currentTimeMillis(), 0, 50, 50, 1, false, MouseEvent.BUTTON1);
+            dispatch(event);
+            event = new MouseEvent(panel, MouseEvent.MOUSE_PRESSED,  System.currentTimeMillis(), 0, 60 + i, 60, 1, false, MouseEvent.BUTTON3);
+            dispatch(event);
+            mouseMan.newActStarted();
+            assertEquals(3, mouseMan.getMouseInfo().getButton());
+            assertEquals(60 + i, mouseMan.getMouseInfo().getX());
+            mouseMan.newActStarted();
+            assertEquals(0, mouseMan.getMouseInfo().getButton());
+        }
+        
+        assertEquals(1, pressInfo.getButton());
+        assertEquals(5, pressInfo.getX());
+        assertEquals(5, pressInfo.getY());
+        assertSame(actorAtClick, pressInfo.getActor());
+    }
 }
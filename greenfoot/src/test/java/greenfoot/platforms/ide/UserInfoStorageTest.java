@@ -0,0 +1,207 @@
+/*
+ This file is part of the Greenfoot program. 
+ Copyright (C) 2026  Poul Henriksen and Michael Kolling
+ 
+ This program is free software; you can redistribute it and/or 
+ modify it under the terms of the GNU General Public License 
+ as published by the Free Software Foundation; either version 2 
+ of the License, or (at your option) any later version. 
+ 
+ This program is distributed in the hope that it will be useful, 
+ but WITHOUT ANY WARRANTY; without even the implied warranty of 
+ MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the 
+ GNU General Public License for more details. 
+ 
+ You should have received a copy of the GNU General Public License 
+ along with this program; if not, write to the Free Software 
+ Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA. 
+ 
+ This file is subject to the Classpath exception as provided in the  
+ LICENSE.txt file that accompanied this code.
+ */
+package greenfoot.platforms.ide;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.List;
+
+import au.com.bytecode.opencsv.CSVReader;
+import au.com.bytecode.opencsv.CSVWriter;
+import junit.framework.TestCase;
+
+/**
+ * Tests for the local UserInfo storage.
+ */
+public class UserInfoStorageTest extends TestCase
+{
+    private File dir;
+    private File storageFile;
+
+    @Override
+    protected void setUp()
+        throws Exception
+    {
+        dir = Files.createTempDirectory("greenfoot").toFile();
+        storageFile = new File(dir, "storage.csv");
+    }
+
+    @Override
+    protected void tearDown()
+        throws Exception
+    {
+        for (File file : dir.listFiles()) {
+            file.delete();
+        }
+        dir.delete();
+    }
+
+    private static String[] row(String userName, int score)
+    {
+        return new String[] {userName, Integer.toString(score), "0", "x"};
+    }
+
+    private static String names(List<String[]> rows)
+    {
+        StringBuilder names = new StringBuilder();
+        for (String[] row : rows) {
+            names.append(row[0]).append(' ');
+        }
+        return names.toString().trim();
+    }
+
+    private List<String[]> readCsv() throws Exception
+    {
+        CSVReader csv = new CSVReader(new InputStreamReader(new FileInputStream(storageFile), "UTF-8"));
+        try {
+            return csv.readAll();
+        }
+        finally {
+            csv.close();
+        }
+    }
+
+    public void testRanking()
+        throws Exception
+    {
+        UserInfoStorage storage = new UserInfoStorage(storageFile);
+        storage.store("a", row("a", 10));
+        storage.store("b", row("b", 30));
+        storage.store("c", row("c", 20));
+        storage.store("d", row("d", 20));
+        assertEquals("b c d a", names(storage.getRows(0, storage.size())));
+        assertEquals(2, storage.indexOf("d"));
+        assertEquals(-1, storage.indexOf("e"));
+
+        // Changing a score moves the user; a tie goes after the existing users:
+        storage.store("b", row("b", 20));
+        assertEquals("c d b a", names(storage.getRows(0, 4)));
+        assertEquals("d b", names(storage.getRows(1, 3)));
+
+        storage.store("c", null);
+        assertEquals(3, storage.size());
+        assertEquals(-1, storage.indexOf("c"));
+        assertEquals(0, storage.indexOf("d"));
+    }
+
+    public void testJournal()
+        throws Exception
+    {
+        UserInfoStorage storage = new UserInfoStorage(storageFile);
+        storage.store("a", row("a", 10));
+        storage.store("b", row("b", 30));
+        storage.store("a", row("a", 40));
+        storage.store("b", null);
+
+        // A new storage (as in a new VM) reads the journal, even if it has not been merged:
+        UserInfoStorage reloaded = new UserInfoStorage(storageFile);
+        assertEquals("a", names(reloaded.getRows(0, reloaded.size())));
+        assertEquals("40", reloaded.getRows(0, 1).get(0)[1]);
+
+        storage.merge();
+        assertFalse(new File(dir, "storage.csv.journal").exists());
+        List<String[]> rows = readCsv();
+        assertEquals(1, rows.size());
+        assertTrue(Arrays.equals(row("a", 40), rows.get(0)));
+    }
+
+    public void testExistingFile()
+        throws Exception
+    {
+        CSVWriter csvOut = new CSVWriter(new OutputStreamWriter(new FileOutputStream(storageFile), "UTF-8"));
+        csvOut.writeAll(Arrays.asList(row("a", 5), row("b", 50), row("c", 25)));
+        csvOut.close();
+
+        UserInfoStorage storage = new UserInfoStorage(storageFile);
+        assertEquals("b c a", names(storage.getRows(0, 3)));
+
+        storage.store("d", row("d", 1));
+        storage.merge();
+        assertEquals("a b c d", names(readCsv()));
+    }
+
+    public void testExternalEdit()
+        throws Exception
+    {
+        UserInfoStorage storage = new UserInfoStorage(storageFile);
+        storage.store("a", row("a", 10));
+        storage.merge();
+        assertEquals("a", names(storage.getRows(0, storage.size())));
+
+        // The file is edited outside Greenfoot, and then a change is made in the journal:
+        CSVWriter csvOut = new CSVWriter(new OutputStreamWriter(new FileOutputStream(storageFile), "UTF-8"));
+        csvOut.writeAll(Arrays.asList(row("a", 10), row("b", 50)));
+        csvOut.close();
+        storageFile.setLastModified(storageFile.lastModified() + 2000);
+        assertEquals("b a", names(storage.getRows(0, storage.size())));
+
+        storage.store("c", row("c", 30));
+        storage.merge();
+        assertEquals("a b c", names(readCsv()));
+    }
+
+    public void testUnfinishedMerge()
+        throws Exception
+    {
+        // A merge which did not finish leaves its journal moved aside:
+        File merging = new File(dir, "storage.csv.journal.merging");
+        CSVWriter csvOut = new CSVWriter(new OutputStreamWriter(new FileOutputStream(merging), "UTF-8"));
+        csvOut.writeNext(row("a", 10));
+        csvOut.close();
+
+        UserInfoStorage storage = new UserInfoStorage(storageFile);
+        assertEquals("a", names(storage.getRows(0, storage.size())));
+        storage.store("b", row("b", 20));
+        storage.merge();
+        assertEquals("a b", names(readCsv()));
+        assertFalse(merging.exists());
+
+        // The later journal is kept, and merged next time:
+        assertTrue(new File(dir, "storage.csv.journal").exists());
+        storage.store("c", row("c", 5));
+        storage.merge();
+        assertEquals("a b c", names(readCsv()));
+        assertFalse(new File(dir, "storage.csv.journal").exists());
+        assertFalse(merging.exists());
+    }
+
+    public void testBackgroundMerge()
+        throws Exception
+    {
+        UserInfoStorage storage = new UserInfoStorage(storageFile);
+        for (int i = 0; i < 100; i++) {
+            storage.store("user" + i, row("user" + i, i));
+        }
+
+        // The journal is merged straight away once it is large:
+        long end = System.currentTimeMillis() + 5000;
+        while (new File(dir, "storage.csv.journal").exists() && System.currentTimeMillis() < end) {
+            Thread.sleep(10);
+        }
+        assertEquals(100, readCsv().size());
+    }
+}
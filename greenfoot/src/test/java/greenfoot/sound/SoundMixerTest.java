@@ -0,0 +1,298 @@
+/*
+ This file is part of the Greenfoot program. 
+ Copyright (C) 2026  Poul Henriksen and Michael Kolling
+ 
+ This program is free software; you can redistribute it and/or 
+ modify it under the terms of the GNU General Public License 
+ as published by the Free Software Foundation; either version 2 
+ of the License, or (at your option) any later version. 
+ 
+ This program is distributed in the hope that it will be useful, 
+ but WITHOUT ANY WARRANTY; without even the implied warranty of 
+ MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the 
+ GNU General Public License for more details. 
+ 
+ You should have received a copy of the GNU General Public License 
+ along with this program; if not, write to the Free Software 
+ Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA. 
+ 
+ This file is subject to the Classpath exception as provided in the  
+ LICENSE.txt file that accompanied this code.
+ */
+package greenfoot.sound;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.sound.sampled.AudioFileFormat;
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioInputStream;
+import javax.sound.sampled.AudioSystem;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests for the SoundMixer and MixedSound, using outputs which don't need a
+ * sound card.
+ */
+public class SoundMixerTest extends TestCase
+{
+    private List<File> files = new ArrayList<File>();
+    private RecordingListener listener;
+    private PcmCache pcmCache;
+
+    /**
+     * A listener which records the stopped events.
+     */
+    private static class RecordingListener implements SoundPlaybackListener
+    {
+        private List<Sound> stopped = new ArrayList<Sound>();
+
+        public synchronized void playbackStarted(Sound sound) { }
+        public synchronized void playbackPaused(Sound sound) { }
+        public synchronized void playbackStopped(Sound sound) { stopped.add(sound); }
+        public synchronized void soundClosed(Sound sound) { }
+
+        synchronized boolean wasStopped(Sound sound)
+        {
+            return stopped.contains(sound);
+        }
+    }
+
+    /**
+     * An output which records everything written to it.
+     */
+    private static class RecordingOutput implements MixerOutput
+    {
+        private ByteArrayOutputStream written = new ByteArrayOutputStream();
+        private boolean open;
+
+        public synchronized void open(AudioFormat format) { open = true; }
+        public synchronized void write(byte[] b, int off, int len) { written.write(b, off, len); }
+        public synchronized void close() { open = false; }
+
+        synchronized byte[] getWritten()
+        {
+            return written.toByteArray();
+        }
+    }
+
+    @Override
+    protected void setUp()
+        throws Exception
+    {
+        listener = new RecordingListener();
+        pcmCache = new PcmCache();
+    }
+
+    @Override
+    protected void tearDown()
+        throws Exception
+    {
+        for (File file : files) {
+            file.delete();
+        }
+    }
+
+    /**
+     * Write a mono 16-bit wav file where every sample has the given value.
+     */
+    private URL createWav(int frames, float sampleRate, short value)
+        throws IOException
+    {
+        AudioFormat format = new AudioFormat(sampleRate, 16, 1, true, false);
+        byte[] data = new byte[frames * 2];
+        for (int i = 0; i < frames; i++) {
+            data[i * 2] = (byte) value;
+            data[i * 2 + 1] = (byte) (value >> 8);
+        }
+        File file = File.createTempFile("greenfoot", ".wav");
+        files.add(file);
+        AudioInputStream stream = new AudioInputStream(new ByteArrayInputStream(data), format, frames);
+        AudioSystem.write(stream, AudioFileFormat.Type.WAVE, file);
+        return file.toURI().toURL();
+    }
+
+    private static short getSample(byte[] buffer, int frame, int channel)
+    {
+        int index = (frame * 2 + channel) * 2;
+        return (short) ((buffer[index + 1] << 8) | (buffer[index] & 0xff));
+    }
+
+    private static byte[] createBuffer()
+    {
+        return new byte[SoundMixer.BLOCK_FRAMES * SoundMixer.OUTPUT_FORMAT.getFrameSize()];
+    }
+
+    public void testMixing()
+        throws Exception
+    {
+        SoundMixer mixer = new SoundMixer(new RecordingOutput(), false);
+        URL url = createWav(2000, 44100f, (short) 1000);
+        MixedSound a = new MixedSound(url, false, mixer, pcmCache, listener);
+        MixedSound b = new MixedSound(url, false, mixer, pcmCache, listener);
+        byte[] buffer = createBuffer();
+
+        a.play();
+        mixer.mixBlock(buffer);
+        assertEquals(1000, getSample(buffer, 0, 0));
+        assertEquals(1000, getSample(buffer, 100, 1));
+
+        // Both sounds share the decoded data, and are added together:
+        b.play();
+        mixer.mixBlock(buffer);
+        assertEquals(2000, getSample(buffer, 0, 0));
+        assertEquals(2000, getSample(buffer, 100, 1));
+
+        b.setPan(100);
+        mixer.mixBlock(buffer);
+        assertEquals(1000, getSample(buffer, 0, 0));
+        assertEquals(2000, getSample(buffer, 0, 1));
+
+        b.setVolume(0);
+        a.setPan(-50);
+        mixer.mixBlock(buffer);
+        assertEquals(1000, getSample(buffer, 0, 0));
+        assertEquals(500, getSample(buffer, 0, 1));
+    }
+
+    public void testFinish()
+        throws Exception
+    {
+        SoundMixer mixer = new SoundMixer(new RecordingOutput(), false);
+        MixedSound sound = new MixedSound(createWav(600, 44100f, (short) 1000), false, mixer, pcmCache, listener);
+        byte[] buffer = createBuffer();
+
+        sound.play();
+        assertTrue(sound.isPlaying());
+        mixer.mixBlock(buffer);
+        assertTrue(sound.isPlaying());
+        mixer.mixBlock(buffer);
+        assertEquals(1000, getSample(buffer, 600 - SoundMixer.BLOCK_FRAMES - 1, 0));
+        assertEquals(0, getSample(buffer, 600 - SoundMixer.BLOCK_FRAMES, 0));
+        assertTrue(sound.isStopped());
+        assertTrue(listener.wasStopped(sound));
+        assertEquals(0, mixer.getNumberVoices());
+    }
+
+    public void testLoopAndPause()
+        throws Exception
+    {
+        SoundMixer mixer = new SoundMixer(new RecordingOutput(), false);
+        MixedSound sound = new MixedSound(createWav(100, 44100f, (short) 1000), false, mixer, pcmCache, listener);
+        byte[] buffer = createBuffer();
+
+        sound.loop();
+        mixer.mixBlock(buffer);
+        mixer.mixBlock(buffer);
+        assertTrue(sound.isPlaying());
+        assertEquals(1000, getSample(buffer, SoundMixer.BLOCK_FRAMES - 1, 0));
+
+        sound.pause();
+        assertTrue(sound.isPaused());
+        mixer.mixBlock(buffer);
+        assertEquals(0, getSample(buffer, 0, 0));
+
+        // Playing once finishes the current loop:
+        sound.play();
+        mixer.mixBlock(buffer);
+        assertTrue(sound.isStopped());
+    }
+
+    public void testResampling()
+        throws Exception
+    {
+        SoundMixer mixer = new SoundMixer(new RecordingOutput(), false);
+        // Half the output rate, so the sound takes twice as long:
+        MixedSound sound = new MixedSound(createWav(300, 22050f, (short) 1000), false, mixer, pcmCache, listener);
+        byte[] buffer = createBuffer();
+
+        sound.play();
+        mixer.mixBlock(buffer);
+        assertTrue(sound.isPlaying());
+        assertEquals(1000, getSample(buffer, 300, 0));
+        mixer.mixBlock(buffer);
+        assertTrue(sound.isStopped());
+    }
+
+    public void testVoiceStealing()
+        throws Exception
+    {
+        SoundMixer mixer = new SoundMixer(new RecordingOutput(), false);
+        URL url = createWav(44100, 44100f, (short) 10);
+        byte[] buffer = createBuffer();
+
+        MixedSound looping = new MixedSound(url, false, mixer, pcmCache, listener);
+        looping.loop();
+        mixer.mixBlock(buffer);
+        MixedSound[] sounds = new MixedSound[SoundMixer.MAX_VOICES];
+        for (int i = 0; i < sounds.length; i++) {
+            sounds[i] = new MixedSound(url, false, mixer, pcmCache, listener);
+            sounds[i].play();
+            mixer.mixBlock(buffer);
+        }
+
+        // The oldest sound which is not looping is stopped to make room:
+        assertEquals(SoundMixer.MAX_VOICES, mixer.getNumberVoices());
+        assertTrue(looping.isPlaying());
+        assertTrue(sounds[0].isStopped());
+        assertTrue(listener.wasStopped(sounds[0]));
+        for (int i = 1; i < sounds.length; i++) {
+            assertTrue(sounds[i].isPlaying());
+        }
+    }
+
+    public void testCacheLimit()
+        throws Exception
+    {
+        // Each sound needs 2000 bytes:
+        PcmCache cache = new PcmCache(5000);
+        URL a = createWav(1000, 44100f, (short) 1);
+        URL b = createWav(1000, 44100f, (short) 2);
+        URL c = createWav(1000, 44100f, (short) 3);
+
+        PcmData dataA = cache.getPcmData(a, false);
+        assertSame(dataA, cache.getPcmData(a, false));
+        cache.getPcmData(b, false);
+        cache.getPcmData(a, false);
+        cache.getPcmData(c, false);
+
+        // b was the least recently used:
+        assertTrue(cache.isCached(a));
+        assertFalse(cache.isCached(b));
+        assertTrue(cache.isCached(c));
+        assertEquals(4000, cache.getCachedBytes());
+
+        // Too big to be cached at all:
+        URL big = createWav(3000, 44100f, (short) 4);
+        assertEquals(3000, cache.getPcmData(big, false).getFrameLength());
+        assertFalse(cache.isCached(big));
+        assertEquals(4000, cache.getCachedBytes());
+    }
+
+    public void testMixerThread()
+        throws Exception
+    {
+        RecordingOutput output = new RecordingOutput();
+        SoundMixer mixer = new SoundMixer(output);
+        MixedSound sound = new MixedSound(createWav(2000, 44100f, (short) 1000), false, mixer, pcmCache, listener);
+
+        sound.play();
+        long end = System.currentTimeMillis() + 5000;
+        while (!sound.isStopped() && System.currentTimeMillis() < end) {
+            Thread.sleep(10);
+        }
+        assertTrue(sound.isStopped());
+        assertTrue(listener.wasStopped(sound));
+
+        byte[] written = output.getWritten();
+        assertTrue(written.length >= 2000 * SoundMixer.OUTPUT_FORMAT.getFrameSize());
+        assertEquals(1000, getSample(written, 0, 0));
+        assertEquals(1000, getSample(written, 1999, 1));
+    }
+}
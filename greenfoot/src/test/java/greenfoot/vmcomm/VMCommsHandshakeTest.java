@@ -0,0 +1,144 @@
+/*
+ This file is part of the Greenfoot program. 
+ Copyright (C) 2026  Poul Henriksen and Michael Kolling
+ 
+ This program is free software; you can redistribute it and/or 
+ modify it under the terms of the GNU General Public License 
+ as published by the Free Software Foundation; either version 2 
+ of the License, or (at your option) any later version. 
+ 
+ This program is distributed in the hope that it will be useful, 
+ but WITHOUT ANY WARRANTY; without even the implied warranty of 
+ MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the 
+ GNU General Public License for more details. 
+ 
+ You should have received a copy of the GNU General Public License 
+ along with this program; if not, write to the Free Software 
+ Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA. 
+ 
+ This file is subject to the Classpath exception as provided in the  
+ LICENSE.txt file that accompanied this code.
+ */
+package greenfoot.vmcomm;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicReference;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests for the lock-free handshake between the server VM and the debug VM, with
+ * the two sides on two threads sharing an ordinary buffer.
+ */
+public class VMCommsHandshakeTest extends TestCase
+{
+    // Positions (in ints) of a value in each VM's area:
+    private static final int SERVER_VALUE_POS = 0;
+    private static final int DEBUG_VALUE_POS = VMCommsMain.USER_AREA_OFFSET;
+
+    private ByteBuffer sharedMemory;
+
+    @Override
+    protected void setUp()
+    {
+        sharedMemory = ByteBuffer.allocate((VMCommsMain.USER_AREA_OFFSET + 16) * 4);
+    }
+
+    public void testChoose()
+    {
+        VMCommsHandshake handshake = VMCommsHandshake.choose(sharedMemory, false);
+        assertNotNull(handshake);
+        assertEquals(VMCommsHandshake.MODE_LOCK_FREE, VMCommsHandshake.getMode(sharedMemory));
+
+        // The project may ask for the file locks, in which case there is no handshake:
+        assertNull(VMCommsHandshake.choose(sharedMemory, true));
+        assertEquals(VMCommsHandshake.MODE_FILE_LOCKS, VMCommsHandshake.getMode(sharedMemory));
+    }
+
+    public void testExchange() throws InterruptedException
+    {
+        VMCommsHandshake handshake = VMCommsHandshake.choose(sharedMemory, false);
+        int exchanges = 2000;
+        AtomicReference<String> problem = new AtomicReference<>();
+
+        Thread debugVM = new Thread(() -> {
+            int lastSeq = 0;
+            try {
+                while (lastSeq < exchanges) {
+                    int seq = handshake.awaitServerSeq(lastSeq);
+                    if (seq != lastSeq + 1) {
+                        problem.compareAndSet(null, "Sequence " + seq + " after " + lastSeq);
+                    }
+                    if (sharedMemory.getInt(SERVER_VALUE_POS * 4) != seq * 3) {
+                        problem.compareAndSet(null, "Server area not written for " + seq);
+                    }
+                    sharedMemory.putInt(DEBUG_VALUE_POS * 4, seq * 5);
+                    handshake.publishDebugSeq(seq);
+                    lastSeq = seq;
+                }
+            }
+            catch (InterruptedException e) {
+                problem.compareAndSet(null, "Interrupted");
+            }
+        });
+        debugVM.start();
+
+        // The server VM, which only exchanges data once the debug VM has responded:
+        int serverSeq = 0;
+        long deadline = System.currentTimeMillis() + 60000;
+        while (serverSeq < exchanges && problem.get() == null && System.currentTimeMillis() < deadline) {
+            if (handshake.getDebugSeq() != serverSeq) {
+                Thread.onSpinWait();
+                continue;
+            }
+            if (serverSeq != 0 && sharedMemory.getInt(DEBUG_VALUE_POS * 4) != serverSeq * 5) {
+                problem.compareAndSet(null, "Debug area not written for " + serverSeq);
+            }
+            serverSeq++;
+            sharedMemory.putInt(SERVER_VALUE_POS * 4, serverSeq * 3);
+            handshake.publishServerSeq(serverSeq);
+        }
+
+        debugVM.join(10000);
+        assertNull(problem.get());
+        assertFalse(debugVM.isAlive());
+        assertEquals(exchanges, handshake.getDebugSeq());
+    }
+
+    public void testInterrupt() throws InterruptedException
+    {
+        VMCommsHandshake handshake = VMCommsHandshake.choose(sharedMemory, false);
+        Thread waiter = startWaiter(handshake);
+        waiter.interrupt();
+        waiter.join(10000);
+        assertFalse("The wait should end when interrupted", waiter.isAlive());
+    }
+
+    public void testClose() throws InterruptedException
+    {
+        VMCommsHandshake handshake = VMCommsHandshake.choose(sharedMemory, false);
+        Thread waiter = startWaiter(handshake);
+        handshake.close();
+        waiter.join(10000);
+        assertFalse("The wait should end when the handshake is closed", waiter.isAlive());
+    }
+
+    /**
+     * Start a thread which waits for the server VM (which never publishes anything).
+     */
+    private static Thread startWaiter(VMCommsHandshake handshake) throws InterruptedException
+    {
+        Thread waiter = new Thread(() -> {
+            try {
+                handshake.awaitServerSeq(0);
+            }
+            catch (InterruptedException e) {
+                // Expected
+            }
+        });
+        waiter.start();
+        // Let it get as far as parking:
+        Thread.sleep(50);
+        return waiter;
+    }
+}